@@ -125,6 +125,14 @@ tasks.startScripts {
     defaultJvmOpts = listOf("-Xmx2048m", "-ea")
 }
 
+val clientStartScripts by tasks.registering(CreateStartScripts::class) {
+    applicationName = "${rootProject.name}-client"
+    mainClass.set("de.fosd.jdime.Client")
+    outputDir = file("$buildDir/clientScripts")
+    classpath = tasks.startScripts.get().classpath
+    defaultJvmOpts = listOf("-Xmx2048m", "-ea")
+}
+
 distributions {
     main {
         val binDir = "bin"
@@ -148,6 +156,8 @@ distributions {
                 from(project.projectDir) {
                     include(loggingConfigFile.name)
                 }
+
+                from(clientStartScripts)
             }
         }
     }
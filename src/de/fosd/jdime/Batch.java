@@ -0,0 +1,286 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import de.fosd.jdime.config.JDimeConfig;
+import de.fosd.jdime.execption.AbortException;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_BATCH;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_MODE;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_MS_LABEL;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_OUTPUT;
+import static de.fosd.jdime.config.JDimeConfig.BATCH_THREADS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Executes the merge scenarios listed in a manifest in one JVM. The manifest contains one JSON object per line of the
+ * form
+ * <pre>
+ * {"paths": ["left", "base", "right"], "strategy": "structured", "output": "merged", "label": "scenario 1"}
+ * </pre>
+ * where all attributes except <code>paths</code> are optional. Every scenario is merged as if JDime was run using the
+ * command line arguments of the batch (without '-batch') and the attributes of the scenario, which take precedence.
+ * The scenarios are executed concurrently by {@value JDimeConfig#BATCH_THREADS} threads. For every scenario a JSON
+ * object containing its line in the manifest, its label, the exit code, the runtime and everything it wrote to
+ * <code>System.out</code> and <code>System.err</code> (e.g. the human readable statistics) is written as a line to
+ * <code>System.out</code> as soon as the scenario is finished. A scenario that crashes or aborts does not affect the
+ * other scenarios.
+ */
+final class Batch {
+
+    private static final Logger LOG = Logger.getLogger(Batch.class.getCanonicalName());
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    /**
+     * A merge scenario as read from the manifest.
+     */
+    private static final class Scenario {
+
+        private List<String> paths;
+        private String strategy;
+        private String output;
+        private String label;
+    }
+
+    private final List<Option> options;
+    private final PrintStream results;
+    private final AtomicInteger failed;
+
+    /**
+     * Constructs a new <code>Batch</code>.
+     *
+     * @param cmdLine
+     *         the command line arguments of the batch
+     * @param results
+     *         the stream to write the results of the scenarios to
+     */
+    private Batch(CommandLine cmdLine, PrintStream results) {
+        this.options = new ArrayList<>(Arrays.asList(cmdLine.getOptions()));
+        this.results = results;
+        this.failed = new AtomicInteger();
+
+        options.removeIf(o -> o.getOpt().equals(CLI_BATCH));
+    }
+
+    /**
+     * Executes the merge scenarios listed in the manifest given on the command line.
+     *
+     * @param config
+     *         the configuration of the batch
+     * @return {@link Main#EXIT_SUCCESS} if no scenario failed or aborted, {@link Main#EXIT_FAILURE} otherwise
+     */
+    static int run(JDimeConfig config) {
+        return run(config, System.out);
+    }
+
+    /**
+     * Executes the merge scenarios listed in the manifest given on the command line and writes their results to the
+     * given stream.
+     *
+     * @param config
+     *         the configuration of the batch
+     * @param results
+     *         the stream to write the results of the scenarios to
+     * @return {@link Main#EXIT_SUCCESS} if no scenario failed or aborted, {@link Main#EXIT_FAILURE} otherwise
+     */
+    static int run(JDimeConfig config, PrintStream results) {
+        File manifest = config.get(CLI_BATCH).map(String::trim).map(File::new).get();
+        int threads = config.getInteger(BATCH_THREADS).orElse(Runtime.getRuntime().availableProcessors());
+
+        Batch batch = new Batch(config.getCmdLine().getCommandLine(), results);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+
+        try (BufferedReader reader = Files.newBufferedReader(manifest.toPath(), UTF_8)) {
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                String scenario = line;
+                int number = lineNumber;
+
+                executor.execute(() -> batch.execute(number, scenario));
+            }
+        } catch (IOException e) {
+            throw new AbortException("Could not read the manifest " + manifest + ".", e);
+        } finally {
+            executor.shutdown();
+
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                LOG.log(Level.WARNING, e, () -> "Interrupted while waiting for the scenarios to finish.");
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return batch.failed.get() == 0 ? Main.EXIT_SUCCESS : Main.EXIT_FAILURE;
+    }
+
+    /**
+     * Executes the scenario described by the given line of the manifest and writes its result.
+     *
+     * @param lineNumber
+     *         the number of the line in the manifest
+     * @param line
+     *         the line describing the scenario
+     */
+    private void execute(int lineNumber, String line) {
+        JsonObject result = new JsonObject();
+        result.addProperty("line", lineNumber);
+
+        Scenario scenario;
+
+        try {
+            scenario = GSON.fromJson(line, Scenario.class);
+        } catch (JsonParseException e) {
+            scenario = null;
+        }
+
+        if (scenario == null || scenario.paths == null || scenario.paths.isEmpty()) {
+            result.addProperty("exitCode", Main.EXIT_ABORTED);
+            result.addProperty("err", "Invalid scenario: " + line);
+            report(result);
+            return;
+        }
+
+        String[] scenarioArgs = args(scenario);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        LOG.fine(() -> "Executing the scenario in line " + lineNumber + ": " + Arrays.toString(scenarioArgs));
+
+        long start = System.currentTimeMillis();
+        int exitCode = OutputCapture.execute(() -> Main.execute(scenarioArgs), out, err);
+        long runtime = System.currentTimeMillis() - start;
+
+        if (scenario.label != null) {
+            result.addProperty("label", scenario.label);
+        }
+
+        result.addProperty("exitCode", exitCode);
+        result.addProperty("runtime", runtime);
+        result.addProperty("out", new String(out.toByteArray(), UTF_8));
+        result.addProperty("err", new String(err.toByteArray(), UTF_8));
+        report(result);
+    }
+
+    /**
+     * Returns the command line arguments for merging the given scenario.
+     *
+     * @param scenario
+     *         the scenario to merge
+     * @return the command line arguments
+     */
+    private String[] args(Scenario scenario) {
+        Map<String, String> overrides = new LinkedHashMap<>();
+
+        if (scenario.strategy != null) {
+            overrides.put(CLI_MODE, scenario.strategy);
+        }
+
+        if (scenario.output != null) {
+            overrides.put(CLI_OUTPUT, scenario.output);
+        }
+
+        if (scenario.label != null) {
+            overrides.put(CLI_MS_LABEL, scenario.label);
+        }
+
+        List<String> scenarioArgs = new ArrayList<>();
+
+        for (Option option : options) {
+
+            if (overrides.containsKey(option.getOpt())) {
+                continue;
+            }
+
+            scenarioArgs.add("-" + option.getOpt());
+
+            if (option.hasArg()) {
+                scenarioArgs.add(option.getValue());
+            }
+        }
+
+        overrides.forEach((opt, value) -> {
+            scenarioArgs.add("-" + opt);
+            scenarioArgs.add(value);
+        });
+
+        scenarioArgs.add("--");
+        scenarioArgs.addAll(scenario.paths);
+
+        return scenarioArgs.toArray(new String[0]);
+    }
+
+    /**
+     * Writes the result of a scenario as a line to the results stream.
+     *
+     * @param result
+     *         the result of the scenario
+     */
+    private void report(JsonObject result) {
+
+        if (result.get("exitCode").getAsInt() >= Main.EXIT_ABORTED) {
+            failed.incrementAndGet();
+        }
+
+        String json = GSON.toJson(result);
+
+        synchronized (results) {
+            results.println(json);
+        }
+    }
+}
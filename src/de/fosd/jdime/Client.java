@@ -0,0 +1,285 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.fosd.jdime.config.CommandLineConfigSource;
+import de.fosd.jdime.config.JDimeConfig;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.ParseException;
+
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_GIT_REPOSITORY;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_OUTPUT;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_PROP_FILE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A thin client sending its command line arguments to a running {@link Server} and reproducing its output and exit
+ * code. The command line arguments are the same as for {@link Main}. Relative paths in the arguments are resolved
+ * against the working directory of the client before they are sent. The port of the {@link Server} is read from the
+ * environment variable {@value JDimeConfig#SERVER_PORT}, the token authenticating the request from the token file of
+ * the {@link Server}. If no {@link Server} is running (or its token can not be read), the merge is executed by the
+ * client itself.
+ */
+public final class Client {
+
+    private static final int CONNECT_TIMEOUT = 1000;
+
+    /**
+     * The maximum size of an output sent by the <code>Server</code> in bytes.
+     */
+    static final int MAX_OUTPUT = 512 * 1024 * 1024;
+
+    /**
+     * The options whose values are paths.
+     */
+    private static final List<String> PATH_OPTIONS = Arrays.asList(CLI_OUTPUT, CLI_PROP_FILE, CLI_GIT_REPOSITORY);
+
+    /**
+     * The configuration file read by {@link Main} from the working directory if none is given.
+     */
+    private static final String CONFIG_FILE_NAME = "JDime.properties";
+
+    /**
+     * Prevent instantiation.
+     */
+    private Client() {}
+
+    /**
+     * Requests a merge of the input files or directories from the running {@link Server}.
+     *
+     * @param args
+     *         command line arguments
+     */
+    public static void main(String[] args) {
+        int port = getPort();
+        Socket socket = new Socket();
+        String token;
+
+        try {
+            token = readToken(Server.tokenFile(Server.defaultTokenDirectory(), port));
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT);
+        } catch (IOException e) {
+            closeQuietly(socket);
+            Main.main(args);
+            return;
+        }
+
+        int exitCode;
+
+        try (Socket s = socket) {
+            exitCode = request(s, token, resolvePaths(args), System.out, System.err);
+        } catch (IOException e) {
+            System.err.println("The request to the JDime server failed: " + e.getMessage());
+            exitCode = Main.EXIT_FAILURE;
+        }
+
+        System.exit(exitCode);
+    }
+
+    /**
+     * Reads the token of a <code>Server</code> from its token file.
+     *
+     * @param tokenFile
+     *         the token file of the <code>Server</code>
+     * @return the token
+     * @throws IOException
+     *         if the token file can not be read
+     */
+    static String readToken(File tokenFile) throws IOException {
+        return new String(Files.readAllBytes(tokenFile.toPath()), UTF_8).trim();
+    }
+
+    /**
+     * Closes the given socket ignoring any exception.
+     *
+     * @param socket
+     *         the socket to close
+     */
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // the socket was not connected
+        }
+    }
+
+    /**
+     * Sends the given arguments to the <code>Server</code> and writes its output to the given streams.
+     *
+     * @param socket
+     *         the connection to the <code>Server</code>
+     * @param token
+     *         the token of the <code>Server</code>
+     * @param args
+     *         the command line arguments to send
+     * @param out
+     *         the stream to write the output of the request to
+     * @param err
+     *         the stream to write the error output of the request to
+     * @return the exit code sent by the <code>Server</code>
+     * @throws IOException
+     *         if there is an exception communicating with the <code>Server</code> or its response is malformed
+     */
+    static int request(Socket socket, String token, String[] args, PrintStream out, PrintStream err)
+            throws IOException {
+        DataOutputStream request = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        request.writeUTF(token);
+        request.writeInt(args.length);
+
+        for (String arg : args) {
+            request.writeUTF(arg);
+        }
+
+        request.flush();
+
+        DataInputStream response = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        int exitCode = response.readInt();
+
+        copy(response, out);
+        copy(response, err);
+
+        return exitCode;
+    }
+
+    /**
+     * Copies an output sent by the <code>Server</code> to the given stream.
+     *
+     * @param response
+     *         the response of the <code>Server</code>
+     * @param to
+     *         the stream to copy the output to
+     * @throws IOException
+     *         if there is an exception reading the response or the size of the output is invalid
+     */
+    private static void copy(DataInputStream response, PrintStream to) throws IOException {
+        int size = response.readInt();
+
+        if (size < 0 || size > MAX_OUTPUT) {
+            throw new IOException("Invalid size of the output " + size + ". Must be at most " + MAX_OUTPUT + ".");
+        }
+
+        byte[] output = new byte[size];
+
+        response.readFully(output);
+        to.write(output, 0, output.length);
+        to.flush();
+    }
+
+    /**
+     * Returns the arguments with all paths made absolute so that the <code>Server</code> can use them regardless of
+     * its working directory. If the arguments can not be parsed, they are returned unchanged and the
+     * <code>Server</code> reports the error.
+     *
+     * @param args
+     *         the command line arguments
+     * @return the arguments to send to the <code>Server</code>
+     */
+    private static String[] resolvePaths(String[] args) {
+        CommandLine cmdLine;
+
+        try {
+            cmdLine = new CommandLineConfigSource(args).getCommandLine();
+        } catch (ParseException e) {
+            return args;
+        }
+
+        List<String> resolved = new ArrayList<>(args.length + 2);
+
+        for (Option option : cmdLine.getOptions()) {
+            resolved.add("-" + option.getOpt());
+
+            if (option.hasArg()) {
+                String value = option.getValue();
+                resolved.add(PATH_OPTIONS.contains(option.getOpt()) ? absolute(value) : value);
+            }
+        }
+
+        File configFile = new File(CONFIG_FILE_NAME);
+
+        if (!cmdLine.hasOption(CLI_PROP_FILE) && configFile.exists()) {
+            resolved.add("-" + CLI_PROP_FILE);
+            resolved.add(configFile.getAbsolutePath());
+        }
+
+        List<String> inputs = cmdLine.getArgList();
+
+        if (!inputs.isEmpty()) {
+            resolved.add("--");
+
+            for (String input : inputs) {
+                // Inputs read from a git repository are revisions rather than paths.
+                resolved.add(cmdLine.hasOption(CLI_GIT_REPOSITORY) ? input : absolute(input));
+            }
+        }
+
+        return resolved.toArray(new String[0]);
+    }
+
+    /**
+     * Resolves the given path against the working directory.
+     *
+     * @param path
+     *         the path to resolve
+     * @return the absolute path
+     */
+    private static String absolute(String path) {
+        return new File(path).getAbsolutePath();
+    }
+
+    /**
+     * Returns the port of the <code>Server</code>.
+     *
+     * @return the port
+     */
+    private static int getPort() {
+        String port = System.getenv(JDimeConfig.SERVER_PORT);
+
+        if (port != null) {
+            try {
+                return Integer.parseInt(port.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring the invalid " + JDimeConfig.SERVER_PORT + " " + port + ".");
+            }
+        }
+
+        return Server.DEFAULT_PORT;
+    }
+}
@@ -34,6 +34,7 @@
 import de.fosd.jdime.matcher.matching.Color;
 import de.fosd.jdime.matcher.matching.Matching;
 import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.merge.FileMergePool;
 import de.fosd.jdime.operations.MergeOperation;
 import de.fosd.jdime.stats.KeyEnums;
 import de.fosd.jdime.stats.Statistics;
@@ -44,18 +45,20 @@
 import org.apache.commons.io.FileUtils;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
 import java.security.Permission;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_BATCH;
 import static de.fosd.jdime.config.CommandLineConfigSource.CLI_HELP;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_REPLAY;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_SERVER;
 import static de.fosd.jdime.config.CommandLineConfigSource.CLI_VERSION;
 import static de.fosd.jdime.config.JDimeConfig.*;
 
@@ -116,8 +119,6 @@ public void checkExit(int status) {
     public static final int EXIT_COMPARE_EQUAL = EXIT_SUCCESS;
     public static final int EXIT_COMPARE_NOT_EQUAL = 220;
 
-    private static JDimeConfig config;
-
     /**
      * Prevent instantiation.
      */
@@ -130,18 +131,30 @@ private Main() {}
      *         command line arguments
      */
     public static void main(String[] args) {
+        int exitCode;
 
         try {
-            int exitCode;
+            System.setSecurityManager(NO_EXIT_SEC_MANAGER);
+            exitCode = execute(args);
+        } finally {
+            System.setSecurityManager(SYS_SEC_MANAGER);
+        }
 
-            try {
-                System.setSecurityManager(NO_EXIT_SEC_MANAGER);
-                exitCode = run(args);
-            } finally {
-                System.setSecurityManager(SYS_SEC_MANAGER);
-            }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Perform a merge operation on the input files or directories. Exceptions aborting the merge are logged and
+     * converted to the corresponding exit codes.
+     *
+     * @param args
+     *         command line arguments
+     * @return the exit code for the program as described in {@link #run(String[])}
+     */
+    static int execute(String[] args) {
 
-            System.exit(exitCode);
+        try {
+            return run(args);
         } catch (AbortException e) {
 
             if (e.getCause() != null) {
@@ -151,10 +164,10 @@ public static void main(String[] args) {
                 LOG.log(Level.FINE, e, () -> "Aborting the merge.");
             }
 
-            System.exit(EXIT_ABORTED);
+            return EXIT_ABORTED;
         } catch (Throwable e) {
             LOG.log(Level.SEVERE, e, () -> "Uncaught exception.");
-            System.exit(EXIT_FAILURE);
+            return EXIT_FAILURE;
         }
     }
 
@@ -181,10 +194,8 @@ public static int run(String[] args) {
             return EXIT_FAILURE;
         }
 
-        Main.config = config;
-
         if (args.length == 0 || config.getBoolean(CLI_HELP).orElse(false)) {
-            printCLIHelp();
+            printCLIHelp(config);
             return EXIT_SUCCESS;
         }
 
@@ -198,6 +209,18 @@ public static int run(String[] args) {
             return EXIT_SUCCESS;
         }
 
+        if (config.getBoolean(CLI_SERVER).orElse(false)) {
+            return serve(config);
+        }
+
+        if (config.get(CLI_BATCH).isPresent()) {
+            return Batch.run(config);
+        }
+
+        if (config.get(CLI_REPLAY).isPresent()) {
+            return Replay.run(config);
+        }
+
         context.configureFrom(config);
 
         List<FileArtifact> inputFiles = context.getInputFiles();
@@ -220,7 +243,7 @@ public static int run(String[] args) {
             merge(context);
             output(context);
         } finally {
-            outputStatistics(context);
+            outputStatistics(context, config);
         }
 
         if (LOG.isLoggable(Level.FINE)) {
@@ -288,8 +311,10 @@ private static void output(MergeContext context) {
      *
      * @param context
      *         the {@link MergeContext} containing the {@link Statistics} to output
+     * @param config
+     *         the {@link JDimeConfig} determining where to output the {@link Statistics}
      */
-    private static void outputStatistics(MergeContext context) {
+    private static void outputStatistics(MergeContext context, JDimeConfig config) {
 
         if (!context.hasStatistics()) {
             return;
@@ -315,13 +340,13 @@ private static void outputStatistics(MergeContext context) {
                     f = new File(f, String.format(name, new Date()));
                 }
 
-                if (config.getBoolean(STATISTICS_OUTPUT_USE_UNIQUE_FILES).orElse(true)) {
-                    f = findNonExistent(f);
-                }
-
                 try {
+                    if (config.getBoolean(STATISTICS_OUTPUT_USE_UNIQUE_FILES).orElse(true)) {
+                        f = reserveNonExistent(f);
+                    }
+
                     statistics.print(f);
-                } catch (FileNotFoundException e) {
+                } catch (IOException e) {
                     LOG.log(Level.WARNING, e, () -> "Statistics output failed.");
                 }
             }
@@ -343,13 +368,13 @@ private static void outputStatistics(MergeContext context) {
                     f = new File(f, String.format(name, new Date()));
                 }
 
-                if (config.getBoolean(STATISTICS_OUTPUT_USE_UNIQUE_FILES).orElse(true)) {
-                    f = findNonExistent(f);
-                }
-
                 try {
+                    if (config.getBoolean(STATISTICS_OUTPUT_USE_UNIQUE_FILES).orElse(true)) {
+                        f = reserveNonExistent(f);
+                    }
+
                     statistics.printXML(f, context);
-                } catch (FileNotFoundException e) {
+                } catch (IOException e) {
                     LOG.log(Level.WARNING, e, () -> "Statistics output failed.");
                 }
             }
@@ -357,20 +382,17 @@ private static void outputStatistics(MergeContext context) {
     }
 
     /**
-     * Returns a <code>File</code> (possibly <code>f</code>) that does not exist in the parent directory of
-     * <code>f</code>. If <code>f</code> exists an increasing number is appended to the name of <code>f</code> until
-     * a <code>File</code> is found that does not exist.
+     * Creates a new empty file (possibly <code>f</code>) in the parent directory of <code>f</code>. If <code>f</code>
+     * exists an increasing number is appended to the name of <code>f</code> until a file can be created. Since the
+     * file is created atomically, concurrent merges (e.g. in batch mode) never reserve the same file.
      *
      * @param f
-     *         the <code>File</code> to find a non existent version of
-     * @return a <code>File</code> in the parent directory of <code>f</code> that does not exist
+     *         the <code>File</code> to create a non existent version of
+     * @return the created <code>File</code> in the parent directory of <code>f</code>
+     * @throws IOException
+     *         if the file can not be created
      */
-    private static File findNonExistent(File f) {
-
-        if (!f.exists()) {
-            return f;
-        }
-
+    static File reserveNonExistent(File f) throws IOException {
         String fullName = f.getName();
         String name;
         String extension;
@@ -386,16 +408,19 @@ private static File findNonExistent(File f) {
         }
 
         File parent = f.getParentFile();
+        File candidate = f;
 
-        Stream<File> files = IntStream.range(0, Integer.MAX_VALUE).mapToObj(v -> {
-            String fileName = String.format("%s_%d%s", name, v, extension);
-            return new File(parent, fileName);
-        });
+        for (int v = 0; v < Integer.MAX_VALUE; v++) {
 
-        File nextFree = files.filter(file -> !file.exists()).findFirst().orElseThrow(() ->
-                new RuntimeException("Can not find a file that does not exist."));
+            try {
+                Files.createFile(candidate.toPath());
+                return candidate;
+            } catch (FileAlreadyExistsException e) {
+                candidate = new File(parent, String.format("%s_%d%s", name, v, extension));
+            }
+        }
 
-        return nextFree;
+        throw new IOException("Can not find a file that does not exist.");
     }
 
     /**
@@ -445,7 +470,9 @@ private static void readLoggingConfig() {
     }
 
     /**
-     * Merges the input files.
+     * Merges the input files. If the inputs are directories and {@link MergeContext#getThreads()} is greater than 1,
+     * the contained files are merged in parallel using a {@link FileMergePool}. The
+     * {@link MergeContext#getMatcherPool() matcher pool} of the <code>context</code> is shut down afterwards.
      *
      * @param context
      *         merge context
@@ -462,7 +489,23 @@ public static void merge(MergeContext context) {
         MergeOperation<FileArtifact> merge = new MergeOperation<>(inFiles, outFile, conditional);
         Optional.ofNullable(context.getMergeScenarioLabel()).ifPresent(l -> merge.getMergeScenario().setLabel(l));
 
-        merge.apply(context);
+        try {
+            if (context.getThreads() > 1 && outFile.isDirectory()) {
+
+                try (FileMergePool pool = new FileMergePool(context.getThreads())) {
+                    context.setFileMergePool(pool);
+
+                    merge.apply(context);
+                    pool.awaitAll();
+                } finally {
+                    context.setFileMergePool(null);
+                }
+            } else {
+                merge.apply(context);
+            }
+        } finally {
+            context.shutdownMatcherPool();
+        }
     }
 
     /**
@@ -543,6 +586,25 @@ private static int compare(MergeContext context) {
         FileArtifact left = inputFiles.get(0);
         FileArtifact right = inputFiles.get(1);
 
+        if (astsMatch(left, right, context)) {
+            return EXIT_COMPARE_EQUAL;
+        } else {
+            return EXIT_COMPARE_NOT_EQUAL;
+        }
+    }
+
+    /**
+     * Parses the given {@link FileArtifact.FileType#FILE files} and uses the {@link Matcher} to compare their ASTs.
+     *
+     * @param left
+     *         the first file
+     * @param right
+     *         the second file
+     * @param context
+     *         the {@link MergeContext} to use for matching
+     * @return whether the ASTs of the files fully match
+     */
+    static boolean astsMatch(FileArtifact left, FileArtifact right, MergeContext context) {
         ASTNodeArtifact leftAST = new ASTNodeArtifact(left);
         ASTNodeArtifact rightAST = new ASTNodeArtifact(right);
 
@@ -551,23 +613,38 @@ private static int compare(MergeContext context) {
 
         Optional<Matching<ASTNodeArtifact>> optRootMatching = matches.get(leftAST, rightAST);
 
-        if (!optRootMatching.isPresent()) {
-            return EXIT_COMPARE_NOT_EQUAL;
-        }
+        return optRootMatching.isPresent() && optRootMatching.get().hasFullyMatched();
+    }
 
-        Matching<ASTNodeArtifact> rootMatching = optRootMatching.get();
+    /**
+     * Starts a {@link Server} executing the requests of {@link Client Clients} and serves requests until the
+     * {@link Server} is closed.
+     *
+     * @param config
+     *         the {@link JDimeConfig} containing the port to listen on
+     * @return the exit code for the program
+     */
+    private static int serve(JDimeConfig config) {
+        int port = config.getInteger(SERVER_PORT).orElse(Server.DEFAULT_PORT);
 
-        if (rootMatching.hasFullyMatched()) {
-            return EXIT_COMPARE_EQUAL;
-        } else {
-            return EXIT_COMPARE_NOT_EQUAL;
+        try (Server server = new Server(port)) {
+            LOG.info(() -> "Listening for requests on port " + server.getPort() + " using the token in "
+                    + server.getTokenFile() + ".");
+            server.serve();
+        } catch (IOException e) {
+            throw new AbortException("Could not serve requests on port " + port + ".", e);
         }
+
+        return EXIT_SUCCESS;
     }
 
     /**
      * Prints usage information and a help text about the command line options to <code>System.out</code>.
+     *
+     * @param config
+     *         the {@link JDimeConfig} containing the command line options
      */
-    private static void printCLIHelp() {
+    private static void printCLIHelp(JDimeConfig config) {
         String ls = System.lineSeparator();
         HelpFormatter formatter = new HelpFormatter();
 
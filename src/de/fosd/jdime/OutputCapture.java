@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.function.IntSupplier;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.StreamHandler;
+
+/**
+ * Captures what is written to <code>System.out</code> and <code>System.err</code> while executing a task. To separate
+ * the output of tasks executed concurrently, <code>System.out</code> and <code>System.err</code> are replaced by streams
+ * writing to the output of the task executed by the current thread. The <code>ConsoleHandler</code>s of the JDime
+ * loggers are replaced as well, so the log messages of a task are part of its error output. Output written by
+ * threads that do not execute a task (e.g., the worker threads of a merge) goes to the original streams.
+ */
+final class OutputCapture {
+
+    private static ThreadOutput out;
+    private static ThreadOutput err;
+
+    /**
+     * Prevent instantiation.
+     */
+    private OutputCapture() {}
+
+    /**
+     * Executes the given task in the current thread capturing its output.
+     *
+     * @param task
+     *         the task to execute
+     * @param taskOut
+     *         the stream to write the output of the task to
+     * @param taskErr
+     *         the stream to write the error output of the task to
+     * @return the result of the task
+     */
+    static int execute(IntSupplier task, OutputStream taskOut, OutputStream taskErr) {
+        install();
+
+        out.setTarget(taskOut);
+        err.setTarget(taskErr);
+
+        try {
+            return task.getAsInt();
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            out.setTarget(null);
+            err.setTarget(null);
+        }
+    }
+
+    /**
+     * Replaces <code>System.out</code> and <code>System.err</code> if that was not done before.
+     */
+    private static synchronized void install() {
+
+        if (out == null) {
+            out = new ThreadOutput(System.out);
+            err = new ThreadOutput(System.err);
+
+            System.setOut(new PrintStream(out, true));
+            System.setErr(new PrintStream(err, true));
+
+            Logger root = Logger.getLogger(Main.class.getPackage().getName());
+
+            for (Handler handler : root.getHandlers()) {
+
+                if (handler instanceof ConsoleHandler) {
+                    root.removeHandler(handler);
+                    root.addHandler(new ErrHandler(handler));
+                }
+            }
+        }
+    }
+
+    /**
+     * A <code>Handler</code> replacing a <code>ConsoleHandler</code>. Unlike the <code>ConsoleHandler</code>, which
+     * writes to the <code>System.err</code> at the time of its construction, it writes to the replaced
+     * <code>System.err</code> and therefore to the error output of the task executed by the logging thread.
+     */
+    private static final class ErrHandler extends StreamHandler {
+
+        /**
+         * Constructs a new <code>ErrHandler</code> using the level and formatter of the given <code>Handler</code>.
+         *
+         * @param replaced
+         *         the <code>Handler</code> to replace
+         */
+        private ErrHandler(Handler replaced) {
+            super(System.err, replaced.getFormatter());
+            setLevel(replaced.getLevel());
+        }
+
+        @Override
+        public synchronized void publish(LogRecord record) {
+            super.publish(record);
+            flush(); // while still holding the lock so that the record is written to the output of this thread
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
+    /**
+     * An <code>OutputStream</code> writing to the output of the task executed by the current thread or, if the
+     * thread is not executing a task, to the original stream.
+     */
+    private static final class ThreadOutput extends OutputStream {
+
+        private final OutputStream original;
+        private final ThreadLocal<OutputStream> target;
+
+        /**
+         * Constructs a new <code>ThreadOutput</code>.
+         *
+         * @param original
+         *         the stream to write to if the current thread is not executing a task
+         */
+        private ThreadOutput(OutputStream original) {
+            this.original = original;
+            this.target = new ThreadLocal<>();
+        }
+
+        /**
+         * Sets the stream to write to for the current thread.
+         *
+         * @param stream
+         *         the output of the task or <code>null</code> to write to the original stream
+         */
+        private void setTarget(OutputStream stream) {
+
+            if (stream == null) {
+                target.remove();
+            } else {
+                target.set(stream);
+            }
+        }
+
+        /**
+         * Returns the stream to write to for the current thread.
+         *
+         * @return the stream to write to
+         */
+        private OutputStream stream() {
+            OutputStream stream = target.get();
+            return stream != null ? stream : original;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            stream().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            stream().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            stream().flush();
+        }
+    }
+}
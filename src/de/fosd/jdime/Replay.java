@@ -0,0 +1,453 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.artifact.file.GitRepository;
+import de.fosd.jdime.config.JDimeConfig;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.config.merge.Revision;
+import de.fosd.jdime.execption.AbortException;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.ParseException;
+
+import static de.fosd.jdime.config.CommandLineConfigSource.ARG_LIST;
+import static de.fosd.jdime.config.CommandLineConfigSource.ARG_LIST_SEP;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_ACCEPT_NON_JAVA;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_GIT_REPOSITORY;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_OUTPUT;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_PRETEND;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_REPLAY;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_STATS;
+import static de.fosd.jdime.config.JDimeConfig.BATCH_THREADS;
+import static de.fosd.jdime.config.JDimeConfig.REPLAY_PROGRESS_FILE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Replays the merge commits in the history of a local git repository. For every merge commit with two parents, the
+ * files changed on both sides since the merge base are merged using the configured strategy, reading the revisions
+ * directly from the object database. The results are compared to the committed versions of the files using the
+ * {@link de.fosd.jdime.matcher.Matcher}. The merges of the files of all commits are executed concurrently by
+ * {@value JDimeConfig#BATCH_THREADS} threads. As soon as all files of a commit are merged, a JSON object describing
+ * the commit, the runtime and the number of conflicts of every merged file and whether it matches the committed
+ * version is written as a line to <code>System.out</code>.
+ * <p>
+ * If {@value JDimeConfig#REPLAY_PROGRESS_FILE} is set, the ids of the replayed commits are appended to that file and
+ * commits already listed in it are skipped. An interrupted replay can therefore be resumed by running it again.
+ */
+final class Replay {
+
+    private static final Logger LOG = Logger.getLogger(Replay.class.getCanonicalName());
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private static final String DEFAULT_RANGE = "HEAD";
+    private static final String JAVA_EXTENSION = ".java";
+
+    /**
+     * The revision of the committed versions of the merged files.
+     */
+    private static final Revision COMMITTED = new Revision("committed");
+
+    private final GitRepository repository;
+    private final List<String> options;
+    private final boolean acceptNonJava;
+    private final BufferedWriter progress;
+    private final PrintStream results;
+    private final Consumer<MergeContext> merger;
+    private final AtomicInteger failed;
+
+    /**
+     * Constructs a new <code>Replay</code>.
+     *
+     * @param repository
+     *         the repository whose merge commits to replay
+     * @param config
+     *         the configuration of the replay
+     * @param progress
+     *         the writer to append the ids of the replayed commits to or <code>null</code>
+     * @param results
+     *         the stream to write the results of the commits to
+     * @param merger
+     *         the function executing the merge of a single file
+     */
+    private Replay(GitRepository repository, JDimeConfig config, BufferedWriter progress, PrintStream results,
+                   Consumer<MergeContext> merger) {
+        this.repository = repository;
+        this.options = new ArrayList<>();
+        this.acceptNonJava = config.getBoolean(CLI_ACCEPT_NON_JAVA).orElse(false);
+        this.progress = progress;
+        this.results = results;
+        this.merger = merger;
+        this.failed = new AtomicInteger();
+
+        List<String> replaced = Arrays.asList(CLI_REPLAY, CLI_GIT_REPOSITORY, CLI_OUTPUT, CLI_PRETEND, CLI_STATS);
+
+        for (Option option : config.getCmdLine().getCommandLine().getOptions()) {
+
+            if (replaced.contains(option.getOpt())) {
+                continue;
+            }
+
+            options.add("-" + option.getOpt());
+
+            if (option.hasArg()) {
+                options.add(option.getValue());
+            }
+        }
+
+        options.add("-" + CLI_GIT_REPOSITORY);
+        options.add(repository.getDirectory().getAbsolutePath());
+        options.add("-" + CLI_PRETEND);
+        options.add("-" + CLI_STATS);
+    }
+
+    /**
+     * Replays the merge commits of the repository given on the command line. The revision ranges to replay are given
+     * as the input files, by default all merge commits reachable from <code>HEAD</code> are replayed.
+     *
+     * @param config
+     *         the configuration of the replay
+     * @return {@link Main#EXIT_SUCCESS} if no merge failed, {@link Main#EXIT_FAILURE} otherwise
+     */
+    static int run(JDimeConfig config) {
+        File directory = config.get(CLI_REPLAY).map(String::trim).map(File::new).get();
+
+        try (GitRepository repository = GitRepository.open(directory)) {
+            return run(repository, config, System.out, Main::merge);
+        }
+    }
+
+    /**
+     * Replays the merge commits of the given repository.
+     *
+     * @param repository
+     *         the repository to replay the merge commits of
+     * @param config
+     *         the configuration of the replay
+     * @param results
+     *         the stream to write the results of the commits to
+     * @param merger
+     *         the function executing the merge of a single file, usually {@link Main#merge(MergeContext)}
+     * @return {@link Main#EXIT_SUCCESS} if no merge failed, {@link Main#EXIT_FAILURE} otherwise
+     */
+    static int run(GitRepository repository, JDimeConfig config, PrintStream results,
+                   Consumer<MergeContext> merger) {
+        String[] ranges = config.get(ARG_LIST).map(args -> args.split(ARG_LIST_SEP))
+                                .orElse(new String[] {DEFAULT_RANGE});
+        int threads = config.getInteger(BATCH_THREADS).orElse(Runtime.getRuntime().availableProcessors());
+
+        Set<String> replayed = new HashSet<>();
+        File progressFile = config.get(REPLAY_PROGRESS_FILE).map(String::trim).map(File::new).orElse(null);
+
+        if (progressFile != null && progressFile.exists()) {
+            try {
+                Files.readAllLines(progressFile.toPath(), UTF_8).stream().map(String::trim).forEach(replayed::add);
+            } catch (IOException e) {
+                throw new AbortException("Could not read the replay progress from " + progressFile + ".", e);
+            }
+
+            LOG.info(() -> "Skipping the " + replayed.size() + " merge commits listed in " + progressFile + ".");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+
+        try (BufferedWriter progress = progressFile == null ? null : Files.newBufferedWriter(progressFile.toPath(),
+                UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+
+            Replay replay = new Replay(repository, config, progress, results, merger);
+
+            for (String range : ranges) {
+
+                for (List<String> merge : repository.mergeCommits(range.trim())) {
+
+                    if (merge.size() != 3) {
+                        LOG.fine(() -> "Skipping the octopus merge " + merge.get(0) + ".");
+                        continue;
+                    }
+
+                    if (replayed.add(merge.get(0))) {
+                        commits.add(replay.schedule(merge.get(0), merge.get(1), merge.get(2), executor));
+                    }
+                }
+            }
+
+            CompletableFuture<?>[] futures = commits.toArray(new CompletableFuture<?>[0]);
+            CompletableFuture.allOf(futures).join();
+
+            return replay.failed.get() == 0 ? Main.EXIT_SUCCESS : Main.EXIT_FAILURE;
+        } catch (IOException e) {
+            throw new AbortException("Could not write the replay progress to " + progressFile + ".", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Schedules the merges of the files changed on both sides of the given merge commit.
+     *
+     * @param commit
+     *         the merge commit
+     * @param left
+     *         the first parent of the merge commit
+     * @param right
+     *         the second parent of the merge commit
+     * @param executor
+     *         the executor to merge the files in
+     * @return a future completed when the result of the commit was reported, it never completes exceptionally
+     * @throws AbortException
+     *         if the changed files can not be determined
+     */
+    private CompletableFuture<Void> schedule(String commit, String left, String right, ExecutorService executor) {
+        String base;
+        List<String> files = new ArrayList<>();
+
+        try {
+            base = repository.mergeBase(left, right);
+
+            if (base != null) {
+                Set<String> leftChanges = new HashSet<>(repository.changedFiles(base, left));
+
+                for (String path : repository.changedFiles(base, right)) {
+
+                    if (leftChanges.contains(path) && (acceptNonJava || path.endsWith(JAVA_EXTENSION))) {
+                        files.add(path);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new AbortException("Could not determine the files changed by both parents of " + commit + ".", e);
+        }
+
+        List<CompletableFuture<JsonObject>> merges = new ArrayList<>(files.size());
+
+        for (String path : files) {
+            merges.add(CompletableFuture.supplyAsync(() -> merge(commit, left, base, right, path), executor));
+        }
+
+        CompletableFuture<?>[] futures = merges.toArray(new CompletableFuture<?>[0]);
+
+        return CompletableFuture.allOf(futures).thenRun(() -> {
+            JsonObject result = new JsonObject();
+            JsonArray parents = new JsonArray();
+            JsonArray fileResults = new JsonArray();
+            long runtime = 0;
+            long conflicts = 0;
+
+            parents.add(left);
+            parents.add(right);
+
+            for (CompletableFuture<JsonObject> fileResult : merges) {
+                JsonObject r = fileResult.join();
+
+                runtime += r.get("runtime").getAsLong();
+                conflicts += r.has("conflicts") ? r.get("conflicts").getAsLong() : 0;
+                fileResults.add(r);
+            }
+
+            result.addProperty("commit", commit);
+            result.add("parents", parents);
+            result.addProperty("base", base);
+            result.addProperty("runtime", runtime);
+            result.addProperty("conflicts", conflicts);
+            result.add("files", fileResults);
+
+            report(commit, result);
+        }).exceptionally(e -> {
+            LOG.log(Level.WARNING, e, () -> "Could not report the result of " + commit + ".");
+
+            JsonObject result = new JsonObject();
+            result.addProperty("commit", commit);
+            result.addProperty("error", e.toString());
+
+            report(commit, result);
+            return null;
+        });
+    }
+
+    /**
+     * Merges the versions of the file at <code>path</code> and compares the result to the committed version. Any
+     * <code>Exception</code> or <code>Error</code> thrown by the merge is recorded in the result.
+     *
+     * @param commit
+     *         the merge commit
+     * @param left
+     *         the first parent of the merge commit
+     * @param base
+     *         the merge base of the parents
+     * @param right
+     *         the second parent of the merge commit
+     * @param path
+     *         the path of the file to merge
+     * @return the result of the merge
+     */
+    private JsonObject merge(String commit, String left, String base, String right, String path) {
+        JsonObject result = new JsonObject();
+        result.addProperty("path", path);
+
+        long start = System.currentTimeMillis();
+
+        try {
+            List<String> args = new ArrayList<>(options);
+
+            args.add("--");
+            args.add(left + ":" + path);
+
+            if (repository.exists(base + ":" + path)) {
+                args.add(base + ":" + path);
+            }
+
+            args.add(right + ":" + path);
+
+            MergeContext context = new MergeContext();
+            context.configureFrom(new JDimeConfig(args.toArray(new String[0])));
+
+            merger.accept(context);
+
+            long runtime = System.currentTimeMillis() - start;
+            FileArtifact merged = context.getOutputFile();
+
+            result.addProperty("runtime", runtime);
+            result.addProperty("conflicts", context.getStatistics().getConflictStatistics().getSum());
+            result.addProperty("crashed", !context.getCrashes().isEmpty());
+            result.addProperty("matchesCommit", matchesCommit(merged, commit, path, context));
+        } catch (IOException | ParseException | RuntimeException | Error e) {
+            LOG.log(Level.WARNING, e, () -> "Could not replay the merge of " + path + " in " + commit + ".");
+
+            result.addProperty("runtime", System.currentTimeMillis() - start);
+            result.addProperty("error", e.toString());
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns whether the AST of the merge result fully matches the AST of the committed version of the file.
+     *
+     * @param merged
+     *         the result of the merge
+     * @param commit
+     *         the merge commit
+     * @param path
+     *         the path of the file
+     * @param context
+     *         the <code>MergeContext</code> of the merge
+     * @return true iff the merge result matches the committed version
+     * @throws IOException
+     *         if git can not be run
+     */
+    private boolean matchesCommit(FileArtifact merged, String commit, String path, MergeContext context)
+            throws IOException {
+
+        if (context.getStatistics().hasConflicts() || !repository.exists(commit + ":" + path)) {
+            return false;
+        }
+
+        FileArtifact committed = repository.read(COMMITTED, commit + ":" + path);
+
+        try {
+            return Main.astsMatch(merged, committed, context);
+        } catch (RuntimeException e) {
+            LOG.log(Level.FINE, e, () -> "Could not compare the merge result of " + path + " to " + commit + ".");
+            return false;
+        }
+    }
+
+    /**
+     * Writes the result of a merge commit as a line to the results stream and records it as replayed. The commit is
+     * counted as failed if its result or the result of one of its files contains an error.
+     *
+     * @param commit
+     *         the merge commit
+     * @param result
+     *         the result of the commit
+     */
+    private synchronized void report(String commit, JsonObject result) {
+        if (hasError(result)) {
+            failed.incrementAndGet();
+        }
+
+        results.println(GSON.toJson(result));
+        results.flush();
+
+        if (progress != null) {
+            try {
+                progress.write(commit);
+                progress.newLine();
+                progress.flush();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, e, () -> "Could not record " + commit + " as replayed.");
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given result of a merge commit or the result of one of its files contains an error.
+     *
+     * @param result
+     *         the result of the commit
+     * @return true iff the result contains an error
+     */
+    private static boolean hasError(JsonObject result) {
+        if (result.has("error")) {
+            return true;
+        }
+
+        if (result.has("files")) {
+            for (JsonElement file : result.getAsJsonArray("files")) {
+
+                if (file.getAsJsonObject().has("error")) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
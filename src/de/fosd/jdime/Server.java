@@ -0,0 +1,416 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.fosd.jdime.artifact.file.GitRepository;
+import de.fosd.jdime.config.CommandLineConfigSource;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.codec.binary.Hex;
+
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_LOG_LEVEL;
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_SERVER;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A long-running JDime instance executing the merges requested by {@link Client Clients}. Keeping the JVM running
+ * avoids paying for its startup, the loading of the ExtendJ classes and the warm-up of the JIT compiler for every
+ * merge, which dominates the runtime when JDime is used as a git merge driver. The <code>Server</code> listens on a
+ * loopback socket and executes up to {@link #MAX_REQUESTS} requests concurrently, each with its own
+ * <code>MergeContext</code>. Further requests wait until one of them finished. A connection that does not send its
+ * complete request within {@link #READ_TIMEOUT} milliseconds is closed.
+ * <p>
+ * Since every local user can connect to the loopback interface, the <code>Server</code> writes a random token to a
+ * {@link #tokenFile(File, int) token file} only its user can read. A request starts with this token followed by the
+ * command line arguments for JDime. Requests with a wrong token are rejected without executing them. The response
+ * contains the exit code and everything written to <code>System.out</code> and <code>System.err</code> while executing
+ * the request as captured by {@link OutputCapture}, including the messages logged by the thread executing the request.
+ * The log level is a setting of the whole process, a '-{@value CommandLineConfigSource#CLI_LOG_LEVEL}' option in a
+ * request is therefore ignored.
+ */
+public final class Server implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(Server.class.getCanonicalName());
+
+    /**
+     * The port to listen on if none is configured.
+     */
+    public static final int DEFAULT_PORT = 7391;
+
+    /**
+     * The maximum number of command line arguments of a request.
+     */
+    static final int MAX_ARGS = 4096;
+
+    /**
+     * The maximum number of requests executed concurrently.
+     */
+    static final int MAX_REQUESTS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of milliseconds to wait for the data of a request before closing the connection.
+     */
+    static final int READ_TIMEOUT = 30000;
+
+    private static final int BACKLOG = 64;
+    private static final int TOKEN_BYTES = 32;
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+    private final ServerSocket socket;
+    private final ExecutorService requests;
+
+    private final String token;
+    private final File tokenFile;
+
+    /**
+     * Constructs a new <code>Server</code> listening on the given port of the loopback interface. The token is written
+     * to the token file in the {@link #defaultTokenDirectory() default token directory}.
+     *
+     * @param port
+     *         the port to listen on, 0 to use any free port
+     * @throws IOException
+     *         if the socket can not be opened or the token file can not be written
+     */
+    public Server(int port) throws IOException {
+        this(port, defaultTokenDirectory());
+    }
+
+    /**
+     * Constructs a new <code>Server</code> listening on the given port of the loopback interface.
+     *
+     * @param port
+     *         the port to listen on, 0 to use any free port
+     * @param tokenDirectory
+     *         the directory to write the token file to
+     * @throws IOException
+     *         if the socket can not be opened or the token file can not be written
+     */
+    Server(int port, File tokenDirectory) throws IOException {
+        byte[] tokenBytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(tokenBytes);
+
+        this.socket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.token = Hex.encodeHexString(tokenBytes);
+        this.tokenFile = tokenFile(tokenDirectory, socket.getLocalPort());
+
+        try {
+            writeToken(tokenFile, token);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+
+        this.requests = Executors.newFixedThreadPool(MAX_REQUESTS);
+    }
+
+    /**
+     * Returns the directory the token files of the servers of the current user are written to.
+     *
+     * @return the token directory
+     */
+    static File defaultTokenDirectory() {
+        return new File(System.getProperty("user.home"), ".jdime");
+    }
+
+    /**
+     * Returns the token file of the <code>Server</code> listening on the given port.
+     *
+     * @param tokenDirectory
+     *         the directory containing the token files
+     * @param port
+     *         the port of the <code>Server</code>
+     * @return the token file
+     */
+    static File tokenFile(File tokenDirectory, int port) {
+        return new File(tokenDirectory, "server-" + port + ".token");
+    }
+
+    /**
+     * Writes the given token to a new file that only the current user may read and write. An existing token file
+     * (left behind by a server that was killed) is replaced.
+     *
+     * @param file
+     *         the file to write
+     * @param token
+     *         the token to write
+     * @throws IOException
+     *         if the file can not be written
+     */
+    private static void writeToken(File file, String token) throws IOException {
+        Path path = file.toPath();
+        Path directory = Files.createDirectories(path.getParent());
+        boolean posix = Files.getFileStore(directory).supportsFileAttributeView("posix");
+
+        Files.deleteIfExists(path);
+
+        try {
+            if (posix) {
+                Files.createFile(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            } else {
+                Files.createFile(path);
+
+                File f = path.toFile();
+                boolean ownerOnly = f.setReadable(false, false) && f.setReadable(true, true)
+                                    && f.setWritable(false, false) && f.setWritable(true, true);
+
+                if (!ownerOnly) {
+                    throw new IOException("Could not restrict the permissions of " + file + ".");
+                }
+            }
+        } catch (FileAlreadyExistsException e) {
+            throw new IOException("The token file " + file + " was created concurrently.", e);
+        }
+
+        Files.write(path, token.getBytes(UTF_8));
+    }
+
+    /**
+     * Returns the port this <code>Server</code> listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Returns the file containing the token <code>Client</code>s must send to this <code>Server</code>.
+     *
+     * @return the token file
+     */
+    public File getTokenFile() {
+        return tokenFile;
+    }
+
+    /**
+     * Accepts requests and executes them concurrently until this <code>Server</code> is closed.
+     *
+     * @throws IOException
+     *         if there is an exception accepting a connection
+     */
+    public void serve() throws IOException {
+
+        while (!socket.isClosed()) {
+            Socket connection;
+
+            try {
+                connection = socket.accept();
+            } catch (SocketException e) {
+
+                if (socket.isClosed()) {
+                    break;
+                }
+
+                throw e;
+            }
+
+            requests.execute(() -> handle(connection));
+        }
+    }
+
+    /**
+     * Reads a request from the given connection, executes it and sends the response.
+     *
+     * @param connection
+     *         the connection to a <code>Client</code>
+     */
+    private void handle(Socket connection) {
+
+        try (Socket c = connection) {
+            c.setSoTimeout(READ_TIMEOUT);
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(c.getInputStream()));
+            String[] args = readRequest(in);
+
+            if (args == null) {
+                LOG.warning(() -> "Rejected a request with an invalid token from " + c.getRemoteSocketAddress());
+                return;
+            }
+
+            LOG.fine(() -> "Executing the request " + Arrays.toString(args));
+
+            ByteArrayOutputStream reqOut = new ByteArrayOutputStream();
+            ByteArrayOutputStream reqErr = new ByteArrayOutputStream();
+            int exitCode = OutputCapture.execute(() -> execute(args), reqOut, reqErr);
+
+            DataOutputStream response = new DataOutputStream(new BufferedOutputStream(c.getOutputStream()));
+
+            response.writeInt(exitCode);
+            response.writeInt(reqOut.size());
+            reqOut.writeTo(response);
+            response.writeInt(reqErr.size());
+            reqErr.writeTo(response);
+            response.flush();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, e, () -> "Could not serve a request from " + connection.getRemoteSocketAddress());
+        }
+    }
+
+    /**
+     * Reads the token and the command line arguments of a request.
+     *
+     * @param in
+     *         the input of the connection to the <code>Client</code>
+     * @return the arguments or <code>null</code> if the token of the request is wrong
+     * @throws IOException
+     *         if the request can not be read or is malformed
+     */
+    private String[] readRequest(DataInputStream in) throws IOException {
+        byte[] expected = token.getBytes(UTF_8);
+        byte[] actual = in.readUTF().getBytes(UTF_8);
+
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return null;
+        }
+
+        int numArgs = in.readInt();
+
+        if (numArgs < 0 || numArgs > MAX_ARGS) {
+            throw new IOException("Invalid number of arguments " + numArgs + ". Must be at most " + MAX_ARGS + ".");
+        }
+
+        String[] args = new String[numArgs];
+
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF(); // at most 65535 bytes
+        }
+
+        return args;
+    }
+
+    /**
+     * Executes JDime using the given command line arguments.
+     *
+     * @param args
+     *         the command line arguments
+     * @return the exit code
+     */
+    private static int execute(String[] args) {
+        List<String> argList = Arrays.asList(args);
+
+        if (argList.contains("-" + CLI_SERVER) || argList.contains("--" + CLI_SERVER)) {
+            System.err.println("The server can not execute requests to start another server.");
+            return Main.EXIT_FAILURE;
+        }
+
+        return Main.execute(withoutLogLevel(args));
+    }
+
+    /**
+     * Returns the given arguments without the '-{@value CommandLineConfigSource#CLI_LOG_LEVEL}' option. Setting the log
+     * level would affect all requests executed concurrently and the <code>Server</code> itself. If the arguments can
+     * not be parsed, they are returned unchanged and JDime reports the error.
+     *
+     * @param args
+     *         the command line arguments
+     * @return the arguments without the log level
+     */
+    static String[] withoutLogLevel(String[] args) {
+        CommandLine cmdLine;
+
+        try {
+            cmdLine = new CommandLineConfigSource(args).getCommandLine();
+        } catch (ParseException e) {
+            return args;
+        }
+
+        if (!cmdLine.hasOption(CLI_LOG_LEVEL)) {
+            return args;
+        }
+
+        LOG.fine(() -> "Ignoring the log level " + cmdLine.getOptionValue(CLI_LOG_LEVEL) + " of a request.");
+
+        List<String> filtered = new ArrayList<>(args.length);
+
+        for (Option option : cmdLine.getOptions()) {
+
+            if (CLI_LOG_LEVEL.equals(option.getOpt())) {
+                continue;
+            }
+
+            filtered.add("-" + option.getOpt());
+
+            if (option.hasArg()) {
+                filtered.add(option.getValue());
+            }
+        }
+
+        List<String> inputs = cmdLine.getArgList();
+
+        if (!inputs.isEmpty()) {
+            filtered.add("--");
+            filtered.addAll(inputs);
+        }
+
+        return filtered.toArray(new String[0]);
+    }
+
+    /**
+     * Stops accepting requests, deletes the token file and stops the <code>git cat-file</code> processes of the
+     * repositories read by the requests.
+     *
+     * @throws IOException
+     *         if the socket can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        requests.shutdown();
+
+        try {
+            socket.close();
+        } finally {
+            Files.deleteIfExists(tokenFile.toPath());
+            GitRepository.closeAll();
+        }
+    }
+}
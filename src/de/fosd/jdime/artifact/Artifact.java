@@ -23,7 +23,6 @@
  */
 package de.fosd.jdime.artifact;
 
-import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -47,8 +46,6 @@
 import de.fosd.jdime.operations.MergeOperation;
 import de.fosd.jdime.stats.StatisticsInterface;
 import de.fosd.jdime.strdump.DumpMode;
-import org.apache.commons.codec.binary.Hex;
-import org.apache.commons.codec.digest.DigestUtils;
 
 /**
  * A generic <code>Artifact</code> that has a tree structure.
@@ -117,8 +114,17 @@
      */
     private int number;
 
-    private boolean hashValid;
-    private String hash;
+    /**
+     * The cached result of {@link #getTreeHash(TreeHash.Mode)} or <code>null</code> if it must be recomputed.
+     */
+    private TreeHash hash;
+
+    /**
+     * The cached results of {@link #getSubtreeSize()} and {@link #getMaxDepth()}. Negative values indicate that the
+     * value must be recomputed. Both are invalidated together with the tree hash.
+     */
+    private int subtreeSize;
+    private int maxDepth;
 
     /**
      * Constructs a new <code>Artifact</code>.
@@ -133,8 +139,9 @@ protected Artifact(Revision rev, int number) {
         this.matches = new HashMap<>();
         this.revision = rev;
         this.number = number;
-        this.hashValid = false;
         this.hash = null;
+        this.subtreeSize = -1;
+        this.maxDepth = -1;
     }
 
     /**
@@ -161,6 +168,8 @@ protected Artifact(Artifact<T> toCopy) {
         this.merged = toCopy.merged;
         this.revision = toCopy.revision;
         this.number = toCopy.number;
+        this.subtreeSize = -1;
+        this.maxDepth = -1;
     }
 
     /**
@@ -455,44 +464,39 @@ public boolean hasChildren() {
     public abstract String getId();
 
     /**
-     * Returns a hash of the tree rooted in this {@code Artifact}.
+     * Returns a hash of the tree rooted in this {@code Artifact} computed using the given hash function. The hash is
+     * cached until the tree is modified or a hash using a different function is requested.
      *
+     * @param mode
+     *         the hash function to use, usually {@link MergeContext#getTreeHashMode()}
      * @return the tree hash
      */
-    public String getTreeHash() {
+    public TreeHash getTreeHash(TreeHash.Mode mode) {
+        TreeHash treeHash = hash;
 
-        if (hashValid) {
-            return hash;
-        }
-
-        MessageDigest digest = DigestUtils.getSha256Digest();
-        DigestUtils.updateDigest(digest, hashId());
-
-        if (hasChildren()) {
-            children.forEach(c -> DigestUtils.updateDigest(digest, c.getTreeHash()));
-            hash = "1" + Hex.encodeHexString(digest.digest());
-        } else {
-            hash = "0" + Hex.encodeHexString(digest.digest());
+        if (treeHash == null || treeHash.getMode() != mode) {
+            treeHash = TreeHash.of(hashId(), children, mode);
+            hash = treeHash;
         }
 
-        hashValid = true;
-        return hash;
+        return treeHash;
     }
 
     /**
      * Returns the {@code String} identifying this {@code Artifact} for the purposes of calculating the tree hash in
-     * {@link #getTreeHash()};
+     * {@link #getTreeHash(TreeHash.Mode)};
      *
      * @return the identifying {@code String} to be hashed
      */
     protected abstract String hashId();
 
     /**
-     * Invalidates the hashes of this {@code Artifact} and all its parents.
+     * Invalidates the hashes, subtree sizes and depths of this {@code Artifact} and all its parents.
      */
     protected void invalidateHash() {
-        hashValid = false;
         hash = null;
+        subtreeSize = -1;
+        maxDepth = -1;
 
         if (parent != null) {
             parent.invalidateHash();
@@ -585,7 +589,20 @@ public Revision getRevision() {
      * @return the maximum depth
      */
     public int getMaxDepth() {
-        return 1 + children.parallelStream().map(T::getMaxDepth).max(Integer::compare).orElse(0);
+        int depth = maxDepth;
+
+        if (depth < 0) {
+            depth = 0;
+
+            for (T child : children) {
+                depth = Math.max(depth, child.getMaxDepth());
+            }
+
+            depth += 1;
+            maxDepth = depth;
+        }
+
+        return depth;
     }
 
     /**
@@ -594,10 +611,16 @@ public int getMaxDepth() {
      * @return size of subtree
      */
     public int getSubtreeSize() {
-        int size = getNumChildren();
+        int size = subtreeSize;
+
+        if (size < 0) {
+            size = getNumChildren();
+
+            for (T child : children) {
+                size += child.getSubtreeSize();
+            }
 
-        for (int i = 0; i < getNumChildren(); i++) {
-            size += getChild(i).getSubtreeSize();
+            subtreeSize = size;
         }
 
         return size;
@@ -617,10 +640,11 @@ public int getTreeSize() {
      * Returns {@code false} if {@code revision} is the {@link Revision} of this {@link Artifact}.
      *
      * @param revision the opposite {@link Revision}
+     * @param mode the hash function used to compare the trees
      * @return true iff any {@link Artifact} in the tree under this {@link Artifact} represents a changed compared to
      *         the given {@link Revision}
      */
-    public boolean hasChanges(Revision revision) {
+    public boolean hasChanges(Revision revision, TreeHash.Mode mode) {
 
         if (this.revision.equals(revision)) {
             return false;
@@ -632,7 +656,7 @@ public boolean hasChanges(Revision revision) {
 
         T match = getMatching(revision).getMatchingArtifact(this);
 
-        return getTreeSize() != match.getTreeSize() || !getTreeHash().equals(match.getTreeHash());
+        return getTreeSize() != match.getTreeSize() || !getTreeHash(mode).equals(match.getTreeHash(mode));
     }
 
     /**
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.artifact;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.digest.MurmurHash3;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A 128 bit hash of a tree of {@link Artifact Artifacts} as returned by {@link Artifact#getTreeHash(Mode)}. The hash
+ * of an {@link Artifact} is computed from its {@link Artifact#hashId()} and the hashes of its children using the hash
+ * function selected by a {@link Mode}. Both functions produce (or, in case of SHA-256, are truncated to) 128 bits,
+ * which are stored in two <code>long</code>s.
+ */
+public final class TreeHash {
+
+    /**
+     * The hash functions that may be used for computing <code>TreeHash</code>es.
+     */
+    public enum Mode {
+
+        /**
+         * The 128 bit (x64) variant of the non-cryptographic MurmurHash3 function. This is the default.
+         */
+        MURMUR3,
+
+        /**
+         * The cryptographic SHA-256 function truncated to its first 128 bits. Slower, but collision resistant.
+         */
+        SHA256
+    }
+
+    private final Mode mode;
+    private final long h1;
+    private final long h2;
+
+    /**
+     * Constructs a new <code>TreeHash</code> from the given parts.
+     *
+     * @param mode
+     *         the hash function that computed the hash
+     * @param h1
+     *         the first 64 bits of the hash
+     * @param h2
+     *         the second 64 bits of the hash
+     */
+    private TreeHash(Mode mode, long h1, long h2) {
+        this.mode = mode;
+        this.h1 = h1;
+        this.h2 = h2;
+    }
+
+    /**
+     * Returns the hash function that computed this <code>TreeHash</code>.
+     *
+     * @return the <code>Mode</code> of this hash
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Computes the <code>TreeHash</code> for a node with the given <code>id</code> and <code>children</code> using
+     * the given {@link Mode}.
+     *
+     * @param id
+     *         the {@link Artifact#hashId()} of the node
+     * @param children
+     *         the children of the node
+     * @param mode
+     *         the hash function to use
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     * @return the <code>TreeHash</code>
+     */
+    static <T extends Artifact<T>> TreeHash of(String id, List<T> children, Mode mode) {
+        Objects.requireNonNull(mode, "The mode must not be null.");
+
+        byte[] idBytes = id.getBytes(UTF_8);
+        byte childFlag = (byte) (children.isEmpty() ? 0 : 1);
+
+        if (mode == Mode.SHA256) {
+            MessageDigest digest = DigestUtils.getSha256Digest();
+            ByteBuffer childHash = ByteBuffer.allocate(2 * Long.BYTES);
+
+            digest.update(idBytes);
+            digest.update(childFlag);
+
+            for (T child : children) {
+                TreeHash hash = child.getTreeHash(mode);
+
+                childHash.clear();
+                childHash.putLong(hash.h1).putLong(hash.h2);
+                digest.update(childHash.array());
+            }
+
+            ByteBuffer result = ByteBuffer.wrap(digest.digest());
+            return new TreeHash(mode, result.getLong(), result.getLong());
+        } else {
+            ByteBuffer data = ByteBuffer.allocate(idBytes.length + 1 + children.size() * 2 * Long.BYTES);
+
+            data.put(idBytes);
+            data.put(childFlag);
+
+            for (T child : children) {
+                TreeHash hash = child.getTreeHash(mode);
+                data.putLong(hash.h1).putLong(hash.h2);
+            }
+
+            long[] result = MurmurHash3.hash128x64(data.array(), 0, data.position(), 0);
+            return new TreeHash(mode, result[0], result[1]);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        TreeHash treeHash = (TreeHash) o;
+        return mode == treeHash.mode && h1 == treeHash.h1 && h2 == treeHash.h2;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (h1 ^ (h1 >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", h1, h2);
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.artifact.ast;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.fosd.jdime.artifact.Artifacts;
+import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.config.merge.Revision;
+import de.fosd.jdime.util.Tuple;
+
+/**
+ * Caches the {@link ASTNodeArtifact} trees parsed from {@link FileArtifact FileArtifacts} across merge scenarios.
+ * Trees are keyed by the {@link FileArtifact#getContentDigest() content digest} of the file they were parsed from and
+ * the {@link Revision} of the file. The cache never hands out the trees it retains but only copies of them obtained
+ * via {@link Artifacts#copyTree(de.fosd.jdime.artifact.Artifact)} so that the merge may modify them freely. The
+ * source file of a copy is set to the file it was requested for since files of the same content may be found in
+ * different places.
+ * <p>
+ * The cache is bounded by an estimate of the number of bytes used by the retained trees. When that bound is exceeded,
+ * the least recently used trees are evicted. Instances of this class are thread safe.
+ */
+public final class ASTCache {
+
+    /**
+     * The label used for recording the number of trees that were taken from the cache in the statistics.
+     */
+    public static final String HITS_LABEL = "AST cache hits";
+
+    /**
+     * The label used for recording the number of trees that had to be parsed in the statistics.
+     */
+    public static final String MISSES_LABEL = "AST cache misses";
+
+    /**
+     * The estimated number of bytes used by one retained node of an <code>ASTNodeArtifact</code> tree. Includes the
+     * <code>ASTNodeArtifact</code> itself and the encapsulated <code>ASTNode</code>.
+     */
+    private static final long BYTES_PER_NODE = 1024;
+
+    /**
+     * The default capacity of an <code>ASTCache</code> in bytes. The cache is disabled by default since storing a tree
+     * and every hit copy the whole tree, which only pays off if the same files are merged repeatedly.
+     */
+    public static final long DEFAULT_CAPACITY = 0;
+
+    private final Map<Tuple<Revision, String>, ASTNodeArtifact> cache;
+    private long capacity;
+    private long size;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs a new empty <code>ASTCache</code>.
+     *
+     * @param capacity
+     *         the maximum estimated number of bytes used by the retained trees, 0 disables the cache
+     */
+    public ASTCache(long capacity) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        this.capacity = capacity;
+        this.size = 0;
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Returns a copy of the cached tree parsed from a file with the same content and <code>Revision</code> as the
+     * given <code>FileArtifact</code>.
+     *
+     * @param file
+     *         the <code>FileArtifact</code> to look up
+     * @return a copy of the cached tree or <code>null</code> if no tree is cached for <code>file</code>
+     */
+    public ASTNodeArtifact get(FileArtifact file) {
+        ASTNodeArtifact tree;
+
+        synchronized (this) {
+            tree = capacity > 0 ? cache.get(key(file)) : null;
+
+            if (tree != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+
+        if (tree == null) {
+            return null;
+        }
+
+        ASTNodeArtifact copy = detachedCopy(tree);
+        ASTNodeArtifact.setSourceFile(copy.astnode, file);
+
+        return copy;
+    }
+
+    /**
+     * Caches a copy of the given tree that was parsed from the given <code>FileArtifact</code>. If necessary, the
+     * least recently used trees are evicted to stay within the capacity of this cache. The tree must not have been
+     * modified or matched since it was parsed.
+     *
+     * @param file
+     *         the <code>FileArtifact</code> <code>tree</code> was parsed from
+     * @param tree
+     *         the parsed tree
+     */
+    public void put(FileArtifact file, ASTNodeArtifact tree) {
+        long treeSize = weight(tree);
+
+        synchronized (this) {
+
+            if (treeSize > capacity) {
+                return;
+            }
+        }
+
+        Tuple<Revision, String> key = key(file);
+        ASTNodeArtifact copy = detachedCopy(tree);
+
+        synchronized (this) {
+            ASTNodeArtifact old = cache.put(key, copy);
+
+            if (old != null) {
+                size -= weight(old);
+            }
+
+            size += treeSize;
+            evict();
+        }
+    }
+
+    /**
+     * Returns the maximum estimated number of bytes used by the retained trees.
+     *
+     * @return the capacity of this cache, 0 if the cache is disabled
+     */
+    public synchronized long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the maximum estimated number of bytes used by the retained trees. If necessary, the least recently used
+     * trees are evicted to stay within the new capacity.
+     *
+     * @param capacity
+     *         the new capacity, 0 disables the cache
+     */
+    public synchronized void setCapacity(long capacity) {
+        this.capacity = capacity;
+        evict();
+    }
+
+    /**
+     * Returns the number of calls to {@link #get(FileArtifact)} that found a cached tree.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of calls to {@link #get(FileArtifact)} that did not find a cached tree.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Evicts the least recently used trees until the estimated size of the retained trees is within the capacity.
+     */
+    private void evict() {
+
+        for (Iterator<ASTNodeArtifact> it = cache.values().iterator(); size > capacity && it.hasNext(); ) {
+            size -= weight(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the key under which the tree parsed from the given <code>FileArtifact</code> is cached.
+     *
+     * @param file
+     *         the <code>FileArtifact</code>
+     * @return the cache key
+     */
+    private static Tuple<Revision, String> key(FileArtifact file) {
+        return Tuple.of(file.getRevision(), file.getContentDigest());
+    }
+
+    /**
+     * Returns the estimated number of bytes used by the given tree.
+     *
+     * @param tree
+     *         the tree
+     * @return the estimated size of <code>tree</code> in bytes
+     */
+    private static long weight(ASTNodeArtifact tree) {
+        return tree.getTreeSize() * BYTES_PER_NODE;
+    }
+
+    /**
+     * Copies the given tree. The <code>ASTNode</code>s of the copy are cloned from those of <code>tree</code> and
+     * share their child arrays with them. Rebuilding the <code>ASTNode</code> tree of the copy gives it arrays of its
+     * own so that neither tree is affected by modifications of the other.
+     *
+     * @param tree
+     *         the tree to copy
+     * @return the copy
+     */
+    private static ASTNodeArtifact detachedCopy(ASTNodeArtifact tree) {
+        return ExtendJ.locked(() -> {
+            ASTNodeArtifact copy = Artifacts.copyTree(tree);
+            copy.rebuildAST();
+
+            return copy;
+        });
+    }
+}
@@ -0,0 +1,532 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.artifact.ast;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.fosd.jdime.Main;
+import de.fosd.jdime.artifact.file.FileArtifact;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.extendj.ExtendJVersion;
+import org.extendj.ast.ASTNode;
+import org.extendj.ast.ASTNodeAnnotation;
+import org.extendj.ast.CompilationUnit;
+import org.extendj.ast.ParseName;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Persists the <code>ASTNode</code> trees parsed from {@link FileArtifact FileArtifacts} in a directory so that
+ * later runs of JDime on files of the same content do not have to parse them again. Trees are keyed by the
+ * {@link FileArtifact#getContentDigest() content digest} of the file they were parsed from and the versions of JDime
+ * and ExtendJ.
+ * <p>
+ * A tree is stored in a compact binary format containing a table of the strings used in the tree followed by the
+ * nodes in pre-order. Each node is stored as the index of its class name, its source span, the indices of the values
+ * of its <code>String</code> tokens and its number of children. The matching representations of the nodes follow from
+ * their kinds and tokens and are therefore not stored. Since the trees are written after the
+ * <code>ASTNodeArtifact</code>s encapsulating them were constructed, they contain the rewritten nodes. Stored trees
+ * are read using memory-mapped I/O. Instances of this class are thread safe.
+ */
+public final class ASTDiskCache {
+
+    private static final Logger LOG = Logger.getLogger(ASTDiskCache.class.getCanonicalName());
+
+    private static final int MAGIC = 0x4A444153; // "JDAS"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String VERSION = Main.VERSION + "/" + ExtendJVersion.getVersion();
+    private static final String SUFFIX = ".ast";
+
+    /**
+     * The getters and setters of the <code>String</code> tokens of the <code>ASTNode</code> classes sorted by their
+     * token names.
+     */
+    private static final Map<Class<?>, List<Token>> TOKENS = new ConcurrentHashMap<>();
+
+    /**
+     * The no-argument constructors of the <code>ASTNode</code> classes by their names.
+     */
+    private static final Map<String, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    /**
+     * A <code>String</code> token of an <code>ASTNode</code> class.
+     */
+    private static final class Token {
+
+        private final Method getter;
+        private final Method setter;
+
+        private Token(Method getter, Method setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * Thrown if a tree contains state that can not be stored.
+     */
+    private static final class UnsupportedTreeException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private UnsupportedTreeException(String message) {
+            super(message);
+        }
+    }
+
+    private final File directory;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * Constructs a new <code>ASTDiskCache</code> storing the trees in the given directory. The directory is created
+     * if it does not exist.
+     *
+     * @param directory
+     *         the directory to store the trees in
+     */
+    public ASTDiskCache(File directory) {
+        this.directory = directory;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Returns the directory the trees are stored in.
+     *
+     * @return the cache directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the number of calls to {@link #load(FileArtifact)} that found a stored tree.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of calls to {@link #load(FileArtifact)} that did not find a stored tree.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Loads the tree stored for the content of the given <code>FileArtifact</code>.
+     *
+     * @param file
+     *         the <code>FileArtifact</code> to load the tree for
+     * @return the root of the loaded tree or <code>null</code> if no usable tree is stored for <code>file</code>
+     */
+    ASTNode<?> load(FileArtifact file) {
+        Path path = path(file);
+
+        if (!Files.isRegularFile(path)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || !VERSION.equals(readString(buffer))) {
+                LOG.fine(() -> "Ignoring the incompatible stored tree " + path);
+                misses.incrementAndGet();
+                return null;
+            }
+
+            String[] strings = new String[buffer.getInt()];
+
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer);
+            }
+
+            ASTNode<?> root = readNode(buffer, strings);
+
+            LOG.fine(() -> String.format("Loaded the tree for %s from %s.", file.getId(), path));
+            hits.incrementAndGet();
+            return root;
+        } catch (IOException | ReflectiveOperationException | UnsupportedTreeException | RuntimeException e) {
+            LOG.log(Level.WARNING, e, () -> "Could not load the stored tree " + path);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the <code>ASTNode</code> tree encapsulated by the given <code>ASTNodeArtifact</code> tree for the
+     * content of the given <code>FileArtifact</code>. If a tree is already stored for the content, the call is
+     * ignored. The tree must not have been modified or matched since it was parsed. The tree is serialized while
+     * holding the {@link ExtendJ} lock, the serialized tree is written after releasing it.
+     *
+     * @param file
+     *         the <code>FileArtifact</code> <code>tree</code> was parsed from
+     * @param tree
+     *         the parsed tree
+     */
+    void store(FileArtifact file, ASTNodeArtifact tree) {
+        Path path = path(file);
+
+        if (Files.exists(path)) {
+            return;
+        }
+
+        byte[] data = ExtendJ.locked(() -> serialize(file, tree));
+
+        if (data == null) {
+            return;
+        }
+
+        Path tmp = null;
+
+        try {
+            Files.createDirectories(directory.toPath());
+            tmp = Files.createTempFile(directory.toPath(), path.getFileName().toString(), ".tmp");
+            Files.write(tmp, data);
+
+            try {
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            LOG.fine(() -> String.format("Stored the tree for %s in %s.", file.getId(), path));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, e, () -> "Could not store the tree for " + file.getId());
+
+            if (tmp != null) {
+                tmp.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * Serializes the <code>ASTNode</code> tree encapsulated by the given <code>ASTNodeArtifact</code> tree. Must be
+     * called while holding the {@link ExtendJ} lock.
+     *
+     * @param file
+     *         the <code>FileArtifact</code> <code>tree</code> was parsed from
+     * @param tree
+     *         the parsed tree
+     * @return the serialized tree or <code>null</code> if the tree can not be stored
+     */
+    private static byte[] serialize(FileArtifact file, ASTNodeArtifact tree) {
+        Map<String, Integer> stringIndices = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        List<int[]> nodes = new ArrayList<>();
+
+        try {
+            collect(tree, stringIndices, strings, nodes);
+        } catch (UnsupportedTreeException | ReflectiveOperationException e) {
+            LOG.log(Level.FINE, e, () -> "Can not store the tree for " + file.getId());
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, VERSION);
+
+            out.writeInt(strings.size());
+
+            for (String s : strings) {
+                writeString(out, s);
+            }
+
+            for (int[] node : nodes) {
+                for (int i : node) {
+                    out.writeInt(i);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // writing to a ByteArrayOutputStream does not fail
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the path of the file storing the tree for the content of the given <code>FileArtifact</code>.
+     *
+     * @param file
+     *         the <code>FileArtifact</code>
+     * @return the path of the file storing the tree for <code>file</code>
+     */
+    private Path path(FileArtifact file) {
+        return new File(directory, DigestUtils.sha256Hex(VERSION + file.getContentDigest()) + SUFFIX).toPath();
+    }
+
+    /**
+     * Appends the records of the nodes of the given tree in pre-order to <code>nodes</code>. A record consists of
+     * the index of the class name, the start and end of the source span, the indices of the token values (-1 for
+     * <code>null</code>) and the number of children.
+     *
+     * @param artifact
+     *         the root of the tree
+     * @param stringIndices
+     *         the indices of the strings in <code>strings</code>
+     * @param strings
+     *         the string table
+     * @param nodes
+     *         the list of node records
+     * @throws UnsupportedTreeException
+     *         if the tree contains state that can not be stored
+     * @throws ReflectiveOperationException
+     *         if a token could not be read
+     */
+    private static void collect(ASTNodeArtifact artifact, Map<String, Integer> stringIndices, List<String> strings,
+                                List<int[]> nodes) throws UnsupportedTreeException, ReflectiveOperationException {
+        ASTNode<?> astNode = artifact.astnode;
+        List<Token> tokens = tokens(astNode.getClass());
+
+        if (artifact.isConflict() || artifact.isChoice()) {
+            throw new UnsupportedTreeException("The tree contains conflict or choice nodes.");
+        }
+
+        if (astNode instanceof ParseName) {
+            throw new UnsupportedTreeException("The tree contains names that were not rewritten.");
+        }
+
+        int[] record = new int[4 + tokens.size()];
+        int i = 0;
+
+        record[i++] = index(astNode.getClass().getName(), stringIndices, strings);
+        record[i++] = astNode.getStart();
+        record[i++] = astNode.getEnd();
+
+        for (Token token : tokens) {
+            String value = (String) token.getter.invoke(astNode);
+            record[i++] = value == null ? -1 : index(value, stringIndices, strings);
+        }
+
+        record[i] = artifact.getNumChildren();
+        nodes.add(record);
+
+        for (ASTNodeArtifact child : artifact.getChildren()) {
+            collect(child, stringIndices, strings, nodes);
+        }
+    }
+
+    /**
+     * Reads the node starting at the current position of the given buffer and its subtree.
+     *
+     * @param buffer
+     *         the buffer to read from
+     * @param strings
+     *         the string table
+     * @return the node
+     * @throws ReflectiveOperationException
+     *         if the node could not be constructed
+     * @throws UnsupportedTreeException
+     *         if the class of the node has tokens that are not <code>String</code>s
+     */
+    private static ASTNode<?> readNode(ByteBuffer buffer, String[] strings)
+            throws ReflectiveOperationException, UnsupportedTreeException {
+        String className = strings[buffer.getInt()];
+        Constructor<?> constructor = CONSTRUCTORS.computeIfAbsent(className, ASTDiskCache::constructor);
+
+        if (constructor == null) {
+            throw new ClassNotFoundException(className);
+        }
+
+        ASTNode<?> node = (ASTNode<?>) constructor.newInstance();
+
+        node.setStart(buffer.getInt());
+        node.setEnd(buffer.getInt());
+
+        for (Token token : tokens(node.getClass())) {
+            int index = buffer.getInt();
+            token.setter.invoke(node, index == -1 ? null : strings[index]);
+        }
+
+        int numChildren = buffer.getInt();
+
+        for (int i = 0; i < numChildren; i++) {
+            node.setChild(readNode(buffer, strings), i);
+        }
+
+        if (node instanceof CompilationUnit) {
+            ((CompilationUnit) node).setFromSource(true);
+        }
+
+        return node;
+    }
+
+    /**
+     * Returns the no-argument constructor of the <code>ASTNode</code> class of the given name.
+     *
+     * @param className
+     *         the name of the class
+     * @return the constructor or <code>null</code> if there is no such <code>ASTNode</code> class
+     */
+    private static Constructor<?> constructor(String className) {
+
+        try {
+            Class<?> cls = Class.forName(className);
+            return ASTNode.class.isAssignableFrom(cls) ? cls.getConstructor() : null;
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the <code>String</code> tokens of the given <code>ASTNode</code> class.
+     *
+     * @param cls
+     *         the class
+     * @return the tokens sorted by their names
+     * @throws UnsupportedTreeException
+     *         if the class has tokens that are not <code>String</code>s
+     */
+    private static List<Token> tokens(Class<?> cls) throws UnsupportedTreeException {
+        List<Token> tokens = TOKENS.computeIfAbsent(cls, ASTDiskCache::findTokens);
+
+        if (tokens == null) {
+            throw new UnsupportedTreeException(cls.getName() + " has tokens that are not strings.");
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Finds the tokens of the given <code>ASTNode</code> class using the {@link ASTNodeAnnotation.Token} annotations
+     * of their getters.
+     *
+     * @param cls
+     *         the class
+     * @return the tokens sorted by their names or <code>null</code> if the class has tokens that are not
+     *         <code>String</code>s
+     */
+    private static List<Token> findTokens(Class<?> cls) {
+        List<Token> tokens = new ArrayList<>();
+        Method[] methods = cls.getMethods();
+
+        Arrays.sort(methods, Comparator.comparing(Method::getName));
+
+        for (Method getter : methods) {
+            ASTNodeAnnotation.Token token = getter.getAnnotation(ASTNodeAnnotation.Token.class);
+
+            if (token == null) {
+                continue;
+            }
+
+            if (getter.getReturnType() != String.class || getter.getParameterCount() != 0) {
+                return null;
+            }
+
+            try {
+                tokens.add(new Token(getter, cls.getMethod("set" + token.name(), String.class)));
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Returns the index of the given string in the string table, adding it if necessary.
+     *
+     * @param s
+     *         the string
+     * @param stringIndices
+     *         the indices of the strings in <code>strings</code>
+     * @param strings
+     *         the string table
+     * @return the index of <code>s</code>
+     */
+    private static int index(String s, Map<String, Integer> stringIndices, List<String> strings) {
+        return stringIndices.computeIfAbsent(s, key -> {
+            strings.add(key);
+            return strings.size() - 1;
+        });
+    }
+
+    /**
+     * Writes the given string as its length in bytes followed by its UTF-8 encoding.
+     *
+     * @param out
+     *         the stream to write to
+     * @param s
+     *         the string to write
+     * @throws IOException
+     *         if writing fails
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF_8);
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param buffer
+     *         the buffer to read from
+     * @return the string
+     * @throws BufferUnderflowException
+     *         if the buffer ends before the string
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -49,12 +49,14 @@
 import org.extendj.ast.ClassDecl;
 import org.extendj.ast.CompilationUnit;
 import org.extendj.ast.ConstructorDecl;
+import org.extendj.ast.FileClassSource;
 import org.extendj.ast.ImportDecl;
 import org.extendj.ast.InterfaceDecl;
 import org.extendj.ast.Literal;
 import org.extendj.ast.MethodDecl;
 import org.extendj.ast.Problem;
 import org.extendj.ast.Program;
+import org.extendj.ast.SourceFilePath;
 import org.extendj.ast.TryStmt;
 
 import static de.fosd.jdime.strdump.DumpMode.PLAINTEXT_TREE;
@@ -69,42 +71,85 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
 
     /**
      * Parses the content of the given <code>FileArtifact</code> to an AST. If the <code>artifact</code> is empty,
-     * an empty <code>ASTNode</code> obtained via {@link ASTNode#ASTNode()} will be returned.
+     * an empty <code>ASTNode</code> obtained via {@link ASTNode#ASTNode()} will be returned. If the given
+     * <code>ASTDiskCache</code> contains a tree for the content of <code>artifact</code>, that tree is returned
+     * instead of parsing the content.
      *
      * @param artifact
      *         the <code>FileArtifact</code> to parse
+     * @param diskCache
+     *         the <code>ASTDiskCache</code> to load the tree from, may be <code>null</code>
      * @return the root of the resulting AST
      */
-    private static ASTNode<?> parse(FileArtifact artifact) {
-        ASTNode<?> astNode;
+    private static ASTNode<?> parse(FileArtifact artifact, ASTDiskCache diskCache) {
+        return ExtendJ.locked(() -> parseLocked(artifact, diskCache));
+    }
+
+    /**
+     * Implements {@link #parse(FileArtifact, ASTDiskCache)} while holding the {@link ExtendJ} lock.
+     */
+    private static ASTNode<?> parseLocked(FileArtifact artifact, ASTDiskCache diskCache) {
 
         if (artifact.isEmpty()) {
-            astNode = new ASTNode<>();
-        } else {
-            Program p = new Program();
-
-            try {
-                String path = artifact.getFile().getPath();
-                CompilationUnit cu = p.addSourceFile(path);
-
-                // abort if there were parse errors
-                Collection<Problem> parseErrors = cu.parseErrors();
-                if (!parseErrors.isEmpty()) {
-                    StringBuilder msg = new StringBuilder();
-                    msg.append(String.format("Errors while parsing %s:%s", path, System.lineSeparator()));
-                    for (Problem problem : parseErrors) {
-                        msg.append(problem.toString()).append(System.lineSeparator());
-                    }
-                    throw new AbortException(msg.toString());
+            return new ASTNode<>();
+        }
+
+        if (diskCache != null) {
+            ASTNode<?> cached = diskCache.load(artifact);
+
+            if (cached != null) {
+                setSourceFile(cached, artifact);
+                return cached;
+            }
+        }
+
+        Program p;
+
+        try {
+            String path = artifact.getFile().getPath();
+
+            // the content is parsed from memory since it was already read (or set) to check for emptiness
+            p = ContentParser.parse(artifact.getContent(), path);
+            CompilationUnit cu = p.getCompilationUnit(0);
+
+            // abort if there were parse errors
+            Collection<Problem> parseErrors = cu.parseErrors();
+            if (!parseErrors.isEmpty()) {
+                StringBuilder msg = new StringBuilder();
+                msg.append(String.format("Errors while parsing %s:%s", path, System.lineSeparator()));
+                for (Problem problem : parseErrors) {
+                    msg.append(problem.toString()).append(System.lineSeparator());
                 }
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+                throw new AbortException(msg.toString());
             }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
 
-            astNode = p;
+        return p;
+    }
+
+    /**
+     * Sets the source of the <code>CompilationUnit</code>s of the given AST to the file of the given
+     * <code>FileArtifact</code>. The source determines the file names in the labels of conflict markers and must be
+     * set for trees that were not parsed from <code>artifact</code> itself but, e.g., taken from a cache.
+     *
+     * @param astNode
+     *         the root of the AST
+     * @param artifact
+     *         the <code>FileArtifact</code> the AST represents
+     */
+    static void setSourceFile(ASTNode<?> astNode, FileArtifact artifact) {
+
+        if (!(astNode instanceof Program)) {
+            return;
         }
 
-        return astNode;
+        String path = artifact.getFile().getPath();
+
+        for (CompilationUnit cu : ((Program) astNode).getCompilationUnitListNoTransform()) {
+            cu.setClassSource(new FileClassSource(new SourceFilePath(path), path));
+        }
     }
 
     /**
@@ -112,6 +157,14 @@ private static ASTNode<?> parse(FileArtifact artifact) {
      */
     protected ASTNode<?> astnode;
 
+    /**
+     * The cached results of {@link #getType()} and {@link #getLevel()}. <code>null</code> if they have not been
+     * computed yet. The level depends on the parents of this <code>ASTNodeArtifact</code> and is invalidated for the
+     * whole subtree when the parent changes.
+     */
+    private KeyEnums.Type type;
+    private KeyEnums.Level level;
+
     /**
      * Constructs a new <code>ASTNodeArtifact</code> (tree) representing the AST of the code in <code>artifact</code>.
      * All members of the tree will be in the same <code>Revision</code> as <code>artifact</code>.
@@ -120,7 +173,25 @@ private static ASTNode<?> parse(FileArtifact artifact) {
      *         the <code>FileArtifact</code> containing the code to be parsed
      */
     public ASTNodeArtifact(FileArtifact artifact) {
-        this(artifact.getRevision(), new AtomicInteger()::getAndIncrement, parse(artifact));
+        this(artifact, null);
+    }
+
+    /**
+     * Constructs a new <code>ASTNodeArtifact</code> (tree) representing the AST of the code in <code>artifact</code>.
+     * All members of the tree will be in the same <code>Revision</code> as <code>artifact</code>. The AST is loaded
+     * from the given <code>ASTDiskCache</code> if possible. Otherwise it is parsed and then stored in the cache.
+     *
+     * @param artifact
+     *         the <code>FileArtifact</code> containing the code to be parsed
+     * @param diskCache
+     *         the <code>ASTDiskCache</code> to use, may be <code>null</code>
+     */
+    public ASTNodeArtifact(FileArtifact artifact, ASTDiskCache diskCache) {
+        this(artifact.getRevision(), new AtomicInteger()::getAndIncrement, parse(artifact, diskCache));
+
+        if (diskCache != null && !artifact.isEmpty()) {
+            diskCache.store(artifact, this);
+        }
     }
 
     /**
@@ -174,9 +245,20 @@ private ASTNodeArtifact(Revision revision, Supplier<Integer> number, ASTNode<?>
      */
     protected ASTNodeArtifact(ASTNodeArtifact toCopy) {
         super(toCopy);
+        this.astnode = ExtendJ.locked(() -> cloneNode(toCopy.astnode));
+    }
+
+    /**
+     * Clones the given <code>ASTNode</code>.
+     *
+     * @param astNode
+     *         the <code>ASTNode</code> to clone
+     * @return the clone
+     */
+    private static ASTNode<?> cloneNode(ASTNode<?> astNode) {
 
         try {
-            this.astnode = toCopy.astnode.clone();
+            return astNode.clone();
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException(e);
         }
@@ -189,6 +271,13 @@ protected ASTNodeArtifact(ASTNodeArtifact toCopy) {
      *         supplies the numbers for the added children
      */
     private void initializeChildren(Supplier<Integer> number) {
+        ExtendJ.locked(() -> initializeChildrenLocked(number));
+    }
+
+    /**
+     * Implements {@link #initializeChildren(Supplier)} while holding the {@link ExtendJ} lock.
+     */
+    private void initializeChildrenLocked(Supplier<Integer> number) {
         List<ASTNodeArtifact> children = new ArtifactList<>();
 
         for (int i = 0; i < astnode.getNumChild(); i++) {
@@ -225,6 +314,38 @@ protected final ASTNode<?> getASTNode() {
         return astnode;
     }
 
+    /**
+     * Returns the position of the first character of the encapsulated <code>ASTNode</code> in the source code it was
+     * parsed from as encoded by {@link beaver.Symbol#makePosition(int, int)}.
+     *
+     * @return the start position or 0 if it is unknown
+     */
+    public int getStartPosition() {
+        return astnode.getStart();
+    }
+
+    /**
+     * Returns the position of the last character of the encapsulated <code>ASTNode</code> in the source code it was
+     * parsed from as encoded by {@link beaver.Symbol#makePosition(int, int)}.
+     *
+     * @return the end position or 0 if it is unknown
+     */
+    public int getEndPosition() {
+        return astnode.getEnd();
+    }
+
+    /**
+     * Sets the source of the <code>CompilationUnit</code>s of the tree rooted in this <code>ASTNodeArtifact</code> to
+     * the file of the given <code>FileArtifact</code>. The source determines the file names in the labels of conflict
+     * markers.
+     *
+     * @param artifact
+     *         the <code>FileArtifact</code> the tree represents
+     */
+    public void setSourceFile(FileArtifact artifact) {
+        setSourceFile(astnode, artifact);
+    }
+
     @Override
     public ASTNodeArtifact copy() {
         return new ASTNodeArtifact(this);
@@ -237,6 +358,13 @@ public ASTNodeArtifact createEmptyArtifact(Revision revision) {
 
     @Override
     public String prettyPrint() {
+        return ExtendJ.locked(this::prettyPrintLocked);
+    }
+
+    /**
+     * Implements {@link #prettyPrint()} while holding the {@link ExtendJ} lock.
+     */
+    private String prettyPrintLocked() {
         assert (astnode != null);
 
         try {
@@ -266,40 +394,78 @@ public final String getId() {
 
     @Override
     protected String hashId() {
-        return astnode.getMatchingRepresentation();
+        return ExtendJ.locked(astnode::getMatchingRepresentation);
     }
 
     @Override
     public KeyEnums.Type getType() {
+
+        if (type != null) {
+            return type;
+        }
+
         if (isMethod()) {
-            return KeyEnums.Type.METHOD;
+            type = KeyEnums.Type.METHOD;
         } else if (isClass()) {
-            return KeyEnums.Type.CLASS;
+            type = KeyEnums.Type.CLASS;
         } else if (astnode instanceof TryStmt){
-            return KeyEnums.Type.TRY;
+            type = KeyEnums.Type.TRY;
         } else if (astnode instanceof Block) {
-            return KeyEnums.Type.BLOCK;
+            type = KeyEnums.Type.BLOCK;
         } else {
-            return KeyEnums.Type.NODE;
+            type = KeyEnums.Type.NODE;
         }
+
+        return type;
     }
 
     @Override
     public KeyEnums.Level getLevel() {
+
+        if (level != null) {
+            return level;
+        }
+
         KeyEnums.Type type = getType();
 
         if (type == KeyEnums.Type.METHOD) {
-            return KeyEnums.Level.METHOD;
+            level = KeyEnums.Level.METHOD;
         } else if (type == KeyEnums.Type.CLASS) {
-            return KeyEnums.Level.CLASS;
+            level = KeyEnums.Level.CLASS;
         } else {
 
             if (getParent() == null) {
-                return KeyEnums.Level.TOP;
+                level = KeyEnums.Level.TOP;
             } else {
-                return getParent().getLevel();
+                level = getParent().getLevel();
             }
         }
+
+        return level;
+    }
+
+    @Override
+    protected void setParent(ASTNodeArtifact parent) {
+        super.setParent(parent);
+        invalidateLevel();
+    }
+
+    /**
+     * Invalidates the cached level of this <code>ASTNodeArtifact</code> and its children. A cached level of a child
+     * that depends on the parents implies a cached level of this <code>ASTNodeArtifact</code>, so the traversal stops
+     * at nodes whose level is not cached.
+     */
+    private void invalidateLevel() {
+
+        if (level == null) {
+            return;
+        }
+
+        level = null;
+
+        if (getType() != KeyEnums.Type.METHOD && getType() != KeyEnums.Type.CLASS) {
+            getChildren().forEach(ASTNodeArtifact::invalidateLevel);
+        }
     }
 
     @Override
@@ -384,7 +550,7 @@ public Optional<Supplier<String>> getUniqueLabel() {
         boolean hasLabel = ImportDecl.class.isAssignableFrom(astnode.getClass())
                             || Literal.class.isAssignableFrom(astnode.getClass());
 
-        return hasLabel ? Optional.of(() -> astnode.getMatchingRepresentation()) : Optional.empty();
+        return hasLabel ? Optional.of(() -> ExtendJ.locked(astnode::getMatchingRepresentation)) : Optional.empty();
     }
 
     @Override
@@ -399,7 +565,7 @@ public final boolean isEmpty() {
      */
     @Override
     public final boolean isOrdered() {
-        return astnode.isOrdered();
+        return ExtendJ.locked(astnode::isOrdered);
     }
 
     /**
@@ -417,13 +583,15 @@ public final boolean matches(final ASTNodeArtifact other) {
 
         LOG.finest(() -> "match(" + getId() + ", " + other.getId() + ")");
 
-        LOG.finest(() -> {
-            String matchingRep = astnode.getMatchingRepresentation();
-            String otherMatchingRep = other.astnode.getMatchingRepresentation();
-            return String.format("Try Matching: {%s} and {%s}", matchingRep, otherMatchingRep);
-        });
+        return ExtendJ.locked(() -> {
+            LOG.finest(() -> {
+                String matchingRep = astnode.getMatchingRepresentation();
+                String otherMatchingRep = other.astnode.getMatchingRepresentation();
+                return String.format("Try Matching: {%s} and {%s}", matchingRep, otherMatchingRep);
+            });
 
-        return astnode.matches(other.astnode);
+            return astnode.matches(other.astnode);
+        });
     }
 
     @Override
@@ -517,7 +685,7 @@ private void removeChild(final ASTNodeArtifact child) {
      * Rebuild the encapsulated ASTNode tree top down. This should be only
      * called at the root node
      */
-    private void rebuildAST() {
+    void rebuildAST() {
         LOG.finest(() -> String.format("%s.rebuildAST()", getId()));
 
         if (isConflict()) {
@@ -578,7 +746,7 @@ private void rebuildAST() {
 
     @Override
     public final String toString() {
-        return astnode.getMatchingRepresentation();
+        return ExtendJ.locked(astnode::getMatchingRepresentation);
     }
 
     @Override
@@ -592,17 +760,7 @@ public ASTNodeArtifact createConflictArtifact(ASTNodeArtifact left, ASTNodeArtif
          * prettyPrint() method the fact that it is virtual will be detected and handled by printing
          * conflict markers or ifdefs in the case of choice nodes.
          */
-        ASTNode<?> typeNode;
-
-        try {
-            if (left != null) {
-                typeNode = left.astnode.clone();
-            } else {
-                typeNode = right.astnode.clone();
-            }
-        } catch (CloneNotSupportedException e) {
-            throw new RuntimeException("Failed to clone an ASTNode for a conflict artifact.", e);
-        }
+        ASTNode<?> typeNode = ExtendJ.locked(() -> cloneNode(left != null ? left.astnode : right.astnode));
 
         ASTNodeArtifact conflict = new ASTNodeArtifact(MergeScenario.CONFLICT, typeNode);
         conflict.setConflict(left, right);
@@ -617,13 +775,7 @@ public ASTNodeArtifact createChoiceArtifact(String condition, ASTNodeArtifact ar
         /*
          * See above in createConflictArtifact().
          */
-        ASTNode<?> typeNode;
-
-        try {
-            typeNode = artifact.astnode.clone();
-        } catch (CloneNotSupportedException e) {
-            throw new RuntimeException("Failed to clone an ASTNode for a choice artifact.", e);
-        }
+        ASTNode<?> typeNode = ExtendJ.locked(() -> cloneNode(artifact.astnode));
 
         ASTNodeArtifact choice = new ASTNodeArtifact(MergeScenario.CHOICE, typeNode);
         choice.setChoice(condition, artifact);
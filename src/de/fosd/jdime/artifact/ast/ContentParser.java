@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.artifact.ast;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import beaver.Parser;
+import org.apache.commons.io.input.CharSequenceReader;
+import org.extendj.ast.CompilationUnit;
+import org.extendj.ast.FileClassSource;
+import org.extendj.ast.PathPart;
+import org.extendj.ast.Problem;
+import org.extendj.ast.Program;
+import org.extendj.ast.SourceFilePath;
+import org.extendj.parser.JavaParser;
+import org.extendj.scanner.JavaScanner;
+import org.extendj.scanner.Unicode;
+
+/**
+ * Parses Java source code that is already in memory. {@link Program#addSourceFile(String)} reads the file to parse
+ * from disk, which means reading it a second time if its content was already loaded and rules out parsing virtual
+ * files. This parser instead reads from a <code>CharSequence</code> and builds the same <code>Program</code> that
+ * {@link Program#addSourceFile(String)} would.
+ */
+final class ContentParser extends JavaParser {
+
+    /**
+     * Makes a package and all its enclosing packages known to the <code>Program</code> it is added to. This is what
+     * {@link Program#addSourceFile(String)} does for the package of the file it parses.
+     */
+    private static final class PackagePath extends PathPart {
+
+        private final String path;
+        private final String packageName;
+
+        private PackagePath(String path, String packageName) {
+            super(true);
+            this.path = path;
+            this.packageName = packageName;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public boolean hasPackage(String name) {
+            return packageName.equals(name) || packageName.startsWith(name + ".");
+        }
+    }
+
+    private ContentParser() {}
+
+    /**
+     * Parses the given Java source code into a <code>CompilationUnit</code> and adds it to a new
+     * <code>Program</code>. Problems encountered while parsing can be retrieved using
+     * {@link CompilationUnit#parseErrors()}.
+     *
+     * @param content
+     *         the source code to parse
+     * @param path
+     *         the path of the file containing the source code, used for error messages and conflict markers
+     * @return the <code>Program</code> containing the parsed <code>CompilationUnit</code>
+     * @throws IOException
+     *         if reading <code>content</code> fails
+     */
+    static Program parse(CharSequence content, String path) throws IOException {
+        Program program = new Program();
+        CompilationUnit cu = new ContentParser().parseCompilationUnit(content, path);
+
+        cu.setFromSource(true);
+        cu.setClassSource(new FileClassSource(new SourceFilePath(path), path));
+        program.addCompilationUnit(cu);
+
+        // initializes the class path of the program, paths added before that would be discarded
+        String packageName = cu.packageName();
+        program.isPackage(packageName);
+        program.addClassPath(new PackagePath(path, packageName));
+
+        return program;
+    }
+
+    /**
+     * Parses the given source code into a <code>CompilationUnit</code>. This mirrors
+     * {@link JavaParser#parse(java.io.InputStream, String)}.
+     *
+     * @param content
+     *         the source code to parse
+     * @param fileName
+     *         the name of the file the source code is from
+     * @return the parsed <code>CompilationUnit</code>
+     * @throws IOException
+     *         if reading <code>content</code> fails
+     */
+    private CompilationUnit parseCompilationUnit(CharSequence content, String fileName) throws IOException {
+        CompilationUnit cu;
+        List<Problem> problems = new ArrayList<>();
+
+        errors = problems; // the (raw) collection the parser reports its errors to
+
+        try {
+            cu = (CompilationUnit) parse(new JavaScanner(new Unicode(new CharSequenceReader(content))));
+        } catch (Parser.Exception e) {
+            cu = new CompilationUnit(); // the errors were recorded by the parser
+        } catch (Error e) {
+            cu = new CompilationUnit();
+            problems.add(new Problem(null, e.getMessage(), 0, 0, Problem.Severity.ERROR, Problem.Kind.LEXICAL));
+        }
+
+        for (Problem problem : problems) {
+            problem.setFileName(fileName);
+            cu.addParseError(problem);
+        }
+
+        return cu;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.artifact.ast;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes all work on ExtendJ ASTs. ExtendJ keeps the state of attribute evaluation (including the circular
+ * evaluation of rewrites that is triggered by {@link org.extendj.ast.ASTNode#getChild(int)}) in the static field
+ * <code>ASTNode.state</code> that is shared by all ASTs and all threads. Every call into ExtendJ that may evaluate
+ * attributes or rewrites must therefore hold the lock of this class. Such calls are confined to the
+ * <code>de.fosd.jdime.artifact.ast</code> package (where {@link ASTNodeArtifact} acquires the lock) and the
+ * semistructured transformation (which acquires it as a whole). Code outside of these sections may run
+ * concurrently, but parsing and pretty printing of different files never overlap.
+ * <p>
+ * The lock is reentrant, so locked sections may call each other. A thread holding the lock must not wait for other
+ * threads that need it.
+ */
+public final class ExtendJ {
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    /**
+     * Utility class.
+     */
+    private ExtendJ() {}
+
+    /**
+     * Returns whether the current thread holds the ExtendJ lock.
+     *
+     * @return true iff the current thread holds the lock
+     */
+    public static boolean isHeldByCurrentThread() {
+        return LOCK.isHeldByCurrentThread();
+    }
+
+    /**
+     * Returns the result of <code>task</code> computed while holding the ExtendJ lock.
+     *
+     * @param task
+     *         the task accessing ExtendJ ASTs
+     * @param <R>
+     *         the type of the result
+     * @return the result of <code>task</code>
+     */
+    public static <R> R locked(Supplier<R> task) {
+        LOCK.lock();
+
+        try {
+            return task.get();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * Runs <code>task</code> while holding the ExtendJ lock.
+     *
+     * @param task
+     *         the task accessing ExtendJ ASTs
+     */
+    public static void locked(Runnable task) {
+        LOCK.lock();
+
+        try {
+            task.run();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+}
@@ -133,12 +133,29 @@ public enum FileType {
      */
     private File file;
 
+    /**
+     * The {@link GitRepository} this {@link FileArtifact} was read from or {@code null} if it represents a file of the
+     * file system.
+     */
+    private final GitRepository repository;
+
+    /**
+     * The id of the blob in the {@link #repository} containing the content of this {@link FileArtifact} or
+     * {@code null} if it was not read from a {@link GitRepository} or represents a directory.
+     */
+    private final String blobId;
+
     /**
      * The content of this {@link FileArtifact}. The content will be retrieved from the {@link #original} {@link File}
      * and written back to the {@link #file} after the merge.
      */
     private String content;
 
+    /**
+     * The cached result of {@link #getContentDigest()} or <code>null</code> if it must be recomputed.
+     */
+    private String contentDigest;
+
     /**
      * Constructs a new <code>FileArtifact</code> representing the given <code>File</code>. If <code>file</code> is a
      * directory then <code>FileArtifact</code>s representing its contents will be added as children to this
@@ -206,6 +223,8 @@ private FileArtifact(Revision revision, Supplier<Integer> number, File file, boo
 
         this.original = file;
         this.file = file;
+        this.repository = null;
+        this.blobId = null;
 
         if (recursive && isDirectory()) {
             modifyChildren(children -> {
@@ -249,6 +268,50 @@ public FileArtifact(Revision revision, File virtualFile, FileType type) {
         this.type = type;
         this.original = null;
         this.file = virtualFile;
+        this.repository = null;
+        this.blobId = null;
+    }
+
+    /**
+     * Constructs a new {@link FileArtifact} representing the given {@link GitRepository.Entry} of a tree read from a
+     * {@link GitRepository}. If the entry represents a directory, {@link FileArtifact FileArtifacts} representing its
+     * entries will be added as children to this {@link FileArtifact}. The content of files is read from the
+     * {@link GitRepository} when it is first needed.
+     *
+     * @param revision
+     *         the {@link Revision} the artifact belongs to
+     * @param number
+     *         supplies first the number for this artifact and then in DFS order the number for its children
+     * @param file
+     *         the path of the entry, the {@link File} does not have to exist
+     * @param repository
+     *         the {@link GitRepository} the entry was read from
+     * @param entry
+     *         the entry to represent
+     */
+    FileArtifact(Revision revision, Supplier<Integer> number, File file, GitRepository repository, GitRepository.Entry entry) {
+        super(revision, number.get());
+
+        this.type = entry.isDirectory() ? FileType.DIR : FileType.FILE;
+        this.original = null;
+        this.file = file;
+        this.repository = repository;
+        this.blobId = entry.getBlobId();
+
+        if (isDirectory()) {
+            modifyChildren(children -> {
+                entry.getChildren().forEach((name, e) -> {
+                    FileArtifact child = new FileArtifact(revision, number, new File(file, name), repository, e);
+
+                    child.setParent(this);
+                    children.add(child);
+                });
+
+                children.sort(comp);
+            });
+        } else {
+            this.contentDigest = GitRepository.BLOB_DIGEST_PREFIX + blobId;
+        }
     }
 
     /**
@@ -297,7 +360,10 @@ private FileArtifact(FileArtifact toCopy) {
         this.type = toCopy.type;
         this.original = toCopy.original;
         this.file = toCopy.file;
+        this.repository = toCopy.repository;
+        this.blobId = toCopy.blobId;
         this.content = toCopy.content;
+        this.contentDigest = toCopy.contentDigest;
     }
 
     @Override
@@ -344,7 +410,7 @@ public String prettyPrint() {
 
     @Override
     public boolean exists() {
-        return getFile().exists();
+        return repository != null || getFile().exists();
     }
 
     /**
@@ -372,7 +438,8 @@ public boolean isJavaFile() {
 
     /**
      * Returns the MIME content type of the <code>File</code> in which this <code>FileArtifact</code> is stored. 
-     * If the content type can not be determined <code>null</code> will be returned.
+     * If the content type can not be determined <code>null</code> will be returned. The content type of files read
+     * from a {@link GitRepository} is determined by their extension alone.
      *
      * @return the MIME content type
      */
@@ -380,6 +447,10 @@ public String getContentType() {
         String mimeType = null;
         File file = getFile();
 
+        if (repository != null) {
+            return JAVA_SOURCE_CODE_EXTENSION.equals(FilenameUtils.getExtension(file.getName())) ? MIME_JAVA_SOURCE : null;
+        }
+
         // Skip Files#probeContentType as it might return text/plain for empty files.
         // Empty FileArtifacts are handled in ASTNodeArtifact#parse and produce empty ASTNodeArtifacts.
         if (!isEmpty()) {
@@ -786,7 +857,7 @@ public void writeContent() throws IOException {
 
         if (isFile()) {
 
-            if (content != null) {
+            if (content != null || blobId != null) {
                 writeToFile();
             } else if (original != null) {
                 copyFile();
@@ -802,14 +873,14 @@ public void writeContent() throws IOException {
     }
 
     /**
-     * Writes the {@link #content} of this {@link FileArtifact} to its {@link #file}.
+     * Writes the {@link #getContent() content} of this {@link FileArtifact} to its {@link #file}.
      *
      * @throws IOException
      *         see {@link FileUtils#openOutputStream(File)}
      */
     private void writeToFile() throws IOException {
         try (OutputStreamWriter out = new OutputStreamWriter(FileUtils.openOutputStream(file), UTF_8)) {
-            out.write(content);
+            out.write(getContent());
         }
     }
 
@@ -836,10 +907,10 @@ private void touchFile() throws IOException {
     }
 
     /**
-     * Returns the content of the {@link File} this {@link FileArtifact} represents. Will return an empty {@link String}
-     * if there is an exception reading the content of non-virtual {@link FileArtifact FileArtifacts} or if the
-     * {@link FileArtifact} is virtual and the content was not set to something other than an empty {@link String}.
-     * Also returns an empty {@link String} for directories.
+     * Returns the content of the {@link File} or blob this {@link FileArtifact} represents. Will return an empty
+     * {@link String} if there is an exception reading the content of non-virtual {@link FileArtifact FileArtifacts} or
+     * if the {@link FileArtifact} is virtual and the content was not set to something other than an empty
+     * {@link String}. Also returns an empty {@link String} for directories.
      *
      * @return the content this {@link FileArtifact} represents
      */
@@ -853,15 +924,22 @@ public String getContent() {
         if (content == null) {
             String content;
 
-            if (original == null) {
-                content = "";
-            } else {
+            if (original != null) {
                 try {
                     content = FileUtils.readFileToString(original, UTF_8);
                 } catch (IOException e) {
                     LOG.log(Level.WARNING, e, () -> "Could not read the contents of " + this);
                     return "";
                 }
+            } else if (blobId != null) {
+                try {
+                    content = repository.readBlob(blobId);
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, e, () -> "Could not read the contents of " + this + " from " + repository);
+                    return "";
+                }
+            } else {
+                content = "";
             }
 
             this.content = content;
@@ -870,6 +948,23 @@ public String getContent() {
         return content;
     }
 
+    /**
+     * Returns the hex encoded SHA-256 digest of the {@link #getContent() content} of this {@link FileArtifact}. The
+     * digest is cached until the content is changed using {@link #setContent(String)}. Files read from a
+     * {@link GitRepository} use their blob id as the digest until their content is changed so that it can be compared
+     * without reading the content.
+     *
+     * @return the digest of the content
+     */
+    public String getContentDigest() {
+
+        if (contentDigest == null) {
+            contentDigest = DigestUtils.sha256Hex(getContent());
+        }
+
+        return contentDigest;
+    }
+
     /**
      * Sets the content this {@link FileArtifact} represents to the new value. If this {@link FileArtifact} represents
      * a directory, the call is ignored.
@@ -881,6 +976,7 @@ public void setContent(String content) {
 
         if (isFile()) {
             this.content = content;
+            this.contentDigest = null;
         } else {
             LOG.warning("Ignoring a call to setContent(String) on a FileArtifact representing a directory.");
         }
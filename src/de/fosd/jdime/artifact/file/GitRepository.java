@@ -0,0 +1,556 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.artifact.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.fosd.jdime.config.merge.Revision;
+import de.fosd.jdime.execption.AbortException;
+import org.apache.commons.io.IOUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A local git repository whose object database is used as the source of the inputs of a merge. Revisions are given
+ * as commit-ish references (e.g. <code>HEAD~1</code> or <code>feature</code>), optionally followed by
+ * <code>:&lt;path&gt;</code> to select a file or directory of the commit. The {@link FileArtifact FileArtifacts}
+ * representing a revision are built from the tree of the commit without checking it out. The contents of the files
+ * are read lazily from the object database when they are first needed, and their
+ * {@link FileArtifact#getContentDigest() content digests} are derived from their blob ids. Files whose blob ids did
+ * not change between the revisions of a merge scenario can therefore be merged trivially without reading them.
+ * <p>
+ * The repository is accessed using the git plumbing commands. All blobs are read through a single
+ * <code>git cat-file --batch</code> process that is started on the first read and shared by all
+ * {@link FileArtifact FileArtifacts} of the repository. The process is stopped by {@link #close()} (or
+ * {@link #closeAll()}), which the owner of a <code>GitRepository</code> must call when it is done reading. If a read
+ * fails, the process is stopped as well since its output can no longer be trusted to be in sync with the requests;
+ * the next read starts a new one. Instances of this class are thread safe.
+ */
+public final class GitRepository implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(GitRepository.class.getCanonicalName());
+
+    /**
+     * The prefix of the content digests of the {@link FileArtifact FileArtifacts} representing blobs.
+     */
+    static final String BLOB_DIGEST_PREFIX = "git-blob:";
+
+    private static final String MODE_SYMLINK = "120000";
+    private static final String TYPE_BLOB = "blob";
+
+    /**
+     * The open repositories by their git directories.
+     */
+    private static final Map<File, GitRepository> repositories = new ConcurrentHashMap<>();
+
+    private final File directory;
+    private final File gitDir;
+
+    private Process catFile;
+    private InputStream catFileOut;
+    private OutputStream catFileIn;
+
+    /**
+     * Constructs a new <code>GitRepository</code> for the repository with the given git directory.
+     *
+     * @param directory
+     *         the directory of the repository
+     * @param gitDir
+     *         the git directory of the repository
+     */
+    private GitRepository(File directory, File gitDir) {
+        this.directory = directory;
+        this.gitDir = gitDir;
+    }
+
+    /**
+     * Returns the <code>GitRepository</code> containing the given directory. Repositories are opened only once, later
+     * calls for the same repository return the same instance.
+     *
+     * @param directory
+     *         a directory of the repository
+     * @return the <code>GitRepository</code>
+     * @throws AbortException
+     *         if <code>directory</code> is not part of a git repository
+     */
+    public static GitRepository open(File directory) {
+        File gitDir;
+
+        try {
+            String dir = run(directory, "rev-parse", "--absolute-git-dir");
+            gitDir = new File(dir).getCanonicalFile();
+        } catch (IOException e) {
+            throw new AbortException(directory + " is not a git repository.", e);
+        }
+
+        return repositories.computeIfAbsent(gitDir, gd -> new GitRepository(directory, gd));
+    }
+
+    /**
+     * Returns the directory containing the git repository.
+     *
+     * @return the directory of the repository
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns a tree of {@link FileArtifact FileArtifacts} representing the file or directory denoted by
+     * <code>revision</code>. If <code>revision</code> is a commit-ish reference, the tree represents the root directory
+     * of the commit. A reference of the form <code>&lt;commit-ish&gt;:&lt;path&gt;</code> selects the file or
+     * directory at the given path. The name of the root <code>FileArtifact</code> is the <code>revision</code> itself
+     * so that the paths of the files identify the revision they were read from. Symbolic links and submodules are
+     * not represented in the tree.
+     *
+     * @param rev
+     *         the <code>Revision</code> for the <code>FileArtifact</code>s
+     * @param revision
+     *         the revision to read
+     * @return the root of the tree
+     * @throws AbortException
+     *         if <code>revision</code> does not denote a file or directory of the repository
+     */
+    public FileArtifact read(Revision rev, String revision) {
+        File root = new File(revision);
+        Entry entry;
+
+        try {
+            String id = resolve(revision);
+
+            if (id != null && TYPE_BLOB.equals(run(directory, "cat-file", "-t", id))) {
+                entry = new Entry(id);
+            } else if (id != null && (id = resolve(id + "^{tree}")) != null) {
+                entry = readTree(id);
+            } else {
+                throw new AbortException(revision + " is neither a file nor a directory in " + directory + ".");
+            }
+        } catch (IOException e) {
+            throw new AbortException("Could not read " + revision + " from " + directory + ".", e);
+        }
+
+        LOG.fine(() -> "Read " + revision + " from " + directory);
+        return new FileArtifact(rev, new AtomicInteger(0)::getAndIncrement, root, this, entry);
+    }
+
+    /**
+     * Returns the merge commits reachable using the given revision range (as understood by <code>git rev-list</code>)
+     * from the oldest to the newest. Every merge commit is returned as a list containing its id followed by the ids
+     * of its parents.
+     *
+     * @param range
+     *         the revision range to list the merge commits of
+     * @return the merge commits and their parents
+     * @throws AbortException
+     *         if the merge commits can not be listed
+     */
+    public List<List<String>> mergeCommits(String range) {
+        String commits;
+
+        try {
+            commits = run(directory, "rev-list", "--merges", "--parents", "--reverse", "--end-of-options", range);
+        } catch (IOException e) {
+            throw new AbortException("Could not list the merge commits of " + range + " in " + directory + ".", e);
+        }
+
+        List<List<String>> merges = new ArrayList<>();
+
+        for (String line : commits.split("\n")) {
+
+            if (!line.isEmpty()) {
+                merges.add(Arrays.asList(line.split(" ")));
+            }
+        }
+
+        return merges;
+    }
+
+    /**
+     * Returns the best common ancestor of the two given commits.
+     *
+     * @param left
+     *         the first commit
+     * @param right
+     *         the second commit
+     * @return the id of the merge base or <code>null</code> if the commits have no common ancestor
+     * @throws IOException
+     *         if git can not be run
+     */
+    public String mergeBase(String left, String right) throws IOException {
+        try {
+            return run(directory, "merge-base", left, right);
+        } catch (GitException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the paths of the files that were added or modified between the two given commits.
+     *
+     * @param from
+     *         the older commit
+     * @param to
+     *         the newer commit
+     * @return the paths of the changed files relative to the root of the repository
+     * @throws IOException
+     *         if the changes can not be listed
+     */
+    public List<String> changedFiles(String from, String to) throws IOException {
+        String files = run(directory, "diff", "--no-renames", "--name-only", "-z", "--diff-filter=AM", from, to, "--");
+        List<String> paths = new ArrayList<>();
+
+        for (String path : files.split("\0")) {
+
+            if (!path.isEmpty()) {
+                paths.add(path);
+            }
+        }
+
+        return paths;
+    }
+
+    /**
+     * Returns whether the given object name names an object of the repository.
+     *
+     * @param name
+     *         the name of the object, e.g. <code>&lt;commit-ish&gt;:&lt;path&gt;</code>
+     * @return true iff the object exists
+     * @throws IOException
+     *         if git can not be run
+     */
+    public boolean exists(String name) throws IOException {
+        return resolve(name) != null;
+    }
+
+    /**
+     * Resolves the given object name to an object id.
+     *
+     * @param name
+     *         the name to resolve
+     * @return the object id or <code>null</code> if <code>name</code> does not name an object
+     * @throws IOException
+     *         if git can not be run
+     */
+    private String resolve(String name) throws IOException {
+        try {
+            return run(directory, "rev-parse", "--verify", "--quiet", "--end-of-options", name);
+        } catch (GitException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lists the tree with the given id recursively and returns its structure.
+     *
+     * @param treeId
+     *         the id of the tree to list
+     * @return the root <code>Entry</code> of the tree
+     * @throws IOException
+     *         if the tree can not be listed
+     */
+    private Entry readTree(String treeId) throws IOException {
+        Entry root = new Entry(null);
+        String listing = run(directory, "ls-tree", "-r", "-z", "--full-tree", treeId);
+
+        for (String line : listing.split("\0")) {
+
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            int tab = line.indexOf('\t');
+            String[] info = line.substring(0, tab).split(" ");
+            String path = line.substring(tab + 1);
+
+            if (!TYPE_BLOB.equals(info[1]) || MODE_SYMLINK.equals(info[0])) {
+                LOG.fine(() -> "Skipping the " + info[1] + " " + path + " of the tree " + treeId);
+                continue;
+            }
+
+            Entry dir = root;
+            String[] names = path.split("/");
+
+            for (int i = 0; i < names.length - 1; i++) {
+                dir = dir.children.computeIfAbsent(names[i], n -> new Entry(null));
+            }
+
+            dir.children.put(names[names.length - 1], new Entry(info[2]));
+        }
+
+        return root;
+    }
+
+    /**
+     * Reads the content of the blob with the given id.
+     *
+     * @param blobId
+     *         the id of the blob
+     * @return the content of the blob
+     * @throws IOException
+     *         if the blob can not be read
+     */
+    synchronized String readBlob(String blobId) throws IOException {
+
+        try {
+            return readBlobFromCatFile(blobId);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Implements {@link #readBlob(String)} using the (possibly newly started) <code>git cat-file</code> process.
+     *
+     * @param blobId
+     *         the id of the blob
+     * @return the content of the blob
+     * @throws IOException
+     *         if the blob can not be read
+     */
+    private String readBlobFromCatFile(String blobId) throws IOException {
+
+        if (catFile == null || !catFile.isAlive()) {
+            ProcessBuilder builder = new ProcessBuilder("git", "--git-dir=" + gitDir, "cat-file", "--batch");
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+            catFile = builder.start();
+            catFileOut = new BufferedInputStream(catFile.getInputStream());
+            catFileIn = new BufferedOutputStream(catFile.getOutputStream());
+        }
+
+        catFileIn.write((blobId + "\n").getBytes(UTF_8));
+        catFileIn.flush();
+
+        String[] header = readLine(catFileOut).split(" ");
+
+        if (header.length != 3 || !TYPE_BLOB.equals(header[1])) {
+            String response = String.join(" ", header);
+            throw new IOException("Could not read the blob " + blobId + " from " + directory + ": " + response);
+        }
+
+        int size;
+
+        try {
+            size = Integer.parseInt(header[2]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid size of the blob " + blobId + ": " + header[2], e);
+        }
+
+        byte[] content = new byte[size];
+
+        IOUtils.readFully(catFileOut, content);
+        readLine(catFileOut);
+
+        return new String(content, UTF_8);
+    }
+
+    /**
+     * Reads a line terminated by <code>'\n'</code> from the given <code>InputStream</code>.
+     *
+     * @param in
+     *         the <code>InputStream</code> to read from
+     * @return the line without the terminator
+     * @throws IOException
+     *         if the stream ends before the end of the line
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+
+        while ((b = in.read()) != '\n') {
+
+            if (b == -1) {
+                throw new IOException("Unexpected end of the output of git cat-file.");
+            }
+
+            line.write(b);
+        }
+
+        return new String(line.toByteArray(), UTF_8);
+    }
+
+    /**
+     * Runs git with the given arguments in the given directory and returns its output.
+     *
+     * @param directory
+     *         the working directory for git
+     * @param args
+     *         the arguments for git
+     * @return the output of git without a trailing line separator
+     * @throws IOException
+     *         if git can not be run or exits with an error
+     */
+    private static String run(File directory, String... args) throws IOException {
+        List<String> cmd = new ArrayList<>(args.length + 1);
+
+        cmd.add("git");
+        Collections.addAll(cmd, args);
+
+        /*
+         * The error output is written to a file so that git can not block on a full stderr pipe while the standard
+         * output is read.
+         */
+        File errFile = File.createTempFile("jdime-git", ".err");
+
+        try {
+            Process git = new ProcessBuilder(cmd).directory(directory).redirectError(errFile).start();
+            git.getOutputStream().close();
+
+            String out = IOUtils.toString(git.getInputStream(), UTF_8);
+
+            try {
+                if (git.waitFor() != 0) {
+                    String err = new String(Files.readAllBytes(errFile.toPath()), UTF_8);
+                    throw new GitException(String.format("'%s' failed: %s", String.join(" ", cmd), err.trim()));
+                }
+            } catch (InterruptedException e) {
+                git.destroy();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for " + cmd, e);
+            }
+
+            return out.endsWith("\n") ? out.substring(0, out.length() - 1) : out;
+        } finally {
+            Files.deleteIfExists(errFile.toPath());
+        }
+    }
+
+    /**
+     * Stops the <code>git cat-file</code> process of this repository. Later reads start a new one.
+     */
+    @Override
+    public synchronized void close() {
+
+        if (catFile != null) {
+            IOUtils.closeQuietly(catFileIn, e -> LOG.log(Level.FINE, e, () -> "Could not close git cat-file."));
+            IOUtils.closeQuietly(catFileOut, e -> LOG.log(Level.FINE, e, () -> "Could not close git cat-file."));
+            catFile.destroy();
+            catFile = null;
+            catFileIn = null;
+            catFileOut = null;
+        }
+    }
+
+    /**
+     * Stops the <code>git cat-file</code> processes of all repositories that were opened using
+     * {@link #open(File)}.
+     */
+    public static void closeAll() {
+        repositories.values().forEach(GitRepository::close);
+    }
+
+    /**
+     * Returns whether the <code>git cat-file</code> process of this repository is running.
+     *
+     * @return true iff blobs are currently read through a running process
+     */
+    synchronized boolean isCatFileRunning() {
+        return catFile != null && catFile.isAlive();
+    }
+
+    @Override
+    public String toString() {
+        return directory.toString();
+    }
+
+    /**
+     * An entry of a tree read from the repository. Entries with a blob id represent files, the others represent
+     * directories.
+     */
+    static final class Entry {
+
+        private final String blobId;
+        private final SortedMap<String, Entry> children;
+
+        /**
+         * Constructs a new <code>Entry</code>.
+         *
+         * @param blobId
+         *         the id of the blob or <code>null</code> for a directory
+         */
+        private Entry(String blobId) {
+            this.blobId = blobId;
+            this.children = blobId == null ? new TreeMap<>() : Collections.emptySortedMap();
+        }
+
+        /**
+         * Returns the id of the blob this <code>Entry</code> represents.
+         *
+         * @return the blob id or <code>null</code> if this <code>Entry</code> represents a directory
+         */
+        String getBlobId() {
+            return blobId;
+        }
+
+        /**
+         * Returns whether this <code>Entry</code> represents a directory.
+         *
+         * @return true iff this <code>Entry</code> represents a directory
+         */
+        boolean isDirectory() {
+            return blobId == null;
+        }
+
+        /**
+         * Returns the entries of the directory represented by this <code>Entry</code> by their names.
+         *
+         * @return the entries of the directory
+         */
+        SortedMap<String, Entry> getChildren() {
+            return children;
+        }
+    }
+
+    /**
+     * Thrown if git exits with an error.
+     */
+    private static final class GitException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private GitException(String message) {
+            super(message);
+        }
+    }
+}
@@ -74,12 +74,23 @@ public class CommandLineConfigSource extends ConfigSource {
     public static final String CLI_EXIT_ON_ERROR = "eoe";
     public static final String CLI_ACCEPT_NON_JAVA = "anj";
     public static final String CLI_MS_LABEL = "msl";
+    public static final String CLI_GIT_REPOSITORY = "git";
+    public static final String CLI_SERVER = "server";
+    public static final String CLI_BATCH = "batch";
+    public static final String CLI_REPLAY = "replay";
+    public static final String CLI_THREADS = "t";
     public static final String CLI_CM = "cm";
     public static final String CLI_CM_REMATCH_BOUND = "cmbound";
     public static final String CLI_CM_OPTIONS = "cmopts";
     public static final String CLI_CM_PARALLEL = "cmpar";
     public static final String CLI_CM_FIX_PERCENTAGE = "cmfix";
     public static final String CLI_CM_SEED = "cmseed";
+    public static final String CLI_CM_CHAINS = "cmchains";
+    public static final String CLI_CM_TEMPERING = "cmtemper";
+    public static final String CLI_CM_CANDIDATES = "cmcandidates";
+    public static final String CLI_CM_PATIENCE = "cmpatience";
+    public static final String CLI_CM_MIN_IMPROVEMENT = "cmimprove";
+    public static final String CLI_CM_TIMEOUT = "cmtimeout";
 
     public static final String ARG_LIST = "ARG_LIST";
     public static final String ARG_LIST_SEP = ",";
@@ -332,6 +343,63 @@ private Options buildCliOptions() {
 
         options.addOption(o);
 
+        o = Option.builder(CLI_GIT_REPOSITORY)
+                .longOpt("git-repository")
+                .desc("Read the inputs from the object database of the given git repository instead of the file " +
+                      "system. The input files are then given as commit-ish references, optionally followed by " +
+                      "':<path>' to select a file or directory of the commit.")
+                .hasArg()
+                .argName("dir")
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_SERVER)
+                .longOpt("server")
+                .desc("Keep running and execute the merges requested by the JDime client on a loopback socket. " +
+                      "The port is configured using the SERVER_PORT option.")
+                .hasArg(false)
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_BATCH)
+                .longOpt("batch")
+                .desc("Merge the scenarios listed in the given manifest instead of the input files. The manifest " +
+                      "contains one JSON object per line with the attributes 'paths' (the input files), 'strategy', " +
+                      "'output' and 'label'. The result of every scenario is written to standard out as a JSON " +
+                      "object per line. The number of scenarios merged concurrently is configured using the " +
+                      "BATCH_THREADS option.")
+                .hasArg()
+                .argName("manifest")
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_REPLAY)
+                .longOpt("replay")
+                .desc("Replay the merge commits of the given git repository. The input files are the revision ranges " +
+                      "whose merge commits to replay, by default HEAD. For every merge commit, the files changed by " +
+                      "both parents are merged and compared to the committed versions. The results are written to " +
+                      "standard out as a JSON object per commit. Use REPLAY_PROGRESS_FILE to make a replay resumable.")
+                .hasArg()
+                .argName("dir")
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_THREADS)
+                .longOpt("threads")
+                .desc("The number of threads to use for merging the files contained in the input directories. " +
+                      "The default is 1, that is, files are merged one after another. Parsing, matching and " +
+                      "pretty printing ASTs is not done concurrently, so more threads mostly speed up the I/O " +
+                      "and line based merges.")
+                .hasArg()
+                .argName("n")
+                .build();
+
+        options.addOption(o);
+
         {
             String modes = Arrays.stream(CMMode.values()).map(CMMode::name).reduce("", (s, s2) -> s + " " + s2);
 
@@ -390,6 +458,61 @@ private Options buildCliOptions() {
 
         options.addOption(o);
 
+        o = Option.builder(CLI_CM_CHAINS)
+                .longOpt("cost-model-chains")
+                .desc("The number of independent chains the cost model matcher runs concurrently. Chain i uses the " +
+                        "seed plus i. The lowest cost matchings found by any chain are used. The default is 1.")
+                .hasArg(true)
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_CM_TEMPERING)
+                .longOpt("cost-model-tempering")
+                .desc("Whether the chains of the cost model matcher use decreasing betas and periodically swap their " +
+                        "matchings (parallel tempering).")
+                .hasArg(false)
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_CM_CANDIDATES)
+                .longOpt("cost-model-candidates")
+                .desc("The number of plausible partners (by label, tree hash and depth) the cost model matcher " +
+                        "considers for every node. 0 (the default) considers every node of the same type.")
+                .hasArg(true)
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_CM_PATIENCE)
+                .longOpt("cost-model-patience")
+                .desc("Stop the cost model matcher once the lowest cost found has not improved for the given number " +
+                        "of iterations. 0 (the default) always runs all iterations.")
+                .hasArg(true)
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_CM_MIN_IMPROVEMENT)
+                .longOpt("cost-model-min-improvement")
+                .desc("The fraction (between 0 and 1) by which the lowest cost found by the cost model matcher must " +
+                        "decrease to count as an improvement for the purposes of '-" + CLI_CM_PATIENCE + "'. " +
+                        "The default is 0.")
+                .hasArg(true)
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_CM_TIMEOUT)
+                .longOpt("cost-model-timeout")
+                .desc("The number of milliseconds after which the cost model matcher returns the lowest cost " +
+                        "matchings found so far. 0 (the default) disables the timeout.")
+                .hasArg(true)
+                .build();
+
+        options.addOption(o);
+
 
         return options;
     }
@@ -403,6 +526,15 @@ public Options getOptions() {
         return options;
     }
 
+    /**
+     * Returns the <code>CommandLine</code> parsed from the command line arguments.
+     *
+     * @return the <code>CommandLine</code>
+     */
+    public CommandLine getCommandLine() {
+        return cmdLine;
+    }
+
     @Override
     protected Optional<String> getMapping(String key) {
 
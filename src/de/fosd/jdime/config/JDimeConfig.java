@@ -33,8 +33,10 @@
 import java.util.logging.Logger;
 
 import de.fosd.jdime.Main;
+import de.fosd.jdime.artifact.TreeHash;
 import de.fosd.jdime.artifact.file.FileArtifact;
 import de.fosd.jdime.matcher.ordered.mceSubtree.MCESubtreeMatcher;
+import de.fosd.jdime.matcher.unordered.assignmentProblem.AssignmentSolver;
 import de.fosd.jdime.stats.KeyEnums;
 import de.fosd.jdime.stats.MergeScenarioStatistics;
 import de.fosd.jdime.stats.Statistics;
@@ -113,11 +115,86 @@ public final class JDimeConfig extends Config {
      */
     public static final String USE_MCESUBTREE_MATCHER = "USE_MCESUBTREE_MATCHER";
 
+    /**
+     * Whether the matchers pair identical children directly and only match the remaining children pairwise. Must be
+     * either 'true' or 'false'. Defaults to true.
+     */
+    public static final String PAIR_IDENTICAL_CHILDREN = "PAIR_IDENTICAL_CHILDREN";
+
     /**
      * Whether to merge successive conflicts after running structured strategy.
      */
     public static final String OPTIMIZE_MULTI_CONFLICTS = "OPTIMIZE_MULTI_CONFLICTS";
 
+    /**
+     * The hash function to use for computing the tree hashes of artifacts. Must be the name of one of the
+     * {@link TreeHash.Mode} constants (case insensitive). Defaults to {@link TreeHash.Mode#MURMUR3}.
+     */
+    public static final String TREE_HASH_MODE = "TREE_HASH_MODE";
+
+    /**
+     * The maximum number of matchings the matcher retains in its cache of the matchings of already matched pairs of
+     * artifacts. A value of 0 disables the cache. Defaults to a size that fills at most one sixteenth of the heap.
+     */
+    public static final String MATCHER_CACHE_SIZE = "MATCHER_CACHE_SIZE";
+
+    /**
+     * The number of threads used for matching the children of large nodes in parallel. A value of 1 disables parallel
+     * matching. Defaults to 1 because matching ASTs mostly runs under the global ExtendJ lock.
+     */
+    public static final String MATCHER_THREADS = "MATCHER_THREADS";
+
+    /**
+     * The minimum number of child pairs a node pair must have for the pairs to be matched in parallel. Defaults to
+     * {@value de.fosd.jdime.config.merge.MergeContext#DEFAULT_MATCHER_PARALLEL_THRESHOLD}.
+     */
+    public static final String MATCHER_PARALLEL_THRESHOLD = "MATCHER_PARALLEL_THRESHOLD";
+
+    /**
+     * The algorithm used for solving the assignment problems arising when matching unordered children. Must be the
+     * name of one of the {@link AssignmentSolver} constants (case insensitive). Defaults to
+     * {@link AssignmentSolver#HUNGARIAN}.
+     */
+    public static final String ASSIGNMENT_SOLVER = "ASSIGNMENT_SOLVER";
+
+    /**
+     * Whether the combined strategy runs its strategies concurrently, using the result of the first one (in order)
+     * producing no conflicts and cancelling the ones after it. Must be either 'true' or 'false'. Defaults to false.
+     */
+    public static final String SPECULATIVE_COMBINED_STRATEGY = "SPECULATIVE_COMBINED_STRATEGY";
+
+    /**
+     * The maximum amount of memory (in megabytes) the cache of parsed abstract syntax trees may use. The size of the
+     * cached trees is estimated from their number of nodes. A value of 0 disables the cache. Defaults to 0, the cache
+     * is only worth its copying overhead if the same files are merged repeatedly (e.g., in server or batch mode).
+     */
+    public static final String AST_CACHE_MEMORY = "AST_CACHE_MEMORY";
+
+    /**
+     * The directory in which parsed abstract syntax trees are stored so that later runs do not have to parse files of
+     * the same content again. By default no trees are stored.
+     */
+    public static final String AST_CACHE_DIR = "AST_CACHE_DIR";
+
+    /**
+     * The loopback port on which a JDime server started using '-server' listens for the requests of the JDime client.
+     * Defaults to 7391.
+     */
+    public static final String SERVER_PORT = "SERVER_PORT";
+
+    /**
+     * The number of threads merging the scenarios of a manifest given using '-batch' or the files of the merge commits
+     * replayed using '-replay'. Defaults to the number of available processors.
+     */
+    public static final String BATCH_THREADS = "BATCH_THREADS";
+
+    /**
+     * The file recording the merge commits replayed using '-replay'. Commits listed in the file are skipped and
+     * replayed commits are appended so that an interrupted replay can be resumed. By default the progress is not
+     * recorded.
+     */
+    public static final String REPLAY_PROGRESS_FILE = "REPLAY_PROGRESS_FILE";
+
     /**
      * Whether to append a number to the file name to ensure that no file of the same name is overwritten when
      * writing the statistics. Must be either 'true' or 'false'. Defaults to true.
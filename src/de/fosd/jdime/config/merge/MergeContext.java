@@ -25,13 +25,20 @@
 
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.artifact.ArtifactList;
+import de.fosd.jdime.artifact.TreeHash;
+import de.fosd.jdime.artifact.ast.ASTCache;
+import de.fosd.jdime.artifact.ast.ASTDiskCache;
 import de.fosd.jdime.artifact.ast.ASTNodeArtifact;
 import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.artifact.file.GitRepository;
 import de.fosd.jdime.config.CommandLineConfigSource;
 import de.fosd.jdime.config.JDimeConfig;
 import de.fosd.jdime.execption.AbortException;
+import de.fosd.jdime.merge.FileMergePool;
+import de.fosd.jdime.matcher.Matcher;
 import de.fosd.jdime.matcher.cost_model.CMMode;
 import de.fosd.jdime.matcher.cost_model.CostModelMatcher;
+import de.fosd.jdime.matcher.unordered.assignmentProblem.AssignmentSolver;
 import de.fosd.jdime.stats.KeyEnums;
 import de.fosd.jdime.stats.MergeScenarioStatistics;
 import de.fosd.jdime.stats.Statistics;
@@ -44,6 +51,10 @@
 import java.io.File;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -78,6 +89,11 @@ public class MergeContext implements Cloneable {
      */
     public static final String DEFAULT_GIT_CMD = "git";
 
+    /**
+     * The default minimum number of child pairs a node pair must have for the pairs to be matched in parallel.
+     */
+    public static final int DEFAULT_MATCHER_PARALLEL_THRESHOLD = 1024;
+
     /**
      * Whether merge inserts choice nodes instead of direct merging.
      */
@@ -196,6 +212,11 @@ public class MergeContext implements Cloneable {
      */
     private boolean useMCESubtreeMatcher;
 
+    /**
+     * Whether the matchers pair identical children directly before matching the remaining children.
+     */
+    private boolean pairIdenticalChildren;
+
     /**
      * Whether to merge successive conflicts in structured merge.
      */
@@ -222,6 +243,65 @@ public class MergeContext implements Cloneable {
 
     private Map<MergeScenario<?>, Throwable> crashes;
 
+    /**
+     * The number of threads to use for merging the files contained in the input directories.
+     */
+    private int threads;
+
+    /**
+     * The hash function to use for computing the tree hashes of artifacts.
+     */
+    private TreeHash.Mode treeHashMode;
+
+    /**
+     * The maximum number of matchings retained in the cache of the <code>Matcher</code>. 0 disables the cache.
+     */
+    private long matcherCacheSize;
+
+    /**
+     * The number of threads used for matching the children of large nodes in parallel.
+     */
+    private int matcherThreads;
+
+    /**
+     * The minimum number of child pairs a node pair must have for the pairs to be matched in parallel.
+     */
+    private int matcherParallelThreshold;
+
+    /**
+     * Holds the pool used for matching child pairs in parallel. The pool is created when it is first needed and shut
+     * down by {@link #shutdownMatcherPool()}. The holder is shared with all copies of this <code>MergeContext</code>.
+     */
+    private AtomicReference<ForkJoinPool> matcherPool;
+
+    /**
+     * The algorithm used for solving the assignment problems arising when matching unordered children.
+     */
+    private AssignmentSolver assignmentSolver;
+
+    /**
+     * Whether the combined strategy runs its strategies concurrently.
+     */
+    private boolean speculativeCombinedStrategy;
+
+    /**
+     * The cache of the trees parsed by the structured strategies. The cache is shared with all copies of this
+     * <code>MergeContext</code>.
+     */
+    private ASTCache astCache;
+
+    /**
+     * The cache storing the trees parsed by the structured strategies on disk. <code>null</code> if trees are not to
+     * be stored.
+     */
+    private ASTDiskCache astDiskCache;
+
+    /**
+     * The <code>FileMergePool</code> that file level <code>MergeOperation</code>s are handed to while a directory
+     * merge using more than one thread is running. <code>null</code> if files are to be merged on the current thread.
+     */
+    private FileMergePool fileMergePool;
+
     private CMMode cmMatcherMode;
     private float cmReMatchBound;
     private float wr, wn, wa, ws, wo;
@@ -229,7 +309,13 @@ public class MergeContext implements Cloneable {
     private float fixLower, fixUpper;
     private Optional<Long> seed;
     private int costModelIterations;
+    private int costModelChains;
+    private int costModelCandidates;
+    private int costModelPatience;
+    private float costModelMinImprovement;
+    private long costModelTimeout;
     private boolean cmMatcherParallel;
+    private boolean cmMatcherTempering;
     private boolean cmMatcherFixRandomPercentage;
 
     /**
@@ -258,11 +344,23 @@ public MergeContext() {
         this.statistics = new Statistics();
         this.excludeStatisticsMSSFields = new ArrayList<>();
         this.useMCESubtreeMatcher = false;
+        this.pairIdenticalChildren = true;
         this.semiStructured = false;
         this.semiStructuredLevel = KeyEnums.Level.METHOD;
         this.lookAhead = MergeContext.LOOKAHEAD_OFF;
         this.lookAheads = new HashMap<>();
-        this.crashes = new HashMap<>();
+        this.crashes = new ConcurrentHashMap<>();
+        this.threads = 1;
+        this.treeHashMode = TreeHash.Mode.MURMUR3;
+        this.matcherCacheSize = Matcher.DEFAULT_CACHE_SIZE;
+        this.matcherThreads = 1;
+        this.matcherParallelThreshold = DEFAULT_MATCHER_PARALLEL_THRESHOLD;
+        this.matcherPool = new AtomicReference<>();
+        this.assignmentSolver = AssignmentSolver.HUNGARIAN;
+        this.speculativeCombinedStrategy = false;
+        this.astCache = new ASTCache(ASTCache.DEFAULT_CAPACITY);
+        this.astDiskCache = null;
+        this.fileMergePool = null;
         this.cmMatcherMode = CMMode.OFF;
         this.cmReMatchBound = .3f;
         this.wr = 1;
@@ -275,7 +373,13 @@ public MergeContext() {
         this.fixUpper = .50f;
         this.seed = Optional.of(42L);
         this.costModelIterations = 100;
+        this.costModelChains = 1;
+        this.costModelCandidates = 0;
+        this.costModelPatience = 0;
+        this.costModelMinImprovement = 0;
+        this.costModelTimeout = 0;
         this.cmMatcherParallel = true;
+        this.cmMatcherTempering = false;
         this.cmMatcherFixRandomPercentage = true;
     }
 
@@ -286,6 +390,20 @@ public MergeContext() {
      *         the <code>MergeContext</code> to copy
      */
     public MergeContext(MergeContext toCopy) {
+        this(toCopy, false);
+    }
+
+    /**
+     * Copies the options of <code>toCopy</code>. If <code>shareResults</code> is <code>true</code>, the new
+     * <code>MergeContext</code> uses the same input files, <code>Statistics</code> and crash records as
+     * <code>toCopy</code> instead of copies of them.
+     *
+     * @param toCopy
+     *         the <code>MergeContext</code> to copy
+     * @param shareResults
+     *         whether to share the collected results with <code>toCopy</code>
+     */
+    private MergeContext(MergeContext toCopy, boolean shareResults) {
         this.conditionalMerge = toCopy.conditionalMerge;
         this.conditionalOutsideMethods = toCopy.conditionalOutsideMethods;
         this.diffOnly = toCopy.diffOnly;
@@ -296,8 +414,12 @@ public MergeContext(MergeContext toCopy) {
         this.inspectionScope = toCopy.inspectionScope;
         this.forceOverwriting = toCopy.forceOverwriting;
 
-        this.inputFiles = new ArtifactList<>();
-        this.inputFiles.addAll(toCopy.inputFiles.stream().map(FileArtifact::copy).collect(Collectors.toList()));
+        if (shareResults) {
+            this.inputFiles = toCopy.inputFiles;
+        } else {
+            this.inputFiles = new ArtifactList<>();
+            this.inputFiles.addAll(toCopy.inputFiles.stream().map(FileArtifact::copy).collect(Collectors.toList()));
+        }
 
         this.filterInputDirectories = toCopy.filterInputDirectories;
         this.keepGoing = toCopy.keepGoing;
@@ -310,9 +432,10 @@ public MergeContext(MergeContext toCopy) {
         this.pretend = toCopy.pretend;
         this.recursive = toCopy.recursive;
         this.collectStatistics = toCopy.collectStatistics;
-        this.statistics = new Statistics(toCopy.statistics);
+        this.statistics = shareResults ? toCopy.statistics : new Statistics(toCopy.statistics);
         this.excludeStatisticsMSSFields = new ArrayList<>(toCopy.excludeStatisticsMSSFields);
         this.useMCESubtreeMatcher = toCopy.useMCESubtreeMatcher;
+        this.pairIdenticalChildren = toCopy.pairIdenticalChildren;
         this.optimizeMultiConflicts = toCopy.optimizeMultiConflicts;
         this.semiStructured = toCopy.semiStructured;
         this.semiStructuredLevel = toCopy.semiStructuredLevel;
@@ -320,7 +443,18 @@ public MergeContext(MergeContext toCopy) {
         this.lookAhead = toCopy.lookAhead;
         this.lookAheads = new HashMap<>(toCopy.lookAheads);
 
-        this.crashes = new HashMap<>(toCopy.crashes);
+        this.crashes = shareResults ? toCopy.crashes : new ConcurrentHashMap<>(toCopy.crashes);
+        this.threads = toCopy.threads;
+        this.treeHashMode = toCopy.treeHashMode;
+        this.matcherCacheSize = toCopy.matcherCacheSize;
+        this.matcherThreads = toCopy.matcherThreads;
+        this.matcherParallelThreshold = toCopy.matcherParallelThreshold;
+        this.matcherPool = toCopy.matcherPool;
+        this.assignmentSolver = toCopy.assignmentSolver;
+        this.speculativeCombinedStrategy = toCopy.speculativeCombinedStrategy;
+        this.astCache = toCopy.astCache;
+        this.astDiskCache = toCopy.astDiskCache;
+        this.fileMergePool = null;
         this.cmMatcherMode = toCopy.cmMatcherMode;
         this.cmReMatchBound = toCopy.cmReMatchBound;
         this.wr = toCopy.wr;
@@ -333,10 +467,28 @@ public MergeContext(MergeContext toCopy) {
         this.fixUpper = toCopy.fixUpper;
         this.seed = toCopy.seed;
         this.costModelIterations = toCopy.costModelIterations;
+        this.costModelChains = toCopy.costModelChains;
+        this.costModelCandidates = toCopy.costModelCandidates;
+        this.costModelPatience = toCopy.costModelPatience;
+        this.costModelMinImprovement = toCopy.costModelMinImprovement;
+        this.costModelTimeout = toCopy.costModelTimeout;
         this.cmMatcherParallel = toCopy.cmMatcherParallel;
+        this.cmMatcherTempering = toCopy.cmMatcherTempering;
         this.cmMatcherFixRandomPercentage = toCopy.cmMatcherFixRandomPercentage;
     }
 
+    /**
+     * Returns a copy of this <code>MergeContext</code> for merging a set of files on a worker thread of a
+     * {@link FileMergePool}. Options that the merge strategies modify while merging (like the strategy itself when
+     * falling back to line based merging) are copied, the <code>Statistics</code> and the recorded crashes are shared
+     * with this <code>MergeContext</code>.
+     *
+     * @return the <code>MergeContext</code> for the worker thread
+     */
+    public MergeContext workerCopy() {
+        return new MergeContext(this, true);
+    }
+
     /**
      * Initializes the configuration options stored in the <code>MergeContext</code> from the given
      * <code>JDimeConfig</code>.
@@ -456,9 +608,73 @@ private void configMerge(JDimeConfig config) {
         });
 
         config.getBoolean(USE_MCESUBTREE_MATCHER).ifPresent(this::setUseMCESubtreeMatcher);
+        config.getBoolean(PAIR_IDENTICAL_CHILDREN).ifPresent(this::setPairIdenticalChildren);
 
         config.getBoolean(OPTIMIZE_MULTI_CONFLICTS).ifPresent(this::setOptimizeMultiConflicts);
 
+        config.getInteger(CLI_THREADS).ifPresent(threads -> {
+
+            if (threads < 1) {
+                throw new AbortException("Invalid number of threads '" + threads + "'. Must be a positive integer.");
+            }
+
+            setThreads(threads);
+        });
+
+        config.get(TREE_HASH_MODE, mode -> {
+
+            try {
+                return Optional.of(TreeHash.Mode.valueOf(mode.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                LOG.log(WARNING, e, () -> "Invalid tree hash mode " + mode);
+                return Optional.empty();
+            }
+        }).ifPresent(this::setTreeHashMode);
+
+        config.getInteger(MATCHER_CACHE_SIZE).ifPresent(size -> {
+
+            if (size < 0) {
+                throw new AbortException("Invalid matcher cache size '" + size + "'. Must not be negative.");
+            }
+
+            setMatcherCacheSize(size);
+        });
+
+        config.getInteger(MATCHER_THREADS).ifPresent(threads -> {
+
+            if (threads < 1) {
+                String msg = "Invalid number of matcher threads '" + threads + "'. Must be a positive integer.";
+                throw new AbortException(msg);
+            }
+
+            setMatcherThreads(threads);
+        });
+
+        config.getInteger(MATCHER_PARALLEL_THRESHOLD).ifPresent(this::setMatcherParallelThreshold);
+
+        config.get(ASSIGNMENT_SOLVER, solver -> {
+
+            try {
+                return Optional.of(AssignmentSolver.valueOf(solver.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                LOG.log(WARNING, e, () -> "Invalid assignment solver " + solver);
+                return Optional.empty();
+            }
+        }).ifPresent(this::setAssignmentSolver);
+
+        config.getBoolean(SPECULATIVE_COMBINED_STRATEGY).ifPresent(this::setSpeculativeCombinedStrategy);
+
+        config.getInteger(AST_CACHE_MEMORY).ifPresent(megabytes -> {
+
+            if (megabytes < 0) {
+                throw new AbortException("Invalid AST cache memory '" + megabytes + "'. Must not be negative.");
+            }
+
+            astCache.setCapacity(megabytes * 1024L * 1024L);
+        });
+
+        config.get(AST_CACHE_DIR).map(dir -> new ASTDiskCache(new File(dir))).ifPresent(this::setASTDiskCache);
+
         config.get(CLI_LOOKAHEAD, val -> {
             String msg = "Invalid lookahead level '" + val + "'. Must be one of 'off', 'full' or a non-negative integer.";
             RuntimeException abort = new AbortException(msg);
@@ -557,6 +773,12 @@ private void configCostModelMatcher(JDimeConfig config) {
         });
 
         config.getBoolean(CLI_CM_PARALLEL).ifPresent(this::setCmMatcherParallel);
+        config.getInteger(CLI_CM_CHAINS).ifPresent(this::setCostModelChains);
+        config.getInteger(CLI_CM_CANDIDATES).ifPresent(this::setCostModelCandidates);
+        config.getInteger(CLI_CM_PATIENCE).ifPresent(this::setCostModelPatience);
+        config.getFloat(CLI_CM_MIN_IMPROVEMENT).ifPresent(this::setCostModelMinImprovement);
+        config.getInteger(CLI_CM_TIMEOUT).ifPresent(this::setCostModelTimeout);
+        config.getBoolean(CLI_CM_TEMPERING).ifPresent(this::setCmMatcherTempering);
 
         config.get(CLI_CM_FIX_PERCENTAGE).ifPresent(opts -> {
             String[] split = opts.trim().split("\\s*,\\s*");
@@ -615,8 +837,14 @@ private void configInputOutput(JDimeConfig config) {
         config.get(CLI_MS_LABEL).ifPresent(this::setMergeScenarioLabel);
 
         Optional<String> args = config.get(CommandLineConfigSource.ARG_LIST);
+        Optional<File> gitRepository = config.get(CLI_GIT_REPOSITORY).map(String::trim).map(File::new);
+
+        if (args.isPresent() && gitRepository.isPresent()) {
+            List<String> revisions = Arrays.stream(args.get().split(CommandLineConfigSource.ARG_LIST_SEP))
+                                           .map(String::trim).collect(Collectors.toList());
 
-        if (args.isPresent()) {
+            setInputFiles(readGitInputs(GitRepository.open(gitRepository.get()), revisions));
+        } else if (args.isPresent()) {
             List<File> inputFiles = Arrays.stream(args.get().split(CommandLineConfigSource.ARG_LIST_SEP))
                                           .map(String::trim).map(File::new).collect(Collectors.toCollection(ArrayList::new));
             List<File> nonExistent = inputFiles.stream().filter(f -> !f.exists()).collect(Collectors.toList());
@@ -646,21 +874,7 @@ private void configInputOutput(JDimeConfig config) {
                 throw new AbortException("Input files must be all directories or all files.");
             }
 
-            Supplier<Revision> revSupplier;
-
-            if (isConditionalMerge()) {
-                revSupplier = new Revision.SuccessiveRevSupplier();
-            } else {
-
-                if (inputFiles.size() == MergeType.TWOWAY_FILES) {
-                    revSupplier = Arrays.asList(MergeScenario.LEFT, MergeScenario.RIGHT).iterator()::next;
-                } else if (inputFiles.size() == MergeType.THREEWAY_FILES) {
-                    revSupplier = Arrays.asList(MergeScenario.LEFT, MergeScenario.BASE, MergeScenario.RIGHT).iterator()::next;
-                } else {
-                    revSupplier = new Revision.SuccessiveRevSupplier();
-                }
-            }
-
+            Supplier<Revision> revSupplier = revisionSupplier(inputFiles.size());
             List<FileArtifact> inputArtifacts = new ArtifactList<>(inputFiles.size());
 
             for (File file : inputFiles) {
@@ -729,6 +943,69 @@ private void configInputOutput(JDimeConfig config) {
         }
     }
 
+    /**
+     * Reads the given revisions from the <code>GitRepository</code> to be used as the input files for the merge.
+     *
+     * @param repository
+     *         the <code>GitRepository</code> to read from
+     * @param revisions
+     *         the commit-ish references (optionally followed by <code>:&lt;path&gt;</code>) to read
+     * @return the <code>FileArtifact</code>s representing the revisions
+     * @see GitRepository#read(Revision, String)
+     */
+    private List<FileArtifact> readGitInputs(GitRepository repository, List<String> revisions) {
+        Supplier<Revision> revSupplier = revisionSupplier(revisions.size());
+        List<FileArtifact> inputArtifacts = new ArtifactList<>(revisions.size());
+
+        for (String revision : revisions) {
+            FileArtifact artifact = repository.read(revSupplier.get(), revision);
+            inputArtifacts.add(artifact);
+
+            if (!acceptNonJava && artifact.isFile() && !artifact.isJavaFile()) {
+                LOG.severe(() -> "Invalid input files. (Must all be java source code files.)");
+                LOG.severe(revision + ": " + artifact.getContentType());
+                throw new AbortException("All input files must be Java source code files.");
+            }
+        }
+
+        boolean allDirs = inputArtifacts.stream().allMatch(FileArtifact::isDirectory);
+        boolean allFiles = inputArtifacts.stream().allMatch(FileArtifact::isFile);
+
+        if (!(allDirs || allFiles)) {
+            LOG.severe(() -> "Inconsistent input files. (Must all be all directories or all files.)");
+            revisions.forEach(LOG::severe);
+            throw new AbortException("Input files must be all directories or all files.");
+        }
+
+        if (isCompare() && (!allFiles || inputArtifacts.size() != 2)) {
+            throw new AbortException("Exactly two input files are required.");
+        }
+
+        return inputArtifacts;
+    }
+
+    /**
+     * Returns a <code>Supplier</code> of the <code>Revision</code>s for the given number of input files.
+     *
+     * @param numInputs
+     *         the number of input files
+     * @return the <code>Revision</code>s to use for the input files in order
+     */
+    private Supplier<Revision> revisionSupplier(int numInputs) {
+
+        if (isConditionalMerge()) {
+            return new Revision.SuccessiveRevSupplier();
+        }
+
+        if (numInputs == MergeType.TWOWAY_FILES) {
+            return Arrays.asList(MergeScenario.LEFT, MergeScenario.RIGHT).iterator()::next;
+        } else if (numInputs == MergeType.THREEWAY_FILES) {
+            return Arrays.asList(MergeScenario.LEFT, MergeScenario.BASE, MergeScenario.RIGHT).iterator()::next;
+        } else {
+            return new Revision.SuccessiveRevSupplier();
+        }
+    }
+
     /**
      * Returns the input files for the merge.
      *
@@ -1207,7 +1484,8 @@ public Map<MergeScenario<?>, Throwable> getCrashes() {
     }
 
     /**
-     * Add a <code>MergeScenario</code> to the list of crashed scenarios.
+     * Add a <code>MergeScenario</code> to the list of crashed scenarios. This method may be called concurrently by
+     * the worker threads of a {@link FileMergePool}.
      *
      * @param scenario
      *         <code>MergeScenario</code> which crashed
@@ -1218,6 +1496,230 @@ public void addCrash(MergeScenario<?> scenario, Throwable t) {
         crashes.put(scenario, t);
     }
 
+    /**
+     * Returns the number of threads to use for merging the files contained in the input directories.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads to use for merging the files contained in the input directories.
+     *
+     * @param threads
+     *         the number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the hash function to use for computing the tree hashes of artifacts.
+     *
+     * @return the tree hash mode
+     */
+    public TreeHash.Mode getTreeHashMode() {
+        return treeHashMode;
+    }
+
+    /**
+     * Sets the hash function to use for computing the tree hashes of artifacts.
+     *
+     * @param treeHashMode
+     *         the new tree hash mode
+     */
+    public void setTreeHashMode(TreeHash.Mode treeHashMode) {
+        this.treeHashMode = treeHashMode;
+    }
+
+    /**
+     * Returns the maximum number of matchings retained in the cache of the <code>Matcher</code>.
+     *
+     * @return the matcher cache size, 0 if the cache is disabled
+     */
+    public long getMatcherCacheSize() {
+        return matcherCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of matchings retained in the cache of the <code>Matcher</code>.
+     *
+     * @param matcherCacheSize
+     *         the new matcher cache size, 0 disables the cache
+     */
+    public void setMatcherCacheSize(long matcherCacheSize) {
+        this.matcherCacheSize = matcherCacheSize;
+    }
+
+    /**
+     * Returns the number of threads used for matching the children of large nodes in parallel.
+     *
+     * @return the number of matcher threads, 1 if children are matched sequentially
+     */
+    public int getMatcherThreads() {
+        return matcherThreads;
+    }
+
+    /**
+     * Sets the number of threads used for matching the children of large nodes in parallel. This has no effect once
+     * the matcher pool was created.
+     *
+     * @param matcherThreads
+     *         the new number of matcher threads, 1 disables parallel matching
+     */
+    public void setMatcherThreads(int matcherThreads) {
+        this.matcherThreads = matcherThreads;
+    }
+
+    /**
+     * Returns the minimum number of child pairs a node pair must have for the pairs to be matched in parallel.
+     *
+     * @return the parallel matching threshold
+     */
+    public int getMatcherParallelThreshold() {
+        return matcherParallelThreshold;
+    }
+
+    /**
+     * Sets the minimum number of child pairs a node pair must have for the pairs to be matched in parallel.
+     *
+     * @param matcherParallelThreshold
+     *         the new parallel matching threshold
+     */
+    public void setMatcherParallelThreshold(int matcherParallelThreshold) {
+        this.matcherParallelThreshold = matcherParallelThreshold;
+    }
+
+    /**
+     * Returns the <code>ForkJoinPool</code> used for matching child pairs in parallel. The pool uses
+     * {@link #getMatcherThreads()} daemon threads and is created on the first call of this method (or the first call
+     * after {@link #shutdownMatcherPool()}).
+     *
+     * @return the matcher pool
+     */
+    public ForkJoinPool getMatcherPool() {
+
+        synchronized (matcherPool) {
+
+            if (matcherPool.get() == null) {
+                ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+                    ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    worker.setName("jdime-matcher-" + worker.getPoolIndex());
+                    worker.setDaemon(true);
+                    return worker;
+                };
+
+                matcherPool.set(new ForkJoinPool(matcherThreads, factory, null, false));
+            }
+
+            return matcherPool.get();
+        }
+    }
+
+    /**
+     * Shuts down the matcher pool shared by this <code>MergeContext</code> and its copies if it was created. Running
+     * tasks are completed, a later call of {@link #getMatcherPool()} creates a new pool.
+     */
+    public void shutdownMatcherPool() {
+
+        synchronized (matcherPool) {
+            ForkJoinPool pool = matcherPool.getAndSet(null);
+
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Returns the algorithm used for solving the assignment problems arising when matching unordered children.
+     *
+     * @return the <code>AssignmentSolver</code>
+     */
+    public AssignmentSolver getAssignmentSolver() {
+        return assignmentSolver;
+    }
+
+    /**
+     * Sets the algorithm used for solving the assignment problems arising when matching unordered children.
+     *
+     * @param assignmentSolver
+     *         the new <code>AssignmentSolver</code>
+     */
+    public void setAssignmentSolver(AssignmentSolver assignmentSolver) {
+        this.assignmentSolver = assignmentSolver;
+    }
+
+    /**
+     * Returns whether the combined strategy runs its strategies concurrently, using the result of the first one (in
+     * order) producing no conflicts.
+     *
+     * @return true iff the strategies are run concurrently
+     */
+    public boolean isSpeculativeCombinedStrategy() {
+        return speculativeCombinedStrategy;
+    }
+
+    /**
+     * Sets whether the combined strategy runs its strategies concurrently.
+     *
+     * @param speculativeCombinedStrategy
+     *         whether to run the strategies concurrently
+     */
+    public void setSpeculativeCombinedStrategy(boolean speculativeCombinedStrategy) {
+        this.speculativeCombinedStrategy = speculativeCombinedStrategy;
+    }
+
+    /**
+     * Returns the cache of the trees parsed by the structured strategies. The cache is shared with all copies of this
+     * <code>MergeContext</code>.
+     *
+     * @return the <code>ASTCache</code>
+     */
+    public ASTCache getASTCache() {
+        return astCache;
+    }
+
+    /**
+     * Returns the cache storing the trees parsed by the structured strategies on disk.
+     *
+     * @return the <code>ASTDiskCache</code> or <code>null</code> if trees are not to be stored
+     */
+    public ASTDiskCache getASTDiskCache() {
+        return astDiskCache;
+    }
+
+    /**
+     * Sets the cache storing the trees parsed by the structured strategies on disk.
+     *
+     * @param astDiskCache
+     *         the new <code>ASTDiskCache</code>, <code>null</code> if trees are not to be stored
+     */
+    public void setASTDiskCache(ASTDiskCache astDiskCache) {
+        this.astDiskCache = astDiskCache;
+    }
+
+    /**
+     * Returns the <code>FileMergePool</code> that <code>MergeOperation</code>s on files are to be handed to.
+     *
+     * @return the <code>FileMergePool</code> or <code>null</code> if files are merged on the current thread
+     */
+    public FileMergePool getFileMergePool() {
+        return fileMergePool;
+    }
+
+    /**
+     * Sets the <code>FileMergePool</code> that <code>MergeOperation</code>s on files are to be handed to.
+     *
+     * @param fileMergePool
+     *         the new <code>FileMergePool</code> or <code>null</code> to merge files on the current thread
+     */
+    public void setFileMergePool(FileMergePool fileMergePool) {
+        this.fileMergePool = fileMergePool;
+    }
+
     /**
      * Returns whether to use the <code>MCESubtreeMatcher</code> during the matching phase of the merge.
      *
@@ -1237,6 +1739,26 @@ public void setUseMCESubtreeMatcher(boolean useMCESubtreeMatcher) {
         this.useMCESubtreeMatcher = useMCESubtreeMatcher;
     }
 
+    /**
+     * Returns whether the matchers pair identical children directly before matching the remaining children.
+     *
+     * @return true iff identical children are paired directly
+     * @see de.fosd.jdime.matcher.IdenticalChildren
+     */
+    public boolean isPairIdenticalChildren() {
+        return pairIdenticalChildren;
+    }
+
+    /**
+     * Sets whether the matchers pair identical children directly before matching the remaining children.
+     *
+     * @param pairIdenticalChildren
+     *         the new value
+     */
+    public void setPairIdenticalChildren(boolean pairIdenticalChildren) {
+        this.pairIdenticalChildren = pairIdenticalChildren;
+    }
+
     /**
      * Returns whether successive conflicts are merged in structured merge.
      *
@@ -1437,6 +1959,54 @@ public void setCostModelIterations(int costModelIterations) {
         this.costModelIterations = costModelIterations;
     }
 
+    public int getCostModelChains() {
+        return costModelChains;
+    }
+
+    public void setCostModelChains(int costModelChains) {
+        this.costModelChains = costModelChains;
+    }
+
+    public int getCostModelCandidates() {
+        return costModelCandidates;
+    }
+
+    public void setCostModelCandidates(int costModelCandidates) {
+        this.costModelCandidates = costModelCandidates;
+    }
+
+    public int getCostModelPatience() {
+        return costModelPatience;
+    }
+
+    public void setCostModelPatience(int costModelPatience) {
+        this.costModelPatience = costModelPatience;
+    }
+
+    public float getCostModelMinImprovement() {
+        return costModelMinImprovement;
+    }
+
+    public void setCostModelMinImprovement(float costModelMinImprovement) {
+        this.costModelMinImprovement = costModelMinImprovement;
+    }
+
+    public long getCostModelTimeout() {
+        return costModelTimeout;
+    }
+
+    public void setCostModelTimeout(long costModelTimeout) {
+        this.costModelTimeout = costModelTimeout;
+    }
+
+    public boolean isCmMatcherTempering() {
+        return cmMatcherTempering;
+    }
+
+    public void setCmMatcherTempering(boolean cmMatcherTempering) {
+        this.cmMatcherTempering = cmMatcherTempering;
+    }
+
     public boolean isCmMatcherParallel() {
         return cmMatcherParallel;
     }
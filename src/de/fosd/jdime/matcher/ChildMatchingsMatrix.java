@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher;
+
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.matcher.cost_model.CMMode;
+import de.fosd.jdime.matcher.matching.Matchings;
+
+/**
+ * Computes the <code>Matchings</code> for all pairs of children of two <code>Artifact</code>s. If the number of
+ * pairs reaches the threshold configured in the <code>MergeContext</code>, the pairs are matched by fork-join tasks
+ * running on the matcher pool of the <code>MergeContext</code>. The resulting matrix is only returned after all
+ * pairs have been matched.
+ */
+public final class ChildMatchingsMatrix {
+
+    /**
+     * The number of pairs below which a task matches its pairs without splitting them further.
+     */
+    private static final int GRANULARITY = 16;
+
+    /**
+     * Utility class.
+     */
+    private ChildMatchingsMatrix() {}
+
+    /**
+     * Matches every child of <code>left</code> with every child of <code>right</code> using the given
+     * <code>matcher</code>.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the current merge
+     * @param matcher
+     *         the <code>MatcherInterface</code> to match the child pairs with
+     * @param left
+     *         the left <code>Artifact</code>
+     * @param right
+     *         the right <code>Artifact</code>
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     * @return a matrix containing at <code>[i][j]</code> the <code>Matchings</code> of the i-th left and j-th right
+     *         child
+     */
+    public static <T extends Artifact<T>> Matchings<T>[][] compute(MergeContext context, MatcherInterface<T> matcher,
+                                                                   T left, T right) {
+        return compute(context, matcher, left.getChildren(), right.getChildren());
+    }
+
+    /**
+     * Matches every <code>Artifact</code> in <code>left</code> with every <code>Artifact</code> in <code>right</code>
+     * using the given <code>matcher</code>.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the current merge
+     * @param matcher
+     *         the <code>MatcherInterface</code> to match the pairs with
+     * @param left
+     *         the left <code>Artifact</code>s
+     * @param right
+     *         the right <code>Artifact</code>s
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     * @return a matrix containing at <code>[i][j]</code> the <code>Matchings</code> of the i-th left and j-th right
+     *         <code>Artifact</code>
+     */
+    public static <T extends Artifact<T>> Matchings<T>[][] compute(MergeContext context, MatcherInterface<T> matcher,
+                                                                   List<T> left, List<T> right) {
+        int m = left.size();
+        int n = right.size();
+
+        @SuppressWarnings("unchecked")
+        Matchings<T>[][] matrix = (Matchings<T>[][]) Array.newInstance(Matchings.class, m, n);
+
+        /*
+         * The CostModelMatcher used in the INTEGRATED mode keeps state between calls and must therefore not be
+         * called concurrently.
+         */
+        boolean parallel = context.getMatcherThreads() > 1 && context.getCMMatcherMode() != CMMode.INTEGRATED
+                && (long) m * n >= context.getMatcherParallelThreshold();
+
+        if (!parallel) {
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    matrix[i][j] = matcher.match(context, left.get(i), right.get(j));
+                }
+            }
+
+            return matrix;
+        }
+
+        ForkJoinPool pool = context.getMatcherPool();
+        MatchTask<T> task = new MatchTask<>(context, matcher, left, right, matrix, 0, m * n);
+
+        if (ForkJoinTask.getPool() == pool) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+
+        return matrix;
+    }
+
+    /**
+     * A task matching the child pairs with the flat indices in <code>[from, to)</code>.
+     *
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     */
+    private static final class MatchTask<T extends Artifact<T>> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MergeContext context;
+        private final MatcherInterface<T> matcher;
+        private final List<T> left;
+        private final List<T> right;
+        private final Matchings<T>[][] matrix;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs a new <code>MatchTask</code>.
+         *
+         * @param context
+         *         the <code>MergeContext</code> of the current merge
+         * @param matcher
+         *         the <code>MatcherInterface</code> to match the child pairs with
+         * @param left
+         *         the left <code>Artifact</code>s
+         * @param right
+         *         the right <code>Artifact</code>s
+         * @param matrix
+         *         the matrix to store the resulting <code>Matchings</code> in
+         * @param from
+         *         the first flat index (inclusive)
+         * @param to
+         *         the last flat index (exclusive)
+         */
+        private MatchTask(MergeContext context, MatcherInterface<T> matcher, List<T> left, List<T> right,
+                          Matchings<T>[][] matrix, int from, int to) {
+            this.context = context;
+            this.matcher = matcher;
+            this.left = left;
+            this.right = right;
+            this.matrix = matrix;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from <= GRANULARITY) {
+                int n = right.size();
+
+                for (int k = from; k < to; k++) {
+                    int i = k / n;
+                    int j = k % n;
+
+                    matrix[i][j] = matcher.match(context, left.get(i), right.get(j));
+                }
+
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+
+            invokeAll(new MatchTask<>(context, matcher, left, right, matrix, from, mid),
+                      new MatchTask<>(context, matcher, left, right, matrix, mid, to));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.artifact.TreeHash;
+
+/**
+ * Finds children of two <code>Artifact</code>s that are identical according to their
+ * {@link Artifact#getTreeHash(TreeHash.Mode) tree hashes}. Matchers use these to pair identical children directly and to
+ * run their expensive algorithms only on the remaining children. This may be disabled using
+ * {@link de.fosd.jdime.config.merge.MergeContext#setPairIdenticalChildren(boolean)}.
+ */
+public final class IdenticalChildren {
+
+    /**
+     * Utility class.
+     */
+    private IdenticalChildren() {}
+
+    /**
+     * Returns the length of the longest common prefix of identical children in <code>left</code> and
+     * <code>right</code>.
+     *
+     * @param left
+     *         the left children
+     * @param right
+     *         the right children
+     * @param mode
+     *         the hash function to use
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     * @return the length of the common prefix
+     */
+    public static <T extends Artifact<T>> int commonPrefix(List<T> left, List<T> right, TreeHash.Mode mode) {
+        int max = Math.min(left.size(), right.size());
+        int prefix = 0;
+
+        while (prefix < max && identical(left.get(prefix), right.get(prefix), mode)) {
+            prefix++;
+        }
+
+        return prefix;
+    }
+
+    /**
+     * Returns the length of the longest common suffix of identical children in <code>left</code> and
+     * <code>right</code> that does not overlap with the first <code>prefix</code> children.
+     *
+     * @param left
+     *         the left children
+     * @param right
+     *         the right children
+     * @param prefix
+     *         the length of the common prefix
+     * @param mode
+     *         the hash function to use
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     * @return the length of the common suffix
+     */
+    public static <T extends Artifact<T>> int commonSuffix(List<T> left, List<T> right, int prefix,
+                                                           TreeHash.Mode mode) {
+        int max = Math.min(left.size(), right.size()) - prefix;
+        int suffix = 0;
+
+        while (suffix < max
+                && identical(left.get(left.size() - 1 - suffix), right.get(right.size() - 1 - suffix), mode)) {
+            suffix++;
+        }
+
+        return suffix;
+    }
+
+    /**
+     * Pairs the children whose tree hash occurs exactly once in <code>left</code> and exactly once in
+     * <code>right</code>.
+     *
+     * @param left
+     *         the left children
+     * @param right
+     *         the right children
+     * @param mode
+     *         the hash function to use
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     * @return an array containing for every left child the index of the identical right child or -1
+     */
+    public static <T extends Artifact<T>> int[] uniquePairs(List<T> left, List<T> right, TreeHash.Mode mode) {
+        int[] pairs = new int[left.size()];
+        Arrays.fill(pairs, -1);
+
+        Map<TreeHash, Integer> leftUnique = uniqueIndices(left, mode);
+
+        if (leftUnique.isEmpty()) {
+            return pairs;
+        }
+
+        Map<TreeHash, Integer> rightUnique = uniqueIndices(right, mode);
+
+        leftUnique.forEach((hash, i) -> {
+            Integer j = rightUnique.get(hash);
+
+            if (j != null) {
+                pairs[i] = j;
+            }
+        });
+
+        return pairs;
+    }
+
+    /**
+     * Returns the indices of the <code>Artifact</code>s whose tree hash occurs exactly once in <code>artifacts</code>.
+     *
+     * @param artifacts
+     *         the <code>Artifact</code>s to examine
+     * @param mode
+     *         the hash function to use
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     * @return the unique tree hashes and the indices of the <code>Artifact</code>s having them
+     */
+    private static <T extends Artifact<T>> Map<TreeHash, Integer> uniqueIndices(List<T> artifacts, TreeHash.Mode mode) {
+        Map<TreeHash, Integer> indices = new HashMap<>();
+
+        for (int i = 0; i < artifacts.size(); i++) {
+            indices.merge(artifacts.get(i).getTreeHash(mode), i, (a, b) -> -1);
+        }
+
+        indices.values().removeIf(i -> i < 0);
+        return indices;
+    }
+
+    /**
+     * Returns whether the trees rooted in <code>left</code> and <code>right</code> are identical.
+     *
+     * @param left
+     *         the left <code>Artifact</code>
+     * @param right
+     *         the right <code>Artifact</code>
+     * @param mode
+     *         the hash function to use
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     * @return true iff both trees have the same tree hash
+     */
+    private static <T extends Artifact<T>> boolean identical(T left, T right, TreeHash.Mode mode) {
+        return left.getTreeHash(mode).equals(right.getTreeHash(mode));
+    }
+}
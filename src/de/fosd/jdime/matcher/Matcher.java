@@ -25,12 +25,16 @@
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.artifact.TreeHash;
 import de.fosd.jdime.config.merge.MergeContext;
 import de.fosd.jdime.config.merge.Revision;
 import de.fosd.jdime.matcher.cost_model.CMMode;
@@ -44,10 +48,14 @@
 import de.fosd.jdime.matcher.ordered.mceSubtree.MCESubtreeMatcher;
 import de.fosd.jdime.matcher.ordered.simpleTree.SimpleTreeMatcher;
 import de.fosd.jdime.matcher.unordered.IdenticalSubtreeMatcher;
+import de.fosd.jdime.matcher.unordered.TreeHashIndex;
 import de.fosd.jdime.matcher.unordered.UniqueLabelMatcher;
 import de.fosd.jdime.matcher.unordered.UnorderedMatcher;
+import de.fosd.jdime.matcher.unordered.assignmentProblem.AssignmentSolver;
 import de.fosd.jdime.matcher.unordered.assignmentProblem.HungarianMatcher;
+import de.fosd.jdime.matcher.unordered.assignmentProblem.ShortestAugmentingPathMatcher;
 import de.fosd.jdime.stats.KeyEnums;
+import de.fosd.jdime.stats.MergeScenarioStatistics;
 import de.fosd.jdime.strdump.DumpMode;
 import de.fosd.jdime.util.UnorderedTuple;
 
@@ -82,7 +90,32 @@
     private static final Logger LOG = Logger.getLogger(Matcher.class.getCanonicalName());
     private static final String ID = Matcher.class.getSimpleName();
 
+    /**
+     * The label of the statistics counter for the number of pairs whose <code>Matchings</code> were found in the
+     * cache of the <code>Matcher</code>.
+     */
+    public static final String CACHE_HITS_LABEL = "matcher cache hits";
+
+    /**
+     * The label of the statistics counter for the number of pairs whose <code>Matchings</code> had to be computed by
+     * the <code>Matcher</code>.
+     */
+    public static final String CACHE_MISSES_LABEL = "matcher cache misses";
+
+    /**
+     * The estimated number of bytes retained per cached <code>Matching</code>. This includes the entries in the
+     * <code>Matchings</code> set and its indices.
+     */
+    private static final long BYTES_PER_CACHED_MATCHING = 256;
+
+    /**
+     * The default maximum number of <code>Matching</code>s retained in the cache of a <code>Matcher</code>. Allows
+     * the cache to fill up to one sixteenth of the maximum heap size.
+     */
+    public static final long DEFAULT_CACHE_SIZE = Runtime.getRuntime().maxMemory() / 16 / BYTES_PER_CACHED_MATCHING;
+
     private UnorderedMatcher<T> unorderedMatcher;
+    private UnorderedMatcher<T> shortestAugmentingPathMatcher;
     private UnorderedMatcher<T> unorderedLabelMatcher;
     private OrderedMatcher<T> orderedMatcher;
     private OrderedMatcher<T> mceSubtreeMatcher;
@@ -98,6 +131,8 @@
     private MatcherCache<T> leftCache;
     private MatcherCache<T> rightCache;
 
+    private MatchingsCache<T> matchingsCache;
+
     /**
      * Constructs a new {@link Matcher} matching the given trees.
      *
@@ -114,6 +149,7 @@ public Matcher(T leftRoot, T rightRoot) {
         };
 
         this.unorderedMatcher = new HungarianMatcher<>(rootMatcher);
+        this.shortestAugmentingPathMatcher = new ShortestAugmentingPathMatcher<>(rootMatcher);
         this.unorderedLabelMatcher = new UniqueLabelMatcher<>(rootMatcher);
         this.orderedMatcher = new SimpleTreeMatcher<>(rootMatcher);
         this.mceSubtreeMatcher = new MCESubtreeMatcher<>(rootMatcher);
@@ -146,6 +182,31 @@ public Matcher(Matcher<T> oldMatcher, T leftRoot, T rightRoot) {
         }
     }
 
+    /**
+     * Constructs the {@link TreeHashIndex TreeHashIndices} of the given trees in parallel. The indices (and the tree
+     * hashes computed while constructing them) are cached and reused by this {@link Matcher} and any {@link Matcher}
+     * constructed from it using {@link #Matcher(Matcher, Artifact, Artifact)}. Trees that were already indexed are
+     * ignored.
+     *
+     * @param roots
+     *         the roots of the trees to index
+     * @param mode
+     *         the hash function to use
+     */
+    public void indexTrees(List<T> roots, TreeHash.Mode mode) {
+        List<T> toIndex = roots.stream().distinct()
+                .filter(r -> !caches.containsKey(r) || !caches.get(r).hasHashIndex(mode))
+                .collect(Collectors.toList());
+
+        List<TreeHashIndex<T>> indices = toIndex.parallelStream()
+                .map(root -> new TreeHashIndex<>(root, mode))
+                .collect(Collectors.toList());
+
+        for (TreeHashIndex<T> index : indices) {
+            caches.computeIfAbsent(index.getRoot(), r -> new MatcherCache<>()).setHashIndex(index);
+        }
+    }
+
     /**
      * Removes all cached data concerning the given tree.
      *
@@ -174,9 +235,21 @@ public Matchings<T> match(MergeContext context, Color color) {
         } else {
             leftCache = caches.computeIfAbsent(leftRoot, i -> new MatcherCache<>());
             rightCache = caches.computeIfAbsent(rightRoot, i -> new MatcherCache<>());
-            idSubtreeMatcher.matchTrees(leftRoot, rightRoot);
+            TreeHash.Mode mode = context.getTreeHashMode();
+            idSubtreeMatcher.matchTrees(leftCache.hashIndex(leftRoot, mode), rightCache.hashIndex(rightRoot, mode));
 
-            matchings = match(context, leftRoot, rightRoot);
+            if (context.getMatcherCacheSize() > 0) {
+                matchingsCache = new MatchingsCache<>(context.getMatcherCacheSize());
+            }
+
+            try {
+                matchings = match(context, leftRoot, rightRoot);
+            } finally {
+                if (matchingsCache != null) {
+                    storeCacheStatistics(context, matchingsCache);
+                    matchingsCache = null;
+                }
+            }
 
             if (context.getCMMatcherMode() == CMMode.POST_PROCESSOR && matchings.get(leftRoot, rightRoot).map(m -> !m.hasFullyMatched()).orElse(true)) {
                 matchings = cmMatcher.match(context, leftRoot, rightRoot, matchings);
@@ -209,13 +282,64 @@ public Matchings<T> match(MergeContext context, Color color) {
     }
 
     /**
+     * Adds the hit and miss counts of the given <code>MatchingsCache</code> to the statistics of the current file
+     * merge scenario.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the current merge
+     * @param cache
+     *         the <code>MatchingsCache</code> used during the last run
+     */
+    private void storeCacheStatistics(MergeContext context, MatchingsCache<T> cache) {
+        LOG.fine(() -> String.format("%s cache: %d hits, %d misses", ID, cache.getHits(), cache.getMisses()));
+
+        if (context.hasStatistics()) {
+            MergeScenarioStatistics stats = context.getStatistics().getCurrentFileMergeScenarioStatistics();
+
+            stats.incrementCounter(CACHE_HITS_LABEL, cache.getHits());
+            stats.incrementCounter(CACHE_MISSES_LABEL, cache.getMisses());
+        }
+    }
+
+    /**
+     * Returns the <code>Matchings</code> for <code>left</code> and <code>right</code> from the
+     * <code>MatchingsCache</code> of the current run. If they are not cached, they are computed using
+     * {@link #computeMatchings(MergeContext, Artifact, Artifact)} and stored in the cache.
+     *
      * @see MatcherInterface#match(MergeContext, Artifact, Artifact)
      */
     private Matchings<T> match(MergeContext context, T left, T right) {
+        MatchingsCache<T> cache = matchingsCache;
+
+        if (cache == null) {
+            return computeMatchings(context, left, right);
+        }
+
+        Matchings<T> matchings = cache.get(left, right);
+
+        if (matchings == null) {
+            matchings = computeMatchings(context, left, right);
+            cache.put(left, right, matchings);
+        }
+
+        return matchings;
+    }
+
+    /**
+     * Computes the <code>Matchings</code> for <code>left</code> and <code>right</code>.
+     *
+     * @see MatcherInterface#match(MergeContext, Artifact, Artifact)
+     */
+    private Matchings<T> computeMatchings(MergeContext context, T left, T right) {
+
+        if (Thread.currentThread().isInterrupted()) {
+            // A speculative CombinedStrategy cancelled the strategy performing this match.
+            throw new CancellationException("Interrupted while matching " + left.getId() + " and " + right.getId());
+        }
 
         if (left.isConflict()) {
             Matchings<T> m = Matchings.of(left, right, 0);
-            m.get(left, right).get().setAlgorithm(ID);
+            m.lookup(left, right).setAlgorithm(ID);
 
             return m;
         }
@@ -291,7 +415,7 @@ private Matchings<T> match(MergeContext context, T left, T right) {
                 });
 
                 Matchings<T> m = Matchings.of(left, right, 0);
-                m.get(left, right).get().setAlgorithm(ID);
+                m.lookup(left, right).setAlgorithm(ID);
 
                 return m;
             }
@@ -357,8 +481,16 @@ private Matchings<T> getMatchings(MergeContext context, T left, T right) {
                 logMatcherUse(unorderedLabelMatcher.getClass(), left, right);
                 matchings = unorderedLabelMatcher.match(context, left, right);
             } else {
-                logMatcherUse(unorderedMatcher.getClass(), left, right);
-                matchings = unorderedMatcher.match(context, left, right);
+                UnorderedMatcher<T> matcher;
+
+                if (context.getAssignmentSolver() == AssignmentSolver.SHORTEST_AUGMENTING_PATH) {
+                    matcher = shortestAugmentingPathMatcher;
+                } else {
+                    matcher = unorderedMatcher;
+                }
+
+                logMatcherUse(matcher.getClass(), left, right);
+                matchings = matcher.match(context, left, right);
             }
         }
 
@@ -28,9 +28,12 @@
 import java.util.Optional;
 
 import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.artifact.TreeHash;
+import de.fosd.jdime.matcher.unordered.TreeHashIndex;
 
 /**
- * Caches various properties of {@link Artifact} trees used by the {@link Matcher}.
+ * Caches various properties of {@link Artifact} trees used by the {@link Matcher}. The methods of this class are
+ * synchronized as the {@link Matcher} may match child pairs concurrently.
  *
  * @param <T>
  *         the type of the <code>Artifact</code>s
@@ -41,6 +44,8 @@
     private Map<Artifact<T>, Boolean> uniquelyLabeledChildren;
     private Map<Artifact<T>, Boolean> fullyOrdered;
 
+    private TreeHashIndex<T> hashIndex;
+
     /**
      * Constructs a new empty {@link MatcherCache}.
      */
@@ -58,7 +63,7 @@
      * @return true iff all children of the given {@code artifact} have a unique label
      * @see Artifact#getUniqueLabel()
      */
-    boolean uniquelyLabeledChildren(T artifact) {
+    synchronized boolean uniquelyLabeledChildren(T artifact) {
         return uniquelyLabeledChildren.computeIfAbsent(artifact, a ->
                 a.getChildren().stream().map(T::getUniqueLabel).allMatch(Optional::isPresent));
     }
@@ -71,7 +76,7 @@ boolean uniquelyLabeledChildren(T artifact) {
      * @return true iff any child of the given {@code artifact} is ordered
      * @see Artifact#isOrdered()
      */
-    boolean orderedChildren(T artifact) {
+    synchronized boolean orderedChildren(T artifact) {
         return orderedChildren.computeIfAbsent(artifact, a ->
                 a.getChildren().stream().anyMatch(T::isOrdered));
     }
@@ -84,8 +89,55 @@ boolean orderedChildren(T artifact) {
      * @return true iff the tree rooted in {@code artifact} is fully ordered
      * @see Artifact#isOrdered()
      */
-    boolean fullyOrdered(T artifact) {
-        return fullyOrdered.computeIfAbsent(artifact, a ->
-                a.isOrdered() && a.getChildren().stream().allMatch(this::fullyOrdered));
+    synchronized boolean fullyOrdered(T artifact) {
+        Boolean ordered = fullyOrdered.get(artifact);
+
+        if (ordered == null) {
+            // not using computeIfAbsent as the map is modified by the recursive calls
+            ordered = artifact.isOrdered() && artifact.getChildren().stream().allMatch(this::fullyOrdered);
+            fullyOrdered.put(artifact, ordered);
+        }
+
+        return ordered;
+    }
+
+    /**
+     * Returns the {@link TreeHashIndex} of the tree rooted in {@code root}. The index is constructed on the first call
+     * (or if the cached index uses a different hash function) and then reused.
+     *
+     * @param root
+     *         the root of the tree this {@link MatcherCache} belongs to
+     * @param mode
+     *         the hash function to use
+     * @return the {@link TreeHashIndex} of the tree
+     */
+    synchronized TreeHashIndex<T> hashIndex(T root, TreeHash.Mode mode) {
+
+        if (!hasHashIndex(mode)) {
+            hashIndex = new TreeHashIndex<>(root, mode);
+        }
+
+        return hashIndex;
+    }
+
+    /**
+     * Returns whether the {@link TreeHashIndex} of the tree was already constructed using the given hash function.
+     *
+     * @param mode
+     *         the hash function
+     * @return true iff {@link #hashIndex(Artifact, TreeHash.Mode)} will return a cached {@link TreeHashIndex}
+     */
+    synchronized boolean hasHashIndex(TreeHash.Mode mode) {
+        return hashIndex != null && hashIndex.getMode() == mode;
+    }
+
+    /**
+     * Sets the {@link TreeHashIndex} of the tree to the given (previously constructed) {@code hashIndex}.
+     *
+     * @param hashIndex
+     *         the {@link TreeHashIndex} of the tree
+     */
+    synchronized void setHashIndex(TreeHashIndex<T> hashIndex) {
+        this.hashIndex = hashIndex;
     }
 }
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.matcher.matching.Matchings;
+
+/**
+ * Caches the {@link Matchings} computed for pairs of {@link Artifact Artifacts} during one run of a {@link Matcher}.
+ * The cache is bounded by the total number of {@link de.fosd.jdime.matcher.matching.Matching Matchings} it retains.
+ * When that bound is exceeded, the least recently used entries are evicted. Like the <code>Matchings</code>
+ * themselves, the cache compares the <code>Artifact</code>s by identity, so equal subtrees at different positions of
+ * a tree never share entries.
+ *
+ * @param <T>
+ *         the type of the <code>Artifact</code>s
+ */
+class MatchingsCache<T extends Artifact<T>> {
+
+    private final long capacity;
+    private final Map<Key<T>, Matchings<T>> cache;
+    private long size;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs a new empty <code>MatchingsCache</code>.
+     *
+     * @param capacity
+     *         the maximum number of <code>Matching</code>s to retain
+     */
+    MatchingsCache(long capacity) {
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        this.size = 0;
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Returns the cached <code>Matchings</code> for the given pair of <code>Artifact</code>s.
+     *
+     * @param left
+     *         the left <code>Artifact</code>
+     * @param right
+     *         the right <code>Artifact</code>
+     * @return the <code>Matchings</code> or <code>null</code> if none are cached
+     */
+    synchronized Matchings<T> get(T left, T right) {
+        Matchings<T> matchings = cache.get(new Key<>(left, right));
+
+        if (matchings != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+
+        return matchings;
+    }
+
+    /**
+     * Caches the given <code>Matchings</code> computed for the given pair of <code>Artifact</code>s. If necessary, the
+     * least recently used entries are evicted to stay within the capacity of this cache.
+     *
+     * @param left
+     *         the left <code>Artifact</code>
+     * @param right
+     *         the right <code>Artifact</code>
+     * @param matchings
+     *         the <code>Matchings</code> to cache
+     */
+    synchronized void put(T left, T right, Matchings<T> matchings) {
+
+        if (matchings.size() > capacity) {
+            return;
+        }
+
+        Matchings<T> old = cache.put(new Key<>(left, right), matchings);
+
+        if (old != null) {
+            size -= old.size();
+        }
+
+        size += matchings.size();
+
+        for (Iterator<Matchings<T>> it = cache.values().iterator(); size > capacity && it.hasNext(); ) {
+            size -= it.next().size();
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the number of calls to {@link #get(Artifact, Artifact)} that found cached <code>Matchings</code>.
+     *
+     * @return the number of cache hits
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of calls to {@link #get(Artifact, Artifact)} that did not find cached <code>Matchings</code>.
+     *
+     * @return the number of cache misses
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * A pair of <code>Artifact</code>s that is equal to another pair iff both contain the same instances.
+     *
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     */
+    private static final class Key<T> {
+
+        private final T left;
+        private final T right;
+
+        private Key(T left, T right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Key<?> key = (Key<?>) o;
+            return left == key.left && right == key.right;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(left) + System.identityHashCode(right);
+        }
+    }
+}
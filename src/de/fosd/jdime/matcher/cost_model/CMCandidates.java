@@ -0,0 +1,425 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher.cost_model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.artifact.Artifacts;
+import de.fosd.jdime.artifact.TreeHash;
+
+/**
+ * The edges of the bipartite graph between the nodes of a left and a right tree (plus one no-match node each) that
+ * the <code>CostModelMatcher</code> chooses from when completing a set of matchings. Two nodes are only connected if
+ * their categories match. If a number <code>k</code> of candidates is given, every node is additionally only
+ * connected to the <code>k</code> nodes of the opposite tree that are the most plausible partners for it, judged by
+ * their tree hashes, labels and depths. Every node is always connected to the no-match node.
+ * <p>
+ * The edges are stored as pairs of indices into the breadth-first orders of the two trees. The nodes already matched
+ * while completing a set of matchings are tracked in <code>BitSet</code>s indexed the same way so that whether an
+ * edge is still available can be decided in constant time. <code>CMCandidates</code> are not modified after their
+ * construction and may be shared by concurrently running chains.
+ *
+ * @param <T>
+ *         the type of the <code>Artifact</code>s
+ */
+final class CMCandidates<T extends Artifact<T>> {
+
+    /**
+     * The index representing the no-match node.
+     */
+    private static final int NO_MATCH = -1;
+
+    private static final float HASH_WEIGHT = 4;
+    private static final float LABEL_WEIGHT = 2;
+
+    private final List<T> leftNodes;
+    private final List<T> rightNodes;
+
+    private final Map<T, Integer> leftIndices;
+    private final Map<T, Integer> rightIndices;
+
+    private final TreeHash.Mode mode;
+
+    private final int[] edgeLeft;
+    private final int[] edgeRight;
+
+    /**
+     * Constructs the candidate edges between the trees rooted in <code>left</code> and <code>right</code>.
+     *
+     * @param left
+     *         the left root
+     * @param right
+     *         the right root
+     * @param k
+     *         the number of candidate partners to keep for every node, values smaller than 1 keep all nodes whose
+     *         categories match (the complete bipartite graph)
+     * @param mode
+     *         the hash function used to find identical subtrees when choosing the candidate partners
+     */
+    CMCandidates(T left, T right, int k, TreeHash.Mode mode) {
+        this.leftNodes = Artifacts.bfs(left);
+        this.rightNodes = Artifacts.bfs(right);
+        this.leftIndices = indices(leftNodes);
+        this.rightIndices = indices(rightNodes);
+        this.mode = mode;
+
+        int[][] partners = k < 1 ? allPartners() : topPartners(k);
+        int numEdges = rightNodes.size();
+
+        for (int[] lPartners : partners) {
+            numEdges += lPartners.length + 1;
+        }
+
+        this.edgeLeft = new int[numEdges];
+        this.edgeRight = new int[numEdges];
+
+        /*
+         * The edges are added in the same order as the nested loops over the breadth-first orders (each followed by
+         * the no-match node) would produce them.
+         */
+        int edge = 0;
+
+        for (int l = 0; l < partners.length; l++) {
+
+            for (int r : partners[l]) {
+                edgeLeft[edge] = l;
+                edgeRight[edge++] = r;
+            }
+
+            edgeLeft[edge] = l;
+            edgeRight[edge++] = NO_MATCH;
+        }
+
+        for (int r = 0; r < rightNodes.size(); r++) {
+            edgeLeft[edge] = NO_MATCH;
+            edgeRight[edge++] = r;
+        }
+    }
+
+    /**
+     * Returns a map from the nodes in <code>nodes</code> to their index in the list.
+     *
+     * @param nodes
+     *         the nodes to index
+     * @return the indices of the nodes
+     */
+    private static <T> Map<T, Integer> indices(List<T> nodes) {
+        Map<T, Integer> indices = new IdentityHashMap<>(nodes.size());
+
+        for (int i = 0; i < nodes.size(); i++) {
+            indices.put(nodes.get(i), i);
+        }
+
+        return indices;
+    }
+
+    /**
+     * Returns whether the left node <code>l</code> may be matched with the right node <code>r</code>.
+     *
+     * @param l
+     *         the left node
+     * @param r
+     *         the right node
+     * @return whether the categories of the nodes match
+     */
+    private boolean compatible(T l, T r) {
+        return l.categoryMatches(r) || r.categoryMatches(l);
+    }
+
+    /**
+     * Returns the (ascending) indices of all right nodes whose categories match for every left node.
+     *
+     * @return the partners of the left nodes
+     */
+    private int[][] allPartners() {
+        int[][] partners = new int[leftNodes.size()][];
+        int[] buffer = new int[rightNodes.size()];
+
+        for (int l = 0; l < partners.length; l++) {
+            T lNode = leftNodes.get(l);
+            int size = 0;
+
+            for (int r = 0; r < rightNodes.size(); r++) {
+
+                if (compatible(lNode, rightNodes.get(r))) {
+                    buffer[size++] = r;
+                }
+            }
+
+            partners[l] = Arrays.copyOf(buffer, size);
+        }
+
+        return partners;
+    }
+
+    /**
+     * Returns the (ascending) indices of the right nodes that are among the <code>k</code> most plausible partners
+     * of a left node or that have the left node among their own <code>k</code> most plausible partners.
+     *
+     * @param k
+     *         the number of partners to keep for every node
+     * @return the partners of the left nodes
+     */
+    private int[][] topPartners(int k) {
+        int[] leftDepths = depths(leftNodes, leftIndices);
+        int[] rightDepths = depths(rightNodes, rightIndices);
+        float maxDepth = 1 + Math.max(Arrays.stream(leftDepths).max().orElse(0),
+                                      Arrays.stream(rightDepths).max().orElse(0));
+
+        TopK[] leftTop = new TopK[leftNodes.size()];
+        TopK[] rightTop = new TopK[rightNodes.size()];
+
+        Arrays.setAll(leftTop, l -> new TopK(k));
+        Arrays.setAll(rightTop, r -> new TopK(k));
+
+        for (int l = 0; l < leftNodes.size(); l++) {
+            T lNode = leftNodes.get(l);
+
+            for (int r = 0; r < rightNodes.size(); r++) {
+                T rNode = rightNodes.get(r);
+
+                if (!compatible(lNode, rNode)) {
+                    continue;
+                }
+
+                float score = -Math.abs(leftDepths[l] - rightDepths[r]) / maxDepth;
+
+                if (lNode.matches(rNode)) {
+                    score += LABEL_WEIGHT;
+                }
+
+                if (lNode.getTreeHash(mode).equals(rNode.getTreeHash(mode))) {
+                    score += HASH_WEIGHT;
+                }
+
+                leftTop[l].offer(r, score);
+                rightTop[r].offer(l, score);
+            }
+        }
+
+        int[] sizes = new int[leftNodes.size()];
+
+        for (int l = 0; l < leftTop.length; l++) {
+            sizes[l] += leftTop[l].size;
+        }
+
+        for (TopK top : rightTop) {
+            for (int i = 0; i < top.size; i++) {
+                sizes[top.indices[i]]++;
+            }
+        }
+
+        int[][] partners = new int[leftNodes.size()][];
+
+        for (int l = 0; l < partners.length; l++) {
+            partners[l] = Arrays.copyOf(leftTop[l].indices, sizes[l]);
+            sizes[l] = leftTop[l].size;
+        }
+
+        for (int r = 0; r < rightTop.length; r++) {
+            TopK top = rightTop[r];
+
+            for (int i = 0; i < top.size; i++) {
+                int l = top.indices[i];
+                partners[l][sizes[l]++] = r;
+            }
+        }
+
+        for (int l = 0; l < partners.length; l++) {
+            partners[l] = Arrays.stream(partners[l]).sorted().distinct().toArray();
+        }
+
+        return partners;
+    }
+
+    /**
+     * Returns the depths of the nodes in the breadth-first order <code>nodes</code>.
+     *
+     * @param nodes
+     *         the nodes of a tree in breadth-first order
+     * @param indices
+     *         the indices of the nodes
+     * @return the depths of the nodes
+     */
+    private int[] depths(List<T> nodes, Map<T, Integer> indices) {
+        int[] depths = new int[nodes.size()];
+
+        for (int i = 1; i < depths.length; i++) {
+            depths[i] = depths[indices.get(nodes.get(i).getParent())] + 1;
+        }
+
+        return depths;
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return the number of edges
+     */
+    int size() {
+        return edgeLeft.length;
+    }
+
+    /**
+     * Returns the indices of all edges in an order randomly permuted using <code>rng</code>. The permutation is the
+     * one {@link java.util.Collections#shuffle(List, Random)} would produce.
+     *
+     * @param rng
+     *         the PRNG to use
+     * @return the shuffled edge indices
+     */
+    int[] shuffledEdges(Random rng) {
+        int[] edges = new int[size()];
+        Arrays.setAll(edges, edge -> edge);
+
+        for (int i = edges.length; i > 1; i--) {
+            int j = rng.nextInt(i);
+            int tmp = edges[i - 1];
+
+            edges[i - 1] = edges[j];
+            edges[j] = tmp;
+        }
+
+        return edges;
+    }
+
+    /**
+     * Returns a new <code>CMMatching</code> representing the given edge.
+     *
+     * @param edge
+     *         the index of the edge
+     * @return the <code>CMMatching</code>
+     */
+    CMMatching<T> matching(int edge) {
+        T m = edgeLeft[edge] == NO_MATCH ? null : leftNodes.get(edgeLeft[edge]);
+        T n = edgeRight[edge] == NO_MATCH ? null : rightNodes.get(edgeRight[edge]);
+
+        return new CMMatching<>(m, n);
+    }
+
+    /**
+     * Marks the artifacts matched by <code>matching</code> as matched.
+     *
+     * @param matching
+     *         the matching to prune for
+     * @param matchedLeft
+     *         the matched left nodes
+     * @param matchedRight
+     *         the matched right nodes
+     */
+    void prune(CMMatching<T> matching, BitSet matchedLeft, BitSet matchedRight) {
+        int l = index(matching.m, leftIndices);
+        int r = index(matching.n, rightIndices);
+
+        if (l != NO_MATCH) {
+            matchedLeft.set(l);
+        }
+
+        if (r != NO_MATCH) {
+            matchedRight.set(r);
+        }
+    }
+
+    /**
+     * Returns whether one of the nodes connected by the given edge is already matched.
+     *
+     * @param edge
+     *         the index of the edge
+     * @param matchedLeft
+     *         the matched left nodes
+     * @param matchedRight
+     *         the matched right nodes
+     * @return whether the edge is no longer available
+     */
+    boolean isPruned(int edge, BitSet matchedLeft, BitSet matchedRight) {
+        return isPruned(edgeLeft[edge], edgeRight[edge], matchedLeft, matchedRight);
+    }
+
+    /**
+     * Returns whether one of the artifacts of <code>matching</code> is already matched.
+     *
+     * @param matching
+     *         the matching to check
+     * @param matchedLeft
+     *         the matched left nodes
+     * @param matchedRight
+     *         the matched right nodes
+     * @return whether the matching is no longer available
+     */
+    boolean isPruned(CMMatching<T> matching, BitSet matchedLeft, BitSet matchedRight) {
+        return isPruned(index(matching.m, leftIndices), index(matching.n, rightIndices), matchedLeft, matchedRight);
+    }
+
+    private boolean isPruned(int l, int r, BitSet matchedLeft, BitSet matchedRight) {
+        return (l != NO_MATCH && matchedLeft.get(l)) || (r != NO_MATCH && matchedRight.get(r));
+    }
+
+    private int index(T artifact, Map<T, Integer> indices) {
+        return artifact == null ? NO_MATCH : indices.getOrDefault(artifact, NO_MATCH);
+    }
+
+    /**
+     * The <code>k</code> indices offered with the highest scores. An index only replaces one with a strictly lower
+     * score.
+     */
+    private static final class TopK {
+
+        private final float[] scores;
+        private final int[] indices;
+        private int size;
+
+        private TopK(int k) {
+            this.scores = new float[k];
+            this.indices = new int[k];
+        }
+
+        private void offer(int index, float score) {
+
+            if (size < indices.length) {
+                scores[size] = score;
+                indices[size++] = index;
+                return;
+            }
+
+            int min = 0;
+
+            for (int i = 1; i < size; i++) {
+                if (scores[i] < scores[min]) {
+                    min = i;
+                }
+            }
+
+            if (score > scores[min]) {
+                scores[min] = score;
+                indices[min] = index;
+            }
+        }
+    }
+}
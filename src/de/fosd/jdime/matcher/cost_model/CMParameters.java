@@ -29,7 +29,6 @@
 
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.config.merge.MergeContext;
-import de.fosd.jdime.util.Tuple;
 import org.apache.commons.math3.distribution.IntegerDistribution;
 import org.apache.commons.math3.distribution.PascalDistribution;
 import org.apache.commons.math3.random.RandomAdaptor;
@@ -108,13 +107,28 @@
 
     boolean fixRandomPercentage;
 
-    /*
-     * Caches valid for the entirety of the CostModelMatcher#match(MergeContext, Artifact, Artifact) function.
+    /**
+     * The number of iterations without an improvement of the lowest cost after which a chain stops. Values smaller
+     * than 1 disable the stopping rule.
+     */
+    int patience;
+
+    /**
+     * The fraction of the lowest cost by which it must decrease for the decrease to count as an improvement.
+     */
+    float minImprovement;
+
+    /**
+     * The edges between the left and right tree that may be chosen when completing a set of matchings. Set by the
+     * <code>CostModelMatcher</code> for the trees it is matching.
      */
+    CMCandidates<T> candidates;
 
-    ConcurrentMap<Tuple<T, T>, Tuple<T, T>> lcaCache;
-    ConcurrentMap<T, List<T>> siblingCache;
-    ConcurrentMap<T, List<T>> otherSiblingsCache;
+    /**
+     * The index answering ancestry and sibling queries about the left and right tree. Set by the
+     * <code>CostModelMatcher</code> for the trees it is matching.
+     */
+    CMTreeIndex<T> trees;
 
     /*
      * Caches valid during one run of the CostModelMatcher#cost(CMMatchings, CMParameters) function.
@@ -141,12 +155,26 @@
      *         the <code>MergeContext</code> to use
      */
     public CMParameters(MergeContext context) {
+        this(context, 0);
+    }
+
+    /**
+     * Constructs a new <code>CMParameters</code> configured from the given <code>MergeContext</code> for one of
+     * multiple concurrently running chains of the <code>CostModelMatcher</code>. If a seed is configured, the PRNG of
+     * the chain is seeded with the sum of the seed and the number of the chain.
+     *
+     * @param context
+     *         the <code>MergeContext</code> to use
+     * @param chain
+     *         the number of the chain (starting at 0)
+     */
+    public CMParameters(MergeContext context, int chain) {
         setNoMatchWeight(context.getWn());
         setRenamingWeight(context.getWr());
         setAncestryViolationWeight(context.getWa());
         setSiblingGroupBreakupWeight(context.getWs());
         setOrderingWeight(context.getWo());
-        rng = new RandomAdaptor(context.getSeed().map(Well19937c::new).orElse(new Well19937c()));
+        rng = new RandomAdaptor(context.getSeed().map(seed -> new Well19937c(seed + chain)).orElse(new Well19937c()));
         assignDist = new PascalDistribution(rng, 1, context.getpAssign());
         setPAssign(context.getpAssign());
         setFixLower(context.getFixLower());
@@ -154,9 +182,8 @@ public CMParameters(MergeContext context) {
         setBeta(30);
         setParallel(context.isCmMatcherParallel());
         setFixRandomPercentage(context.isCmMatcherFixRandomPercentage());
-        lcaCache = new ConcurrentHashMap<>();
-        siblingCache = new ConcurrentHashMap<>();
-        otherSiblingsCache = new ConcurrentHashMap<>();
+        setPatience(context.getCostModelPatience());
+        setMinImprovement(context.getCostModelMinImprovement());
         exactContainsCache = new ConcurrentHashMap<>();
         boundContainsCache = new ConcurrentHashMap<>();
     }
@@ -345,6 +372,27 @@ public void setFixRandomPercentage(boolean fixRandomPercentage) {
         this.fixRandomPercentage = fixRandomPercentage;
     }
 
+    /**
+     * Sets the number of iterations without an improvement of the lowest cost after which a chain stops.
+     *
+     * @param patience
+     *         the new patience, values smaller than 1 disable the stopping rule
+     */
+    public void setPatience(int patience) {
+        this.patience = patience;
+    }
+
+    /**
+     * Sets the fraction of the lowest cost by which it must decrease for the decrease to count as an improvement.
+     *
+     * @param minImprovement
+     *         the new minimum improvement from [0, 1]
+     */
+    public void setMinImprovement(float minImprovement) {
+        checkInRange(0, 1, minImprovement);
+        this.minImprovement = minImprovement;
+    }
+
     /**
      * Clears the caches that are only valid for one exact cost calculation.
      */
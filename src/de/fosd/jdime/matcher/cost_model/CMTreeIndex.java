@@ -0,0 +1,413 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher.cost_model;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.util.Tuple;
+
+/**
+ * An index over the left and right tree matched by the <code>CostModelMatcher</code> answering the ancestry and
+ * sibling queries of the cost model in constant time. The index consists of the preorder numbers, depths and subtree
+ * sizes of all nodes, an Euler tour of both trees with sparse tables for range minimum queries over the depths in the
+ * tour and the sibling group of every node.
+ * <p>
+ * The roots of the two trees intentionally form sibling groups of their own, even if they have parents. The cost model
+ * only considers the nodes of the matched trees, every node outside of them is unmatched and must not count towards
+ * the sibling-group breakup cost of a root. This is the same behavior as that of the parent walk the index replaced.
+ * All queries throw an <code>IllegalArgumentException</code> for nodes that are not part of the indexed trees.
+ * <p>
+ * <code>CMTreeIndex</code>es are not modified after their construction and may be shared by concurrently running
+ * chains.
+ *
+ * @param <T>
+ *         the type of the <code>Artifact</code>s
+ */
+final class CMTreeIndex<T extends Artifact<T>> {
+
+    private final Map<T, Integer> ids;
+    private final List<T> nodes;
+
+    /**
+     * The number of nodes of the left tree. Their ids precede those of the right tree.
+     */
+    private final int leftSize;
+
+    private final int[] depths;
+    private final int[] sizes;
+
+    /**
+     * The node ids in the order of the Euler tours of the left and then the right tree.
+     */
+    private final int[] euler;
+
+    /**
+     * The index of the first occurrence of every node in the Euler tour.
+     */
+    private final int[] first;
+
+    /**
+     * <code>leftMin[k][i]</code> and <code>rightMin[k][i]</code> are the leftmost and rightmost index of a node with
+     * minimal depth in the range of the Euler tour of length 2^k starting at index <code>i</code>.
+     */
+    private final int[][] leftMin;
+    private final int[][] rightMin;
+
+    private final List<List<T>> siblingGroups;
+    private final int[] siblingIndices;
+    private final boolean[] orderedGroups;
+
+    /**
+     * Constructs the index for the trees rooted in <code>left</code> and <code>right</code>.
+     *
+     * @param left
+     *         the left root
+     * @param right
+     *         the right root
+     */
+    CMTreeIndex(T left, T right) {
+        int numNodes = left.getTreeSize() + right.getTreeSize();
+
+        this.ids = new IdentityHashMap<>(numNodes);
+        this.nodes = new ArrayList<>(numNodes);
+        this.depths = new int[numNodes];
+        this.sizes = new int[numNodes];
+        this.euler = new int[2 * numNodes - 2];
+        this.first = new int[numNodes];
+        this.siblingGroups = new ArrayList<>(numNodes);
+        this.siblingIndices = new int[numNodes];
+        this.orderedGroups = new boolean[numNodes];
+
+        int length = tour(left, 0);
+        this.leftSize = nodes.size();
+        tour(right, length);
+
+        int levels = 32 - Integer.numberOfLeadingZeros(euler.length);
+
+        this.leftMin = new int[levels][];
+        this.rightMin = new int[levels][];
+
+        leftMin[0] = new int[euler.length];
+        rightMin[0] = new int[euler.length];
+
+        for (int i = 0; i < euler.length; i++) {
+            leftMin[0][i] = i;
+            rightMin[0][i] = i;
+        }
+
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            int num = euler.length - (1 << k) + 1;
+
+            leftMin[k] = new int[num];
+            rightMin[k] = new int[num];
+
+            for (int i = 0; i < num; i++) {
+                leftMin[k][i] = leftmost(leftMin[k - 1][i], leftMin[k - 1][i + half]);
+                rightMin[k][i] = rightmost(rightMin[k - 1][i], rightMin[k - 1][i + half]);
+            }
+        }
+    }
+
+    /**
+     * Numbers the nodes of the tree rooted in <code>root</code> in preorder and appends its Euler tour starting at
+     * <code>start</code>. The tree is traversed iteratively as the ASTs may be too deep for a recursive traversal.
+     *
+     * @param root
+     *         the root of the tree
+     * @param start
+     *         the index in the Euler tour to start at
+     * @return the index in the Euler tour after the tour of the tree
+     */
+    private int tour(T root, int start) {
+        Deque<T> path = new ArrayDeque<>();
+        Deque<Integer> nextChild = new ArrayDeque<>();
+        int pos = start;
+
+        pos = enter(root, 0, Collections.singletonList(root), root.isOrdered(), 0, pos);
+        path.push(root);
+        nextChild.push(0);
+
+        while (!path.isEmpty()) {
+            T node = path.peek();
+            int id = ids.get(node);
+            int i = nextChild.pop();
+
+            if (i < node.getNumChildren()) {
+                nextChild.push(i + 1);
+
+                List<T> group;
+                boolean ordered;
+
+                if (i == 0) {
+                    group = Collections.unmodifiableList(new ArrayList<>(node.getChildren()));
+                    ordered = group.stream().anyMatch(T::isOrdered);
+                } else {
+                    int firstChild = ids.get(node.getChild(0));
+                    group = siblingGroups.get(firstChild);
+                    ordered = orderedGroups[firstChild];
+                }
+
+                pos = enter(node.getChild(i), depths[id] + 1, group, ordered, i, pos);
+                path.push(node.getChild(i));
+                nextChild.push(0);
+            } else {
+                path.pop();
+                sizes[id] = nodes.size() - id;
+
+                if (!path.isEmpty()) {
+                    euler[pos++] = ids.get(path.peek());
+                }
+            }
+        }
+
+        return pos;
+    }
+
+    /**
+     * Assigns the next id to <code>node</code> and appends it to the Euler tour at <code>pos</code>.
+     *
+     * @param node
+     *         the node to enter
+     * @param depth
+     *         the depth of the node
+     * @param group
+     *         the sibling group of the node
+     * @param ordered
+     *         whether any node in the sibling group is ordered
+     * @param siblingIndex
+     *         the index of the node in its sibling group
+     * @param pos
+     *         the index in the Euler tour
+     * @return the index in the Euler tour after the node
+     */
+    private int enter(T node, int depth, List<T> group, boolean ordered, int siblingIndex, int pos) {
+        int id = nodes.size();
+
+        ids.put(node, id);
+        nodes.add(node);
+        depths[id] = depth;
+        first[id] = pos;
+        siblingGroups.add(group);
+        siblingIndices[id] = siblingIndex;
+        orderedGroups[id] = ordered;
+        euler[pos] = id;
+
+        return pos + 1;
+    }
+
+    private int leftmost(int i, int j) {
+        return depths[euler[j]] < depths[euler[i]] ? j : i;
+    }
+
+    private int rightmost(int i, int j) {
+        return depths[euler[i]] < depths[euler[j]] ? i : j;
+    }
+
+    /**
+     * Returns the index of a node with minimal depth in the range [<code>from</code>, <code>to</code>] of the Euler
+     * tour.
+     *
+     * @param from
+     *         the first index of the range
+     * @param to
+     *         the last index of the range
+     * @param leftmost
+     *         whether to return the leftmost or the rightmost index if there are multiple
+     * @return the index in the Euler tour
+     */
+    private int minDepth(int from, int to, boolean leftmost) {
+        int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+        int start = to - (1 << k) + 1;
+
+        if (leftmost) {
+            return leftmost(leftMin[k][from], leftMin[k][start]);
+        } else {
+            return rightmost(rightMin[k][from], rightMin[k][start]);
+        }
+    }
+
+    /**
+     * Returns the id of <code>artifact</code>.
+     *
+     * @param artifact
+     *         the <code>Artifact</code>
+     * @return the id of the <code>Artifact</code>
+     * @throws IllegalArgumentException
+     *         if <code>artifact</code> is not a node of the indexed trees
+     */
+    private int id(T artifact) {
+        Integer id = ids.get(artifact);
+
+        if (id == null) {
+            throw new IllegalArgumentException(artifact + " is not a node of the trees indexed by this "
+                    + getClass().getSimpleName() + ".");
+        }
+
+        return id;
+    }
+
+    private boolean isAncestor(int ancestor, int descendant) {
+        return ancestor <= descendant && descendant < ancestor + sizes[ancestor];
+    }
+
+    /**
+     * Finds the lowest pair of (possibly different) ancestors of <code>a</code> and <code>b</code> that are part of the
+     * same sibling group. If one of the artifacts is an ancestor of the other, it is returned in both positions.
+     *
+     * @param a
+     *         the first <code>Artifact</code>
+     * @param b
+     *         the second <code>Artifact</code> from the same tree
+     * @return the ancestor of the first <code>Artifact</code> in the first position, that of the second in the second
+     *          position
+     * @throws IllegalArgumentException
+     *         if the artifacts are not nodes of the same indexed tree
+     */
+    Tuple<T, T> lca(T a, T b) {
+        int x = id(a);
+        int y = id(b);
+
+        if ((x < leftSize) != (y < leftSize)) {
+            throw new IllegalArgumentException(a + " and " + b + " are not part of the same tree.");
+        }
+
+        if (isAncestor(x, y)) {
+            return Tuple.of(a, a);
+        } else if (isAncestor(y, x)) {
+            return Tuple.of(b, b);
+        }
+
+        boolean aFirst = first[x] < first[y];
+        int from = Math.min(first[x], first[y]);
+        int to = Math.max(first[x], first[y]);
+
+        /*
+         * The tour reaches the lowest common ancestor right after leaving the subtree of its child containing the
+         * node that is visited first and leaves it for the last time right before entering the subtree of its child
+         * containing the other node.
+         */
+        T firstChild = nodes.get(euler[minDepth(from, to, true) - 1]);
+        T secondChild = nodes.get(euler[minDepth(from, to, false) + 1]);
+
+        return aFirst ? Tuple.of(firstChild, secondChild) : Tuple.of(secondChild, firstChild);
+    }
+
+    /**
+     * Returns the unmodifiable sibling group of <code>artifact</code>. This includes the <code>artifact</code> itself.
+     * The sibling group of the root of an indexed tree contains only the root.
+     *
+     * @param artifact
+     *         the <code>Artifact</code> whose siblings are to be returned
+     * @return the siblings of the given <code>artifact</code>
+     */
+    List<T> siblings(T artifact) {
+        return siblingGroups.get(id(artifact));
+    }
+
+    /**
+     * Returns an unmodifiable view of the sibling group of <code>artifact</code> that does not include
+     * <code>artifact</code> itself.
+     *
+     * @param artifact
+     *         the <code>Artifact</code> whose siblings are to be returned
+     * @return the other siblings of the given <code>artifact</code>
+     */
+    List<T> otherSiblings(T artifact) {
+        int id = id(artifact);
+        List<T> group = siblingGroups.get(id);
+        int skip = siblingIndices[id];
+
+        return new AbstractList<T>() {
+
+            @Override
+            public T get(int index) {
+                return group.get(index < skip ? index : index + 1);
+            }
+
+            @Override
+            public int size() {
+                return group.size() - 1;
+            }
+        };
+    }
+
+    /**
+     * Returns whether <code>other</code> is in the {@link #siblings(Artifact) sibling group} of <code>artifact</code>.
+     *
+     * @param artifact
+     *         the <code>Artifact</code> whose siblings are to be checked
+     * @param other
+     *         the potential sibling, may be <code>null</code>
+     * @return whether <code>other</code> is one of the siblings
+     */
+    boolean areSiblings(T artifact, T other) {
+        Integer otherId = other == null ? null : ids.get(other);
+        List<T> group = siblingGroups.get(id(artifact));
+        return otherId != null && siblingGroups.get(otherId) == group;
+    }
+
+    /**
+     * Returns whether <code>other</code> is a sibling of <code>artifact</code> different from <code>artifact</code>.
+     *
+     * @param artifact
+     *         the <code>Artifact</code> whose siblings are to be checked
+     * @param other
+     *         the potential sibling, may be <code>null</code>
+     * @return whether <code>other</code> is one of the {@link #otherSiblings(Artifact) other siblings}
+     */
+    boolean isOtherSibling(T artifact, T other) {
+        return other != artifact && areSiblings(artifact, other);
+    }
+
+    /**
+     * Returns the index of <code>artifact</code> in its {@link #siblings(Artifact) sibling group}.
+     *
+     * @param artifact
+     *         the <code>Artifact</code>
+     * @return the index among its siblings
+     */
+    int siblingIndex(T artifact) {
+        return siblingIndices[id(artifact)];
+    }
+
+    /**
+     * Returns whether any artifact in the sibling group of <code>artifact</code> is ordered.
+     *
+     * @param artifact
+     *         the <code>Artifact</code>
+     * @return whether the order of the siblings of <code>artifact</code> matters
+     */
+    boolean isOrderedGroup(T artifact) {
+        return orderedGroups[id(artifact)];
+    }
+}
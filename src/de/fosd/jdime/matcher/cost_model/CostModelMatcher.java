@@ -24,16 +24,20 @@
 package de.fosd.jdime.matcher.cost_model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -41,6 +45,7 @@
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import de.fosd.jdime.artifact.Artifact;
@@ -49,8 +54,11 @@
 import de.fosd.jdime.matcher.MatcherInterface;
 import de.fosd.jdime.matcher.matching.Matching;
 import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.stats.MergeScenarioStatistics;
 import de.fosd.jdime.util.Tuple;
+import org.apache.commons.math3.random.RandomAdaptor;
 import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well19937c;
 
 import static de.fosd.jdime.matcher.cost_model.Bounds.BY_LOWER_UPPER;
 import static java.lang.Integer.toHexString;
@@ -72,6 +80,35 @@
 
     private static final Logger LOG = Logger.getLogger(CostModelMatcher.class.getCanonicalName());
 
+    /**
+     * The factor by which the beta of every chain is lower than the one of the previous chain if parallel tempering is
+     * enabled.
+     */
+    private static final float TEMPERING_RATIO = 0.5f;
+
+    /**
+     * The number of iterations after which the chains try to swap their matchings if parallel tempering is enabled.
+     */
+    private static final int TEMPERING_INTERVAL = 10;
+
+    /**
+     * The label of the statistics counter for the number of iterations the chains of the
+     * <code>CostModelMatcher</code> performed.
+     */
+    public static final String ITERATIONS_LABEL = "cost model iterations";
+
+    /**
+     * The label of the statistics counter for the number of <code>match</code> calls that stopped early because
+     * the lowest cost found stopped improving.
+     */
+    public static final String CONVERGED_LABEL = "cost model converged";
+
+    /**
+     * The label of the statistics counter for the number of <code>match</code> calls that stopped early because
+     * their timeout passed.
+     */
+    public static final String TIMEOUTS_LABEL = "cost model timeouts";
+
     /**
      * A function weighing a matching that incurred a cost.
      *
@@ -95,22 +132,25 @@
     }
 
     /**
-     * The return type of {@link #objective(CMMatchings, CMParameters)} containing the value of the objective
-     * function and the exact cost of the newly proposed set of <code>CMMatching</code>s.
+     * The return type of {@link #objective(CMMatchings, ObjectiveValue, CMParameters)} containing the value of the
+     * objective function, the exact cost of the newly proposed set of <code>CMMatching</code>s and the exact costs of
+     * the individual <code>CMMatching</code>s.
      */
     private final class ObjectiveValue {
 
         public final double objValue;
         public final float matchingsCost;
+        public final Map<CMMatching<T>, Float> exactCosts;
 
-        public ObjectiveValue(double objValue, float matchingsCost) {
+        public ObjectiveValue(double objValue, float matchingsCost, Map<CMMatching<T>, Float> exactCosts) {
             this.objValue = objValue;
             this.matchingsCost = matchingsCost;
+            this.exactCosts = exactCosts;
         }
     }
 
     /**
-     * The return type of {@link #acceptanceProb(double, CMMatchings, CMParameters)} containing the probability
+     * The return type of {@link #acceptanceProb(ObjectiveValue, CMMatchings, CMParameters)} containing the probability
      * of the newly proposed set of <code>CMMatching</code>s being accepted for the next iteration and the
      * <code>ObjectiveValue</code> for the proposed matchings.
      */
@@ -164,7 +204,10 @@ public float cost(MergeContext context, Matchings<T> matchings, T left, T right)
             cmMatchings.add(new CMMatching<>(null, r));
         }
 
-        return cost(cmMatchings, new CMParameters<>(context));
+        CMParameters<T> parameters = new CMParameters<>(context);
+        parameters.trees = new CMTreeIndex<>(left, right);
+
+        return cost(cmMatchings, parameters);
     }
 
     /**
@@ -180,6 +223,26 @@ public float cost(MergeContext context, Matchings<T> matchings, T left, T right)
      * @return the cost based on the weight functions in <code>parameters</code>
      */
     private float cost(CMMatchings<T> matchings, CMParameters<T> parameters) {
+        return cost(matchings, null, parameters);
+    }
+
+    /**
+     * Returns the exact cost of the given <code>matchings</code> as in {@link #cost(CMMatchings, CMParameters)}. If
+     * <code>previousCosts</code> are given, only the costs of the <code>CMMatching</code>s that may differ from the
+     * set of matchings <code>previousCosts</code> were computed for are recomputed. All other exact costs are taken
+     * from <code>previousCosts</code>.
+     *
+     * @param matchings
+     *         the <code>CMMatchings</code>s to evaluate
+     * @param previousCosts
+     *         the exact costs of the <code>CMMatching</code>s of another set of matchings of the same trees, may be
+     *         <code>null</code>
+     * @param parameters
+     *          the <code>CMParameters</code> to use
+     * @return the cost based on the weight functions in <code>parameters</code>
+     * @see #affected(CMMatchings, Map, CMParameters)
+     */
+    private float cost(CMMatchings<T> matchings, Map<CMMatching<T>, Float> previousCosts, CMParameters<T> parameters) {
 
         if (!matchings.sane()) {
             throw new IllegalArgumentException("The given list of matchings has an invalid format. A list of " +
@@ -192,10 +255,32 @@ private float cost(CMMatchings<T> matchings, CMParameters<T> parameters) {
             return 0;
         }
 
+        for (CMMatching<T> matching : matchings) {
+
+            if (matching.m != null) {
+                parameters.exactContainsCache.put(matching.m, matching);
+            }
+
+            if (matching.n != null) {
+                parameters.exactContainsCache.put(matching.n, matching);
+            }
+        }
+
+        List<CMMatching<T>> toCompute;
+
+        if (previousCosts == null) {
+            toCompute = matchings;
+        } else {
+            toCompute = affected(matchings, previousCosts, parameters);
+
+            log(FINEST, matchings, () -> "Recomputing the costs of " + toCompute.size() + " of " +
+                    matchings.size() + " matchings.");
+        }
+
         if (parameters.parallel) {
-            matchings.parallelStream().forEach(m -> cost(m, matchings, parameters));
+            toCompute.parallelStream().forEach(m -> cost(m, matchings, parameters));
         } else {
-            matchings.forEach(m -> cost(m, matchings, parameters));
+            toCompute.forEach(m -> cost(m, matchings, parameters));
         }
 
         double sumCost = matchings.stream().mapToDouble(CMMatching::getExactCost).sum();
@@ -206,6 +291,62 @@ private float cost(CMMatchings<T> matchings, CMParameters<T> parameters) {
         return (float) sumCost;
     }
 
+    /**
+     * Returns the <code>CMMatching</code>s from <code>matchings</code> whose exact cost may differ from the one stored
+     * in <code>previousCosts</code> and sets the exact costs of all others to their previous value.
+     * <p>
+     * The exact cost of a matching [m, n] depends only on the images of the children and siblings of m and n. The
+     * image of an artifact changed if the matching containing it is not contained in <code>previousCosts</code>. The
+     * cost of such a new matching is recomputed, as is the cost of every matching containing the parent or a sibling
+     * of an artifact whose image changed.
+     *
+     * @param matchings
+     *         the matchings being evaluated
+     * @param previousCosts
+     *         the exact costs of the <code>CMMatching</code>s of the previously evaluated set of matchings
+     * @param parameters
+     *         the <code>CMParameters</code> to use
+     * @return the <code>CMMatching</code>s whose exact cost must be recomputed
+     */
+    private List<CMMatching<T>> affected(CMMatchings<T> matchings, Map<CMMatching<T>, Float> previousCosts,
+                                         CMParameters<T> parameters) {
+        Set<T> dirty = new HashSet<>();
+
+        for (CMMatching<T> matching : matchings) {
+
+            if (previousCosts.containsKey(matching)) {
+                continue;
+            }
+
+            for (T changed : Arrays.asList(matching.m, matching.n)) {
+
+                if (changed == null) {
+                    continue;
+                }
+
+                if (changed.getParent() != null) {
+                    dirty.add(changed.getParent());
+                }
+
+                dirty.addAll(siblings(changed, parameters));
+            }
+        }
+
+        List<CMMatching<T>> affected = new ArrayList<>();
+
+        for (CMMatching<T> matching : matchings) {
+            Float previousCost = previousCosts.get(matching);
+
+            if (previousCost == null || dirty.contains(matching.m) || dirty.contains(matching.n)) {
+                affected.add(matching);
+            } else {
+                matching.setExactCost(previousCost);
+            }
+        }
+
+        return affected;
+    }
+
     /**
      * Sets the exact cost ({@link CMMatching#setExactCost(float)}) of the given <code>matching</code> based on
      * the given set of <code>matchings</code>.
@@ -346,10 +487,10 @@ private float siblingGroupBreakupCost(CMMatching<T> matching, CMMatchings<T> mat
      * @return the sibling invariant subset
      */
     private List<T> siblingInvariantSubset(T m, T n, CMMatchings<T> matchings, CMParameters<T> parameters) {
-        List<T> mSiblings = siblings(m, matchings, parameters);
-        List<T> nSiblings = siblings(n, matchings, parameters);
+        List<T> mSiblings = siblings(m, parameters);
 
-        return mSiblings.stream().filter(s -> nSiblings.contains(image(s, matchings, parameters))).collect(toList());
+        return mSiblings.stream().filter(s -> parameters.trees.areSiblings(n, image(s, matchings, parameters)))
+                        .collect(toList());
     }
 
     /**
@@ -367,7 +508,7 @@ private List<T> siblingInvariantSubset(T m, T n, CMMatchings<T> matchings, CMPar
      */
     private List<T> siblingDivergentSubset(T m, T n, CMMatchings<T> matchings, CMParameters<T> parameters) {
         List<T> inv = siblingInvariantSubset(m, n, matchings, parameters);
-        List<T> sibs = siblings(m, matchings, parameters);
+        List<T> sibs = siblings(m, parameters);
         return sibs.stream().filter(sibling -> !inv.contains(sibling) && image(sibling, matchings, parameters) != null)
                             .collect(toList());
     }
@@ -389,7 +530,7 @@ private Set<T> distinctSiblingFamilies(T m, CMMatchings<T> matchings, CMParamete
         Predicate<T> notNull = Objects::nonNull;
         Function<T, T> getParent = T::getParent;
 
-        return siblings(m, matchings, parameters).stream().map(image).filter(notNull).map(getParent).collect(toSet());
+        return siblings(m, parameters).stream().map(image).filter(notNull).map(getParent).collect(toSet());
     }
 
     /**
@@ -404,8 +545,8 @@ private Set<T> distinctSiblingFamilies(T m, CMMatchings<T> matchings, CMParamete
      * @return the exact ordering cost
      */
     private float orderingCost(CMMatching<T> matching, CMMatchings<T> matchings, CMParameters<T> parameters) {
-        Stream<T> leftSiblings = otherSiblings(matching.m, matchings, parameters).stream();
-        Stream<T> rightSiblings = otherSiblings(matching.n, matchings, parameters).stream();
+        Stream<T> leftSiblings = otherSiblings(matching.m, parameters).stream();
+        Stream<T> rightSiblings = otherSiblings(matching.n, parameters).stream();
         Stream<CMMatching<T>> s = concat(leftSiblings, rightSiblings).map(a -> matching(a, matchings, parameters))
                                                                      .filter(m -> !m.isNoMatch()).distinct();
 
@@ -430,20 +571,19 @@ private float orderingCost(CMMatching<T> matching, CMMatchings<T> matchings, CMP
      * @return true iff <code>toCheck</code> violates the ordering induced by <code>matching</code>
      */
     private boolean violatesOrdering(CMMatching<T> toCheck, CMMatching<T> matching, CMMatchings<T> matchings, CMParameters<T> parameters) {
-        Tuple<T, T> leftSides = lca(toCheck.m, matching.m, matchings, parameters);
-        Tuple<T, T> rightSides = lca(toCheck.n, matching.n, matchings, parameters);
-        List<T> leftSiblings = siblings(leftSides.x, matchings, parameters);
-        List<T> rightSiblings = siblings(rightSides.x, matchings, parameters);
+        Tuple<T, T> leftSides = lca(toCheck.m, matching.m, parameters);
+        Tuple<T, T> rightSides = lca(toCheck.n, matching.n, parameters);
+        CMTreeIndex<T> trees = parameters.trees;
 
-        if (concat(leftSiblings.stream(), rightSiblings.stream()).noneMatch(T::isOrdered)) {
+        if (!trees.isOrderedGroup(leftSides.x) && !trees.isOrderedGroup(rightSides.x)) {
             return false;
         }
 
-        int leftXi = leftSiblings.indexOf(leftSides.x);
-        int leftYi = leftSiblings.indexOf(leftSides.y);
-        int rightXi = rightSiblings.indexOf(rightSides.x);
-        int rightYi = rightSiblings.indexOf(rightSides.y);
-        
+        int leftXi = trees.siblingIndex(leftSides.x);
+        int leftYi = trees.siblingIndex(leftSides.y);
+        int rightXi = trees.siblingIndex(rightSides.x);
+        int rightYi = trees.siblingIndex(rightSides.y);
+
         if (leftXi < leftYi) {
             return rightXi > rightYi;
         } else if (leftXi > leftYi) {
@@ -453,25 +593,6 @@ private boolean violatesOrdering(CMMatching<T> toCheck, CMMatching<T> matching,
         return false; // TODO weird case, maybe true is better?
     }
 
-    /**
-     * Returns the path from the given <code>artifact</code> to the root node of the tree it is a part of.
-     *
-     * @param artifact
-     *         the <code>Artifact</code> to return the path for
-     * @return the path represented by a list of <code>Artifact</code>s beginning with <code>artifact</code> and ending
-     *          with the root of the tree
-     */
-    private List<T> pathToRoot(T artifact) {
-        List<T> path = new ArrayList<>();
-
-        do {
-            path.add(artifact);
-            artifact = artifact.getParent();
-        } while (artifact != null);
-
-        return path;
-    }
-
     /**
      * Finds the lowest pair of (possibly different) ancestors of <code>a</code> and <code>b</code> that are part of the
      * same sibling group.
@@ -480,39 +601,14 @@ private List<T> pathToRoot(T artifact) {
      *         the first <code>Artifact</code>
      * @param b
      *         the second <code>Artifact</code>
-     * @param matchings
-     *         the current <code>CMMatching</code>
      * @param parameters
      *         the <code>CMParameters</code> to use
      * @return the ancestor of the first <code>Artifact</code> in the first position, that of the second in the second
      *          position
+     * @see CMTreeIndex#lca(Artifact, Artifact)
      */
-    private Tuple<T, T> lca(T a, T b, CMMatchings<T> matchings, CMParameters<T> parameters) {
-        return parameters.lcaCache.computeIfAbsent(Tuple.of(a, b), ab -> {
-            Tuple<T, T> ba = Tuple.of(b, a);
-
-            if (parameters.lcaCache.containsKey(ba)) {
-                Tuple<T, T> baLCS = parameters.lcaCache.get(ba);
-                return Tuple.of(baLCS.y, baLCS.x);
-            }
-
-            if (siblings(a, matchings, parameters).contains(b)) {
-                return ab;
-            }
-
-            List<T> aPath = pathToRoot(a);
-            List<T> bPath = pathToRoot(b);
-            ListIterator<T> aIt = aPath.listIterator(aPath.size());
-            ListIterator<T> bIt = bPath.listIterator(bPath.size());
-            T l, r;
-
-            do {
-                l = aIt.previous();
-                r = bIt.previous();
-            } while (l == r && (aIt.hasPrevious() && bIt.hasPrevious()));
-
-            return Tuple.of(l, r);
-        });
+    private Tuple<T, T> lca(T a, T b, CMParameters<T> parameters) {
+        return parameters.trees.lca(a, b);
     }
 
     /**
@@ -727,7 +823,7 @@ private Bounds boundSiblingGroupBreakupCost(CMMatching<T> matching, CMMatchings<
      * @return the bounded size of the divergent sibling subset
      */
     private Bounds boundDivergentSiblings(T m, T n, CMMatchings<T> currentMatchings, CMParameters<T> parameters) {
-        List<T> osibs = otherSiblings(m, currentMatchings, parameters);
+        List<T> osibs = otherSiblings(m, parameters);
         long lower = osibs.stream().filter(mSib -> divergentSiblingIndicator(mSib, n, currentMatchings, false, parameters)).count();
         long upper = osibs.stream().filter(mSib -> divergentSiblingIndicator(mSib, n, currentMatchings, true, parameters)).count();
 
@@ -754,14 +850,14 @@ private boolean divergentSiblingIndicator(T sibling, T n, CMMatchings<T> current
         if (upper) {
             Predicate<CMMatching<T>> indicator = match -> {
                 T partner = match.other(sibling);
-                return !(partner == null || otherSiblings(n, currentMatchings, parameters).contains(partner));
+                return !(partner == null || parameters.trees.isOtherSibling(n, partner));
             };
 
             return containing(sibling, currentMatchings, parameters).stream().anyMatch(indicator);
         } else {
             Predicate<CMMatching<T>> indicator = match -> {
                 T partner = match.other(sibling);
-                return partner == null || otherSiblings(n, currentMatchings, parameters).contains(partner);
+                return partner == null || parameters.trees.isOtherSibling(n, partner);
             };
 
             return containing(sibling, currentMatchings, parameters).stream().noneMatch(indicator);
@@ -782,7 +878,7 @@ private boolean divergentSiblingIndicator(T sibling, T n, CMMatchings<T> current
      * @return the bounded size of the invariant sibling subset
      */
     private Bounds boundInvariantSiblings(T m, T n, CMMatchings<T> currentMatchings, CMParameters<T> parameters) {
-        List<T> osibs = otherSiblings(m, currentMatchings, parameters);
+        List<T> osibs = otherSiblings(m, parameters);
         long lower = osibs.stream().filter(mSib -> invariantSiblingIndicator(mSib, n, currentMatchings, false, parameters)).count();
         long upper = osibs.stream().filter(mSib -> invariantSiblingIndicator(mSib, n, currentMatchings, true, parameters)).count();
 
@@ -805,7 +901,7 @@ private Bounds boundInvariantSiblings(T m, T n, CMMatchings<T> currentMatchings,
      * @return the value of the indicator function
      */
     private boolean invariantSiblingIndicator(T sibling, T n, CMMatchings<T> currentMatchings, boolean upper, CMParameters<T> parameters) {
-        Predicate<CMMatching<T>> indicator = match -> otherSiblings(n, currentMatchings, parameters).contains(match.other(sibling));
+        Predicate<CMMatching<T>> indicator = match -> parameters.trees.isOtherSibling(n, match.other(sibling));
 
         if (upper) {
             return containing(sibling, currentMatchings, parameters).stream().anyMatch(indicator);
@@ -827,8 +923,8 @@ private boolean invariantSiblingIndicator(T sibling, T n, CMMatchings<T> current
      */
     private Bounds boundOrderingCost(CMMatching<T> matching, CMMatchings<T> currentMatchings, CMParameters<T> parameters) {
         float lower, upper;
-        List<T> mosibs = otherSiblings(matching.m, currentMatchings, parameters);
-        List<T> nosibs = otherSiblings(matching.n, currentMatchings, parameters);
+        List<T> mosibs = otherSiblings(matching.m, parameters);
+        List<T> nosibs = otherSiblings(matching.n, parameters);
         Stream<T> siblings = concat(mosibs.stream(), nosibs.stream());
 
         boolean orderingPossible = siblings.allMatch(sib ->
@@ -858,54 +954,33 @@ private Bounds boundOrderingCost(CMMatching<T> matching, CMMatchings<T> currentM
     }
 
     /**
-     * Returns a new <code>List</code> containing the children of the parent of <code>artifact</code> or an empty
-     * <code>List</code> for the root node. This includes the <code>artifact</code> itself.
+     * Returns the children of the parent of <code>artifact</code> or a <code>List</code> containing only the
+     * <code>artifact</code> for the roots of the trees being matched. This includes the <code>artifact</code> itself.
      *
      * @param artifact
      *         the <code>Artifact</code> whose siblings are to be returned
-     * @param matchings
-     *         the current <code>CMMatchings</code>
      * @param parameters
      *         the <code>CMParameters</code> to use
-     * @return the siblings of the given <code>artifact</code>
+     * @return the unmodifiable siblings of the given <code>artifact</code>
+     * @see CMTreeIndex#siblings(Artifact)
      */
-    private List<T> siblings(T artifact, CMMatchings<T> matchings, CMParameters<T> parameters) {
-        return parameters.siblingCache.computeIfAbsent(artifact, a -> {
-            List<T> siblings;
-
-            if (artifact == matchings.left || artifact == matchings.right) {
-                siblings = new ArrayList<>(Collections.singleton(a));
-            } else {
-                T parent = a.getParent();
-                siblings = parent.getChildren()
-                                 .stream()
-                                 .filter(s -> s != a && parameters.siblingCache.containsKey(s))
-                                 .map(s -> parameters.siblingCache.get(s)).findFirst()
-                                 .orElseGet(() -> new ArrayList<>(parent.getChildren()));
-            }
-
-            return siblings;
-        });
+    private List<T> siblings(T artifact, CMParameters<T> parameters) {
+        return parameters.trees.siblings(artifact);
     }
 
     /**
-     * Returns the siblings of <code>artifact</code> as in {@link #siblings(Artifact, CMMatchings, CMParameters)} but
-     * does not include <code>artifact</code> itself.
+     * Returns the siblings of <code>artifact</code> as in {@link #siblings(Artifact, CMParameters)} but does not
+     * include <code>artifact</code> itself.
      *
      * @param artifact
      *         the <code>Artifact</code> whose siblings are to be returned
-     * @param matchings
-     *         the current <code>CMMatchings</code>
-     *@param parameters
-     *         the <code>CMParameters</code> to use  @return the siblings of the given <code>artifact</code>
+     * @param parameters
+     *         the <code>CMParameters</code> to use
+     * @return the unmodifiable other siblings of the given <code>artifact</code>
+     * @see CMTreeIndex#otherSiblings(Artifact)
      */
-    private List<T> otherSiblings(T artifact, CMMatchings<T> matchings, CMParameters<T> parameters) {
-        return parameters.otherSiblingsCache.computeIfAbsent(artifact, a -> {
-            List<T> siblings = new ArrayList<>(siblings(a, matchings, parameters));
-            siblings.remove(a);
-
-            return siblings;
-        });
+    private List<T> otherSiblings(T artifact, CMParameters<T> parameters) {
+        return parameters.trees.otherSiblings(artifact);
     }
 
     /**
@@ -972,43 +1047,314 @@ public Matchings<T> match(MergeContext context, T left, T right, Matchings<T> pr
      * @return the resulting matchings
      */
     private Matchings<T> match(MergeContext context, T left, T right, CMMatchings<T> preFixed) {
-        CMParameters<T> parameters = new CMParameters<>(context);
-
         LOG.fine("Matching " + left + " and " + right + " using the " + getClass().getSimpleName());
 
-        CMMatchings<T> m = initialize(preFixed, parameters);
-        ObjectiveValue mObjVal = objective(m, parameters);
+        List<Chain> chains = iterate(context, left, right, preFixed);
+        Chain best = chains.stream().min(comparing(chain -> chain.lowestCost)).get();
+
+        if (chains.size() == 1) {
+            LOG.fine(() -> "Matching ended after " + best.iterations + " iterations.");
+        } else {
+            LOG.fine(() -> String.format("Matching ended after %d iterations of %d chains. The lowest cost was %s.",
+                                         best.iterations, chains.size(), best.lowestCost));
+        }
+
+        storeStatistics(context, chains);
+
+        return convert(best.lowest);
+    }
+
+    /**
+     * Matches the trees rooted in <code>left</code> and <code>right</code> like
+     * {@link #match(MergeContext, Artifact, Artifact)} but returns the lowest cost matchings found by every chain
+     * instead of only the ones of the chain that found the lowest cost.
+     *
+     * @param context
+     *         the <code>MergeContext</code> containing the parameters to use for the Flexible Tree Matching
+     *         algorithm
+     * @param left
+     *         the left root
+     * @param right
+     *         the right root
+     * @return the resulting matchings of every chain
+     */
+    List<Matchings<T>> matchChains(MergeContext context, T left, T right) {
+        List<Chain> chains = iterate(context, left, right, new CMMatchings<>(left, right));
+        return chains.stream().map(chain -> convert(chain.lowest)).collect(toList());
+    }
+
+    /**
+     * Creates the chains configured in the <code>context</code> and iterates them until they are finished.
+     *
+     * @param context
+     *         the <code>MergeContext</code> containing the parameters to use for the Flexible Tree Matching
+     *         algorithm
+     * @param left
+     *         the left root
+     * @param right
+     *         the right root
+     * @param preFixed
+     *         the matchings between the left and right tree that are fixed
+     * @return the finished chains
+     */
+    private List<Chain> iterate(MergeContext context, T left, T right, CMMatchings<T> preFixed) {
+        int iterations = context.getCostModelIterations();
+        int numChains = context.getCostModelChains();
+        OptionalLong deadline = deadline(context);
+        CMCandidates<T> candidates = new CMCandidates<>(left, right, context.getCostModelCandidates(),
+                                                          context.getTreeHashMode());
+        CMTreeIndex<T> trees = new CMTreeIndex<>(left, right);
+
+        LOG.fine(() -> "Considering " + candidates.size() + " candidate matchings.");
 
-        CMMatchings<T> lowest = m;
-        float lowestCost = mObjVal.matchingsCost;
+        if (numChains <= 1) {
+            CMParameters<T> parameters = new CMParameters<>(context);
+            parameters.candidates = candidates;
+            parameters.trees = trees;
 
-        for (int i = 0; i < context.getCostModelIterations(); i++) {
-            CMMatchings<T> mHat = propose(m, preFixed, parameters);
-            AcceptanceProbability mHatAccProb = acceptanceProb(mObjVal.objValue, mHat, parameters);
+            Chain chain = new Chain(parameters, preFixed, deadline);
+            chain.iterate(0, iterations);
+
+            return Collections.singletonList(chain);
+        }
 
-            if (chance(parameters.rng, mHatAccProb.acceptanceProbability)) {
+        boolean tempering = context.isCmMatcherTempering();
 
-                log(FINER, mHat, () -> "Accepting the matchings.");
+        List<Chain> chains = IntStream.range(0, numChains).parallel().mapToObj(chain -> {
+            CMParameters<T> parameters = new CMParameters<>(context, chain);
+            parameters.candidates = candidates;
+            parameters.trees = trees;
 
-                m = mHat;
-                mObjVal = mHatAccProb.mHatObjectiveValue;
+            if (tempering) {
+                parameters.setBeta(parameters.beta * (float) Math.pow(TEMPERING_RATIO, chain));
             }
 
-            if (mHatAccProb.mHatObjectiveValue.matchingsCost < lowestCost) {
+            CMMatchings<T> chainPreFixed = new CMMatchings<>(preFixed.size(), left, right);
+            preFixed.forEach(m -> chainPreFixed.add(new CMMatching<>(m.m, m.n)));
+
+            return new Chain(parameters, chainPreFixed, deadline);
+        }).collect(toList());
+
+        if (!tempering) {
+            chains.parallelStream().forEach(chain -> chain.iterate(0, iterations));
+        } else {
+            RandomAdaptor swapRng = new RandomAdaptor(context.getSeed().map(seed -> new Well19937c(seed - 1))
+                                                                      .orElse(new Well19937c()));
 
-                lowest = mHat;
-                lowestCost = mHatAccProb.mHatObjectiveValue.matchingsCost;
+            for (int i = 0; i < iterations && !chains.stream().allMatch(Chain::isStopped); i += TEMPERING_INTERVAL) {
+                int from = i;
+                int to = Math.min(from + TEMPERING_INTERVAL, iterations);
 
-                float finalLowestCost = lowestCost;
-                log(FINER, mHat, () -> "New lowest cost matchings with cost " + finalLowestCost + " found.");
+                chains.parallelStream().forEach(chain -> chain.iterate(from, to));
+
+                for (int c = 0; c < numChains - 1; c++) {
+                    swap(chains.get(c), chains.get(c + 1), swapRng);
+                }
             }
+        }
+
+        return chains;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} after which the chains of a <code>match</code> call stop iterating.
+     *
+     * @param context
+     *         the <code>MergeContext</code> containing the timeout
+     * @return the deadline or an empty <code>OptionalLong</code> if there is no timeout
+     */
+    private OptionalLong deadline(MergeContext context) {
+        long timeout = context.getCostModelTimeout();
+
+        if (timeout <= 0) {
+            return OptionalLong.empty();
+        }
+
+        return OptionalLong.of(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
 
-            LOG.fine("End of iteration " + i);
+    /**
+     * Adds the number of iterations the given chains performed and whether they were stopped early to the
+     * statistics of the current file merge scenario.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the current merge
+     * @param chains
+     *         the chains of the finished <code>match</code> call
+     */
+    private void storeStatistics(MergeContext context, List<Chain> chains) {
+
+        if (!context.hasStatistics()) {
+            return;
         }
 
-        LOG.fine(() -> "Matching ended after " + context.getCostModelIterations() + " iterations.");
+        MergeScenarioStatistics stats = context.getStatistics().getCurrentFileMergeScenarioStatistics();
 
-        return convert(lowest);
+        stats.incrementCounter(ITERATIONS_LABEL, chains.stream().mapToLong(chain -> chain.iterations).sum());
+
+        if (chains.stream().anyMatch(chain -> chain.timedOut)) {
+            stats.incrementCounter(TIMEOUTS_LABEL, 1);
+        } else if (chains.stream().allMatch(chain -> chain.converged)) {
+            stats.incrementCounter(CONVERGED_LABEL, 1);
+        }
+    }
+
+    /**
+     * Swaps the current matchings of the two chains with the probability given by the parallel tempering exchange
+     * criterion. A swap moves low-cost matchings from a chain with a higher temperature (lower beta) to one with a
+     * lower temperature.
+     *
+     * @param colder
+     *         the chain with the higher beta
+     * @param hotter
+     *         the chain with the lower beta
+     * @param rng
+     *         the PRNG to decide the swap with
+     */
+    private void swap(Chain colder, Chain hotter, RandomGenerator rng) {
+        double betaDiff = colder.parameters.beta - hotter.parameters.beta;
+        double costDiff = colder.mObjVal.matchingsCost - hotter.mObjVal.matchingsCost;
+        double logAcceptance = betaDiff * costDiff;
+
+        if (logAcceptance < 0 && !chance(rng, Math.exp(logAcceptance))) {
+            return;
+        }
+
+        LOG.finer(() -> "Swapping the matchings of two chains.");
+
+        CMMatchings<T> colderM = colder.m;
+        ObjectiveValue colderObjVal = colder.mObjVal;
+
+        colder.setCurrent(hotter.m, hotter.mObjVal);
+        hotter.setCurrent(colderM, colderObjVal);
+    }
+
+    /**
+     * A Markov chain of sets of matchings sampled using the Metropolis algorithm. Every chain has its own
+     * <code>CMParameters</code> (and therefore PRNG and caches) and its own <code>CMMatching</code>s, so multiple
+     * chains may iterate concurrently.
+     */
+    private final class Chain {
+
+        private final CMParameters<T> parameters;
+        private final CMMatchings<T> preFixed;
+
+        private CMMatchings<T> m;
+        private ObjectiveValue mObjVal;
+
+        private CMMatchings<T> lowest;
+        private float lowestCost;
+
+        private final OptionalLong deadline;
+
+        /**
+         * The lowest cost at the time of the last improvement by at least {@link CMParameters#minImprovement}.
+         */
+        private float referenceCost;
+        private int sinceImprovement;
+
+        private int iterations;
+        private boolean converged;
+        private boolean timedOut;
+
+        /**
+         * Constructs a new <code>Chain</code> starting from an initial set of matchings completing
+         * <code>preFixed</code>.
+         *
+         * @param parameters
+         *         the cost model parameters of this chain
+         * @param preFixed
+         *         the matchings between the left and right tree that are fixed
+         * @param deadline
+         *         the {@link System#nanoTime()} after which the chain stops iterating, may be empty
+         */
+        private Chain(CMParameters<T> parameters, CMMatchings<T> preFixed, OptionalLong deadline) {
+            this.parameters = parameters;
+            this.preFixed = preFixed;
+            this.deadline = deadline;
+            this.m = initialize(preFixed, parameters);
+            this.mObjVal = objective(m, null, parameters);
+            this.lowest = m;
+            this.lowestCost = mObjVal.matchingsCost;
+            this.referenceCost = lowestCost;
+        }
+
+        /**
+         * Returns whether this chain stopped iterating because its lowest cost converged or because the deadline
+         * passed.
+         *
+         * @return whether the chain stopped
+         */
+        private boolean isStopped() {
+            return converged || timedOut;
+        }
+
+        /**
+         * Performs the iterations <code>from</code> (inclusive) to <code>to</code> (exclusive) of this chain. The
+         * chain stops early if the lowest cost found did not improve by at least {@link CMParameters#minImprovement}
+         * for {@link CMParameters#patience} iterations or if the deadline passed.
+         *
+         * @param from
+         *         the number of the first iteration
+         * @param to
+         *         the number of the iteration to stop at
+         */
+        private void iterate(int from, int to) {
+
+            for (int i = from; i < to && !isStopped(); i++) {
+                CMMatchings<T> mHat = propose(m, preFixed, parameters);
+                AcceptanceProbability mHatAccProb = acceptanceProb(mObjVal, mHat, parameters);
+
+                if (chance(parameters.rng, mHatAccProb.acceptanceProbability)) {
+
+                    log(FINER, mHat, () -> "Accepting the matchings.");
+
+                    m = mHat;
+                    mObjVal = mHatAccProb.mHatObjectiveValue;
+                }
+
+                if (mHatAccProb.mHatObjectiveValue.matchingsCost < lowestCost) {
+
+                    lowest = mHat;
+                    lowestCost = mHatAccProb.mHatObjectiveValue.matchingsCost;
+
+                    float finalLowestCost = lowestCost;
+                    log(FINER, mHat, () -> "New lowest cost matchings with cost " + finalLowestCost + " found.");
+                }
+
+                float improvement = referenceCost - lowestCost;
+
+                if (improvement > 0 && improvement >= parameters.minImprovement * referenceCost) {
+                    referenceCost = lowestCost;
+                    sinceImprovement = 0;
+                } else {
+                    sinceImprovement++;
+                }
+
+                iterations++;
+                converged = parameters.patience > 0 && sinceImprovement >= parameters.patience;
+                timedOut = deadline.isPresent() && System.nanoTime() - deadline.getAsLong() >= 0;
+
+                LOG.fine("End of iteration " + i);
+            }
+        }
+
+        /**
+         * Replaces the current matchings of this chain with matchings (of the same trees) taken from another chain.
+         * The objective value is recomputed using the beta of this chain, the exact costs do not depend on it.
+         *
+         * @param matchings
+         *         the new current matchings
+         * @param objVal
+         *         the <code>ObjectiveValue</code> of <code>matchings</code> in the other chain
+         */
+        private void setCurrent(CMMatchings<T> matchings, ObjectiveValue objVal) {
+            CMMatchings<T> copy = new CMMatchings<>(matchings.size(), matchings.left, matchings.right);
+            matchings.forEach(match -> copy.add(new CMMatching<>(match.m, match.n)));
+
+            m = copy;
+            mObjVal = objective(m, objVal, parameters);
+        }
     }
 
     /**
@@ -1126,7 +1472,8 @@ private CMMatchings<T> initialize(CMMatchings<T> preFixed, CMParameters<T> param
 
     /**
      * Completes the given <code>fixedMatchings</code> to a set of matchings in which every artifact from the left
-     * and right tree is covered by exactly one matching.
+     * and right tree is covered by exactly one matching. The matchings added are chosen from the
+     * {@link CMParameters#candidates candidate edges}.
      *
      * @param fixedMatchings
      *         the fixed matchings to complete
@@ -1134,108 +1481,100 @@ private CMMatchings<T> initialize(CMMatchings<T> preFixed, CMParameters<T> param
      *         the cost model parameters
      * @return the completed set of matchings
      */
-    private CMMatchings<T> complete(CMMatchings<T> fixedMatchings, CMParameters<T> parameters) {
-        CMMatchings<T> current = completeBipartiteGraph(fixedMatchings.left, fixedMatchings.right, parameters);
+    CMMatchings<T> complete(CMMatchings<T> fixedMatchings, CMParameters<T> parameters) {
+        CMCandidates<T> candidates = parameters.candidates;
         CMMatchings<T> fixed = new CMMatchings<>(fixedMatchings, fixedMatchings.left, fixedMatchings.right);
+        CMMatchings<T> bounded = new CMMatchings<>(fixed.size(), fixed.left, fixed.right);
 
-        fixed.forEach(m -> prune(m, current));
+        BitSet matchedLeft = new BitSet();
+        BitSet matchedRight = new BitSet();
 
-        while (fixed.size() != current.size()) {
+        for (CMMatching<T> matching : fixed) {
+            bounded.add(new CMMatching<>(matching.m, matching.n));
+            candidates.prune(matching, matchedLeft, matchedRight);
+        }
 
-            boundCost(current, parameters);
-            current.sort(comparing(CMMatching::getCostBounds, BY_LOWER_UPPER));
+        List<CMMatching<T>> available = new ArrayList<>();
+
+        for (int edge : candidates.shuffledEdges(parameters.rng)) {
+
+            if (!candidates.isPruned(edge, matchedLeft, matchedRight)) {
+                available.add(candidates.matching(edge));
+            }
+        }
+
+        while (!available.isEmpty()) {
+            CMMatchings<T> current = new CMMatchings<>(bounded.size() + available.size(), fixed.left, fixed.right);
+            current.addAll(bounded);
+            current.addAll(available);
 
-            CMMatchings<T> available = new CMMatchings<>(current, current.left, current.right);
-            available.removeAll(fixed);
+            boundCost(current, parameters);
+            available.sort(comparing(CMMatching::getCostBounds, BY_LOWER_UPPER));
 
             int i;
             do {
                 i = parameters.assignDist.sample();
             } while (i >= available.size());
 
-            CMMatching<T> matching = available.get(i);
+            CMMatching<T> matching = available.remove(i);
 
             fixed.add(matching);
-            prune(matching, current);
+            bounded.add(matching);
+
+            candidates.prune(matching, matchedLeft, matchedRight);
+            available.removeIf(m -> candidates.isPruned(m, matchedLeft, matchedRight));
         }
 
         return fixed;
     }
 
     /**
-     * Removes the other matchings containing an artifact matched in <code>matching</code> from <code>g</code>.
-     *
-     * @param matching
-     *         the matching to prune for
-     * @param g
-     *         the matchings to prune from
-     */
-    private void prune(CMMatching<T> matching, CMMatchings<T> g) {
-
-        for (ListIterator<CMMatching<T>> it = g.listIterator(); it.hasNext();) {
-            CMMatching<T> current = it.next();
-            boolean neq = !matching.equals(current);
-
-            if (neq && ((matching.m != null && matching.m == current.m) || (matching.n != null && matching.n == current.n))) {
-                it.remove();
-            }
-        }
-    }
-
-    /**
-     * Returns the (randomly ordered) complete bipartite graph between the trees rooted in <code>left</code> and
-     * <code>right</code> with the addition of one no-match node (represented by <code>null</code>) each.
+     * Returns the value of the objective function.
      *
-     * @param left
-     *         the left root
-     * @param right
-     *         the right root
+     * @param matchings
+     *         the matchings to return the objective function value for
+     * @param previous
+     *         the <code>ObjectiveValue</code> of a set of matchings of the same trees whose exact costs are reused
+     *         where possible, may be <code>null</code>
      * @param parameters
      *         the cost model parameters
-     * @return the complete bipartite graph with its edges represented by <code>CMMatching</code>s
+     * @return the value of the objective function and the cost that was calculated as part of it
      */
-    private CMMatchings<T> completeBipartiteGraph(T left, T right, CMParameters<T> parameters) {
-        List<T> leftNodes = Artifacts.bfs(left);
-        List<T> rightNodes = Artifacts.bfs(right);
+    private ObjectiveValue objective(CMMatchings<T> matchings, ObjectiveValue previous, CMParameters<T> parameters) {
+        float cost = cost(matchings, previous != null ? previous.exactCosts : null, parameters);
 
-        // add the "No Match" node
-        leftNodes.add(null);
-        rightNodes.add(null);
+        assert previous == null || isRecomputedCost(matchings, cost, parameters) :
+                "The incremental cost " + cost + " differs from the recomputed cost.";
 
-        CMMatchings<T> bipartiteGraph = new CMMatchings<>(left, right);
+        double objVal = Math.exp(-(parameters.beta * cost));
 
-        for (T lNode : leftNodes) {
-            for (T rNode : rightNodes) {
+        Map<CMMatching<T>, Float> exactCosts = new HashMap<>();
+        matchings.forEach(m -> exactCosts.put(m, m.getExactCost()));
 
-                if (lNode != null && (rNode == null || lNode.categoryMatches(rNode))) {
-                    bipartiteGraph.add(new CMMatching<>(lNode, rNode));
-                } else if (rNode != null && (lNode == null || rNode.categoryMatches(lNode))) {
-                    bipartiteGraph.add(new CMMatching<>(lNode, rNode));
-                }
-            }
-        }
+        log(FINER, matchings, () -> "Cost of matchings is " + cost);
+        log(FINER, matchings, () -> "Objective function value for matchings is " + objVal);
 
-        Collections.shuffle(bipartiteGraph, parameters.rng);
-        return bipartiteGraph;
+        return new ObjectiveValue(objVal, cost, exactCosts);
     }
 
     /**
-     * Returns the value of the objective function.
+     * Returns whether the given <code>cost</code> of <code>matchings</code>, which was computed incrementally, equals
+     * (up to rounding errors) the cost computed from scratch for a copy of the matchings.
      *
      * @param matchings
-     *         the matchings to return the objective function value for
+     *         the matchings whose cost was computed incrementally
+     * @param cost
+     *         the incrementally computed cost
      * @param parameters
      *         the cost model parameters
-     * @return the value of the objective function and the cost that was calculated as part of it
+     * @return whether the costs are equal
      */
-    private ObjectiveValue objective(CMMatchings<T> matchings, CMParameters<T> parameters) {
-        float cost = cost(matchings, parameters);
-        double objVal = Math.exp(-(parameters.beta * cost));
-
-        log(FINER, matchings, () -> "Cost of matchings is " + cost);
-        log(FINER, matchings, () -> "Objective function value for matchings is " + objVal);
+    private boolean isRecomputedCost(CMMatchings<T> matchings, float cost, CMParameters<T> parameters) {
+        CMMatchings<T> copy = new CMMatchings<>(matchings.size(), matchings.left, matchings.right);
+        matchings.forEach(match -> copy.add(new CMMatching<>(match.m, match.n)));
 
-        return new ObjectiveValue(objVal, cost);
+        float recomputed = cost(copy, parameters);
+        return Math.abs(cost - recomputed) <= 1e-5f * Math.max(1, Math.abs(recomputed));
     }
 
     /**
@@ -1249,9 +1588,9 @@ private ObjectiveValue objective(CMMatchings<T> matchings, CMParameters<T> param
      *         the cost model parameters
      * @return the acceptance probability including the <code>ObjectiveValue</code> calculated for <code>mHat</code>
      */
-    private AcceptanceProbability acceptanceProb(double mObjectiveValue, CMMatchings<T> mHat, CMParameters<T> parameters) {
-        ObjectiveValue mHatObjectiveValue = objective(mHat, parameters);
-        double acceptanceProb = Math.min(1, mHatObjectiveValue.objValue / mObjectiveValue);
+    private AcceptanceProbability acceptanceProb(ObjectiveValue mObjectiveValue, CMMatchings<T> mHat, CMParameters<T> parameters) {
+        ObjectiveValue mHatObjectiveValue = objective(mHat, mObjectiveValue, parameters);
+        double acceptanceProb = Math.min(1, mHatObjectiveValue.objValue / mObjectiveValue.objValue);
 
         log(FINER, mHat, () -> "Acceptance probability for matchings is " + acceptanceProb);
 
@@ -23,24 +23,31 @@
  */
 package de.fosd.jdime.matcher.matching;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiFunction;
-import java.util.function.Function;
+import java.util.function.Predicate;
 
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.util.UnorderedTuple;
 
 /**
  * A <code>Set</code> of <code>Matching</code>s. Adds methods to retrieve specific elements of the <code>Set</code>
- * by their matched <code>Artifact</code>s.
+ * by their matched <code>Artifact</code>s. The <code>Matching</code>s are indexed by their pair of matched
+ * <code>Artifact</code>s and by their left and right <code>Artifact</code>s so that these retrievals do not have to
+ * scan the whole <code>Set</code>. The <code>lookup</code> methods return <code>null</code> instead of an
+ * <code>Optional</code> and are meant for the hot paths of the matchers.
  *
  * @param <T>
  *         the type of the <code>Artifact</code>s
@@ -49,7 +56,25 @@
 
     private static final long serialVersionUID = 1L;
 
-    private final UnorderedTuple<T, T> tuple = UnorderedTuple.of(null, null);
+    private transient Map<UnorderedTuple<T, T>, Matching<T>> byPair;
+    private transient Map<T, Matching<T>> byLeft;
+    private transient Map<T, Matching<T>> byRight;
+
+    /**
+     * Constructs a new empty <code>Matchings</code> instance.
+     */
+    public Matchings() {
+        initIndexes();
+    }
+
+    /**
+     * Initializes the (empty) indexes of this <code>Matchings</code> instance.
+     */
+    private void initIndexes() {
+        byPair = new HashMap<>();
+        byLeft = new IdentityHashMap<>();
+        byRight = new IdentityHashMap<>();
+    }
 
     /**
      * Creates a new <code>Matchings</code> instance containing a single <code>Matching</code> that matches
@@ -82,27 +107,7 @@ public static <T extends Artifact<T>> Matchings<T> of(T left, T right, int score
      * @return optionally the <code>Matching</code> matching the given <code>artifacts</code>
      */
     public Optional<Matching<T>> get(UnorderedTuple<T, T> artifacts) {
-        T left = artifacts.getX();
-        T right = artifacts.getY();
-
-        if (left.isChoice()) {
-
-            for (T variant : left.getVariants().values()) {
-                Optional<Matching<T>> m = get(variant, right);
-
-                if (m.isPresent()) {
-                    Matching<T> matching = m.get();
-                    Matching<T> variantMatching = new Matching<>(left, right, matching.getScore());
-                    variantMatching.setAlgorithm(matching.getAlgorithm());
-
-                    return Optional.of(variantMatching);
-                }
-            }
-
-            return Optional.empty();
-        }
-
-        return stream().filter(matching -> matching.getMatchedArtifacts().equals(artifacts)).findFirst();
+        return Optional.ofNullable(lookup(artifacts.getX(), artifacts.getY()));
     }
 
     /**
@@ -117,15 +122,39 @@ public Optional<Matching<T>> get(UnorderedTuple<T, T> artifacts) {
      * @return optionally the <code>Matching</code> matching the given <code>artifacts</code>
      */
     public Optional<Matching<T>> get(T left, T right) {
-        tuple.setX(left);
-        tuple.setY(right);
+        return Optional.ofNullable(lookup(left, right));
+    }
 
-        Optional<Matching<T>> matching = get(tuple);
+    /**
+     * Returns the <code>Matching</code> matching the given <code>Artifact</code>s or <code>null</code> if there is no
+     * such <code>Matching</code> in the <code>Set</code>. If <code>left</code> is a choice node then the first
+     * matching of a variant of <code>left</code> and <code>right</code> is returned.
+     *
+     * @param left
+     *         the left <code>Artifact</code> of the <code>Matching</code>
+     * @param right
+     *         the right <code>Artifact</code> of the <code>Matching</code>
+     * @return the <code>Matching</code> matching the given <code>Artifact</code>s or <code>null</code>
+     */
+    public Matching<T> lookup(T left, T right) {
+
+        if (left.isChoice()) {
+
+            for (T variant : left.getVariants().values()) {
+                Matching<T> matching = lookup(variant, right);
+
+                if (matching != null) {
+                    Matching<T> variantMatching = new Matching<>(left, right, matching.getScore());
+                    variantMatching.setAlgorithm(matching.getAlgorithm());
 
-        tuple.setX(null);
-        tuple.setY(null);
+                    return variantMatching;
+                }
+            }
+
+            return null;
+        }
 
-        return matching;
+        return byPair.get(UnorderedTuple.of(left, right));
     }
 
     /**
@@ -156,7 +185,7 @@ public Optional<Matching<T>> getAny(T artifact) {
      * @return optionally the first <code>Matching</code> containing <code>artifact</code>
      */
     public Optional<Matching<T>> getLeft(T artifact) {
-        return get(artifact, Matching::getLeft);
+        return Optional.ofNullable(byLeft.get(artifact));
     }
 
     /**
@@ -168,19 +197,31 @@ public Optional<Matching<T>> getLeft(T artifact) {
      * @return optionally the first <code>Matching</code> containing <code>artifact</code>
      */
     public Optional<Matching<T>> getRight(T artifact) {
-        return get(artifact, Matching::getRight);
+        return Optional.ofNullable(byRight.get(artifact));
     }
 
     /**
-     * Returns the first matching whose result of the application of <code>getArtifact</code> is equal to
-     * <code>artifact</code>.
+     * Returns the first matching having the given <code>artifact</code> as its left component or <code>null</code> if
+     * there is no such matching.
      *
      * @param artifact
      *         the <code>Artifact</code> to search for
-     * @return optionally the first <code>Matching</code> containing <code>artifact</code>
+     * @return the first <code>Matching</code> containing <code>artifact</code> or <code>null</code>
+     */
+    public Matching<T> lookupLeft(T artifact) {
+        return byLeft.get(artifact);
+    }
+
+    /**
+     * Returns the first matching having the given <code>artifact</code> as its right component or <code>null</code> if
+     * there is no such matching.
+     *
+     * @param artifact
+     *         the <code>Artifact</code> to search for
+     * @return the first <code>Matching</code> containing <code>artifact</code> or <code>null</code>
      */
-    private Optional<Matching<T>> get(T artifact, Function<Matching<T>, T> getArtifact) {
-        return stream().filter(m -> getArtifact.apply(m) == artifact).findFirst();
+    public Matching<T> lookupRight(T artifact) {
+        return byRight.get(artifact);
     }
 
     /**
@@ -207,15 +248,146 @@ public Optional<Integer> getScore(UnorderedTuple<T, T> artifacts) {
      * @return optionally the matching score for the given <code>artifacts</code>
      */
     public Optional<Integer> getScore(T left, T right) {
-        tuple.setX(left);
-        tuple.setY(right);
+        return get(left, right).map(Matching::getScore);
+    }
+
+    @Override
+    public boolean add(Matching<T> matching) {
+
+        if (!super.add(matching)) {
+            return false;
+        }
+
+        index(matching);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+
+        if (!super.remove(o)) {
+            return false;
+        }
+
+        unindex((Matching<T>) o);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        initIndexes();
+    }
+
+    @Override
+    public Iterator<Matching<T>> iterator() {
+        Iterator<Matching<T>> it = super.iterator();
+
+        return new Iterator<Matching<T>>() {
+
+            private Matching<T> last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Matching<T> next() {
+                last = it.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+                unindex(last);
+            }
+        };
+    }
+
+    /**
+     * Adds the given <code>Matching</code> (that was just added to the <code>Set</code>) to the indexes. Keys that
+     * are already indexed keep their <code>Matching</code>.
+     *
+     * @param matching
+     *         the added <code>Matching</code>
+     */
+    private void index(Matching<T> matching) {
+        byPair.putIfAbsent(matching.getMatchedArtifacts(), matching);
+        byLeft.putIfAbsent(matching.getLeft(), matching);
+        byRight.putIfAbsent(matching.getRight(), matching);
+    }
+
+    /**
+     * Removes the given <code>Matching</code> (that was just removed from the <code>Set</code>) from the indexes. If
+     * it was the indexed <code>Matching</code> for one of its keys, the key is re-indexed using another
+     * <code>Matching</code> from the <code>Set</code> if there is one.
+     *
+     * @param matching
+     *         the removed <code>Matching</code>
+     */
+    private void unindex(Matching<T> matching) {
+        UnorderedTuple<T, T> pair = matching.getMatchedArtifacts();
+        T left = matching.getLeft();
+        T right = matching.getRight();
+
+        if (matching.equals(byPair.get(pair))) {
+            byPair.remove(pair);
+            reindex(byPair, pair, m -> m.getMatchedArtifacts().equals(pair));
+        }
+
+        if (matching.equals(byLeft.get(left))) {
+            byLeft.remove(left);
+            reindex(byLeft, left, m -> m.getLeft() == left);
+        }
+
+        if (matching.equals(byRight.get(right))) {
+            byRight.remove(right);
+            reindex(byRight, right, m -> m.getRight() == right);
+        }
+    }
+
+    /**
+     * Searches the <code>Set</code> for a <code>Matching</code> fulfilling <code>hasKey</code> and stores it under
+     * <code>key</code> in the given <code>index</code>.
+     *
+     * @param index
+     *         the index to update
+     * @param key
+     *         the key to update
+     * @param hasKey
+     *         whether a <code>Matching</code> is to be indexed under <code>key</code>
+     * @param <K>
+     *         the type of the keys of the index
+     */
+    private <K> void reindex(Map<K, Matching<T>> index, K key, Predicate<Matching<T>> hasKey) {
+        for (Iterator<Matching<T>> it = super.iterator(); it.hasNext(); ) {
+            Matching<T> m = it.next();
 
-        Optional<Integer> matching = getScore(tuple);
+            if (hasKey.test(m)) {
+                index.put(key, m);
+                return;
+            }
+        }
+    }
 
-        tuple.setX(null);
-        tuple.setY(null);
+    @Override
+    @SuppressWarnings("unchecked")
+    public Matchings<T> clone() {
+        Matchings<T> clone = (Matchings<T>) super.clone();
+
+        clone.initIndexes();
+        super.iterator().forEachRemaining(clone::index);
+
+        return clone;
+    }
 
-        return matching;
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initIndexes();
+        super.iterator().forEachRemaining(this::index);
     }
 
     /**
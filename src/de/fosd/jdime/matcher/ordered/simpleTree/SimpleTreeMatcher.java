@@ -29,6 +29,8 @@
 
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.matcher.ChildMatchingsMatrix;
+import de.fosd.jdime.matcher.IdenticalChildren;
 import de.fosd.jdime.matcher.MatcherInterface;
 import de.fosd.jdime.matcher.matching.Matching;
 import de.fosd.jdime.matcher.matching.Matchings;
@@ -65,11 +67,47 @@ public SimpleTreeMatcher(MatcherInterface<T> matcher) {
     public Matchings<T> match(MergeContext context, T left, T right) {
         int rootMatching = left.matches(right) ? 1 : 0;
 
-        // number of first-level subtrees of t1
-        int m = left.getNumChildren();
+        List<T> leftChildren = left.getChildren();
+        List<T> rightChildren = right.getChildren();
 
-        // number of first-level subtrees of t2
-        int n = right.getNumChildren();
+        /*
+         * Identical children in the common prefix and suffix of the child lists are matched directly. The DP below
+         * then only has to align the remaining children.
+         */
+        int prefix = 0;
+        int suffix = 0;
+
+        if (context.isPairIdenticalChildren()) {
+            prefix = IdenticalChildren.commonPrefix(leftChildren, rightChildren, context.getTreeHashMode());
+            suffix = IdenticalChildren.commonSuffix(leftChildren, rightChildren, prefix, context.getTreeHashMode());
+        }
+
+        List<Matchings<T>> children = new ArrayList<>();
+        int identicalScore = 0;
+
+        for (int k = 0; k < prefix + suffix; k++) {
+            int leftIndex = k < prefix ? k : leftChildren.size() - 1 - (k - prefix);
+            int rightIndex = k < prefix ? k : rightChildren.size() - 1 - (k - prefix);
+
+            T leftChild = leftChildren.get(leftIndex);
+            T rightChild = rightChildren.get(rightIndex);
+            Matchings<T> w = matcher.match(context, leftChild, rightChild);
+            int score = w.lookup(leftChild, rightChild).getScore();
+
+            if (score > 0) {
+                children.add(w);
+                identicalScore += score;
+            }
+        }
+
+        List<T> leftRest = leftChildren.subList(prefix, leftChildren.size() - suffix);
+        List<T> rightRest = rightChildren.subList(prefix, rightChildren.size() - suffix);
+
+        // number of remaining first-level subtrees of t1
+        int m = leftRest.size();
+
+        // number of remaining first-level subtrees of t2
+        int n = rightRest.size();
 
         int[][] matrixM = new int[m + 1][n + 1];
 
@@ -86,13 +124,15 @@ public Matchings<T> match(MergeContext context, T left, T right) {
             matrixM[0][j] = 0;
         }
 
+        Matchings<T>[][] childMatchings = ChildMatchingsMatrix.compute(context, matcher, leftRest, rightRest);
+
         for (int i = 1; i <= m; i++) {
             for (int j = 1; j <= n; j++) {
-                T leftChild = left.getChild(i - 1);
-                T rightChild = right.getChild(j - 1);
+                T leftChild = leftRest.get(i - 1);
+                T rightChild = rightRest.get(j - 1);
 
-                Matchings<T> w = matcher.match(context, leftChild, rightChild);
-                Matching<T> matching = w.get(leftChild, rightChild).get();
+                Matchings<T> w = childMatchings[i - 1][j - 1];
+                Matching<T> matching = w.lookup(leftChild, rightChild);
 
                 if (matrixM[i][j - 1] > matrixM[i - 1][j]) {
                     if (matrixM[i][j - 1] > matrixM[i - 1][j - 1] + matching.getScore()) {
@@ -116,7 +156,6 @@ public Matchings<T> match(MergeContext context, T left, T right) {
 
         int i = m;
         int j = n;
-        List<Matchings<T>> children = new ArrayList<>();
 
         while (i >= 1 && j >= 1) {
             switch (matrixT[i][j].getDirection()) {
@@ -139,7 +178,7 @@ public Matchings<T> match(MergeContext context, T left, T right) {
         }
 
         // total matching score for these trees is the score of the matched children + the matching of the root nodes
-        Matching<T> matching = new Matching<>(left, right, matrixM[m][n] + rootMatching);
+        Matching<T> matching = new Matching<>(left, right, matrixM[m][n] + identicalScore + rootMatching);
         matching.setAlgorithm(ID);
 
         Matchings<T> matchings = new Matchings<>();
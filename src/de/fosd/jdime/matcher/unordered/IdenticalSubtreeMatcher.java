@@ -24,13 +24,12 @@
 package de.fosd.jdime.matcher.unordered;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.artifact.Artifacts;
+import de.fosd.jdime.artifact.TreeHash;
 import de.fosd.jdime.config.merge.MergeContext;
 import de.fosd.jdime.matcher.MatcherInterface;
 import de.fosd.jdime.matcher.matching.Matching;
@@ -38,7 +37,7 @@
 
 /**
  * A {@link MatcherInterface matcher} that constructs {@link Matchings} between subtrees that match according to their
- * {@link Artifact#getTreeHash()} method.
+ * {@link Artifact#getTreeHash(TreeHash.Mode)} method.
  *
  * @param <T>
  *         the type of the {@link Artifact Artifacts} being matched
@@ -64,11 +63,25 @@ public IdenticalSubtreeMatcher() {
      *         the root of the left tree
      * @param rightRoot
      *         the root of the right tree
+     * @param mode
+     *         the hash function to use
      */
-    public void matchTrees(T leftRoot, T rightRoot) {
-        Map<String, T> leftUnique = uniqueHashes(leftRoot);
-        Map<String, T> rightUnique = uniqueHashes(rightRoot);
-        matchSubtree(leftUnique.keySet(), leftRoot, rightUnique);
+    public void matchTrees(T leftRoot, T rightRoot, TreeHash.Mode mode) {
+        matchTrees(new TreeHashIndex<>(leftRoot, mode), new TreeHashIndex<>(rightRoot, mode));
+    }
+
+    /**
+     * Stores all matchings resulting from unique matching tree hashes in the indexed left and right trees in this
+     * {@link IdenticalSubtreeMatcher}. Both indices must use the same hash function.
+     *
+     * @param leftIndex
+     *         the {@link TreeHashIndex} of the left tree
+     * @param rightIndex
+     *         the {@link TreeHashIndex} of the right tree
+     * @see #matchTrees(Artifact, Artifact, TreeHash.Mode)
+     */
+    public void matchTrees(TreeHashIndex<T> leftIndex, TreeHashIndex<T> rightIndex) {
+        matchSubtree(leftIndex, leftIndex.getRoot(), rightIndex);
     }
 
     /**
@@ -77,23 +90,22 @@ public void matchTrees(T leftRoot, T rightRoot) {
      * matching right tree to {@link #matches}. Otherwise all other nodes in the {@code left} tree are examined in DFS
      * order.
      *
-     * @param leftUnique
-     *         the unique hashes in the left tree
+     * @param leftIndex
+     *         the index of the left tree
      * @param left
      *         the node from the left tree to be examined
-     * @param rightUnique
-     *         the unique hashes in the right tree and their corresponding nodes
+     * @param rightIndex
+     *         the index of the right tree
      */
-    private void matchSubtree(Set<String> leftUnique, T left, Map<String, T> rightUnique) {
-        String treeHash = left.getTreeHash();
+    private void matchSubtree(TreeHashIndex<T> leftIndex, T left, TreeHashIndex<T> rightIndex) {
+        TreeHash treeHash = left.getTreeHash(leftIndex.getMode());
+        T right = leftIndex.isUnique(treeHash) ? rightIndex.get(treeHash) : null;
 
-        if (!leftUnique.contains(treeHash) || !rightUnique.containsKey(treeHash)) {
-            left.getChildren().forEach(c -> matchSubtree(leftUnique, c, rightUnique));
+        if (right == null) {
+            left.getChildren().forEach(c -> matchSubtree(leftIndex, c, rightIndex));
             return;
         }
 
-        T right = rightUnique.get(treeHash);
-
         Iterator<T> leftIt = Artifacts.dfsIterable(left).iterator();
         Iterator<T> rightIt = Artifacts.dfsIterable(right).iterator();
 
@@ -102,29 +114,6 @@ private void matchSubtree(Set<String> leftUnique, T left, Map<String, T> rightUn
         }
     }
 
-    /**
-     * Returns the subtree hashes that are unique in the given tree.
-     *
-     * @param treeRoot
-     *         the root of the tree to examine
-     * @return the unique hashes in the given tree and their corresponding nodes
-     */
-    private Map<String, T> uniqueHashes(T treeRoot) {
-        Map<String, T> hashes = new HashMap<>();
-        Set<String> notUnique = new HashSet<>();
-
-        Artifacts.dfsStream(treeRoot).forEach(artifact -> {
-            String treeHash = artifact.getTreeHash();
-
-            if (hashes.put(treeHash, artifact) != null) {
-                notUnique.add(treeHash);
-            }
-        });
-
-        notUnique.forEach(hashes::remove);
-        return hashes;
-    }
-
     /**
      * Returns whether this {@link IdenticalSubtreeMatcher} has matched the {@link Artifact artifacts} {@code left} and
      * {@code right} (and therefore their whole subtrees.
@@ -133,7 +122,7 @@ private Map<String, T> uniqueHashes(T treeRoot) {
      *         the left {@link Artifact}
      * @param right
      *         the right {@link Artifact}
-     * @return true, iff a previous call to {@link #matchTrees(Artifact, Artifact)} resulted in matching {@code left}
+     * @return true, iff a previous call to {@link #matchTrees(Artifact, Artifact, TreeHash.Mode)} resulted in matching {@code left}
      * and {@code right}
      */
     public boolean hasMatched(T left, T right) {
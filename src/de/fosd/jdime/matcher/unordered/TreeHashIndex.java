@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher.unordered;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.artifact.Artifacts;
+import de.fosd.jdime.artifact.TreeHash;
+
+/**
+ * An immutable index of the {@link Artifact#getTreeHash(TreeHash.Mode) tree hashes} that occur exactly once in a tree of
+ * {@link Artifact Artifacts}. Constructing the index computes (and thereby caches) the tree hashes of all nodes in
+ * the tree. The index may then be shared by all {@link IdenticalSubtreeMatcher IdenticalSubtreeMatchers} matching
+ * the tree against other trees.
+ *
+ * @param <T>
+ *         the type of the <code>Artifact</code>s
+ */
+public final class TreeHashIndex<T extends Artifact<T>> {
+
+    private final T root;
+    private final TreeHash.Mode mode;
+    private final Map<TreeHash, T> unique;
+
+    /**
+     * Constructs a new <code>TreeHashIndex</code> for the tree rooted in <code>root</code>.
+     *
+     * @param root
+     *         the root of the tree to index
+     * @param mode
+     *         the hash function to use
+     */
+    public TreeHashIndex(T root, TreeHash.Mode mode) {
+        Map<TreeHash, T> hashes = new HashMap<>();
+        Set<TreeHash> notUnique = new HashSet<>();
+
+        Artifacts.dfsStream(root).forEach(artifact -> {
+            TreeHash treeHash = artifact.getTreeHash(mode);
+
+            if (hashes.put(treeHash, artifact) != null) {
+                notUnique.add(treeHash);
+            }
+        });
+
+        notUnique.forEach(hashes::remove);
+
+        this.root = root;
+        this.mode = mode;
+        this.unique = Collections.unmodifiableMap(hashes);
+    }
+
+    /**
+     * Returns the root of the indexed tree.
+     *
+     * @return the root <code>Artifact</code>
+     */
+    public T getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the hash function used for the indexed tree hashes.
+     *
+     * @return the <code>Mode</code> of the hashes
+     */
+    public TreeHash.Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns whether the given <code>treeHash</code> occurs exactly once in the indexed tree.
+     *
+     * @param treeHash
+     *         the <code>TreeHash</code> to look up
+     * @return true iff exactly one node in the tree has the given <code>treeHash</code>
+     */
+    public boolean isUnique(TreeHash treeHash) {
+        return unique.containsKey(treeHash);
+    }
+
+    /**
+     * Returns the node with the given unique <code>treeHash</code>.
+     *
+     * @param treeHash
+     *         the <code>TreeHash</code> to look up
+     * @return the node or <code>null</code> if <code>treeHash</code> does not occur exactly once in the tree
+     */
+    public T get(TreeHash treeHash) {
+        return unique.get(treeHash);
+    }
+}
@@ -69,7 +69,7 @@ public final Matchings<T> match(final MergeContext context, final T left, final
 
         if (left.getNumChildren() == 0 || right.getNumChildren() == 0) {
             Matchings<T> m = Matchings.of(left, right, rootMatching);
-            m.get(left, right).get().setAlgorithm(ID);
+            m.lookup(left, right).setAlgorithm(ID);
 
             return m;
         }
@@ -104,7 +104,7 @@ public final Matchings<T> match(final MergeContext context, final T left, final
                 }
             } else if (c == 0) {
                 Matchings<T> childMatching = matcher.match(context, leftChild, rightChild);
-                Matching<T> matching = childMatching.get(leftChild, rightChild).get();
+                Matching<T> matching = childMatching.lookup(leftChild, rightChild);
 
                 childrenMatchings.add(childMatching);
                 sum += matching.getScore();
@@ -119,7 +119,7 @@ public final Matchings<T> match(final MergeContext context, final T left, final
         }
 
         Matchings<T> result = Matchings.of(left, right, sum + rootMatching);
-        result.get(left, right).get().setAlgorithm(ID);
+        result.lookup(left, right).setAlgorithm(ID);
         result.addAllMatchings(childrenMatchings);
 
         return result;
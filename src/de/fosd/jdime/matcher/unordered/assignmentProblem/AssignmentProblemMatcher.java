@@ -24,9 +24,14 @@
 package de.fosd.jdime.matcher.unordered.assignmentProblem;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.matcher.ChildMatchingsMatrix;
+import de.fosd.jdime.matcher.IdenticalChildren;
 import de.fosd.jdime.matcher.MatcherInterface;
 import de.fosd.jdime.matcher.matching.Matching;
 import de.fosd.jdime.matcher.matching.Matchings;
@@ -72,34 +77,88 @@ public final Matchings<T> match(final MergeContext context, final T left, final
 
         if (m == 0 || n == 0) {
             Matchings<T> matchings = Matchings.of(left, right, rootMatching);
-            matchings.get(left, right).get().setAlgorithm(ID);
+            matchings.lookup(left, right).setAlgorithm(ID);
 
             return matchings;
         }
 
-        @SuppressWarnings("unchecked")
-        Tuple<Integer, Matchings<T>>[][] matchings = (Tuple<Integer, Matchings<T>>[][]) Array.newInstance(Tuple.class, m, n);
+        /*
+         * Children that are identical to exactly one child on the other side are paired directly. Only the remaining
+         * children are matched pairwise and passed to the assignment problem solver.
+         */
+        List<T> leftChildren = left.getChildren();
+        List<T> rightChildren = right.getChildren();
+        int[] identical;
+
+        if (context.isPairIdenticalChildren()) {
+            identical = IdenticalChildren.uniquePairs(leftChildren, rightChildren, context.getTreeHashMode());
+        } else {
+            identical = new int[m];
+            Arrays.fill(identical, -1);
+        }
+        boolean[] rightPaired = new boolean[n];
+
+        List<Matchings<T>> identicalMatchings = new ArrayList<>();
+        int identicalScore = 0;
+
+        List<T> leftRest = new ArrayList<>(m);
+        List<T> rightRest = new ArrayList<>(n);
 
         for (int i = 0; i < m; i++) {
-            for (int j = 0; j < n; j++) {
-                matchings[i][j] = Tuple.of(0, new Matchings<>());
+            int j = identical[i];
+
+            if (j < 0) {
+                leftRest.add(leftChildren.get(i));
+                continue;
+            }
+
+            rightPaired[j] = true;
+
+            T leftChild = leftChildren.get(i);
+            T rightChild = rightChildren.get(j);
+            Matchings<T> w = matcher.match(context, leftChild, rightChild);
+            int score = w.lookup(leftChild, rightChild).getScore();
+
+            if (score > 0) {
+                identicalMatchings.add(w);
+                identicalScore += score;
             }
         }
 
-        T childT1;
-        T childT2;
+        for (int j = 0; j < n; j++) {
+            if (!rightPaired[j]) {
+                rightRest.add(rightChildren.get(j));
+            }
+        }
 
-        for (int i = 0; i < m; i++) {
-            childT1 = left.getChild(i);
-            for (int j = 0; j < n; j++) {
-                childT2 = right.getChild(j);
-                Matchings<T> w = matcher.match(context, childT1, childT2);
-                Matching<T> matching = w.get(childT1, childT2).get();
-                matchings[i][j] = Tuple.of(matching.getScore(), w);
+        Matchings<T> result;
+
+        if (leftRest.isEmpty() || rightRest.isEmpty()) {
+            result = Matchings.of(left, right, rootMatching + identicalScore);
+            result.lookup(left, right).setAlgorithm(ID);
+        } else {
+            Matchings<T>[][] childMatchings = ChildMatchingsMatrix.compute(context, matcher, leftRest, rightRest);
+
+            @SuppressWarnings("unchecked")
+            Tuple<Integer, Matchings<T>>[][] matchings = (Tuple<Integer, Matchings<T>>[][]) Array.newInstance(Tuple.class, leftRest.size(), rightRest.size());
+
+            for (int i = 0; i < leftRest.size(); i++) {
+                T childT1 = leftRest.get(i);
+
+                for (int j = 0; j < rightRest.size(); j++) {
+                    T childT2 = rightRest.get(j);
+                    Matchings<T> w = childMatchings[i][j];
+                    Matching<T> matching = w.lookup(childT1, childT2);
+                    matchings[i][j] = Tuple.of(matching.getScore(), w);
+                }
             }
+
+            // the score of the identical children is passed as part of the root score to be included in the result
+            result = solveAssignmentProblem(left, right, matchings, rootMatching + identicalScore);
         }
 
-        return solveAssignmentProblem(left, right, matchings, rootMatching);
+        result.addAllMatchings(identicalMatchings);
+        return result;
     }
 
     /**
@@ -116,4 +175,51 @@ public final Matchings<T> match(final MergeContext context, final T left, final
      */
     protected abstract Matchings<T> solveAssignmentProblem(T left, T right, Tuple<Integer, Matchings<T>>[][] childrenMatching, int rootMatching);
 
+    /**
+     * Constructs the <code>Matchings</code> resulting from the given solution of the assignment problem. The
+     * <code>Matchings</code> of all assigned child pairs with a positive score are included.
+     *
+     * @param left
+     *            left artifact
+     * @param right
+     *            right artifact
+     * @param childrenMatching
+     *            matrix of matchings
+     * @param assignment
+     *            for every left child the index of the assigned right child or a negative value if it is unassigned
+     * @param rootMatching
+     *            the score of matching the root nodes
+     * @param algorithm
+     *            the name of the algorithm to store in the <code>Matching</code> of the root nodes
+     * @return matching of root nodes
+     */
+    protected Matchings<T> buildMatchings(T left, T right, Tuple<Integer, Matchings<T>>[][] childrenMatching,
+                                          int[] assignment, int rootMatching, String algorithm) {
+        List<Matchings<T>> children = new ArrayList<>();
+        int score = 0;
+
+        for (int i = 0; i < assignment.length; i++) {
+            int j = assignment[i];
+
+            if (j < 0)
+                continue;
+
+            Tuple<Integer, Matchings<T>> curMatching = childrenMatching[i][j];
+
+            if (curMatching.x > 0) {
+                children.add(curMatching.y);
+                score += curMatching.x;
+            }
+        }
+
+        Matching<T> matching = new Matching<>(left, right, score + rootMatching);
+        matching.setAlgorithm(algorithm);
+
+        Matchings<T> result = new Matchings<>();
+        result.add(matching);
+        result.addAllMatchings(children);
+
+        return result;
+    }
+
 }
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher.unordered.assignmentProblem;
+
+/**
+ * The algorithms available for solving the assignment problems arising when matching unordered children.
+ */
+public enum AssignmentSolver {
+
+    /**
+     * Use the {@link HungarianMatcher}. This is the default.
+     */
+    HUNGARIAN,
+
+    /**
+     * Use the {@link ShortestAugmentingPathMatcher}. Faster for large numbers of children, but may choose a different
+     * one of several optimal assignments than the {@link HungarianMatcher}.
+     */
+    SHORTEST_AUGMENTING_PATH
+}
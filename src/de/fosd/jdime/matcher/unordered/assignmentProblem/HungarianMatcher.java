@@ -23,12 +23,8 @@
  */
 package de.fosd.jdime.matcher.unordered.assignmentProblem;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.matcher.MatcherInterface;
-import de.fosd.jdime.matcher.matching.Matching;
 import de.fosd.jdime.matcher.matching.Matchings;
 import de.fosd.jdime.util.Tuple;
 
@@ -91,31 +87,6 @@ protected Matchings<T> solveAssignmentProblem(T left, T right, Tuple<Integer, Ma
         HungarianAlgorithm alg = new HungarianAlgorithm(matrix);
         int[] bestMatches = alg.execute();
 
-        /* Build a list containing the relevant matches. */
-        List<Matchings<T>> children = new ArrayList<>();
-        int score = 0;
-
-        for (int i = 0; i < bestMatches.length; i++) {
-            int j = bestMatches[i];
-
-            if (j < 0)
-                continue;
-
-            Tuple<Integer, Matchings<T>> curMatching = childrenMatching[i][j];
-
-            if (curMatching.x > 0) {
-                children.add(curMatching.y);
-                score += curMatching.x;
-            }
-        }
-
-        Matching<T> matching = new Matching<>(left, right, score + rootMatching);
-        matching.setAlgorithm(ID);
-
-        Matchings<T> result = new Matchings<>();
-        result.add(matching);
-        result.addAllMatchings(children);
-
-        return result;
+        return buildMatchings(left, right, childrenMatching, bestMatches, rootMatching, ID);
     }
 }
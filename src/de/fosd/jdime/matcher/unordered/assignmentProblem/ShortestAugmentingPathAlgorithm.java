@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher.unordered.assignmentProblem;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A solver for the (rectangular) linear assignment problem using the shortest augmenting path formulation of the
+ * Hungarian algorithm. Rows are assigned one after another along shortest augmenting paths while dual variables for
+ * rows and columns are maintained, which results in a worst case runtime of O(r^2 * c) for r rows and c columns
+ * (r &lt;= c). Rectangular matrices are handled without padding them to a square one.
+ * <p>
+ * All working memory is held in per-thread buffers that are reused between invocations.
+ */
+final class ShortestAugmentingPathAlgorithm {
+
+    private static final int INF = Integer.MAX_VALUE;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * The per-thread working memory of the algorithm. Arrays are only ever grown.
+     */
+    private static final class Buffers {
+
+        private int[] cost = new int[0];
+        private int[] u = new int[0];
+        private int[] v = new int[0];
+        private int[] p = new int[0];
+        private int[] way = new int[0];
+        private int[] minV = new int[0];
+        private boolean[] used = new boolean[0];
+
+        /**
+         * Ensures that the buffers are large enough for a problem of the given dimensions (with
+         * <code>rows &lt;= cols</code>).
+         *
+         * @param rows
+         *         the number of rows
+         * @param cols
+         *         the number of columns
+         */
+        private void ensureCapacity(int rows, int cols) {
+
+            if (cost.length < rows * cols) {
+                cost = new int[rows * cols];
+            }
+
+            if (u.length < rows + 1) {
+                u = new int[rows + 1];
+            }
+
+            if (v.length < cols + 1) {
+                v = new int[cols + 1];
+                p = new int[cols + 1];
+                way = new int[cols + 1];
+                minV = new int[cols + 1];
+                used = new boolean[cols + 1];
+            }
+        }
+    }
+
+    /**
+     * Utility class.
+     */
+    private ShortestAugmentingPathAlgorithm() {}
+
+    /**
+     * Finds an assignment of rows to columns that maximizes the sum of the scores of the assigned cells. If there
+     * are fewer rows than columns every row is assigned, otherwise every column is assigned.
+     *
+     * @param rows
+     *         the number of rows
+     * @param cols
+     *         the number of columns
+     * @param score
+     *         supplies the (non-negative) score of the cell at the given row and column
+     * @return an array containing for every row the index of the assigned column or -1 if the row is unassigned
+     */
+    static int[] maximize(int rows, int cols, IntBinaryOperator score) {
+        int[] assignment = new int[rows];
+        Arrays.fill(assignment, -1);
+
+        if (rows == 0 || cols == 0) {
+            return assignment;
+        }
+
+        boolean transposed = rows > cols;
+        int n = transposed ? cols : rows;
+        int m = transposed ? rows : cols;
+
+        Buffers b = BUFFERS.get();
+        b.ensureCapacity(n, m);
+
+        int[] cost = b.cost;
+
+        // Maximizing the score is equivalent to minimizing its negation since all n rows will be assigned.
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                cost[i * m + j] = -(transposed ? score.applyAsInt(j, i) : score.applyAsInt(i, j));
+            }
+        }
+
+        int[] u = b.u;
+        int[] v = b.v;
+        int[] p = b.p;
+        int[] way = b.way;
+        int[] minV = b.minV;
+        boolean[] used = b.used;
+
+        Arrays.fill(u, 0, n + 1, 0);
+        Arrays.fill(v, 0, m + 1, 0);
+        Arrays.fill(p, 0, m + 1, 0);
+        Arrays.fill(way, 0, m + 1, 0);
+
+        // Rows and columns are 1-based below, column 0 is the virtual start of every augmenting path.
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+
+            Arrays.fill(minV, 0, m + 1, INF);
+            Arrays.fill(used, 0, m + 1, false);
+
+            do {
+                used[j0] = true;
+
+                int i0 = p[j0];
+                int rowOffset = (i0 - 1) * m - 1;
+                int delta = INF;
+                int j1 = 0;
+
+                for (int j = 1; j <= m; j++) {
+
+                    if (!used[j]) {
+                        int cur = cost[rowOffset + j] - u[i0] - v[j];
+
+                        if (cur < minV[j]) {
+                            minV[j] = cur;
+                            way[j] = j0;
+                        }
+
+                        if (minV[j] < delta) {
+                            delta = minV[j];
+                            j1 = j;
+                        }
+                    }
+                }
+
+                for (int j = 0; j <= m; j++) {
+
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minV[j] -= delta;
+                    }
+                }
+
+                j0 = j1;
+            } while (p[j0] != 0);
+
+            // augment along the shortest path found
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        for (int j = 1; j <= m; j++) {
+
+            if (p[j] != 0) {
+
+                if (transposed) {
+                    assignment[j - 1] = p[j] - 1;
+                } else {
+                    assignment[p[j] - 1] = j - 1;
+                }
+            }
+        }
+
+        return assignment;
+    }
+}
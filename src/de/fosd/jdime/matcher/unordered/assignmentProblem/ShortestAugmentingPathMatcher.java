@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher.unordered.assignmentProblem;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.matcher.MatcherInterface;
+import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.util.Tuple;
+
+/**
+ * This unordered matcher uses the {@link ShortestAugmentingPathAlgorithm} to solve the assignment problem. Unlike the
+ * {@link HungarianMatcher} it works on the scores directly and does not pad rectangular score matrices.
+ *
+ * @param <T>
+ *         type of artifact
+ */
+public class ShortestAugmentingPathMatcher<T extends Artifact<T>> extends AssignmentProblemMatcher<T> {
+
+    private static final String ID = ShortestAugmentingPathMatcher.class.getSimpleName();
+
+    /**
+     * Constructs a new <code>ShortestAugmentingPathMatcher</code> using the given <code>matcher</code> for recursive
+     * calls.
+     *
+     * @param matcher
+     *         the parent <code>MatcherInterface</code>
+     */
+    public ShortestAugmentingPathMatcher(MatcherInterface<T> matcher) {
+        super(matcher);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Matchings<T> solveAssignmentProblem(T left, T right, Tuple<Integer, Matchings<T>>[][] childrenMatching, int rootMatching) {
+        int m = childrenMatching.length;
+        int n = childrenMatching[0].length;
+        int[] bestMatches = ShortestAugmentingPathAlgorithm.maximize(m, n, (i, j) -> childrenMatching[i][j].x);
+
+        return buildMatchings(left, right, childrenMatching, bestMatches, rootMatching, ID);
+    }
+}
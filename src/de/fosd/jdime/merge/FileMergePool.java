@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.merge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import de.fosd.jdime.artifact.ast.ExtendJ;
+import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.execption.AbortException;
+import de.fosd.jdime.operations.MergeOperation;
+
+/**
+ * A bounded pool of worker threads merging the files contained in the input directories of a merge. While the
+ * directory structure is merged on the calling thread, every <code>MergeOperation</code> on two or more files is
+ * handed to this pool (see {@link MergeOperation#apply(MergeContext)}). The target <code>FileArtifact</code> of such
+ * an operation is already part of the target tree when the operation is submitted, so the order of the output is
+ * determined by the directory merge and does not depend on the order in which the workers finish.
+ * <p>
+ * The workers share the static state of ExtendJ. All parsing, matching and pretty printing of ExtendJ ASTs goes
+ * through the one {@link ExtendJ} lock, so structured merges of different files effectively run one after another.
+ * The pool only overlaps the I/O of the merges (reading the input files and writing the results) and line based
+ * merges with them. The thread submitting operations and waiting for them must not hold that lock.
+ */
+public class FileMergePool implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(FileMergePool.class.getCanonicalName());
+
+    private final ExecutorService executor;
+    private final List<Future<?>> pending;
+
+    /**
+     * Constructs a new <code>FileMergePool</code> using the given number of worker threads.
+     *
+     * @param threads
+     *         the number of worker threads, must be positive
+     * @throws IllegalArgumentException
+     *         if <code>threads</code> is not positive
+     */
+    public FileMergePool(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive.");
+        }
+
+        AtomicInteger workerNum = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread worker = new Thread(r, "jdime-merge-" + workerNum.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        };
+
+        this.executor = Executors.newFixedThreadPool(threads, factory);
+        this.pending = new ArrayList<>();
+    }
+
+    /**
+     * Schedules the given <code>MergeOperation</code> to be applied by one of the worker threads. The operation is
+     * applied using a {@link MergeContext#workerCopy() worker copy} of the given <code>context</code>.
+     *
+     * @param operation
+     *         the <code>MergeOperation</code> on <code>FileArtifact</code>s representing files
+     * @param context
+     *         the <code>MergeContext</code> of the directory merge
+     * @throws IllegalStateException
+     *         if the current thread holds the {@link ExtendJ} lock
+     */
+    public void submit(MergeOperation<FileArtifact> operation, MergeContext context) {
+        if (ExtendJ.isHeldByCurrentThread()) {
+            throw new IllegalStateException("Scheduling a file merge while holding the ExtendJ lock.");
+        }
+
+        MergeContext workerContext = context.workerCopy();
+
+        LOG.finest(() -> "Scheduling " + operation);
+        pending.add(executor.submit(() -> operation.apply(workerContext)));
+    }
+
+    /**
+     * Waits for all scheduled <code>MergeOperation</code>s to finish. The operations are waited for in the order they
+     * were submitted. If one of them failed with an exception (usually an {@link AbortException}), the remaining
+     * operations are cancelled and the exception is rethrown.
+     *
+     * @throws IllegalStateException
+     *         if the current thread holds the {@link ExtendJ} lock (the workers could never acquire it)
+     */
+    public void awaitAll() {
+        if (ExtendJ.isHeldByCurrentThread()) {
+            throw new IllegalStateException("Waiting for the file merges while holding the ExtendJ lock.");
+        }
+
+        try {
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.forEach(f -> f.cancel(true));
+            throw new AbortException(e);
+        } catch (ExecutionException e) {
+            pending.forEach(f -> f.cancel(true));
+
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new AbortException(cause);
+            }
+        } finally {
+            pending.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -23,6 +23,7 @@
  */
 package de.fosd.jdime.merge;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -83,6 +84,8 @@ public void merge(MergeOperation<T> operation, MergeContext context) {
 
                 // diff base left
                 matcher = new Matcher<>(base, left);
+                matcher.indexTrees(Arrays.asList(base, left, right), context.getTreeHashMode());
+
                 m = matcher.match(context, Color.GREEN).get(base, left).get();
 
                 if (m.getScore() == 0) {
@@ -148,7 +151,7 @@ public void merge(MergeOperation<T> operation, MergeContext context) {
 
                 if (base.hasChildren()) {
                     LOG.finest(() -> String.format("%s was deleted by left", prefix(right)));
-                    if (right.hasChanges(b)) {
+                    if (right.hasChanges(b, context.getTreeHashMode())) {
                         LOG.finest(() -> String.format("%s has changes in subtree", prefix(right)));
 
                         for (T rightChild : right.getChildren()) {
@@ -176,7 +179,7 @@ public void merge(MergeOperation<T> operation, MergeContext context) {
 
                 if (base.hasChildren()) {
                     LOG.finest(() -> String.format("%s was deleted by right", prefix(left)));
-                    if (left.hasChanges(b)) {
+                    if (left.hasChanges(b, context.getTreeHashMode())) {
                         LOG.finest(() -> String.format("%s has changes in subtree", prefix(left)));
 
                         for (T leftChild : left.getChildren()) {
@@ -103,7 +103,7 @@ public void merge(MergeOperation<T> operation, MergeContext context) {
                     LOG.finest(() -> String.format("%s was deleted by right", prefix(finalLeftChild)));
 
                     // was deleted in right
-                    if (leftChild.hasChanges(b)) {
+                    if (leftChild.hasChanges(b, context.getTreeHashMode())) {
                         // insertion-deletion-conflict
                         if (LOG.isLoggable(Level.FINEST)) {
                             LOG.finest(prefix(leftChild) + "has changes in subtree.");
@@ -144,7 +144,7 @@ public void merge(MergeOperation<T> operation, MergeContext context) {
                     LOG.finest(() -> String.format("%s was deleted by left", prefix(finalRightChild)));
 
                     // was deleted in left
-                    if (rightChild.hasChanges(b)) {
+                    if (rightChild.hasChanges(b, context.getTreeHashMode())) {
                         LOG.finest(() -> String.format("%s has changes in subtree.", prefix(finalRightChild)));
 
                         // insertion-deletion-conflict
@@ -24,15 +24,18 @@
 package de.fosd.jdime.operations;
 
 import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.artifact.file.FileArtifact;
 import de.fosd.jdime.config.merge.MergeContext;
 import de.fosd.jdime.config.merge.MergeScenario;
 import de.fosd.jdime.config.merge.MergeType;
 import de.fosd.jdime.execption.AbortException;
+import de.fosd.jdime.merge.FileMergePool;
 import de.fosd.jdime.stats.MergeScenarioStatistics;
 import de.fosd.jdime.stats.Statistics;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Logger;
 
 import static de.fosd.jdime.config.merge.MergeScenario.BASE;
@@ -151,6 +154,11 @@ public MergeOperation(MergeScenario<T> mergeScenario, T target) {
 
     @Override
     public void apply(MergeContext context) {
+        if (Thread.currentThread().isInterrupted()) {
+            // A speculative CombinedStrategy cancelled the strategy performing this merge.
+            throw new CancellationException("Interrupted while merging " + mergeScenario);
+        }
+
         if (!context.isConditionalMerge(mergeScenario.getLeft())) {
             assert (mergeScenario.getLeft().exists()) : "Left artifact does not exist: " + mergeScenario.getLeft();
             assert (mergeScenario.getRight().exists()) : "Right artifact does not exist: " + mergeScenario.getRight();
@@ -158,10 +166,20 @@ public void apply(MergeContext context) {
                     "Base artifact does not exist: " + mergeScenario.getBase();
         }
 
+        T artifact = mergeScenario.get(0);
+        FileMergePool pool = context.getFileMergePool();
+
+        if (pool != null && artifact.getType() == FILE) {
+            @SuppressWarnings("unchecked")
+            MergeOperation<FileArtifact> fileMerge = (MergeOperation<FileArtifact>) this;
+
+            pool.submit(fileMerge, context);
+            return;
+        }
+
         LOG.fine(() -> "Applying: " + this);
 
         // FIXME: I think this could be done easier. It's just too fucking ugly.
-        T artifact = mergeScenario.get(0);
         artifact.merge(this, context);
 
         if (context.hasStatistics()) {
@@ -38,7 +38,10 @@
 import static de.fosd.jdime.stats.MergeScenarioStatus.OK;
 
 /**
- * A collection of statistics values about a <code>MergeScenario</code>.
+ * A collection of statistics values about a <code>MergeScenario</code>. The methods of this class synchronize on the
+ * <code>MergeScenarioStatistics</code> as they may be called concurrently by the workers of a
+ * {@link de.fosd.jdime.merge.FileMergePool}. The <code>ElementStatistics</code>, <code>MergeStatistics</code> and
+ * <code>Runtime</code>s returned by the getters are not synchronized.
  */
 public class MergeScenarioStatistics {
 
@@ -62,6 +65,7 @@ public class MergeScenarioStatistics {
     private ElementStatistics directoryStatistics;
 
     private Map<String, Runtime> runtimes;
+    private Map<String, Long> counters;
 
     /**
      * Constructs a new <code>MergeScenarioStatistics</code> object for the given <code>MergeScenario</code>.
@@ -85,6 +89,7 @@ public class MergeScenarioStatistics {
         this.fileStatistics = new ElementStatistics();
         this.directoryStatistics = new ElementStatistics();
         this.runtimes = new HashMap<>();
+        this.counters = new HashMap<>();
     }
 
     /**
@@ -94,7 +99,7 @@ public class MergeScenarioStatistics {
      *         the <code>MergeScenarioStatistics</code> to copy
      */
     MergeScenarioStatistics(MergeScenarioStatistics toCopy) {
-        this.mergeScenario = new MergeScenario<>(toCopy.mergeScenario);
+        this.mergeScenario = toCopy.mergeScenario != null ? new MergeScenario<>(toCopy.mergeScenario) : null;
         this.strategy = toCopy.strategy;
         this.status = toCopy.status;
 
@@ -153,6 +158,8 @@ public class MergeScenarioStatistics {
         for (Map.Entry<String, Runtime> entry : toCopy.runtimes.entrySet()) {
             this.runtimes.put(entry.getKey(), new Runtime(entry.getValue()));
         }
+
+        this.counters = new HashMap<>(toCopy.counters);
     }
 
     /**
@@ -169,7 +176,7 @@ public MergeScenario<?> getMergeScenario() {
      *
      * @param strategy the type of the {@link MergeStrategy} that merged the {@link MergeScenario}
      */
-    public void setStrategy(Class<? extends MergeStrategy<?>> strategy) {
+    public synchronized void setStrategy(Class<? extends MergeStrategy<?>> strategy) {
         this.strategy = strategy.getSimpleName();
     }
 
@@ -178,7 +185,7 @@ public void setStrategy(Class<? extends MergeStrategy<?>> strategy) {
      *
      * @return the current {@link MergeScenarioStatus}
      */
-    public MergeScenarioStatus getStatus() {
+    public synchronized MergeScenarioStatus getStatus() {
         return status;
     }
 
@@ -187,7 +194,7 @@ public MergeScenarioStatus getStatus() {
      *
      * @param status the new {@link MergeScenarioStatus}
      */
-    public void setStatus(MergeScenarioStatus status) {
+    public synchronized void setStatus(MergeScenarioStatus status) {
         this.status = status;
     }
 
@@ -197,7 +204,7 @@ public void setStatus(MergeScenarioStatus status) {
      * @param matching
      *         the <code>Matching</code> to add
      */
-    public void addMatching(Matching<?> matching) {
+    public synchronized void addMatching(Matching<?> matching) {
         matchings.add(matching);
     }
 
@@ -207,7 +214,7 @@ public void addMatching(Matching<?> matching) {
      * @param matchings
      *         the <code>Matching</code>s to add
      */
-    public void addAllMatchings(Collection<? extends Matching<?>> matchings) {
+    public synchronized void addAllMatchings(Collection<? extends Matching<?>> matchings) {
         this.matchings.addAll(matchings);
     }
 
@@ -221,7 +228,7 @@ public void addAllMatchings(Collection<? extends Matching<?>> matchings) {
      *         the <code>KeyEnums.Level</code> to check for
      * @return true iff an <code>ElementStatistics</code> was registered
      */
-    public boolean containsLevelStatistics(Revision rev, KeyEnums.Level level) {
+    public synchronized boolean containsLevelStatistics(Revision rev, KeyEnums.Level level) {
         return levelStatistics.containsKey(rev) && levelStatistics.get(rev).containsKey(level);
     }
 
@@ -231,7 +238,7 @@ public boolean containsLevelStatistics(Revision rev, KeyEnums.Level level) {
      * @return the <code>Map</code> from the <code>Revision</code>s of the <code>MergeScenario</code> to the statistics
      *         collected for different <code>KeyEnums.Level</code>s
      */
-    public Map<Revision, Map<KeyEnums.Level, ElementStatistics>> getLevelStatistics() {
+    public synchronized Map<Revision, Map<KeyEnums.Level, ElementStatistics>> getLevelStatistics() {
         return levelStatistics;
     }
 
@@ -245,7 +252,7 @@ public Map<Revision, Map<KeyEnums.Level, ElementStatistics>> getLevelStatistics(
      *         the <code>LEVEL</code> in the <code>Revision</code>
      * @return the corresponding <code>ElementStatistics</code>
      */
-    public ElementStatistics getLevelStatistics(Revision rev, KeyEnums.Level level) {
+    public synchronized ElementStatistics getLevelStatistics(Revision rev, KeyEnums.Level level) {
         return levelStatistics.computeIfAbsent(rev, r -> new HashMap<>()).computeIfAbsent(level, l -> new ElementStatistics());
     }
 
@@ -259,7 +266,7 @@ public ElementStatistics getLevelStatistics(Revision rev, KeyEnums.Level level)
      *         the <code>KeyEnums.Type</code> to check for
      * @return true iff an <code>ElementStatistics</code> was registered
      */
-    public boolean containsTypeStatistics(Revision rev, KeyEnums.Type type) {
+    public synchronized boolean containsTypeStatistics(Revision rev, KeyEnums.Type type) {
         return typeStatistics.containsKey(rev) && typeStatistics.get(rev).containsKey(type);
     }
 
@@ -269,7 +276,7 @@ public boolean containsTypeStatistics(Revision rev, KeyEnums.Type type) {
      * @return the <code>Map</code> from the <code>Revision</code>s of the <code>MergeScenario</code> to the statistics
      *         collected for different <code>KeyEnums.Type</code>s
      */
-    public Map<Revision, Map<KeyEnums.Type, ElementStatistics>> getTypeStatistics() {
+    public synchronized Map<Revision, Map<KeyEnums.Type, ElementStatistics>> getTypeStatistics() {
         return typeStatistics;
     }
 
@@ -285,7 +292,7 @@ public Map<Revision, Map<KeyEnums.Type, ElementStatistics>> getTypeStatistics()
      *         the <code>TYPE</code> in the <code>Revision</code>
      * @return the corresponding <code>ElementStatistics</code>
      */
-    public ElementStatistics getTypeStatistics(Revision rev, KeyEnums.Type type) {
+    public synchronized ElementStatistics getTypeStatistics(Revision rev, KeyEnums.Type type) {
 
         switch (type) {
 
@@ -307,7 +314,7 @@ public ElementStatistics getTypeStatistics(Revision rev, KeyEnums.Type type) {
      * @return the <code>Map</code> from the <code>Revision</code>s of the <code>MergeScenario</code> to the
      *         <code>MergeStatistics</code> collected for them
      */
-    public Map<Revision, MergeStatistics> getMergeStatistics() {
+    public synchronized Map<Revision, MergeStatistics> getMergeStatistics() {
         return mergeStatistics;
     }
 
@@ -319,7 +326,7 @@ public Map<Revision, MergeStatistics> getMergeStatistics() {
      *         the <code>Revision</code> to get the <code>MergeStatistics</code> for
      * @return the corresponding <code>MergeStatistics</code>
      */
-    public MergeStatistics getMergeStatistics(Revision rev) {
+    public synchronized MergeStatistics getMergeStatistics(Revision rev) {
         return mergeStatistics.computeIfAbsent(rev, r -> new MergeStatistics());
     }
 
@@ -340,7 +347,7 @@ public ElementStatistics getLineStatistics() {
      *         the code to parse
      * @return the <code>ParseResult</code> from {@link Parser#parse(String)}
      */
-    public ParseResult setLineStatistics(String mergeResult) {
+    public synchronized ParseResult setLineStatistics(String mergeResult) {
         ParseResult result = Parser.parse(mergeResult);
         CodeStatistics cs = result.getStats();
 
@@ -383,7 +390,7 @@ public ElementStatistics getDirectoryStatistics() {
      *
      * @return the number of conflicts
      */
-    public int getConflicts() {
+    public synchronized int getConflicts() {
         return conflicts;
     }
 
@@ -395,7 +402,7 @@ public int getConflicts() {
      *         the label of the {@link Runtime}
      * @return the {@link Runtime}
      */
-    public Runtime getRuntime(String label) {
+    public synchronized Runtime getRuntime(String label) {
         return runtimes.computeIfAbsent(label, Runtime::new);
     }
 
@@ -406,7 +413,7 @@ public Runtime getRuntime(String label) {
      *         the label to look for
      * @return true iff a {@link Runtime} with the given label was stored in this {@link MergeScenarioStatistics}
      */
-    public boolean hasRuntime(String label) {
+    public synchronized boolean hasRuntime(String label) {
         return runtimes.containsKey(label);
     }
 
@@ -417,10 +424,33 @@ public boolean hasRuntime(String label) {
      * @param runtime
      *         the {@link Runtime} to store in this {@link MergeScenarioStatistics}
      */
-    public void putRuntime(Runtime runtime) {
+    public synchronized void putRuntime(Runtime runtime) {
         runtimes.put(runtime.getLabel(), runtime);
     }
 
+    /**
+     * Returns the value of the counter with the given label. Counters that were never incremented have the value 0.
+     *
+     * @param label
+     *         the label of the counter
+     * @return the value of the counter
+     */
+    public synchronized long getCounter(String label) {
+        return counters.getOrDefault(label, 0L);
+    }
+
+    /**
+     * Adds <code>delta</code> to the counter with the given label.
+     *
+     * @param label
+     *         the label of the counter
+     * @param delta
+     *         the value to add to the counter
+     */
+    public synchronized void incrementCounter(String label, long delta) {
+        counters.merge(label, delta, Long::sum);
+    }
+
     /**
      * Adds all <code>ElementStatistics</code> in <code>other</code> to the corresponding
      * <code>ElementStatistics</code> added to <code>this</code>. If an <code>ElementStatistics</code> in
@@ -431,7 +461,26 @@ public void putRuntime(Runtime runtime) {
      * @see ElementStatistics#add(ElementStatistics)
      */
     public void add(MergeScenarioStatistics other) {
+        MergeScenarioStatistics copy;
 
+        // copy other under its own lock so that the two monitors are never held at the same time
+        synchronized (other) {
+            copy = new MergeScenarioStatistics(other);
+        }
+
+        synchronized (this) {
+            addCopy(copy);
+        }
+    }
+
+    /**
+     * Adds the statistics of <code>other</code> to <code>this</code>. Must be called while holding the monitor of
+     * <code>this</code>.
+     *
+     * @param other
+     *         the <code>MergeScenarioStatistics</code> to add, not shared with other threads
+     */
+    private void addCopy(MergeScenarioStatistics other) {
         addAllMatchings(other.matchings);
 
         for (Map.Entry<Revision, Map<KeyEnums.Level, ElementStatistics>> entry : other.levelStatistics.entrySet()) {
@@ -473,6 +522,8 @@ public void add(MergeScenarioStatistics other) {
         for (Map.Entry<String, Runtime> entry : other.runtimes.entrySet()) {
             getRuntime(entry.getKey()).add(entry.getValue());
         }
+
+        other.counters.forEach(this::incrementCounter);
     }
 
     /**
@@ -482,7 +533,7 @@ public void add(MergeScenarioStatistics other) {
      * @param os
      *         the <code>PrintStream</code> to write to
      */
-    public void print(PrintStream os) {
+    public synchronized void print(PrintStream os) {
         String indent = "    ";
 
         os.printf("%s for %s", MergeScenarioStatistics.class.getSimpleName(), MergeScenario.class.getSimpleName());
@@ -499,6 +550,10 @@ public void print(PrintStream os) {
                 os.printf("%sRuntime (%s): %dms%n", indent, label, runtime.getTimeMS())
         );
 
+        counters.forEach((label, value) ->
+                os.printf("%s%s: %d%n", indent, label, value)
+        );
+
         conflictStatistics.forEach((hash, cs) -> {
             os.printf("Conflict Statistics (Hash %s):%n", hash);
             cs.print(os, indent);
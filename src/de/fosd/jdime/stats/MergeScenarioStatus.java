@@ -35,6 +35,11 @@ public enum MergeScenarioStatus {
      */
     OK,
 
+    /**
+     * Indicates that the merge was resolved without parsing the input files as two of them had identical contents.
+     */
+    TRIVIAL,
+
     /**
      * Indicates that there was an exception while executing the {@link MergeScenario}.
      */
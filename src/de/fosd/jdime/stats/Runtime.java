@@ -92,6 +92,17 @@ public Runtime(String label) {
         this.timeMS = NO_MEASUREMENT;
     }
 
+    /**
+     * Constructs a new {@link Runtime} with the given label storing a runtime that was measured elsewhere.
+     *
+     * @param label the label to use
+     * @param timeMS the runtime in milliseconds
+     */
+    public Runtime(String label, long timeMS) {
+        this.label = label;
+        this.timeMS = timeMS;
+    }
+
     /**
      * Copy constructor.
      *
@@ -59,19 +59,22 @@
 
 /**
  * A collection of <code>MergeScenarioStatistics</code> containing collected statistics about
- * <code>MergeScenario</code>s that were merged during a run of JDime.
+ * <code>MergeScenario</code>s that were merged during a run of JDime. The methods of this class may be called
+ * concurrently by the worker threads merging files in parallel. The current <code>FileArtifact</code>
+ * <code>MergeScenario</code> is tracked per thread.
  */
 public class Statistics {
 
     private static final Logger LOG = Logger.getLogger(Statistics.class.getCanonicalName());
 
-    private MergeScenario<FileArtifact> currentFileMergeScenario;
+    private ThreadLocal<MergeScenario<FileArtifact>> currentFileMergeScenario;
     private Map<MergeScenario<?>, MergeScenarioStatistics> scenarioStatistics;
 
     /**
      * Constructs a new <code>Statistics</code> object.
      */
     public Statistics() {
+        this.currentFileMergeScenario = new ThreadLocal<>();
         this.scenarioStatistics = new HashMap<>();
     }
 
@@ -83,37 +86,44 @@ public Statistics() {
      */
     public Statistics(Statistics toCopy) {
 
-        if (toCopy.currentFileMergeScenario != null) {
-            this.currentFileMergeScenario = new MergeScenario<>(toCopy.currentFileMergeScenario);
+        MergeScenario<FileArtifact> current = toCopy.currentFileMergeScenario.get();
+
+        this.currentFileMergeScenario = new ThreadLocal<>();
+
+        if (current != null) {
+            this.currentFileMergeScenario.set(new MergeScenario<>(current));
         }
 
         this.scenarioStatistics = new HashMap<>();
 
-        for (Map.Entry<MergeScenario<?>, MergeScenarioStatistics> entry : toCopy.scenarioStatistics.entrySet()) {
-            MergeScenario<?> mScenario = new MergeScenario<>(entry.getKey());
-            MergeScenarioStatistics mStats = new MergeScenarioStatistics(entry.getValue());
+        synchronized (toCopy) {
+            for (Map.Entry<MergeScenario<?>, MergeScenarioStatistics> entry : toCopy.scenarioStatistics.entrySet()) {
+                MergeScenario<?> mScenario = new MergeScenario<>(entry.getKey());
+                MergeScenarioStatistics mStats = new MergeScenarioStatistics(entry.getValue());
 
-            this.scenarioStatistics.put(mScenario, mStats);
+                this.scenarioStatistics.put(mScenario, mStats);
+            }
         }
     }
 
     /**
      * Gets the <code>MergeScenarioStatistics</code> for the current <code>FileArtifact</code>
-     * <code>MergeScenario</code>.
+     * <code>MergeScenario</code> of the calling thread.
      *
      * @return the <code>MergeScenarioStatistics</code>
      */
     public MergeScenarioStatistics getCurrentFileMergeScenarioStatistics() {
-        return getScenarioStatistics(currentFileMergeScenario);
+        return getScenarioStatistics(currentFileMergeScenario.get());
     }
 
     /**
-     * Sets the currently active <code>MergeScenario</code> for <code>FileArtifacts</code> to the new value.
+     * Sets the currently active <code>MergeScenario</code> for <code>FileArtifacts</code> of the calling thread to the
+     * new value.
      *
      * @param currentFileMergeScenario the new <code>MergeScenario</code> for <code>FileArtifacts</code>
      */
     public void setCurrentFileMergeScenario(MergeScenario<FileArtifact> currentFileMergeScenario) {
-        this.currentFileMergeScenario = currentFileMergeScenario;
+        this.currentFileMergeScenario.set(currentFileMergeScenario);
     }
 
     /**
@@ -124,7 +134,7 @@ public void setCurrentFileMergeScenario(MergeScenario<FileArtifact> currentFileM
      *         the <code>MergeScenario</code> to check for
      * @return true iff a <code>MergeScenarioStatistics</code> was registered for <code>mergeScenario</code>
      */
-    public boolean containsStatistics(MergeScenario<?> mergeScenario) {
+    public synchronized boolean containsStatistics(MergeScenario<?> mergeScenario) {
         return scenarioStatistics.containsKey(mergeScenario);
     }
 
@@ -136,7 +146,7 @@ public boolean containsStatistics(MergeScenario<?> mergeScenario) {
      *         the <code>MergeScenario</code> to get the <code>MergeScenarioStatistics</code> for
      * @return the <code>MergeScenarioStatistics</code> for the given <code>MergeScenario</code>
      */
-    public MergeScenarioStatistics getScenarioStatistics(MergeScenario<?> mergeScenario) {
+    public synchronized MergeScenarioStatistics getScenarioStatistics(MergeScenario<?> mergeScenario) {
         return scenarioStatistics.computeIfAbsent(mergeScenario, MergeScenarioStatistics::new);
     }
 
@@ -145,7 +155,7 @@ public MergeScenarioStatistics getScenarioStatistics(MergeScenario<?> mergeScena
      *
      * @return the <code>MergeScenarioStatistics</code>
      */
-    public List<MergeScenarioStatistics> getScenarioStatistics() {
+    public synchronized List<MergeScenarioStatistics> getScenarioStatistics() {
         return new ArrayList<>(scenarioStatistics.values());
     }
 
@@ -156,7 +166,7 @@ public List<MergeScenarioStatistics> getScenarioStatistics() {
      *
      * @param stats the {@link MergeScenarioStatistics} to store
      */
-    public void putScenarioStatistics(MergeScenarioStatistics stats) {
+    public synchronized void putScenarioStatistics(MergeScenarioStatistics stats) {
         scenarioStatistics.put(stats.getMergeScenario(), stats);
     }
 
@@ -166,7 +176,7 @@ public void putScenarioStatistics(MergeScenarioStatistics stats) {
      *
      * @param scenario the <code>MergeScenario</code> whose <code>MergeScenarioStatistics</code> are to be removed.
      */
-    public void removeScenarioStatistics(MergeScenario<?> scenario) {
+    public synchronized void removeScenarioStatistics(MergeScenario<?> scenario) {
         scenarioStatistics.remove(scenario);
     }
 
@@ -176,7 +186,7 @@ public void removeScenarioStatistics(MergeScenario<?> scenario) {
      *
      * @return the <code>IntSummaryStatistics</code> about conflicts that occurred
      */
-    public IntSummaryStatistics getConflictStatistics() {
+    public synchronized IntSummaryStatistics getConflictStatistics() {
         return scenarioStatistics.values().stream().collect(Collectors.summarizingInt(MergeScenarioStatistics::getConflicts));
     }
 
@@ -185,7 +195,7 @@ public IntSummaryStatistics getConflictStatistics() {
      *
      * @return true iff any added <code>MergeScenarioStatistics</code> recorded conflicts
      */
-    public boolean hasConflicts() {
+    public synchronized boolean hasConflicts() {
         return scenarioStatistics.values().stream().anyMatch(s -> s.getConflicts() > 0);
     }
 
@@ -199,8 +209,17 @@ public boolean hasConflicts() {
      * @see MergeScenarioStatistics#add(MergeScenarioStatistics)
      */
     public void add(Statistics other) {
-        for (Map.Entry<MergeScenario<?>, MergeScenarioStatistics> entry : other.scenarioStatistics.entrySet()) {
-            getScenarioStatistics(entry.getKey()).add(entry.getValue());
+        Map<MergeScenario<?>, MergeScenarioStatistics> toAdd;
+
+        // copy the map under the lock of other so that the two monitors are never held at the same time
+        synchronized (other) {
+            toAdd = new HashMap<>(other.scenarioStatistics);
+        }
+
+        synchronized (this) {
+            for (Map.Entry<MergeScenario<?>, MergeScenarioStatistics> entry : toAdd.entrySet()) {
+                getScenarioStatistics(entry.getKey()).add(entry.getValue());
+            }
         }
     }
 
@@ -234,7 +253,7 @@ public void printXML(File file, MergeContext context) throws FileNotFoundExcepti
      * @param os
      *         the <code>OutputStream</code> to write to
      */
-    public void printXML(OutputStream os, MergeContext context) {
+    public synchronized void printXML(OutputStream os, MergeContext context) {
         buildSerializer(context).toXML(this, os);
     }
 
@@ -26,11 +26,15 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import de.fosd.jdime.artifact.file.FileArtifact;
 import de.fosd.jdime.config.merge.MergeContext;
 import de.fosd.jdime.config.merge.MergeScenario;
+import de.fosd.jdime.execption.AbortException;
 import de.fosd.jdime.operations.MergeOperation;
 import de.fosd.jdime.stats.MergeScenarioStatistics;
 import de.fosd.jdime.stats.Runtime;
@@ -48,6 +52,17 @@ public class CombinedStrategy extends MergeStrategy<FileArtifact> {
 
     private static final Logger LOG = Logger.getLogger(CombinedStrategy.class.getCanonicalName());
 
+    /**
+     * The label of the <code>Runtime</code> of the strategy whose result was used in a speculative merge.
+     */
+    public static final String USEFUL_LABEL = "speculative useful";
+
+    /**
+     * The label of the <code>Runtime</code> summing up the runtimes of the strategies whose results were discarded
+     * (or which were cancelled) in a speculative merge.
+     */
+    public static final String WASTED_LABEL = "speculative wasted";
+
     private List<MergeStrategy<FileArtifact>> strategies;
 
     /**
@@ -61,11 +76,15 @@ public CombinedStrategy(List<MergeStrategy<FileArtifact>> strategies) {
     }
 
     /**
-     * TODO: high-level documentation
+     * Merges using the combined strategies in order until one of them produces no conflicts. The result of that
+     * strategy (or of the last one if all produce conflicts) is used. If
+     * {@link MergeContext#isSpeculativeCombinedStrategy()} is set, all strategies are started concurrently instead and
+     * the strategies ordered after the first one producing no conflicts are cancelled.
+     *
      * @param operation the <code>MergeOperation</code> to perform
      * @param context the <code>MergeContext</code>
      */
-    @Override @SuppressWarnings("try")
+    @Override
     public void merge(MergeOperation<FileArtifact> operation, MergeContext context) {
         LOG.fine(() -> {
             MergeScenario<FileArtifact> triple = operation.getMergeScenario();
@@ -76,7 +95,7 @@ public void merge(MergeOperation<FileArtifact> operation, MergeContext context)
             return String.format("Merging:%nLeft: %s%nBase: %s%nRight: %s", leftPath, basePath, rightPath);
         });
 
-        MergeContext subContext = null;
+        MergeContext subContext;
 
         Runtime runtime;
         List<Runtime> runtimes = new ArrayList<>();
@@ -86,46 +105,210 @@ public void merge(MergeOperation<FileArtifact> operation, MergeContext context)
 
         Runtime.Measurement mergeMeasurement = runtime.time();
 
-        for (MergeStrategy<FileArtifact> strategy : strategies) {
-            subContext = new MergeContext(context);
+        if (context.isSpeculativeCombinedStrategy() && strategies.size() > 1) {
+            subContext = mergeSpeculatively(operation, context, runtimes);
+        } else {
+            subContext = mergeSequentially(operation, context, runtimes);
+        }
+
+        long mergeTime = mergeMeasurement.stop();
+        LOG.fine(() -> String.format("Combined merge time was %d ms.", mergeTime));
+
+        if (subContext != null && context.hasStatistics()) {
+            Statistics subStatistics = subContext.getStatistics();
+            MergeScenarioStatistics subScenarioStats = subStatistics.getScenarioStatistics(operation.getMergeScenario());
+            runtimes.forEach(subScenarioStats::putRuntime);
+
+            Statistics statistics = context.getStatistics();
+            statistics.putScenarioStatistics(subScenarioStats);
+        }
+    }
 
-            subContext.setMergeStrategy(strategy);
+    /**
+     * Runs the strategies one after another until one of them produces no conflicts.
+     *
+     * @param operation the <code>MergeOperation</code> to perform
+     * @param context the <code>MergeContext</code>
+     * @param runtimes the list to add the <code>Runtime</code>s of the strategies to
+     * @return the <code>MergeContext</code> used by the last strategy that was run
+     */
+    @SuppressWarnings("try")
+    private MergeContext mergeSequentially(MergeOperation<FileArtifact> operation, MergeContext context,
+                                           List<Runtime> runtimes) {
+        MergeContext subContext = null;
 
-            subContext.collectStatistics(true);
-            subContext.getStatistics().removeScenarioStatistics(operation.getMergeScenario());
+        for (MergeStrategy<FileArtifact> strategy : strategies) {
+            subContext = subContext(strategy, operation, context);
 
-            runtime = new Runtime(strategy.toString());
+            Runtime runtime = new Runtime(strategy.toString());
             runtimes.add(runtime);
 
             try (Runtime.Measurement m = runtime.time()) {
                 strategy.merge(operation, subContext);
             }
 
-            Statistics stats = subContext.getStatistics();
+            if (!hasConflicts(strategy, subContext)) {
+                break;
+            }
+        }
 
-            if (stats.hasConflicts()) {
-                long conflicts = subContext.getStatistics().getConflictStatistics().getSum();
+        return subContext;
+    }
 
-                LOG.fine(() -> {
-                    String noun = conflicts > 1 ? "conflicts" : "conflict";
-                    return String.format("%s produced %d %s.", strategy, conflicts, noun);
-                });
-            } else {
-                LOG.fine(() -> strategy + " produced no conflicts.");
+    /**
+     * Starts all strategies concurrently, each merging into a copy of the target. The result of the first strategy
+     * (in the order of the strategies) producing no conflicts is stored in the target of <code>operation</code> and
+     * the strategies after it are cancelled. Besides the <code>Runtime</code>s of the strategies (up to their
+     * cancellation), the runtime of the strategy whose result was used is added as {@value USEFUL_LABEL} and the
+     * total runtime of all other strategies as {@value WASTED_LABEL}.
+     *
+     * @param operation the <code>MergeOperation</code> to perform
+     * @param context the <code>MergeContext</code>
+     * @param runtimes the list to add the <code>Runtime</code>s of the strategies to
+     * @return the <code>MergeContext</code> used by the strategy whose result was used
+     */
+    private MergeContext mergeSpeculatively(MergeOperation<FileArtifact> operation, MergeContext context,
+                                            List<Runtime> runtimes) {
+        int numStrategies = strategies.size();
+
+        List<MergeContext> subContexts = new ArrayList<>(numStrategies);
+        List<FileArtifact> targets = new ArrayList<>(numStrategies);
+        List<Future<Long>> futures = new ArrayList<>(numStrategies);
+
+        long start = System.nanoTime();
+
+        for (MergeStrategy<FileArtifact> strategy : strategies) {
+            MergeContext subContext = subContext(strategy, operation, context);
+            FileArtifact target = operation.getTarget().copy();
+            MergeOperation<FileArtifact> subOperation = new MergeOperation<>(operation.getMergeScenario(), target);
+
+            subContexts.add(subContext);
+            targets.add(target);
+            futures.add(ConcurrentTasks.submit(() -> {
+                Statistics statistics = subContext.getStatistics();
+                statistics.setCurrentFileMergeScenario(operation.getMergeScenario());
+
+                try {
+                    strategy.merge(subOperation, subContext);
+                } finally {
+                    statistics.setCurrentFileMergeScenario(null);
+                }
+
+                return System.nanoTime();
+            }));
+        }
+
+        long[] times = new long[numStrategies];
+        int used = numStrategies - 1;
+
+        for (int i = 0; i < numStrategies; i++) {
+
+            try {
+                times[i] = futures.get(i).get() - start;
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new AbortException(e);
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                Throwable cause = e.getCause();
+
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else {
+                    throw new AbortException(cause);
+                }
+            }
+
+            if (!hasConflicts(strategies.get(i), subContexts.get(i))) {
+                used = i;
                 break;
             }
         }
 
-        long mergeTime = mergeMeasurement.stop();
-        LOG.fine(() -> String.format("Combined merge time was %d ms.", mergeTime));
+        long cancelled = System.nanoTime() - start;
 
-        if (subContext != null && context.hasStatistics()) {
-            Statistics subStatistics = subContext.getStatistics();
-            MergeScenarioStatistics subScenarioStats = subStatistics.getScenarioStatistics(operation.getMergeScenario());
-            runtimes.forEach(subScenarioStats::putRuntime);
+        for (int i = used + 1; i < numStrategies; i++) {
+            Future<Long> future = futures.get(i);
+            MergeStrategy<FileArtifact> strategy = strategies.get(i);
 
-            Statistics statistics = context.getStatistics();
-            statistics.putScenarioStatistics(subScenarioStats);
+            if (future.cancel(true)) {
+                LOG.fine(() -> String.format("Cancelled %s.", strategy));
+                times[i] = cancelled;
+            } else {
+                try {
+                    times[i] = future.get() - start;
+                } catch (InterruptedException | ExecutionException e) {
+                    times[i] = cancelled;
+                }
+            }
+        }
+
+        operation.getTarget().setContent(targets.get(used).getContent());
+
+        long wasted = 0;
+
+        for (int i = 0; i < numStrategies; i++) {
+            long timeMS = TimeUnit.NANOSECONDS.toMillis(times[i]);
+
+            runtimes.add(new Runtime(strategies.get(i).toString(), timeMS));
+
+            if (i == used) {
+                runtimes.add(new Runtime(USEFUL_LABEL, timeMS));
+            } else {
+                wasted += timeMS;
+            }
+        }
+
+        runtimes.add(new Runtime(WASTED_LABEL, wasted));
+
+        return subContexts.get(used);
+    }
+
+    /**
+     * Returns a copy of <code>context</code> for merging <code>operation</code> using the given strategy.
+     *
+     * @param strategy the strategy to use
+     * @param operation the <code>MergeOperation</code> to perform
+     * @param context the <code>MergeContext</code> to copy
+     * @return the new <code>MergeContext</code>
+     */
+    private MergeContext subContext(MergeStrategy<FileArtifact> strategy, MergeOperation<FileArtifact> operation,
+                                    MergeContext context) {
+        MergeContext subContext = new MergeContext(context);
+
+        subContext.setMergeStrategy(strategy);
+
+        subContext.collectStatistics(true);
+        subContext.getStatistics().removeScenarioStatistics(operation.getMergeScenario());
+
+        return subContext;
+    }
+
+    /**
+     * Returns whether the given strategy produced conflicts in the <code>MergeContext</code> it was run with.
+     *
+     * @param strategy the strategy that was run
+     * @param subContext the <code>MergeContext</code> it was run with
+     * @return true iff the strategy produced conflicts
+     */
+    private boolean hasConflicts(MergeStrategy<FileArtifact> strategy, MergeContext subContext) {
+        Statistics stats = subContext.getStatistics();
+
+        if (stats.hasConflicts()) {
+            long conflicts = stats.getConflictStatistics().getSum();
+
+            LOG.fine(() -> {
+                String noun = conflicts > 1 ? "conflicts" : "conflict";
+                return String.format("%s produced %d %s.", strategy, conflicts, noun);
+            });
+
+            return true;
+        } else {
+            LOG.fine(() -> strategy + " produced no conflicts.");
+            return false;
         }
     }
 }
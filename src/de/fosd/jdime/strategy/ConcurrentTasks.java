@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.strategy;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the strategies of a speculative {@link CombinedStrategy} on worker threads. ExtendJ keeps the state of its
+ * attribute evaluation in a static field, so the tasks only overlap outside of the sections guarded by the
+ * {@link de.fosd.jdime.artifact.ast.ExtendJ} lock, e.g., in line based merges.
+ */
+final class ConcurrentTasks {
+
+    private static final ExecutorService EXECUTOR;
+
+    static {
+        AtomicInteger workerNum = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread worker = new Thread(r, "jdime-worker-" + workerNum.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        };
+
+        EXECUTOR = Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * Utility class.
+     */
+    private ConcurrentTasks() {}
+
+    /**
+     * Executes the given task on a worker thread.
+     *
+     * @param task
+     *         the task to execute
+     * @param <R>
+     *         the type of the result
+     * @return the <code>Future</code> of the result of the task
+     */
+    static <R> Future<R> submit(Callable<R> task) {
+        return EXECUTOR.submit(task);
+    }
+}
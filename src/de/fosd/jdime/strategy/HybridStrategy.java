@@ -0,0 +1,703 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.strategy;
+
+import de.fosd.jdime.artifact.Artifacts;
+import de.fosd.jdime.artifact.ast.ASTNodeArtifact;
+import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.config.merge.MergeScenario;
+import de.fosd.jdime.execption.AbortException;
+import de.fosd.jdime.operations.MergeOperation;
+import de.fosd.jdime.stats.KeyEnums;
+import de.fosd.jdime.stats.MergeScenarioStatistics;
+import de.fosd.jdime.stats.Runtime;
+import de.fosd.jdime.stats.Statistics;
+import de.fosd.jdime.util.parser.ParseResult;
+import de.fosd.jdime.util.parser.Parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import beaver.Symbol;
+
+import static de.fosd.jdime.artifact.file.FileArtifact.FileType.FILE;
+import static de.fosd.jdime.stats.Runtime.MERGE_LABEL;
+import static de.fosd.jdime.util.parser.ConflictContent.CONFLICT_DELIM;
+import static de.fosd.jdime.util.parser.ConflictContent.CONFLICT_END;
+import static de.fosd.jdime.util.parser.ConflictContent.CONFLICT_START;
+
+/**
+ * Performs a line based merge and restructures only the regions of the result that contain conflicts.
+ * <p>
+ * Every conflict of the line based merge is mapped to the innermost class or method (or constructor) declaration
+ * enclosing it. These declarations are merged using the structured (or semistructured) merge and replace their lines
+ * in the result of the line based merge. All other lines are taken from the line based merge. If a conflict can not be
+ * mapped to a declaration (e.g., because it is in the imports), the whole file is merged using the structured merge.
+ */
+public class HybridStrategy extends MergeStrategy<FileArtifact> {
+
+    private static final Logger LOG = Logger.getLogger(HybridStrategy.class.getCanonicalName());
+
+    private static final String LINEBASED_LABEL = "linebased";
+    private static final String PARSE_LABEL = "parse";
+
+    /**
+     * The label of the counter for the number of declarations that were merged using the structured merge.
+     */
+    public static final String REGIONS_LABEL = "structured regions";
+
+    /**
+     * Regex used to split a String into lines while retaining the original line separators.
+     */
+    private static final Pattern LINES = Pattern.compile("(?<=\\R)");
+
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+
+    private final boolean semiStructured;
+
+    /**
+     * Constructs a new {@link HybridStrategy}.
+     *
+     * @param semiStructured
+     *         whether to merge the declarations containing conflicts using the semistructured merge
+     */
+    public HybridStrategy(boolean semiStructured) {
+        this.semiStructured = semiStructured;
+    }
+
+    @Override @SuppressWarnings("try")
+    public void merge(MergeOperation<FileArtifact> operation, MergeContext context) {
+        MergeScenario<FileArtifact> triple = operation.getMergeScenario();
+
+        if (context.isDiffOnly()) {
+            structuredStrategy().merge(operation, context);
+            return;
+        }
+
+        Runtime linebased = new Runtime(LINEBASED_LABEL);
+        Runtime parse = new Runtime(PARSE_LABEL);
+        Runtime merge = new Runtime(MERGE_LABEL);
+
+        String lineResult;
+
+        try (Runtime.Measurement m = linebased.time()) {
+            lineResult = LinebasedStrategy.mergeFiles(operation);
+        }
+
+        LineMerge lineMerge = new LineMerge(lineResult);
+        List<Region> regions;
+        String result;
+
+        if (lineMerge.hasConflicts()) {
+            boolean oldSemiStructured = context.isSemiStructured();
+            context.setSemiStructured(oldSemiStructured || semiStructured);
+
+            try {
+                regions = restructure(lineMerge, triple, context, parse, merge);
+            } finally {
+                context.setSemiStructured(oldSemiStructured);
+            }
+
+            if (regions == null) {
+                LOG.fine(() -> "Could not map the conflicts to declarations, merging the whole file.");
+                structuredStrategy().merge(operation, context);
+
+                if (context.hasStatistics()) {
+                    context.getStatistics().getScenarioStatistics(triple).putRuntime(linebased);
+                }
+
+                return;
+            }
+
+            result = lineMerge.replace(regions);
+        } else {
+            regions = Collections.emptyList();
+            result = lineResult;
+        }
+
+        operation.getTarget().setContent(result);
+
+        LOG.fine(() -> String.format("Restructured %d region(s) of the line based merge.", regions.size()));
+
+        if (context.hasStatistics()) {
+            Statistics statistics = context.getStatistics();
+            MergeScenarioStatistics scenarioStatistics = statistics.getScenarioStatistics(triple);
+            scenarioStatistics.setStrategy(getClass());
+
+            ParseResult res = scenarioStatistics.setLineStatistics(result);
+
+            if (res.getStats().getConflicts() > 0) {
+                scenarioStatistics.getFileStatistics().incrementNumOccurInConflict();
+            }
+
+            scenarioStatistics.incrementCounter(REGIONS_LABEL, regions.size());
+            Stream.of(linebased, parse, merge).filter(Runtime::isMeasured).forEach(scenarioStatistics::putRuntime);
+        }
+    }
+
+    /**
+     * Returns the strategy used if the conflicts of the line based merge can not be mapped to declarations.
+     *
+     * @return the <code>StructuredStrategy</code>
+     */
+    private StructuredStrategy structuredStrategy() {
+        return semiStructured ? new SemiStructuredStrategy() : new StructuredStrategy();
+    }
+
+    /**
+     * Determines the declarations enclosing the conflicts of the line based merge and merges them using the structured
+     * merge. The declarations are determined in the two versions of the line based merge resulting from choosing
+     * either all left or all right sides of the conflicts. Both versions contain all non-conflicting changes, so their
+     * regions outside of the conflicts are identical.
+     *
+     * @param lineMerge
+     *         the result of the line based merge
+     * @param triple
+     *         the <code>MergeScenario</code> being merged
+     * @param context
+     *         the <code>MergeContext</code>
+     * @param parse
+     *         the <code>Runtime</code> to measure parsing with
+     * @param merge
+     *         the <code>Runtime</code> to measure the structured merges with
+     * @return the merged regions or <code>null</code> if the conflicts could not be mapped to declarations
+     */
+    @SuppressWarnings("try")
+    private List<Region> restructure(LineMerge lineMerge, MergeScenario<FileArtifact> triple, MergeContext context,
+                                     Runtime parse, Runtime merge) {
+
+        List<FileArtifact> views = Arrays.asList(lineMerge.view(LEFT, triple.getLeft()),
+                                                 lineMerge.view(RIGHT, triple.getRight()));
+        List<ASTNodeArtifact> trees;
+        ASTNodeArtifact baseTree;
+
+        MergeScenarioStatistics parseStatistics =
+                context.hasStatistics() ? context.getStatistics().getScenarioStatistics(triple) : null;
+
+        try (Runtime.Measurement m = parse.time()) {
+            List<FileArtifact> originals = Arrays.asList(triple.getLeft(), triple.getRight());
+            trees = new ArrayList<>(originals.size());
+
+            for (int i : Arrays.asList(LEFT, RIGHT)) {
+                ASTNodeArtifact tree = new ASTNodeArtifact(views.get(i));
+                tree.setSourceFile(originals.get(i));
+                trees.add(tree);
+            }
+
+            baseTree = StructuredStrategy.parse(Collections.singletonList(triple.getBase()), context,
+                                                parseStatistics).get(0);
+        } catch (AbortException e) {
+            LOG.fine(() -> "Could not parse the line based merge: " + e.getMessage());
+            return null;
+        }
+
+        List<Region> regions = new ArrayList<>();
+
+        for (int hunk : lineMerge.hunks()) {
+
+            if (regions.stream().anyMatch(r -> r.contains(hunk))) {
+                continue;
+            }
+
+            Region region = lineMerge.region(hunk, hunk, trees);
+
+            while (region != null) {
+                Region current = region;
+                List<Region> overlapping = regions.stream().filter(current::overlaps).collect(Collectors.toList());
+
+                if (overlapping.isEmpty()) {
+                    break;
+                }
+
+                regions.removeAll(overlapping);
+
+                int from = overlapping.stream().mapToInt(r -> r.from).min().getAsInt();
+                int to = overlapping.stream().mapToInt(r -> r.to).max().getAsInt();
+
+                region = lineMerge.region(Math.min(from, current.from), Math.max(to, current.to), trees);
+            }
+
+            if (region == null) {
+                return null;
+            }
+
+            regions.add(region);
+        }
+
+        regions.sort((r1, r2) -> Integer.compare(r1.from, r2.from));
+
+        try (Runtime.Measurement m = merge.time()) {
+            for (Region region : regions) {
+                region.content = mergeRegion(region, baseTree, views, triple, context);
+            }
+        }
+
+        return regions;
+    }
+
+    /**
+     * Merges the declarations of the given <code>Region</code> using the structured merge.
+     *
+     * @param region
+     *         the <code>Region</code> to merge
+     * @param baseTree
+     *         the tree of the base revision
+     * @param views
+     *         the left and right version of the line based merge
+     * @param triple
+     *         the <code>MergeScenario</code> being merged
+     * @param context
+     *         the <code>MergeContext</code>
+     * @return the pretty printed result of the merge
+     */
+    private String mergeRegion(Region region, ASTNodeArtifact baseTree, List<FileArtifact> views,
+                               MergeScenario<FileArtifact> triple, MergeContext context) {
+        ASTNodeArtifact left = region.declarations[LEFT];
+        ASTNodeArtifact right = region.declarations[RIGHT];
+        ASTNodeArtifact base = find(left, baseTree);
+
+        if (context.isSemiStructured()) {
+            KeyEnums.Level level = context.getSemiStructuredLevel();
+
+            left = SemiStructuredStrategy.makeSemiStructured(left, level, views.get(LEFT));
+            right = SemiStructuredStrategy.makeSemiStructured(right, level, views.get(RIGHT));
+
+            if (base != null) {
+                base = SemiStructuredStrategy.makeSemiStructured(base, level, triple.getBase());
+            }
+        }
+
+        if (base == null) {
+            base = left.createEmptyArtifact(triple.getBase().getRevision());
+        }
+
+        ASTNodeArtifact target = left.copy();
+
+        MergeScenario<ASTNodeArtifact> nodeTriple = new MergeScenario<>(triple.getMergeType(), left, base, right);
+        new MergeOperation<>(nodeTriple, target).apply(context);
+
+        target.collapseConflicts();
+        target.setRevision(MergeScenario.TARGET, true);
+
+        String content = label(target.prettyPrint(), triple.getLeft(), triple.getRight());
+        return context.isOptimizeMultiConflicts() ? Parser.mergeSubsequentConflicts(content) : content;
+    }
+
+    /**
+     * Replaces the labels of the conflict markers in <code>content</code> with the paths of the left and right
+     * <code>FileArtifact</code>. The merged region is detached from the trees of its <code>CompilationUnit</code>s
+     * and would otherwise not be labeled like the conflicts of the <code>StructuredStrategy</code>.
+     *
+     * @param content
+     *         the pretty printed region
+     * @param left
+     *         the left <code>FileArtifact</code>
+     * @param right
+     *         the right <code>FileArtifact</code>
+     * @return the <code>content</code> with relabeled conflict markers
+     */
+    private static String label(String content, FileArtifact left, FileArtifact right) {
+        String[] lines = LINES.split(content);
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            String trimmed = line.trim();
+            String marker;
+            String label;
+
+            if (LineMerge.isMarker(trimmed, CONFLICT_START)) {
+                marker = CONFLICT_START;
+                label = left.getFile().getPath();
+            } else if (LineMerge.isMarker(trimmed, CONFLICT_END)) {
+                marker = CONFLICT_END;
+                label = right.getFile().getPath();
+            } else {
+                continue;
+            }
+
+            String separator = line.substring(line.replaceFirst("\\R$", "").length());
+            lines[i] = line.substring(0, line.indexOf(marker)) + marker + " " + label + separator;
+        }
+
+        return String.join("", lines);
+    }
+
+    /**
+     * Finds the declaration corresponding to <code>declaration</code> in the tree rooted in <code>root</code> by
+     * following the path from the root of the tree of <code>declaration</code> to it. At every step, the only matching
+     * child (or the matching child at the same index if there are multiple) is chosen.
+     *
+     * @param declaration
+     *         the declaration to find
+     * @param root
+     *         the root of the tree to search
+     * @return the corresponding declaration or <code>null</code> if there is none
+     */
+    private static ASTNodeArtifact find(ASTNodeArtifact declaration, ASTNodeArtifact root) {
+        Deque<ASTNodeArtifact> path = new ArrayDeque<>();
+
+        for (ASTNodeArtifact node = declaration; node.getParent() != null; node = node.getParent()) {
+            path.push(node);
+        }
+
+        ASTNodeArtifact current = root;
+
+        while (!path.isEmpty()) {
+            ASTNodeArtifact step = path.pop();
+            int index = step.getParent().indexOf(step);
+
+            List<ASTNodeArtifact> candidates = current.getChildren().stream()
+                    .filter(c -> c.categoryMatches(step) && c.matches(step))
+                    .collect(Collectors.toList());
+
+            if (candidates.size() == 1) {
+                current = candidates.get(0);
+            } else if (index < current.getNumChildren() && candidates.contains(current.getChild(index))) {
+                current = current.getChild(index);
+            } else {
+                return null;
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * A range of the result of the line based merge (in segments) that is replaced by the structured merge of the
+     * declarations spanning it.
+     */
+    private static final class Region {
+
+        private final int from;
+        private final int to;
+        private final ASTNodeArtifact[] declarations;
+
+        private String content;
+
+        private Region(int from, int to, ASTNodeArtifact[] declarations) {
+            this.from = from;
+            this.to = to;
+            this.declarations = declarations;
+        }
+
+        private boolean contains(int segment) {
+            return from <= segment && segment <= to;
+        }
+
+        private boolean overlaps(Region other) {
+            return from <= other.to && other.from <= to;
+        }
+    }
+
+    /**
+     * The result of a line based merge split into segments. Every conflict is one segment, every other line is a
+     * segment of its own.
+     */
+    private static final class LineMerge {
+
+        private final String lineSeparator;
+
+        /**
+         * The lines of the left and right version of each segment. Both are the same list for lines without conflict.
+         */
+        private final List<List<List<String>>> segments;
+
+        /**
+         * The indices of the segments that are conflicts.
+         */
+        private final List<Integer> hunks;
+
+        /**
+         * The lines of the left and right version of the merge result.
+         */
+        private final List<List<String>> viewLines;
+
+        /**
+         * For the left and right version, the segment every line belongs to.
+         */
+        private final List<List<Integer>> viewSegments;
+
+        /**
+         * For the left and right version, the index of the first line of every segment (and the number of lines).
+         */
+        private final int[][] segmentStarts;
+
+        private LineMerge(String lineResult) {
+            String[] lines = lineResult.isEmpty() ? new String[0] : LINES.split(lineResult);
+
+            this.lineSeparator = lineResult.contains("\r\n") ? "\r\n" : "\n";
+            this.segments = new ArrayList<>();
+            this.hunks = new ArrayList<>();
+
+            List<List<String>> hunk = null;
+            boolean inLeft = false;
+
+            for (String line : lines) {
+                String trimmed = line.replaceAll("\\R$", "");
+
+                if (hunk == null && isMarker(trimmed, CONFLICT_START)) {
+                    hunk = Arrays.asList(new ArrayList<>(), new ArrayList<>());
+                    inLeft = true;
+                } else if (hunk != null && inLeft && trimmed.equals(CONFLICT_DELIM)) {
+                    inLeft = false;
+                } else if (hunk != null && !inLeft && isMarker(trimmed, CONFLICT_END)) {
+                    hunks.add(segments.size());
+                    segments.add(hunk);
+                    hunk = null;
+                } else if (hunk != null) {
+                    hunk.get(inLeft ? LEFT : RIGHT).add(line);
+                } else {
+                    List<String> merged = Collections.singletonList(line);
+                    segments.add(Arrays.asList(merged, merged));
+                }
+            }
+
+            this.viewLines = Arrays.asList(new ArrayList<>(), new ArrayList<>());
+            this.viewSegments = Arrays.asList(new ArrayList<>(), new ArrayList<>());
+            this.segmentStarts = new int[2][segments.size() + 1];
+
+            for (int side : new int[] { LEFT, RIGHT }) {
+
+                for (int s = 0; s < segments.size(); s++) {
+                    segmentStarts[side][s] = viewLines.get(side).size();
+
+                    for (String line : segments.get(s).get(side)) {
+                        viewLines.get(side).add(line);
+                        viewSegments.get(side).add(s);
+                    }
+                }
+
+                segmentStarts[side][segments.size()] = viewLines.get(side).size();
+            }
+        }
+
+        private static boolean isMarker(String line, String marker) {
+            return line.equals(marker) || line.startsWith(marker + " ");
+        }
+
+        private boolean hasConflicts() {
+            return !hunks.isEmpty();
+        }
+
+        private List<Integer> hunks() {
+            return hunks;
+        }
+
+        /**
+         * Returns a virtual <code>FileArtifact</code> containing the version of the merge result resulting from
+         * choosing the given side of every conflict.
+         *
+         * @param side
+         *         the side to choose
+         * @param original
+         *         the input <code>FileArtifact</code> of that side
+         * @return the <code>FileArtifact</code>
+         */
+        private FileArtifact view(int side, FileArtifact original) {
+            FileArtifact view = new FileArtifact(original.getRevision(), FILE);
+            view.setContent(String.join("", viewLines.get(side)));
+
+            return view;
+        }
+
+        /**
+         * Determines the smallest <code>Region</code> containing the segments <code>from</code> to <code>to</code>
+         * whose lines form a class or method declaration in both the left and the right version. The declarations must
+         * match each other.
+         *
+         * @param from
+         *         the first segment
+         * @param to
+         *         the last segment
+         * @param trees
+         *         the trees of the left and right version
+         * @return the <code>Region</code> or <code>null</code> if there is no such <code>Region</code>
+         */
+        private Region region(int from, int to, List<ASTNodeArtifact> trees) {
+            ASTNodeArtifact[] declarations = new ASTNodeArtifact[2];
+
+            while (true) {
+                int newFrom = from;
+                int newTo = to;
+
+                for (int side : new int[] { LEFT, RIGHT }) {
+                    int startLine = segmentStarts[side][from];
+                    int endLine = segmentStarts[side][to + 1] - 1;
+
+                    if (startLine > endLine) {
+                        // the region is empty in this version, the declaration must enclose the adjacent lines
+                        startLine = Math.max(0, endLine);
+                        endLine = Math.min(viewLines.get(side).size() - 1, startLine + 1);
+                    }
+
+                    ASTNodeArtifact declaration = enclosingDeclaration(side, trees.get(side), startLine, endLine);
+
+                    if (declaration == null) {
+                        return null;
+                    }
+
+                    declarations[side] = declaration;
+
+                    List<Integer> lineSegments = viewSegments.get(side);
+                    int declarationFrom = lineSegments.get(Symbol.getLine(declaration.getStartPosition()) - 1);
+                    int declarationTo = lineSegments.get(Symbol.getLine(declaration.getEndPosition()) - 1);
+
+                    newFrom = Math.min(newFrom, declarationFrom);
+                    newTo = Math.max(newTo, declarationTo);
+                }
+
+                if (newFrom == from && newTo == to) {
+
+                    if (covers(declarations[LEFT], from, to, LEFT) && covers(declarations[RIGHT], from, to, RIGHT)) {
+                        break;
+                    }
+
+                    return null;
+                }
+
+                from = newFrom;
+                to = newTo;
+            }
+
+            if (!declarations[LEFT].matches(declarations[RIGHT])) {
+                return null;
+            }
+
+            return new Region(from, to, declarations);
+        }
+
+        /**
+         * Returns whether the lines of <code>declaration</code> in the given version are exactly the segments
+         * <code>from</code> to <code>to</code>.
+         */
+        private boolean covers(ASTNodeArtifact declaration, int from, int to, int side) {
+            int startLine = Symbol.getLine(declaration.getStartPosition()) - 1;
+            int endLine = Symbol.getLine(declaration.getEndPosition()) - 1;
+
+            return startLine == segmentStarts[side][from] && endLine == segmentStarts[side][to + 1] - 1;
+        }
+
+        /**
+         * Returns the innermost class or method declaration in the given tree that encloses the lines
+         * <code>startLine</code> to <code>endLine</code> (starting at 0) and occupies its lines completely.
+         *
+         * @return the declaration or <code>null</code> if there is none
+         */
+        private ASTNodeArtifact enclosingDeclaration(int side, ASTNodeArtifact tree, int startLine, int endLine) {
+            List<String> lines = viewLines.get(side);
+
+            return Artifacts.dfsStream(tree).filter(node -> {
+                KeyEnums.Type type = node.getType();
+
+                if (type != KeyEnums.Type.METHOD && type != KeyEnums.Type.CLASS) {
+                    return false;
+                }
+
+                int start = node.getStartPosition();
+                int end = node.getEndPosition();
+
+                if (start == 0 || end == 0) {
+                    return false;
+                }
+
+                int nodeStart = Symbol.getLine(start) - 1;
+                int nodeEnd = Symbol.getLine(end) - 1;
+
+                if (nodeStart > startLine || nodeEnd < endLine || nodeEnd >= lines.size()) {
+                    return false;
+                }
+
+                String first = lines.get(nodeStart);
+                String last = lines.get(nodeEnd);
+                int startCol = Symbol.getColumn(start) - 1;
+                int endCol = Symbol.getColumn(end);
+
+                return startCol <= first.length() && first.substring(0, startCol).trim().isEmpty()
+                        && endCol <= last.length() && last.substring(endCol).trim().isEmpty();
+            }).reduce((outer, inner) -> inner).orElse(null);
+        }
+
+        /**
+         * Returns the merge result with the segments of the given <code>Region</code>s replaced by their content.
+         *
+         * @param regions
+         *         the <code>Region</code>s ordered by their first segment
+         * @return the merge result
+         */
+        private String replace(List<Region> regions) {
+            StringBuilder result = new StringBuilder();
+            int segment = 0;
+
+            for (Region region : regions) {
+
+                for (; segment < region.from; segment++) {
+                    segments.get(segment).get(LEFT).forEach(result::append);
+                }
+
+                String firstLine = viewLines.get(LEFT).get(segmentStarts[LEFT][region.from]);
+                String indent = firstLine.substring(0, firstLine.length() - firstLine.replaceAll("^\\s+", "").length());
+
+                boolean inComment = false;
+
+                for (String line : region.content.split("\\R")) {
+                    boolean marker = line.startsWith(CONFLICT_START) || line.startsWith(CONFLICT_DELIM)
+                                  || line.startsWith(CONFLICT_END);
+
+                    // comments are printed with their original indentation after their first line
+                    if (!marker && !inComment && !line.isEmpty()) {
+                        result.append(indent);
+                    }
+
+                    int commentStart = line.lastIndexOf("/*");
+
+                    if (commentStart != -1) {
+                        inComment = line.indexOf("*/", commentStart + 2) == -1;
+                    } else if (line.contains("*/")) {
+                        inComment = false;
+                    }
+
+                    result.append(line).append(lineSeparator);
+                }
+
+                segment = region.to + 1;
+            }
+
+            for (; segment < segments.size(); segment++) {
+                segments.get(segment).get(LEFT).forEach(result::append);
+            }
+
+            return result.toString();
+        }
+    }
+}
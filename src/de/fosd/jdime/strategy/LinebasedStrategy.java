@@ -119,7 +119,7 @@ public void merge(MergeOperation<FileArtifact> operation, MergeContext context)
      *         the current {@link MergeOperation}
      * @return the merged file contents
      */
-    private String mergeFiles(MergeOperation<FileArtifact> op) {
+    static String mergeFiles(MergeOperation<FileArtifact> op) {
         FileArtifact leftFile = op.getMergeScenario().getLeft();
         FileArtifact baseFile = op.getMergeScenario().getBase();
         FileArtifact rightFile = op.getMergeScenario().getRight();
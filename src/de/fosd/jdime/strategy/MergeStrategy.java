@@ -50,6 +50,8 @@
     public static final String SEMISTRUCTURED = "semistructured";
     public static final String STRUCTURED = "structured";
     public static final String NWAY = "nway";
+    public static final String HYBRID = "hybrid";
+    public static final String SEMIHYBRID = "semihybrid";
 
     /**
      * Returns an unmodifiable <code>List</code> containing the names of available strategies.
@@ -57,7 +59,7 @@
      * @return names of available strategies
      */
     public static List<String> listStrategies() {
-        return Arrays.asList(LINEBASED, SEMISTRUCTURED, STRUCTURED, NWAY, CHOOSE_LEFT, CHOOSE_BASE, CHOOSE_RIGHT);
+        return Arrays.asList(LINEBASED, SEMISTRUCTURED, STRUCTURED, NWAY, HYBRID, SEMIHYBRID, CHOOSE_LEFT, CHOOSE_BASE, CHOOSE_RIGHT);
     }
 
     /**
@@ -120,6 +122,12 @@ public static Optional<MergeStrategy<FileArtifact>> parse(String name) {
             case NWAY:
                 strategy = new NWayStrategy();
                 break;
+            case HYBRID:
+                strategy = new HybridStrategy(false);
+                break;
+            case SEMIHYBRID:
+                strategy = new HybridStrategy(true);
+                break;
             default:
                 if (name.indexOf(',') != -1) {
                     String[] names = name.split(",");
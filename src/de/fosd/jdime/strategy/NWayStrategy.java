@@ -24,7 +24,9 @@
 package de.fosd.jdime.strategy;
 
 import java.io.FileWriter;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -82,12 +84,14 @@ public void merge(MergeOperation<FileArtifact> operation, MergeContext context)
             }
         }
 
-        Iterator<Revision> it = variants.keySet().iterator();
-        targetNode = new ASTNodeArtifact(variants.get(it.next()));
+        List<ASTNodeArtifact> trees = StructuredStrategy.parse(new ArrayList<>(variants.values()), context, null);
+
+        Iterator<ASTNodeArtifact> it = trees.iterator();
+        targetNode = it.next();
 
         while (it.hasNext()) {
             merged = targetNode;
-            next = new ASTNodeArtifact(variants.get(it.next()));
+            next = it.next();
 
             try {
                 long cmdStart = System.currentTimeMillis();
@@ -24,6 +24,7 @@
 package de.fosd.jdime.strategy;
 
 import de.fosd.jdime.artifact.ast.ASTNodeArtifact;
+import de.fosd.jdime.artifact.ast.ExtendJ;
 import de.fosd.jdime.artifact.ast.SemiStructuredArtifact;
 import de.fosd.jdime.artifact.file.FileArtifact;
 import de.fosd.jdime.config.merge.MergeContext;
@@ -58,6 +59,15 @@ public void merge(MergeOperation<FileArtifact> operation, MergeContext context)
     }
 
     static ASTNodeArtifact makeSemiStructured(ASTNodeArtifact root, KeyEnums.Level level, FileArtifact original) {
+        return ExtendJ.locked(() -> makeSemiStructuredLocked(root, level, original));
+    }
+
+    /**
+     * Implements {@link #makeSemiStructured(ASTNodeArtifact, KeyEnums.Level, FileArtifact)} while holding the
+     * {@link ExtendJ} lock. Replacing blocks evaluates attributes of the ExtendJ AST.
+     */
+    private static ASTNodeArtifact makeSemiStructuredLocked(ASTNodeArtifact root, KeyEnums.Level level,
+                                                            FileArtifact original) {
         List<ASTNodeArtifact> toReplace = collectBlocks(root, level, new ArrayList<>());
         String[] lines = LINES.split(original.getContent());
 
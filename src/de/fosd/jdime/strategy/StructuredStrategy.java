@@ -23,18 +23,24 @@
  */
 package de.fosd.jdime.strategy;
 
+import de.fosd.jdime.artifact.ast.ASTCache;
 import de.fosd.jdime.artifact.ast.ASTNodeArtifact;
 import de.fosd.jdime.artifact.file.FileArtifact;
 import de.fosd.jdime.config.merge.MergeContext;
 import de.fosd.jdime.config.merge.MergeScenario;
 import de.fosd.jdime.operations.MergeOperation;
+import de.fosd.jdime.stats.KeyEnums;
 import de.fosd.jdime.stats.MergeScenarioStatistics;
+import de.fosd.jdime.stats.MergeScenarioStatus;
 import de.fosd.jdime.stats.Runtime;
 import de.fosd.jdime.stats.Statistics;
 import de.fosd.jdime.stats.StatisticsInterface;
 import de.fosd.jdime.util.parser.ParseResult;
 import de.fosd.jdime.util.parser.Parser;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
@@ -87,6 +93,10 @@ public void merge(MergeOperation<FileArtifact> operation, MergeContext context)
 
         LOG.fine(() -> String.format("Merging:%nLeft: %s%nBase: %s%nRight: %s", lPath, bPath, rPath));
 
+        if (!context.isDiffOnly() && mergeTrivially(triple, target, context)) {
+            return;
+        }
+
         Runtime parse = new Runtime(PARSE_LABEL);
         Runtime semistructure = new Runtime(SEMISTRUCTURE_LABEL);
         Runtime merge = new Runtime(MERGE_LABEL);
@@ -95,20 +105,33 @@ public void merge(MergeOperation<FileArtifact> operation, MergeContext context)
         ASTNodeArtifact base;
         ASTNodeArtifact right;
 
+        List<FileArtifact> files = Arrays.asList(leftFile, baseFile, rightFile);
+        List<ASTNodeArtifact> trees;
+
+        MergeScenarioStatistics parseStatistics =
+                context.hasStatistics() ? context.getStatistics().getScenarioStatistics(triple) : null;
+
         try (Runtime.Measurement m = parse.time()) {
-            left = new ASTNodeArtifact(leftFile);
-            base = new ASTNodeArtifact(baseFile);
-            right = new ASTNodeArtifact(rightFile);
+            trees = parse(files, context, parseStatistics);
         }
 
         if (context.isSemiStructured()) {
+            KeyEnums.Level level = context.getSemiStructuredLevel();
+            List<ASTNodeArtifact> semiStructured = new ArrayList<>(trees.size());
+
             try (Runtime.Measurement m = semistructure.time()) {
-                left = SemiStructuredStrategy.makeSemiStructured(left, context.getSemiStructuredLevel(), leftFile);
-                base = SemiStructuredStrategy.makeSemiStructured(base, context.getSemiStructuredLevel(), baseFile);
-                right = SemiStructuredStrategy.makeSemiStructured(right, context.getSemiStructuredLevel(), rightFile);
+                for (int i = 0; i < trees.size(); i++) {
+                    semiStructured.add(SemiStructuredStrategy.makeSemiStructured(trees.get(i), level, files.get(i)));
+                }
             }
+
+            trees = semiStructured;
         }
 
+        left = trees.get(0);
+        base = trees.get(1);
+        right = trees.get(2);
+
         ASTNodeArtifact targetNode = left.copy();
 
         MergeScenario<ASTNodeArtifact> nodeTriple = new MergeScenario<>(triple.getMergeType(), left, base, right);
@@ -165,4 +188,88 @@ public void merge(MergeOperation<FileArtifact> operation, MergeContext context)
             Stream.of(parse, semistructure, merge).filter(Runtime::isMeasured).forEach(scenarioStatistics::putRuntime);
         }
     }
+
+    /**
+     * Parses the given <code>FileArtifact</code>s into <code>ASTNodeArtifact</code>s. Trees that are found in the
+     * {@link MergeContext#getASTCache() ASTCache} of the <code>context</code> are copied from there, all others are
+     * parsed and then added to the cache. Parsing uses the
+     * {@link MergeContext#getASTDiskCache() ASTDiskCache} of the <code>context</code> if there is one.
+     *
+     * @param files
+     *         the <code>FileArtifact</code>s to parse
+     * @param context
+     *         the <code>MergeContext</code>
+     * @param scenarioStatistics
+     *         the <code>MergeScenarioStatistics</code> to record the cache hits and misses in, may be <code>null</code>
+     * @return the trees in the order of <code>files</code>
+     */
+    static List<ASTNodeArtifact> parse(List<FileArtifact> files, MergeContext context,
+                                       MergeScenarioStatistics scenarioStatistics) {
+        ASTCache cache = context.getASTCache();
+        List<ASTNodeArtifact> trees = new ArrayList<>(files.size());
+        int hits = 0;
+
+        for (FileArtifact file : files) {
+            ASTNodeArtifact tree = cache.get(file);
+
+            if (tree != null) {
+                hits++;
+            } else {
+                tree = new ASTNodeArtifact(file, context.getASTDiskCache());
+                cache.put(file, tree);
+            }
+
+            trees.add(tree);
+        }
+
+        if (scenarioStatistics != null) {
+            scenarioStatistics.incrementCounter(ASTCache.HITS_LABEL, hits);
+            scenarioStatistics.incrementCounter(ASTCache.MISSES_LABEL, files.size() - hits);
+        }
+
+        return trees;
+    }
+
+    /**
+     * Merges the given <code>MergeScenario</code> without parsing the files if the merge result follows from the
+     * contents of the files alone. This is the case if left and right are identical (the result is left), or if the
+     * base is identical to one side (the result is the other side). The files are compared using their
+     * {@link FileArtifact#getContentDigest() content digests}.
+     *
+     * @param triple
+     *         the <code>MergeScenario</code> to merge
+     * @param target
+     *         the <code>FileArtifact</code> to store the result in
+     * @param context
+     *         the <code>MergeContext</code>
+     * @return true iff the merge was trivial and the result was stored in <code>target</code>
+     */
+    private boolean mergeTrivially(MergeScenario<FileArtifact> triple, FileArtifact target, MergeContext context) {
+        String leftDigest = triple.getLeft().getContentDigest();
+        String baseDigest = triple.getBase().getContentDigest();
+        String rightDigest = triple.getRight().getContentDigest();
+
+        FileArtifact result;
+
+        if (leftDigest.equals(rightDigest) || baseDigest.equals(rightDigest)) {
+            result = triple.getLeft();
+        } else if (baseDigest.equals(leftDigest)) {
+            result = triple.getRight();
+        } else {
+            return false;
+        }
+
+        LOG.fine(() -> String.format("Trivial merge, using the content of %s.", result.getId()));
+        target.setContent(result.getContent());
+
+        if (context.hasStatistics()) {
+            MergeScenarioStatistics scenarioStatistics = context.getStatistics().getScenarioStatistics(triple);
+
+            scenarioStatistics.setStrategy(getClass());
+            scenarioStatistics.setStatus(MergeScenarioStatus.TRIVIAL);
+            scenarioStatistics.setLineStatistics(target.getContent());
+        }
+
+        return true;
+    }
 }
@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.fosd.jdime.config.JDimeConfig;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the batch mode and the statistics files written by concurrent merges.
+ */
+public class BatchTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void init() throws Exception {
+        JDimeConfig.setLogLevel("WARNING");
+    }
+
+    @Test
+    public void executesAllScenarios() throws Exception {
+        File left = write("Left.java", "class A {\n    int a;\n}\n");
+        File base = write("Base.java", "class A {\n}\n");
+        File right = write("Right.java", "class A {\n}\n");
+
+        File output1 = new File(tmpFolder.getRoot(), "Out1.java");
+        File output2 = new File(tmpFolder.getRoot(), "Out2.java");
+
+        String paths = String.format("[\"%s\", \"%s\", \"%s\"]", left, base, right);
+        File manifest = write("manifest.jsonl",
+                String.format("{\"paths\": %s, \"output\": \"%s\", \"label\": \"first\"}%n", paths, output1)
+                + "\n"
+                + "not a scenario\n"
+                + String.format("{\"paths\": %s, \"output\": \"%s\"}%n", paths, output2));
+
+        JDimeConfig config = new JDimeConfig(new String[] {"-batch", manifest.getPath(), "-m", "linebased"});
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+        int exitCode = Batch.run(config, new PrintStream(results, true, UTF_8.name()));
+
+        List<JsonObject> lines = new ArrayList<>();
+
+        for (String line : new String(results.toByteArray(), UTF_8).split("\\R")) {
+            lines.add(JsonParser.parseString(line).getAsJsonObject());
+        }
+
+        lines.sort((a, b) -> Integer.compare(a.get("line").getAsInt(), b.get("line").getAsInt()));
+
+        assertEquals(Main.EXIT_FAILURE, exitCode);
+        assertEquals(3, lines.size());
+
+        assertEquals(1, lines.get(0).get("line").getAsInt());
+        assertEquals("first", lines.get(0).get("label").getAsString());
+        assertEquals(Main.EXIT_SUCCESS, lines.get(0).get("exitCode").getAsInt());
+
+        assertEquals(3, lines.get(1).get("line").getAsInt());
+        assertEquals(Main.EXIT_ABORTED, lines.get(1).get("exitCode").getAsInt());
+
+        assertEquals(4, lines.get(2).get("line").getAsInt());
+        assertEquals(Main.EXIT_SUCCESS, lines.get(2).get("exitCode").getAsInt());
+
+        String expected = "class A {\n    int a;\n}\n";
+        assertEquals(expected, new String(Files.readAllBytes(output1.toPath()), UTF_8));
+        assertEquals(expected, new String(Files.readAllBytes(output2.toPath()), UTF_8));
+    }
+
+    @Test
+    public void reservesDistinctStatisticsFiles() throws Exception {
+        File statistics = new File(tmpFolder.newFolder(), "stats.txt");
+        int numFiles = 64;
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<File>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < numFiles; i++) {
+            tasks.add(() -> Main.reserveNonExistent(statistics));
+        }
+
+        Set<File> reserved = new HashSet<>();
+
+        try {
+            for (Future<File> file : executor.invokeAll(tasks)) {
+                reserved.add(file.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(numFiles, reserved.size());
+        assertTrue(reserved.contains(statistics));
+        assertTrue(reserved.stream().allMatch(File::exists));
+        assertEquals(numFiles, statistics.getParentFile().list().length);
+        assertTrue(Arrays.asList(statistics.getParentFile().list()).contains("stats_0.txt"));
+    }
+
+    /**
+     * Writes a file with the given name and content to the temporary folder.
+     *
+     * @param name
+     *         the name of the file
+     * @param content
+     *         the content of the file
+     * @return the written file
+     */
+    private File write(String name, String content) throws Exception {
+        File file = new File(tmpFolder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import de.fosd.jdime.artifact.ArtifactList;
+import de.fosd.jdime.artifact.ast.ASTNodeArtifact;
+import de.fosd.jdime.artifact.ast.ExtendJ;
+import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.config.JDimeConfig;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.config.merge.Revision;
+import de.fosd.jdime.matcher.Matcher;
+import de.fosd.jdime.matcher.matching.Color;
+import de.fosd.jdime.matcher.matching.Matching;
+import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.merge.FileMergePool;
+import de.fosd.jdime.stats.MergeScenarioStatistics;
+import de.fosd.jdime.strategy.MergeStrategy;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static de.fosd.jdime.artifact.file.FileArtifact.FileType.DIR;
+import static de.fosd.jdime.config.merge.MergeScenario.BASE;
+import static de.fosd.jdime.config.merge.MergeScenario.LEFT;
+import static de.fosd.jdime.config.merge.MergeScenario.MERGE;
+import static de.fosd.jdime.config.merge.MergeScenario.RIGHT;
+import static de.fosd.jdime.strategy.MergeStrategy.LINEBASED;
+import static de.fosd.jdime.strategy.MergeStrategy.STRUCTURED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests merging directories using more than one thread.
+ */
+public class ParallelMergeTest extends JDimeTest {
+
+    private static final String TEST_DIR = "SimpleTests/Bag";
+
+    @BeforeClass
+    public static void init() throws Exception {
+        JDimeConfig.setLogLevel("WARNING");
+    }
+
+    @Test
+    public void parallelMergeMatchesSequentialMerge() {
+        MergeContext sequential = mergeDirectories(1);
+        MergeContext parallel = mergeDirectories(4);
+
+        List<String> expected = contents(sequential.getOutputFile());
+        List<String> output = contents(parallel.getOutputFile());
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, output);
+
+        long expectedConflicts = sequential.getStatistics().getConflictStatistics().getSum();
+        long conflicts = parallel.getStatistics().getConflictStatistics().getSum();
+
+        assertEquals(expectedConflicts, conflicts);
+        assertEquals(sequential.getCrashes().size(), parallel.getCrashes().size());
+    }
+
+    @Test
+    public void speculativeCombinedMergeMatchesSequentialMerge() {
+        String strategy = LINEBASED + "," + STRUCTURED;
+
+        MergeContext sequential = mergeDirectories(strategy, 1, false);
+        MergeContext speculative = mergeDirectories(strategy, 1, true);
+
+        List<String> expected = contents(sequential.getOutputFile());
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, contents(speculative.getOutputFile()));
+        assertEquals(statistics(sequential), statistics(speculative));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void submitWhileHoldingExtendJLockFails() {
+        try (FileMergePool pool = new FileMergePool(1)) {
+            ExtendJ.locked(() -> pool.submit(null, new MergeContext()));
+        }
+    }
+
+    @Test
+    public void matcherPoolIsShutDown() throws Exception {
+        MergeContext context = new MergeContext();
+        context.setMatcherThreads(2);
+        context.setOutputFile(new FileArtifact(MERGE, DIR));
+
+        ForkJoinPool pool = context.getMatcherPool();
+
+        assertTrue(pool.submit(() -> Thread.currentThread().isDaemon()).get());
+        assertSame(pool, context.workerCopy().getMatcherPool());
+
+        context.shutdownMatcherPool();
+
+        assertTrue(pool.isShutdown());
+        assertNotSame(pool, context.getMatcherPool());
+
+        context.shutdownMatcherPool();
+    }
+
+    @Test
+    public void parallelMatchingMatchesSequentialMatching() {
+        int statements = 40;
+
+        assertTrue(statements * statements >= MergeContext.DEFAULT_MATCHER_PARALLEL_THRESHOLD);
+
+        MergeContext sequential = new MergeContext();
+        sequential.setMatcherThreads(1);
+
+        MergeContext parallel = new MergeContext();
+        parallel.setMatcherThreads(4);
+
+        try {
+            List<String> expected = matchings(sequential, statements);
+
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, matchings(parallel, statements));
+            assertTrue(parallel.getMatcherPool().getPoolSize() > 0);
+        } finally {
+            parallel.shutdownMatcherPool();
+        }
+    }
+
+    /**
+     * Matches two versions of a method containing the given number of statements and prints the resulting
+     * matchings. The right version contains the statements in reverse order and changes every third one.
+     *
+     * @param context
+     *         the <code>MergeContext</code> to match with
+     * @param statements
+     *         the number of statements of the method
+     * @return the sorted matchings
+     */
+    private static List<String> matchings(MergeContext context, int statements) {
+        StringBuilder left = new StringBuilder("class Large {\n  int m(int x) {\n");
+        StringBuilder right = new StringBuilder("class Large {\n  int m(int x) {\n");
+
+        for (int i = 0; i < statements; i++) {
+            int j = statements - 1 - i;
+
+            left.append(String.format("    x = x + %d;%n", i));
+            right.append(String.format("    x = x %s %d;%n", j % 3 == 0 ? "*" : "+", j));
+        }
+
+        ASTNodeArtifact leftTree = parse(LEFT, left.append("    return x;\n  }\n}").toString());
+        ASTNodeArtifact rightTree = parse(RIGHT, right.append("    return x;\n  }\n}").toString());
+
+        Matchings<ASTNodeArtifact> matchings = new Matcher<>(leftTree, rightTree).match(context, Color.DEFAULT);
+
+        return matchings.stream().map(Matching::toString).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Parses the given source code.
+     *
+     * @param revision
+     *         the <code>Revision</code> of the resulting tree
+     * @param content
+     *         the source code to parse
+     * @return the resulting <code>ASTNodeArtifact</code>
+     */
+    private static ASTNodeArtifact parse(Revision revision, String content) {
+        FileArtifact file = new FileArtifact(revision, FileArtifact.FileType.FILE);
+        file.setContent(content);
+
+        return new ASTNodeArtifact(file);
+    }
+
+    /**
+     * Merges the {@value #TEST_DIR} directories using the given number of threads.
+     *
+     * @param threads
+     *         the number of threads to use
+     * @return the <code>MergeContext</code> used for the merge
+     */
+    private static MergeContext mergeDirectories(int threads) {
+        return mergeDirectories(STRUCTURED, threads, false);
+    }
+
+    /**
+     * Merges the {@value #TEST_DIR} directories using the given strategy and number of threads.
+     *
+     * @param strategy
+     *         the name of the strategy to use
+     * @param threads
+     *         the number of threads to use
+     * @param speculative
+     *         whether to run the strategies of a combined strategy speculatively
+     * @return the <code>MergeContext</code> used for the merge
+     */
+    private static MergeContext mergeDirectories(String strategy, int threads, boolean speculative) {
+        MergeContext context = new MergeContext();
+        List<FileArtifact> inputs = new ArtifactList<>();
+
+        inputs.add(new FileArtifact(LEFT, file(leftDir, TEST_DIR)));
+        inputs.add(new FileArtifact(BASE, file(baseDir, TEST_DIR)));
+        inputs.add(new FileArtifact(RIGHT, file(rightDir, TEST_DIR)));
+
+        context.setMergeStrategy(MergeStrategy.parse(strategy).get());
+        context.setInputFiles(inputs);
+        context.setOutputFile(new FileArtifact(MERGE, DIR));
+        context.collectStatistics(true);
+        context.setThreads(threads);
+        context.setSpeculativeCombinedStrategy(speculative);
+
+        Main.merge(context);
+
+        return context;
+    }
+
+    /**
+     * Prints the statistics of all merge scenarios of the given <code>MergeContext</code> without their runtimes,
+     * which differ between merges.
+     *
+     * @param context
+     *         the <code>MergeContext</code> used for a merge
+     * @return the printed statistics, ordered by merge scenario
+     */
+    private static List<String> statistics(MergeContext context) {
+        List<String> statistics = new ArrayList<>();
+
+        for (MergeScenarioStatistics stats : context.getStatistics().getScenarioStatistics()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            stats.print(new PrintStream(out, true));
+
+            String printed = Arrays.stream(out.toString().split("\\R"))
+                                   .filter(line -> !line.trim().startsWith("Runtime ("))
+                                   .collect(Collectors.joining(System.lineSeparator()));
+            statistics.add(printed);
+        }
+
+        Collections.sort(statistics);
+        return statistics;
+    }
+
+    /**
+     * Collects the names and contents of all files in the tree under <code>artifact</code> in pre-order.
+     *
+     * @param artifact
+     *         the root of the tree
+     * @return the names and contents of the files
+     */
+    private static List<String> contents(FileArtifact artifact) {
+        List<String> contents = new ArrayList<>();
+
+        if (artifact.isFile()) {
+            contents.add(artifact.getFile().getName() + System.lineSeparator() + artifact.getContent());
+        }
+
+        for (FileArtifact child : artifact.getChildren()) {
+            contents.addAll(contents(child));
+        }
+
+        return contents;
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.fosd.jdime.artifact.file.GitRepository;
+import de.fosd.jdime.config.JDimeConfig;
+import de.fosd.jdime.config.merge.MergeContext;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for replaying the merge commits of a git repository.
+ */
+public class ReplayTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File directory;
+    private String commit;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        JDimeConfig.setLogLevel("SEVERE");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        directory = tmpFolder.newFolder();
+
+        write("A.java", "class A {\n\n\n\n}\n");
+        write("B.java", "class B {\n\n\n\n}\n");
+        git("init", "-q");
+        git("checkout", "-q", "-b", "base");
+        commit("base");
+
+        git("checkout", "-q", "-b", "left");
+        write("A.java", "// left\nclass A {\n\n\n\n}\n");
+        write("B.java", "// left\nclass B {\n\n\n\n}\n");
+        commit("left");
+
+        git("checkout", "-q", "-b", "right", "base");
+        write("A.java", "class A {\n\n\n\n}\n// right\n");
+        write("B.java", "class B {\n\n\n\n}\n// right\n");
+        commit("right");
+
+        git("-c", "user.name=JDime", "-c", "user.email=jdime@localhost", "merge", "-q", "--no-edit", "left");
+        commit = git("rev-parse", "HEAD").trim();
+    }
+
+    @Test
+    public void replaysMergeCommits() throws Exception {
+        JsonObject result = replay(Main::merge, Main.EXIT_SUCCESS);
+        JsonArray files = result.getAsJsonArray("files");
+
+        assertEquals(commit, result.get("commit").getAsString());
+        assertEquals(0, result.get("conflicts").getAsLong());
+        assertEquals(2, files.size());
+
+        for (int i = 0; i < files.size(); i++) {
+            JsonObject file = files.get(i).getAsJsonObject();
+
+            assertFalse(file.toString(), file.has("error"));
+            assertTrue(file.toString(), file.get("matchesCommit").getAsBoolean());
+        }
+    }
+
+    @Test
+    public void errorsAreRecordedAsFailedMerges() throws Exception {
+        AtomicInteger merges = new AtomicInteger();
+
+        JsonObject result = replay(context -> {
+            if (merges.getAndIncrement() == 0) {
+                throw new LinkageError("Expected by the test.");
+            }
+
+            Main.merge(context);
+        }, Main.EXIT_FAILURE);
+
+        JsonArray files = result.getAsJsonArray("files");
+        int errors = 0;
+
+        assertEquals(commit, result.get("commit").getAsString());
+        assertEquals(2, files.size());
+
+        for (int i = 0; i < files.size(); i++) {
+            JsonObject file = files.get(i).getAsJsonObject();
+
+            if (file.has("error")) {
+                errors++;
+                assertTrue(file.get("error").getAsString().contains(LinkageError.class.getName()));
+            } else {
+                assertTrue(file.toString(), file.get("matchesCommit").getAsBoolean());
+            }
+        }
+
+        assertEquals(1, errors);
+    }
+
+    /**
+     * Replays the merge commit of the test repository using the given function to merge the files.
+     *
+     * @param merger
+     *         the function executing the merge of a single file
+     * @param expectedExitCode
+     *         the exit code the replay is expected to return
+     * @return the result of the merge commit
+     */
+    private JsonObject replay(Consumer<MergeContext> merger, int expectedExitCode) throws Exception {
+        JDimeConfig config = new JDimeConfig(new String[] {"-replay", directory.getPath(), "-m", "linebased"});
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+        try (GitRepository repository = GitRepository.open(directory)) {
+            int exitCode = Replay.run(repository, config, new PrintStream(results, true, UTF_8.name()), merger);
+            assertEquals(expectedExitCode, exitCode);
+        }
+
+        String[] lines = new String(results.toByteArray(), UTF_8).trim().split("\\R");
+
+        assertEquals(1, lines.length);
+        return JsonParser.parseString(lines[0]).getAsJsonObject();
+    }
+
+    /**
+     * Writes the given content to the file <code>name</code> in the test repository.
+     *
+     * @param name
+     *         the name of the file
+     * @param content
+     *         the content to write
+     */
+    private void write(String name, String content) throws Exception {
+        Files.write(new File(directory, name).toPath(), content.getBytes(UTF_8));
+    }
+
+    /**
+     * Commits all files in the test repository.
+     *
+     * @param message
+     *         the commit message
+     */
+    private void commit(String message) throws Exception {
+        git("add", ".");
+        git("-c", "user.name=JDime", "-c", "user.email=jdime@localhost", "commit", "-q", "-m", message);
+    }
+
+    /**
+     * Runs git with the given arguments in the test repository.
+     *
+     * @param args
+     *         the arguments for git
+     * @return the output of git
+     */
+    private String git(String... args) throws Exception {
+        List<String> cmd = new ArrayList<>();
+
+        cmd.add("git");
+        Collections.addAll(cmd, args);
+
+        Process git = new ProcessBuilder(cmd).directory(directory).redirectErrorStream(true).start();
+        String out = IOUtils.toString(git.getInputStream(), UTF_8);
+
+        assertEquals(out, 0, git.waitFor());
+        return out;
+    }
+}
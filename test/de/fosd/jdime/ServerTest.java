@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static de.fosd.jdime.config.CommandLineConfigSource.CLI_SERVER;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests requests sent by the <code>Client</code> to a <code>Server</code>.
+ */
+public class ServerTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private Server server;
+    private Thread serving;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new Server(0, tmpFolder.newFolder());
+        serving = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        serving.setDaemon(true);
+        serving.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        serving.join(10000);
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode;
+
+        try (Socket socket = connect()) {
+            String token = Client.readToken(server.getTokenFile());
+            exitCode = Client.request(socket, token, new String[] {"-help"}, new PrintStream(out), new PrintStream(err));
+        }
+
+        assertEquals(Main.EXIT_SUCCESS, exitCode);
+        assertTrue(out.toString(UTF_8.name()).contains("-" + CLI_SERVER));
+        assertEquals("", err.toString(UTF_8.name()));
+    }
+
+    @Test
+    public void logMessagesAreSentToTheClient() throws Exception {
+        File missing = new File(tmpFolder.getRoot(), "Missing.java");
+        String[] args = {"-m", "structured", missing.getPath(), missing.getPath()};
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode;
+
+        try (Socket socket = connect()) {
+            String token = Client.readToken(server.getTokenFile());
+            exitCode = Client.request(socket, token, args, new PrintStream(out), new PrintStream(err));
+        }
+
+        assertEquals(Main.EXIT_ABORTED, exitCode);
+        assertTrue(err.toString(UTF_8.name()).contains(missing.getPath() + " does not exist."));
+    }
+
+    @Test(expected = EOFException.class)
+    public void wrongTokenIsRejected() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (Socket socket = connect()) {
+            Client.request(socket, "wrong", new String[] {"-help"}, new PrintStream(out), new PrintStream(out));
+        }
+    }
+
+    @Test
+    public void negativeArgumentCountIsRejected() throws Exception {
+        try (Socket socket = connect()) {
+            DataOutputStream request = new DataOutputStream(socket.getOutputStream());
+
+            request.writeUTF(Client.readToken(server.getTokenFile()));
+            request.writeInt(-1);
+            request.flush();
+
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void tokenFileIsPrivate() throws Exception {
+        File tokenFile = server.getTokenFile();
+
+        assertTrue(tokenFile.exists());
+
+        if (Files.getFileStore(tokenFile.toPath()).supportsFileAttributeView("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.toPath())));
+        }
+
+        server.close();
+        assertFalse(tokenFile.exists());
+    }
+
+    @Test
+    public void logLevelIsIgnored() throws Exception {
+        String[] args = {"-log", "ALL", "-m", "structured", "--", "a", "b", "c"};
+        String[] expected = {"-m", "structured", "--", "a", "b", "c"};
+
+        assertArrayEquals(expected, Server.withoutLogLevel(args));
+
+        String[] noLog = {"-m", "structured", "a"};
+        assertEquals(Arrays.asList(noLog), Arrays.asList(Server.withoutLogLevel(noLog)));
+    }
+
+    /**
+     * Connects to the tested <code>Server</code>.
+     *
+     * @return the connection
+     */
+    private Socket connect() throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+}
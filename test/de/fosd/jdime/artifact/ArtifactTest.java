@@ -23,9 +23,11 @@
  */
 package de.fosd.jdime.artifact;
 
+import de.fosd.jdime.stats.KeyEnums;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 /**
  * Tests for the <code>Artifact</code> class.
@@ -38,4 +40,73 @@ public void testGetMaxDepth() throws Exception {
 
         assertEquals(7, artifact.getMaxDepth());
     }
+
+    @Test
+    public void testCachedSizesAreInvalidated() throws Exception {
+        TestArtifact artifact = TestTrees.paperTree();
+        TestArtifact leaf = artifact;
+
+        while (leaf.hasChildren()) {
+            leaf = leaf.getChild(leaf.getNumChildren() - 1);
+        }
+
+        int size = artifact.getTreeSize();
+        int depth = artifact.getMaxDepth();
+
+        TestArtifact child = new TestArtifact("a", KeyEnums.Type.NODE);
+        child.addChild(new TestArtifact("b", KeyEnums.Type.NODE));
+        leaf.addChild(child);
+
+        assertEquals(size + 2, artifact.getTreeSize());
+        assertEquals(Math.max(depth, leaf.getMaxDepth() + artifactDepth(leaf) - 1), artifact.getMaxDepth());
+
+        child.clearChildren();
+
+        assertEquals(size + 1, artifact.getTreeSize());
+        assertEquals(2, leaf.getMaxDepth());
+    }
+
+    @Test
+    public void testTreeHash() throws Exception {
+        for (TreeHash.Mode mode : TreeHash.Mode.values()) {
+            TestArtifact left = TestTrees.paperTree();
+            TestArtifact right = TestTrees.paperTree();
+
+            assertEquals(left.getTreeHash(mode), right.getTreeHash(mode));
+
+            right.getChild(0).addChild(new TestArtifact("a", KeyEnums.Type.NODE));
+
+            assertNotEquals(left.getTreeHash(mode), right.getTreeHash(mode));
+        }
+    }
+
+    @Test
+    public void testTreeHashModes() throws Exception {
+        TestArtifact tree = TestTrees.paperTree();
+
+        TreeHash murmur = tree.getTreeHash(TreeHash.Mode.MURMUR3);
+        TreeHash sha = tree.getTreeHash(TreeHash.Mode.SHA256);
+
+        assertEquals(TreeHash.Mode.MURMUR3, murmur.getMode());
+        assertEquals(TreeHash.Mode.SHA256, sha.getMode());
+        assertNotEquals(murmur, sha);
+        assertEquals(murmur, tree.getTreeHash(TreeHash.Mode.MURMUR3));
+    }
+
+    /**
+     * Returns the number of nodes on the path from the root of the tree to <code>artifact</code>.
+     *
+     * @param artifact
+     *         the <code>Artifact</code> whose depth is to be returned
+     * @return the depth of <code>artifact</code>
+     */
+    private static int artifactDepth(TestArtifact artifact) {
+        int depth = 1;
+
+        for (TestArtifact a = artifact; a.getParent() != null; a = a.getParent()) {
+            depth++;
+        }
+
+        return depth;
+    }
 }
\ No newline at end of file
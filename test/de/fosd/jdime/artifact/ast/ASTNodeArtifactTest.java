@@ -24,15 +24,28 @@
 package de.fosd.jdime.artifact.ast;
 
 import java.io.File;
+import java.util.List;
 
 import de.fosd.jdime.JDimeTest;
+import de.fosd.jdime.Main;
+import de.fosd.jdime.artifact.ArtifactList;
 import de.fosd.jdime.artifact.file.FileArtifact;
 import de.fosd.jdime.config.JDimeConfig;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.config.merge.MergeScenario;
 import de.fosd.jdime.config.merge.Revision;
+import de.fosd.jdime.strategy.MergeStrategy;
+import org.apache.commons.io.FileUtils;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import static de.fosd.jdime.strdump.DumpMode.PLAINTEXT_TREE;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 /**
@@ -41,6 +54,10 @@
 public class ASTNodeArtifactTest extends JDimeTest {
 
     private static Revision testRevision = new Revision("TEST");
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
     private static File testFile;
 
     @BeforeClass
@@ -81,4 +98,100 @@ public void testPrettyPrint() {
             fail(e.toString());
         }
     }
+
+    @Test
+    public void testParseVirtualFile() throws Exception {
+        FileArtifact virtual = new FileArtifact(testRevision, FileArtifact.FileType.FILE);
+        virtual.setContent(FileUtils.readFileToString(testFile, UTF_8));
+
+        ASTNodeArtifact artifact = new ASTNodeArtifact(virtual);
+        assertEquals(normalize(prettyPrintExpected), normalize(artifact.prettyPrint()));
+    }
+
+    @Test
+    public void testASTCache() {
+        FileArtifact file = new FileArtifact(testRevision, testFile);
+        ASTCache disabled = new ASTCache(ASTCache.DEFAULT_CAPACITY);
+
+        disabled.put(file, new ASTNodeArtifact(file));
+        assertNull(disabled.get(file));
+
+        ASTCache cache = new ASTCache(64L * 1024L * 1024L);
+
+        assertNull(cache.get(file));
+
+        cache.put(file, new ASTNodeArtifact(file));
+
+        ASTNodeArtifact first = cache.get(file);
+        assertNotNull(first);
+
+        first.getChild(0).clearChildren();
+        first.prettyPrint();
+
+        ASTNodeArtifact second = cache.get(file);
+        assertNotNull(second);
+        assertEquals(normalize(prettyPrintExpected), normalize(second.prettyPrint()));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        cache.setCapacity(0);
+        assertNull(cache.get(file));
+    }
+
+    @Test
+    public void testASTDiskCache() throws Exception {
+        ASTDiskCache cache = new ASTDiskCache(tmpFolder.newFolder());
+
+        ASTNodeArtifact parsed = new ASTNodeArtifact(new FileArtifact(testRevision, testFile), cache);
+        ASTNodeArtifact loaded = new ASTNodeArtifact(new FileArtifact(testRevision, testFile), cache);
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(parsed.dump(PLAINTEXT_TREE), loaded.dump(PLAINTEXT_TREE));
+        assertEquals(normalize(prettyPrintExpected), normalize(loaded.prettyPrint()));
+    }
+
+    @Test
+    public void testMergeWithASTDiskCache() throws Exception {
+        File directory = tmpFolder.newFolder();
+        String uncached = merge(null);
+
+        ASTDiskCache storing = new ASTDiskCache(directory);
+        assertEquals(uncached, merge(storing));
+        assertEquals(0, storing.getHits());
+        assertEquals(3, storing.getMisses());
+
+        ASTDiskCache loading = new ASTDiskCache(directory);
+        assertEquals(uncached, merge(loading));
+        assertEquals(3, loading.getHits());
+        assertEquals(0, loading.getMisses());
+    }
+
+    /**
+     * Merges the three revisions of <code>SimpleTests/Bag/Bag.java</code> using the structured strategy.
+     *
+     * @param diskCache
+     *         the <code>ASTDiskCache</code> to parse the revisions with, may be <code>null</code>
+     * @return the merge result
+     */
+    private static String merge(ASTDiskCache diskCache) {
+        String path = "SimpleTests/Bag/Bag.java";
+        List<FileArtifact> inputs = new ArtifactList<>();
+
+        inputs.add(new FileArtifact(MergeScenario.LEFT, file(leftDir, path)));
+        inputs.add(new FileArtifact(MergeScenario.BASE, file(baseDir, path)));
+        inputs.add(new FileArtifact(MergeScenario.RIGHT, file(rightDir, path)));
+
+        MergeContext context = new MergeContext();
+
+        context.setMergeStrategy(MergeStrategy.parse(MergeStrategy.STRUCTURED).get());
+        context.setInputFiles(inputs);
+        context.setOutputFile(new FileArtifact(MergeScenario.MERGE, FileArtifact.FileType.FILE));
+        context.setASTDiskCache(diskCache);
+
+        Main.merge(context);
+
+        return context.getOutputFile().getContent();
+    }
 }
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.artifact.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.fosd.jdime.execption.AbortException;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static de.fosd.jdime.config.merge.MergeScenario.LEFT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for reading files from a <code>GitRepository</code>.
+ */
+public class GitRepositoryTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File directory;
+    private String large;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = tmpFolder.newFolder();
+
+        StringBuilder content = new StringBuilder();
+
+        for (int i = 0; i < 20000; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+
+        large = content.toString();
+
+        Files.write(new File(directory, "A.java").toPath(), "class A {}\n".getBytes(UTF_8));
+        Files.write(new File(directory, "Large.txt").toPath(), large.getBytes(UTF_8));
+
+        git("init", "-q");
+        git("add", ".");
+        git("-c", "user.name=JDime", "-c", "user.email=jdime@localhost", "commit", "-q", "-m", "initial");
+    }
+
+    @Test
+    public void readsFilesThroughCatFile() throws Exception {
+        try (GitRepository repository = GitRepository.open(directory)) {
+            FileArtifact root = repository.read(LEFT, "HEAD");
+
+            assertEquals("class A {}\n", child(root, "A.java").getContent());
+            assertEquals(large, child(root, "Large.txt").getContent());
+            assertTrue(repository.isCatFileRunning());
+
+            repository.close();
+            assertFalse(repository.isCatFileRunning());
+
+            assertEquals("class A {}\n", repository.read(LEFT, "HEAD:A.java").getContent());
+            assertTrue(repository.isCatFileRunning());
+        }
+    }
+
+    @Test
+    public void failedReadRestartsCatFile() throws Exception {
+        try (GitRepository repository = GitRepository.open(directory)) {
+            String digest = repository.read(LEFT, "HEAD:A.java").getContentDigest();
+            String blobId = digest.substring(GitRepository.BLOB_DIGEST_PREFIX.length());
+
+            assertEquals("class A {}\n", repository.readBlob(blobId));
+
+            try {
+                repository.readBlob("0000000000000000000000000000000000000000");
+                fail("Read a missing blob.");
+            } catch (IOException e) {
+                assertFalse(repository.isCatFileRunning());
+            }
+
+            assertEquals("class A {}\n", repository.readBlob(blobId));
+        }
+    }
+
+    @Test
+    public void failedCommandReportsError() throws Exception {
+        try (GitRepository repository = GitRepository.open(directory)) {
+            repository.mergeCommits("does-not-exist");
+            fail("Listed the merge commits of a missing revision.");
+        } catch (AbortException e) {
+            assertTrue(e.getCause().getMessage().contains("does-not-exist"));
+        }
+    }
+
+    /**
+     * Returns the child of <code>dir</code> with the given name.
+     *
+     * @param dir
+     *         the directory
+     * @param name
+     *         the name of the child
+     * @return the child
+     */
+    private static FileArtifact child(FileArtifact dir, String name) {
+        return dir.getChildren().stream().filter(c -> c.getFile().getName().equals(name)).findFirst().get();
+    }
+
+    /**
+     * Runs git with the given arguments in the test repository.
+     *
+     * @param args
+     *         the arguments for git
+     */
+    private void git(String... args) throws Exception {
+        List<String> cmd = new ArrayList<>();
+
+        cmd.add("git");
+        Collections.addAll(cmd, args);
+
+        Process git = new ProcessBuilder(cmd).directory(directory).redirectErrorStream(true).start();
+        String out = IOUtils.toString(git.getInputStream(), UTF_8);
+
+        assertEquals(out, 0, git.waitFor());
+    }
+}
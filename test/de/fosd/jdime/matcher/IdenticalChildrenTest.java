@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import de.fosd.jdime.artifact.TestArtifact;
+import de.fosd.jdime.artifact.TreeHash;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.config.merge.Revision;
+import de.fosd.jdime.matcher.matching.Color;
+import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.stats.KeyEnums;
+import org.junit.Test;
+
+import static de.fosd.jdime.config.merge.MergeScenario.LEFT;
+import static de.fosd.jdime.config.merge.MergeScenario.RIGHT;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for <code>IdenticalChildren</code>.
+ */
+public class IdenticalChildrenTest {
+
+    private static final TreeHash.Mode MODE = TreeHash.Mode.MURMUR3;
+
+    @Test
+    public void commonPrefixAndSuffix() throws Exception {
+        List<TestArtifact> left = leaves("a", "b", "c", "x", "d", "e");
+        List<TestArtifact> right = leaves("a", "b", "y", "d", "e");
+
+        int prefix = IdenticalChildren.commonPrefix(left, right, MODE);
+
+        assertEquals(2, prefix);
+        assertEquals(2, IdenticalChildren.commonSuffix(left, right, prefix, MODE));
+
+        assertEquals(0, IdenticalChildren.commonPrefix(leaves("a"), leaves("b", "a"), MODE));
+        assertEquals(1, IdenticalChildren.commonSuffix(leaves("a"), leaves("b", "a"), 0, MODE));
+    }
+
+    @Test
+    public void prefixAndSuffixDoNotOverlap() throws Exception {
+        List<TestArtifact> left = leaves("a", "a");
+        List<TestArtifact> right = leaves("a", "a", "a");
+
+        int prefix = IdenticalChildren.commonPrefix(left, right, MODE);
+
+        assertEquals(2, prefix);
+        assertEquals(0, IdenticalChildren.commonSuffix(left, right, prefix, MODE));
+        assertEquals(0, IdenticalChildren.commonPrefix(leaves(), right, MODE));
+    }
+
+    @Test
+    public void onlyUniqueChildrenArePaired() throws Exception {
+        List<TestArtifact> left = leaves("a", "b", "b", "c", "e");
+        List<TestArtifact> right = leaves("c", "b", "a", "b", "d");
+
+        assertArrayEquals(new int[] {2, -1, -1, 0, -1}, IdenticalChildren.uniquePairs(left, right, MODE));
+        assertArrayEquals(new int[] {-1, -1}, IdenticalChildren.uniquePairs(leaves("a", "a"), right, MODE));
+    }
+
+    @Test
+    public void pairingDoesNotChangeOrderedMatchings() throws Exception {
+        assertPairingDoesNotChangeMatchings(KeyEnums.Type.NODE);
+    }
+
+    @Test
+    public void pairingDoesNotChangeUnorderedMatchings() throws Exception {
+        assertPairingDoesNotChangeMatchings(KeyEnums.Type.METHOD);
+    }
+
+    @Test
+    public void pairingDoesNotChangeOrderedMatchingScores() throws Exception {
+        assertPairingDoesNotChangeScores(KeyEnums.Type.NODE);
+    }
+
+    @Test
+    public void pairingDoesNotChangeUnorderedMatchingScores() throws Exception {
+        assertPairingDoesNotChangeScores(KeyEnums.Type.METHOD);
+    }
+
+    /**
+     * Matches random trees whose roots only have leaves as children with and without pairing identical children
+     * first and asserts that the resulting matchings are equal. Identical children are interchangeable, so the
+     * matchings are compared by the tree hashes of the matched artifacts.
+     *
+     * @param childType
+     *         the type of the children of the roots, {@link KeyEnums.Type#METHOD} for unordered children
+     */
+    private static void assertPairingDoesNotChangeMatchings(KeyEnums.Type childType) {
+        Random random = new Random(42);
+
+        for (int run = 0; run < 50; run++) {
+            long seed = random.nextLong();
+
+            assertEquals("Matchings differ in run " + run + ".", matchings(seed, childType, 0, false),
+                         matchings(seed, childType, 0, true));
+        }
+    }
+
+    /**
+     * Matches random trees with and without pairing identical children first and asserts that the roots are matched
+     * with the same score. Different children may have equal scores, in which case the matchers may choose
+     * differently between them, so only the scores of the roots are compared.
+     *
+     * @param childType
+     *         the type of the children of the roots, {@link KeyEnums.Type#METHOD} for unordered children
+     */
+    private static void assertPairingDoesNotChangeScores(KeyEnums.Type childType) {
+        Random random = new Random(42);
+
+        for (int run = 0; run < 50; run++) {
+            long seed = random.nextLong();
+
+            assertEquals("Scores differ in run " + run + ".", rootScore(seed, childType, false),
+                         rootScore(seed, childType, true));
+        }
+    }
+
+    /**
+     * Matches two random trees generated using the given seed and returns the resulting matchings.
+     *
+     * @param seed
+     *         the seed for generating the trees
+     * @param childType
+     *         the type of the children of the roots
+     * @param maxGrandChildren
+     *         the maximum number of children of the children of the roots
+     * @param pairIdenticalChildren
+     *         whether to pair identical children directly
+     * @return the sorted matchings, the matched artifacts represented by their tree hashes
+     */
+    private static List<String> matchings(long seed, KeyEnums.Type childType, int maxGrandChildren,
+                                          boolean pairIdenticalChildren) {
+        return match(seed, childType, maxGrandChildren, pairIdenticalChildren).stream()
+                .map(m -> m.getLeft().getTreeHash(MODE) + ", " + m.getRight().getTreeHash(MODE) + " = " + m.getScore())
+                .sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Matches two random trees generated using the given seed and returns the score of the matching of their roots.
+     *
+     * @param seed
+     *         the seed for generating the trees
+     * @param childType
+     *         the type of the children of the roots
+     * @param pairIdenticalChildren
+     *         whether to pair identical children directly
+     * @return the score of the matching of the roots
+     */
+    private static int rootScore(long seed, KeyEnums.Type childType, boolean pairIdenticalChildren) {
+        Matchings<TestArtifact> matchings = match(seed, childType, 2, pairIdenticalChildren);
+        return matchings.stream().filter(m -> m.getLeft().getParent() == null).findFirst().get().getScore();
+    }
+
+    /**
+     * Matches two random trees generated using the given seed.
+     *
+     * @param seed
+     *         the seed for generating the trees
+     * @param childType
+     *         the type of the children of the roots
+     * @param maxGrandChildren
+     *         the maximum number of children of the children of the roots
+     * @param pairIdenticalChildren
+     *         whether to pair identical children directly
+     * @return the matchings
+     */
+    private static Matchings<TestArtifact> match(long seed, KeyEnums.Type childType, int maxGrandChildren,
+                                                 boolean pairIdenticalChildren) {
+        Random random = new Random(seed);
+        TestArtifact left = randomTree(LEFT, childType, maxGrandChildren, random);
+        TestArtifact right = randomTree(RIGHT, childType, maxGrandChildren, random);
+
+        MergeContext context = new MergeContext();
+        context.setPairIdenticalChildren(pairIdenticalChildren);
+
+        return new Matcher<>(left, right).match(context, Color.DEFAULT);
+    }
+
+    /**
+     * Returns a random tree whose root has up to ten children. The children are labeled with one of two labels, so
+     * many of them are identical.
+     *
+     * @param rev
+     *         the revision of the nodes
+     * @param childType
+     *         the type of the children of the root
+     * @param maxGrandChildren
+     *         the maximum number of children of the children of the root
+     * @param random
+     *         the PRNG to use
+     * @return the root of the tree
+     */
+    private static TestArtifact randomTree(Revision rev, KeyEnums.Type childType, int maxGrandChildren,
+                                           Random random) {
+        TestArtifact root = new TestArtifact(rev, "R", KeyEnums.Type.NODE);
+        int children = 1 + random.nextInt(10);
+
+        for (int i = 0; i < children; i++) {
+            TestArtifact child = new TestArtifact(rev, label(random), childType);
+            int grandChildren = random.nextInt(maxGrandChildren + 1);
+
+            for (int j = 0; j < grandChildren; j++) {
+                child.addChild(new TestArtifact(rev, label(random), KeyEnums.Type.NODE));
+            }
+
+            root.addChild(child);
+        }
+
+        root.renumber();
+        return root;
+    }
+
+    /**
+     * Returns one of two labels.
+     *
+     * @param random
+     *         the PRNG to use
+     * @return the label
+     */
+    private static String label(Random random) {
+        return random.nextBoolean() ? "A" : "B";
+    }
+
+    /**
+     * Returns leaves with the given labels.
+     *
+     * @param labels
+     *         the labels of the leaves
+     * @return the leaves
+     */
+    private static List<TestArtifact> leaves(String... labels) {
+        return Arrays.stream(labels).map(l -> new TestArtifact(l, KeyEnums.Type.NODE))
+                     .collect(Collectors.toCollection(ArrayList::new));
+    }
+}
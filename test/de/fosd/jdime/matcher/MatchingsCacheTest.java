@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher;
+
+import de.fosd.jdime.artifact.TestArtifact;
+import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.stats.KeyEnums;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the <code>MatchingsCache</code>.
+ */
+public class MatchingsCacheTest {
+
+    @Test
+    public void keysAreComparedByIdentity() throws Exception {
+        TestArtifact left = new TestArtifact("a", KeyEnums.Type.NODE);
+        TestArtifact right = new TestArtifact("b", KeyEnums.Type.NODE);
+        TestArtifact equalLeft = new TestArtifact("a", KeyEnums.Type.NODE);
+
+        MatchingsCache<TestArtifact> cache = new MatchingsCache<>(10);
+        Matchings<TestArtifact> matchings = Matchings.of(left, right, 1);
+
+        cache.put(left, right, matchings);
+
+        assertSame(matchings, cache.get(left, right));
+        assertNull(cache.get(equalLeft, right));
+        assertNull(cache.get(right, left));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws Exception {
+        TestArtifact a = new TestArtifact("a", KeyEnums.Type.NODE);
+        TestArtifact b = new TestArtifact("b", KeyEnums.Type.NODE);
+        TestArtifact c = new TestArtifact("c", KeyEnums.Type.NODE);
+
+        MatchingsCache<TestArtifact> cache = new MatchingsCache<>(2);
+
+        cache.put(a, b, Matchings.of(a, b, 1));
+        cache.put(a, c, Matchings.of(a, c, 1));
+        cache.get(a, b);
+        cache.put(b, c, Matchings.of(b, c, 1));
+
+        assertNull(cache.get(a, c));
+        assertEquals(1, cache.get(a, b).size());
+        assertEquals(1, cache.get(b, c).size());
+    }
+}
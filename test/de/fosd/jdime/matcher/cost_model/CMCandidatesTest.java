@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher.cost_model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import de.fosd.jdime.artifact.TestArtifact;
+import de.fosd.jdime.artifact.TreeHash;
+import de.fosd.jdime.config.merge.MergeContext;
+import org.junit.Test;
+
+import static de.fosd.jdime.config.merge.MergeScenario.LEFT;
+import static de.fosd.jdime.config.merge.MergeScenario.RIGHT;
+import static de.fosd.jdime.matcher.cost_model.CostModelMatcherTest.randomTree;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for completing sets of matchings from the edges of <code>CMCandidates</code>.
+ */
+public class CMCandidatesTest {
+
+    @Test
+    public void completedMatchingsAreCompleteAndValid() throws Exception {
+        Random random = new Random(42);
+        CostModelMatcher<TestArtifact> matcher = new CostModelMatcher<>();
+
+        for (int run = 0; run < 50; run++) {
+            TestArtifact left = randomTree(LEFT, 1 + random.nextInt(40), random);
+            TestArtifact right = randomTree(RIGHT, 1 + random.nextInt(40), random);
+            int k = random.nextInt(4);
+
+            MergeContext context = new MergeContext();
+            context.setSeed(Optional.of(random.nextLong()));
+
+            CMParameters<TestArtifact> parameters = new CMParameters<>(context);
+            parameters.candidates = new CMCandidates<>(left, right, k, TreeHash.Mode.MURMUR3);
+            parameters.trees = new CMTreeIndex<>(left, right);
+
+            Map<TestArtifact, Set<TestArtifact>> edges = edges(parameters.candidates);
+            CMMatchings<TestArtifact> fixed = new CMMatchings<>(left, right);
+
+            for (int proposal = 0; proposal < 5; proposal++) {
+                CMMatchings<TestArtifact> completed = matcher.complete(fixed, parameters);
+                String msg = "Run " + run + " (k = " + k + "), proposal " + proposal + ".";
+
+                assertTrue(msg, completed.sane());
+                assertTrue(msg, completed.containsAll(fixed));
+
+                for (CMMatching<TestArtifact> matching : completed) {
+                    assertTrue(msg, edges.getOrDefault(matching.m, Collections.emptySet()).contains(matching.n));
+                }
+
+                List<CMMatching<TestArtifact>> shuffled = new ArrayList<>(completed);
+                Collections.shuffle(shuffled, random);
+
+                fixed = new CMMatchings<>(shuffled.subList(0, random.nextInt(shuffled.size() + 1)), left, right);
+            }
+        }
+    }
+
+    /**
+     * Returns the edges of the given candidate graph as a map from every left node (or <code>null</code> for the
+     * no-match node) to the right nodes it is connected to.
+     *
+     * @param candidates
+     *         the candidate graph
+     * @return the edges
+     */
+    private static Map<TestArtifact, Set<TestArtifact>> edges(CMCandidates<TestArtifact> candidates) {
+        Map<TestArtifact, Set<TestArtifact>> edges = new IdentityHashMap<>();
+
+        for (int edge = 0; edge < candidates.size(); edge++) {
+            CMMatching<TestArtifact> matching = candidates.matching(edge);
+
+            edges.computeIfAbsent(matching.m, m -> Collections.newSetFromMap(new IdentityHashMap<>()))
+                 .add(matching.n);
+        }
+
+        return edges;
+    }
+}
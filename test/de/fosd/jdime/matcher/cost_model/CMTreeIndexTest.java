@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher.cost_model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import de.fosd.jdime.artifact.Artifacts;
+import de.fosd.jdime.artifact.TestArtifact;
+import de.fosd.jdime.util.Tuple;
+import org.junit.Test;
+
+import static de.fosd.jdime.config.merge.MergeScenario.LEFT;
+import static de.fosd.jdime.config.merge.MergeScenario.RIGHT;
+import static de.fosd.jdime.matcher.cost_model.CostModelMatcherTest.randomTree;
+import static de.fosd.jdime.stats.KeyEnums.Type.NODE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the queries answered by a <code>CMTreeIndex</code>.
+ */
+public class CMTreeIndexTest {
+
+    @Test
+    public void queriesMatchParentWalk() throws Exception {
+        Random random = new Random(42);
+
+        for (int run = 0; run < 50; run++) {
+            TestArtifact left = randomTree(LEFT, 1 + random.nextInt(60), random);
+            TestArtifact right = randomTree(RIGHT, 1 + random.nextInt(60), random);
+
+            assertIndexMatchesParentWalk(left, right);
+        }
+    }
+
+    @Test
+    public void rootsWithParentsAreTheirOwnSiblingGroup() throws Exception {
+        Random random = new Random(42);
+
+        TestArtifact leftParent = new TestArtifact(LEFT, "P", NODE);
+        TestArtifact left = randomTree(LEFT, 30, random);
+        TestArtifact leftSibling = new TestArtifact(LEFT, "S", NODE);
+
+        leftParent.addChild(left);
+        leftParent.addChild(leftSibling);
+        leftParent.renumber();
+
+        TestArtifact right = randomTree(RIGHT, 30, random);
+        CMTreeIndex<TestArtifact> index = new CMTreeIndex<>(left, right);
+
+        assertEquals(Collections.singletonList(left), index.siblings(left));
+        assertEquals(Collections.emptyList(), index.otherSiblings(left));
+        assertIndexMatchesParentWalk(left, right);
+
+        try {
+            index.siblings(leftSibling);
+            fail("Returned the siblings of a node outside of the indexed trees.");
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        try {
+            index.lca(left, right);
+            fail("Returned the lowest common ancestor of nodes of different trees.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    /**
+     * Asserts that a <code>CMTreeIndex</code> of the given trees answers all queries for all (pairs of) nodes of the
+     * trees like the parent walk it replaced.
+     *
+     * @param left
+     *         the left root
+     * @param right
+     *         the right root
+     */
+    private static void assertIndexMatchesParentWalk(TestArtifact left, TestArtifact right) {
+        CMTreeIndex<TestArtifact> index = new CMTreeIndex<>(left, right);
+
+        for (TestArtifact root : new TestArtifact[] {left, right}) {
+            List<TestArtifact> nodes = Artifacts.dfs(root);
+
+            for (TestArtifact a : nodes) {
+                List<TestArtifact> siblings = siblings(a, left, right);
+                List<TestArtifact> otherSiblings = new ArrayList<>(siblings);
+                otherSiblings.remove(a);
+
+                assertEquals(siblings, index.siblings(a));
+                assertEquals(otherSiblings, new ArrayList<>(index.otherSiblings(a)));
+                assertEquals(siblings.indexOf(a), index.siblingIndex(a));
+                assertEquals(siblings.stream().anyMatch(TestArtifact::isOrdered), index.isOrderedGroup(a));
+
+                for (TestArtifact b : nodes) {
+                    Tuple<TestArtifact, TestArtifact> expected = lca(a, b, left, right);
+                    Tuple<TestArtifact, TestArtifact> actual = index.lca(a, b);
+
+                    assertSame(expected.x, actual.x);
+                    assertSame(expected.y, actual.y);
+                    assertEquals(siblings.contains(b), index.areSiblings(a, b));
+                    assertEquals(otherSiblings.contains(b), index.isOtherSibling(a, b));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the siblings of <code>artifact</code> by looking at the children of its parent. The roots of the
+     * indexed trees have no siblings but themselves.
+     */
+    private static List<TestArtifact> siblings(TestArtifact artifact, TestArtifact left, TestArtifact right) {
+
+        if (artifact == left || artifact == right) {
+            return Collections.singletonList(artifact);
+        }
+
+        return artifact.getParent().getChildren();
+    }
+
+    /**
+     * Finds the lowest pair of ancestors of <code>a</code> and <code>b</code> that are part of the same sibling group
+     * by comparing their paths to the root.
+     */
+    private static Tuple<TestArtifact, TestArtifact> lca(TestArtifact a, TestArtifact b, TestArtifact left,
+                                                         TestArtifact right) {
+
+        if (siblings(a, left, right).contains(b)) {
+            return Tuple.of(a, b);
+        }
+
+        List<TestArtifact> aPath = pathToRoot(a);
+        List<TestArtifact> bPath = pathToRoot(b);
+        ListIterator<TestArtifact> aIt = aPath.listIterator(aPath.size());
+        ListIterator<TestArtifact> bIt = bPath.listIterator(bPath.size());
+        TestArtifact l;
+        TestArtifact r;
+
+        do {
+            l = aIt.previous();
+            r = bIt.previous();
+        } while (l == r && aIt.hasPrevious() && bIt.hasPrevious());
+
+        return Tuple.of(l, r);
+    }
+
+    /**
+     * Returns the path from <code>artifact</code> to the root of its tree, beginning with <code>artifact</code>.
+     */
+    private static List<TestArtifact> pathToRoot(TestArtifact artifact) {
+        List<TestArtifact> path = new ArrayList<>();
+
+        do {
+            path.add(artifact);
+            artifact = artifact.getParent();
+        } while (artifact != null);
+
+        return path;
+    }
+}
@@ -23,22 +23,33 @@
  */
 package de.fosd.jdime.matcher.cost_model;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 import de.fosd.jdime.JDimeTest;
 import de.fosd.jdime.artifact.TestArtifact;
+import de.fosd.jdime.artifact.file.FileArtifact;
 import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.config.merge.MergeScenario;
+import de.fosd.jdime.config.merge.MergeType;
+import de.fosd.jdime.config.merge.Revision;
 import de.fosd.jdime.matcher.matching.Matching;
 import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.stats.MergeScenarioStatistics;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import static de.fosd.jdime.artifact.Artifacts.root;
+import static de.fosd.jdime.artifact.file.FileArtifact.FileType.FILE;
+import static de.fosd.jdime.config.merge.MergeScenario.BASE;
 import static de.fosd.jdime.config.merge.MergeScenario.LEFT;
 import static de.fosd.jdime.config.merge.MergeScenario.RIGHT;
 import static de.fosd.jdime.stats.KeyEnums.Type.NODE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class CostModelMatcherTest extends JDimeTest {
 
@@ -163,6 +174,190 @@ public void paperC() throws Exception {
         testCostModelMatching(expected, 1.0f, 1.0f, 0.5f, 0.5f, 0);
     }
 
+    @Test
+    public void fixedSeedIsDeterministic() throws Exception {
+        assertDeterministic(context(500));
+
+        MergeContext chains = context(500);
+        chains.setCostModelChains(3);
+
+        assertDeterministic(chains);
+
+        // the PRNG of the first chain uses the seed itself, so it repeats the run of a single chain
+        MergeContext single = context(50);
+        MergeContext multiple = context(50);
+        multiple.setCostModelChains(3);
+
+        Random random = new Random(42);
+
+        for (int run = 0; run < 5; run++) {
+            TestArtifact randomLeft = randomTree(LEFT, 20 + random.nextInt(20), random);
+            TestArtifact randomRight = randomTree(RIGHT, 20 + random.nextInt(20), random);
+
+            assertEquals(matcher.match(single, randomLeft, randomRight),
+                         matcher.matchChains(multiple, randomLeft, randomRight).get(0));
+        }
+
+        MergeContext tempering = context(500);
+        tempering.setCostModelChains(3);
+        tempering.setCmMatcherTempering(true);
+
+        assertDeterministic(tempering);
+    }
+
+    @Test
+    public void patienceEndsRunEarly() throws Exception {
+        MergeContext context = context(100000);
+        context.setCostModelPatience(20);
+
+        MergeScenarioStatistics stats = matchWithStatistics(context);
+
+        assertTrue(stats.getCounter(CostModelMatcher.ITERATIONS_LABEL) >= 20);
+        assertTrue(stats.getCounter(CostModelMatcher.ITERATIONS_LABEL) < 100000);
+        assertEquals(1, stats.getCounter(CostModelMatcher.CONVERGED_LABEL));
+        assertEquals(0, stats.getCounter(CostModelMatcher.TIMEOUTS_LABEL));
+    }
+
+    @Test
+    public void minImprovementEndsRunEarly() throws Exception {
+        MergeContext context = context(100000);
+        context.setCostModelPatience(20);
+        context.setCostModelMinImprovement(1.0f);
+
+        MergeScenarioStatistics stats = matchWithStatistics(context);
+
+        // no decrease of the cost is an improvement by 100%, the chain stops after exactly 'patience' iterations
+        assertEquals(20, stats.getCounter(CostModelMatcher.ITERATIONS_LABEL));
+        assertEquals(1, stats.getCounter(CostModelMatcher.CONVERGED_LABEL));
+    }
+
+    @Test(timeout = 60000)
+    public void timeoutEndsRunEarly() throws Exception {
+        MergeContext context = context(Integer.MAX_VALUE);
+        context.setCostModelChains(2);
+        context.setCostModelTimeout(100);
+
+        MergeScenarioStatistics stats = matchWithStatistics(context);
+
+        assertTrue(stats.getCounter(CostModelMatcher.ITERATIONS_LABEL) > 0);
+        assertEquals(1, stats.getCounter(CostModelMatcher.TIMEOUTS_LABEL));
+        assertEquals(0, stats.getCounter(CostModelMatcher.CONVERGED_LABEL));
+    }
+
+    @Test
+    public void incrementalCostMatchesRecomputedCost() throws Exception {
+        assertTrue("The costs are compared by an assertion.", CostModelMatcher.class.desiredAssertionStatus());
+
+        Random random = new Random(42);
+
+        for (int run = 0; run < 20; run++) {
+            TestArtifact randomLeft = randomTree(LEFT, 5 + random.nextInt(30), random);
+            TestArtifact randomRight = randomTree(RIGHT, 5 + random.nextInt(30), random);
+
+            MergeContext context = context(50);
+            context.setWr(random.nextFloat());
+            context.setWa(random.nextFloat());
+            context.setWs(random.nextFloat());
+            context.setWo(random.nextFloat());
+            context.setSeed(Optional.of(random.nextLong()));
+            context.setCmMatcherFixRandomPercentage(random.nextBoolean());
+
+            // objective asserts that every incrementally computed cost equals the recomputed one
+            matcher.match(context, randomLeft, randomRight);
+        }
+    }
+
+    /**
+     * Returns the root of a random tree with the given number of nodes labeled with one of five labels.
+     *
+     * @param rev
+     *         the revision of the nodes
+     * @param size
+     *         the number of nodes
+     * @param random
+     *         the PRNG to use
+     * @return the root of the tree
+     */
+    static TestArtifact randomTree(Revision rev, int size, Random random) {
+        List<TestArtifact> nodes = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            TestArtifact node = new TestArtifact(rev, String.valueOf((char) ('A' + random.nextInt(5))), NODE);
+
+            if (i > 0) {
+                nodes.get(random.nextInt(i)).addChild(node);
+            }
+
+            nodes.add(node);
+        }
+
+        TestArtifact root = nodes.get(0);
+        root.renumber();
+
+        return root;
+    }
+
+    /**
+     * Matches the test trees using the given <code>MergeContext</code> and returns the statistics recorded by the
+     * matcher.
+     *
+     * @param context
+     *         the <code>MergeContext</code> to use
+     * @return the <code>MergeScenarioStatistics</code> of the match
+     */
+    private MergeScenarioStatistics matchWithStatistics(MergeContext context) {
+        MergeScenario<FileArtifact> scenario = new MergeScenario<>(MergeType.THREEWAY, new FileArtifact(LEFT, FILE),
+                new FileArtifact(BASE, FILE), new FileArtifact(RIGHT, FILE));
+
+        context.collectStatistics(true);
+        context.getStatistics().setCurrentFileMergeScenario(scenario);
+
+        matcher.match(context, left, right);
+
+        return context.getStatistics().getScenarioStatistics(scenario);
+    }
+
+    /**
+     * Asserts that repeatedly matching the test trees using the given <code>MergeContext</code> produces the same
+     * matchings every time.
+     *
+     * @param context
+     *         the <code>MergeContext</code> to use
+     */
+    private void assertDeterministic(MergeContext context) {
+        Matchings<TestArtifact> first = matcher.match(context, left, right);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(first, new CostModelMatcher<TestArtifact>().match(context, left, right));
+        }
+    }
+
+    /**
+     * Returns a <code>MergeContext</code> for the cost model matcher using a fixed seed and the given number of
+     * iterations.
+     *
+     * @param iterations
+     *         the number of iterations of the cost model matcher
+     * @return the <code>MergeContext</code>
+     */
+    private static MergeContext context(int iterations) {
+        MergeContext context = new MergeContext();
+
+        context.setWr(1.0f);
+        context.setWn(1.0f);
+        context.setWa(1.0f);
+        context.setWs(1.0f);
+        context.setWo(1.0f);
+
+        context.setFixLower(.25f);
+        context.setFixUpper(.50f);
+        context.setpAssign(0.7f);
+        context.setSeed(Optional.of(42L));
+        context.setCostModelIterations(iterations);
+
+        return context;
+    }
+
     private void testCostModelMatching(Matchings<TestArtifact> expected, float wr, float wn, float wa, float ws, float wo) throws Exception {
         MergeContext context = new MergeContext();
 
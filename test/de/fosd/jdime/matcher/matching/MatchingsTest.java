@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher.matching;
+
+import de.fosd.jdime.artifact.TestArtifact;
+import de.fosd.jdime.stats.KeyEnums;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the indexed lookups of <code>Matchings</code>.
+ */
+public class MatchingsTest {
+
+    private TestArtifact a;
+    private TestArtifact b;
+    private TestArtifact c;
+    private TestArtifact d;
+
+    private Matching<TestArtifact> ab;
+    private Matching<TestArtifact> ac;
+    private Matching<TestArtifact> db;
+
+    private Matchings<TestArtifact> matchings;
+
+    @Before
+    public void setUp() throws Exception {
+        a = new TestArtifact("a", KeyEnums.Type.NODE);
+        b = new TestArtifact("b", KeyEnums.Type.NODE);
+        c = new TestArtifact("c", KeyEnums.Type.NODE);
+        d = new TestArtifact("d", KeyEnums.Type.NODE);
+
+        ab = new Matching<>(a, b, 1);
+        ac = new Matching<>(a, c, 2);
+        db = new Matching<>(d, b, 3);
+
+        matchings = new Matchings<>();
+        matchings.add(ab);
+        matchings.add(ac);
+        matchings.add(db);
+    }
+
+    @Test
+    public void lookup() throws Exception {
+        assertSame(ab, matchings.lookup(a, b));
+        assertSame(ab, matchings.lookup(b, a));
+        assertSame(ac, matchings.get(a, c).get());
+        assertEquals(3, (int) matchings.getScore(b, d).get());
+        assertNull(matchings.lookup(c, d));
+        assertFalse(matchings.get(c, d).isPresent());
+
+        assertSame(ab, matchings.lookupLeft(a));
+        assertSame(db, matchings.lookupLeft(d));
+        assertSame(ab, matchings.lookupRight(b));
+        assertSame(ac, matchings.getAny(c).get());
+        assertNull(matchings.lookupLeft(b));
+    }
+
+    @Test
+    public void duplicateIsNotIndexed() throws Exception {
+        Matching<TestArtifact> other = new Matching<>(b, a, 5);
+
+        assertFalse(matchings.add(other));
+        assertSame(ab, matchings.lookup(a, b));
+        assertSame(ab, matchings.lookupRight(b));
+    }
+
+    @Test
+    public void remove() throws Exception {
+        assertTrue(matchings.remove(ab));
+
+        assertNull(matchings.lookup(a, b));
+        assertSame(ac, matchings.lookupLeft(a));
+        assertSame(db, matchings.lookupRight(b));
+
+        matchings.removeIf(m -> m == ac);
+
+        assertNull(matchings.lookupLeft(a));
+        assertEquals(1, matchings.size());
+
+        matchings.clear();
+
+        assertNull(matchings.lookup(d, b));
+        assertNull(matchings.lookupRight(b));
+    }
+
+    @Test
+    public void cloneHasOwnIndexes() throws Exception {
+        Matchings<TestArtifact> clone = matchings.clone();
+
+        clone.remove(ab);
+
+        assertSame(ab, matchings.lookup(a, b));
+        assertNull(clone.lookup(a, b));
+        assertSame(ac, clone.lookup(c, a));
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.matcher.unordered.assignmentProblem;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the <code>ShortestAugmentingPathAlgorithm</code>.
+ */
+public class ShortestAugmentingPathAlgorithmTest {
+
+    @Test
+    public void testMatchesHungarianAlgorithm() throws Exception {
+        Random random = new Random(42);
+
+        for (int run = 0; run < 500; run++) {
+            int rows = 1 + random.nextInt(12);
+            int cols = 1 + random.nextInt(12);
+            int[][] scores = new int[rows][cols];
+            int max = 0;
+
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    scores[i][j] = random.nextInt(4) == 0 ? 0 : random.nextInt(50);
+                    max = Math.max(max, scores[i][j]);
+                }
+            }
+
+            int[][] costs = new int[rows][cols];
+
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    costs[i][j] = max - scores[i][j];
+                }
+            }
+
+            int[] expected = new HungarianAlgorithm(costs).execute();
+            int[] actual = ShortestAugmentingPathAlgorithm.maximize(rows, cols, (i, j) -> scores[i][j]);
+
+            assertEquals(total(scores, expected), total(scores, actual));
+            assertValid(actual, rows, cols);
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertEquals(0, ShortestAugmentingPathAlgorithm.maximize(0, 5, (i, j) -> 1).length);
+        assertEquals(-1, ShortestAugmentingPathAlgorithm.maximize(1, 0, (i, j) -> 1)[0]);
+    }
+
+    /**
+     * Returns the sum of the scores of the assigned cells.
+     *
+     * @param scores
+     *         the score matrix
+     * @param assignment
+     *         the column assigned to each row or -1
+     * @return the total score
+     */
+    private static int total(int[][] scores, int[] assignment) {
+        int total = 0;
+
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] >= 0) {
+                total += scores[i][assignment[i]];
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Asserts that <code>assignment</code> assigns every column at most once and assigns
+     * <code>min(rows, cols)</code> rows.
+     *
+     * @param assignment
+     *         the column assigned to each row or -1
+     * @param rows
+     *         the number of rows
+     * @param cols
+     *         the number of columns
+     */
+    private static void assertValid(int[] assignment, int rows, int cols) {
+        boolean[] assigned = new boolean[cols];
+        int count = 0;
+
+        for (int j : assignment) {
+            if (j >= 0) {
+                assertTrue(j < cols && !assigned[j]);
+                assigned[j] = true;
+                count++;
+            }
+        }
+
+        assertEquals(Math.min(rows, cols), count);
+    }
+}
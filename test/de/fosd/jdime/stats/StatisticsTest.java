@@ -23,6 +23,7 @@
  */
 package de.fosd.jdime.stats;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -345,4 +346,48 @@ public void collectStatistics() throws Exception {
             assertEquals(0, dirStats.getNumOccurInConflict());
         }
     }
-}
\ No newline at end of file
+
+    @Test(timeout = 60000)
+    public void concurrentUpdatesAreNotLost() throws Exception {
+        String label = "updates";
+        int threads = 4;
+        int updates = 1000;
+
+        MergeScenario<FileArtifact> scenario = new MergeScenario<>(MergeType.TWOWAY,
+                new FileArtifact(MergeScenario.LEFT, FILE), new FileArtifact(MergeScenario.BASE, FILE),
+                new FileArtifact(MergeScenario.RIGHT, FILE));
+
+        Statistics first = new Statistics();
+        Statistics second = new Statistics();
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            boolean even = t % 2 == 0;
+
+            workers.add(new Thread(() -> {
+                Statistics own = even ? first : second;
+                Statistics other = even ? second : first;
+                Statistics sink = new Statistics();
+
+                for (int i = 0; i < updates; i++) {
+                    own.getScenarioStatistics(scenario).incrementCounter(label, 1);
+                    sink.add(other);
+                }
+            }));
+        }
+
+        workers.forEach(Thread::start);
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Statistics sum = new Statistics();
+        sum.add(first);
+        sum.add(second);
+
+        assertEquals(threads / 2 * updates, first.getScenarioStatistics(scenario).getCounter(label));
+        assertEquals(threads / 2 * updates, second.getScenarioStatistics(scenario).getCounter(label));
+        assertEquals(threads * updates, sum.getScenarioStatistics(scenario).getCounter(label));
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2018 University of Passau, Germany
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ *
+ * Contributors:
+ *     Olaf Lessenich <lessenic@fim.uni-passau.de>
+ *     Georg Seibt <seibt@fim.uni-passau.de>
+ */
+package de.fosd.jdime.strategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import de.fosd.jdime.Main;
+import de.fosd.jdime.artifact.ArtifactList;
+import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.config.JDimeConfig;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.config.merge.MergeScenario;
+import de.fosd.jdime.stats.MergeScenarioStatistics;
+import de.fosd.jdime.stats.MergeScenarioStatus;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static de.fosd.jdime.artifact.file.FileArtifact.FileType.FILE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the merges the <code>StructuredStrategy</code> performs without parsing the input files.
+ */
+public class StructuredStrategyTest {
+
+    private static final String BASE = "class A {\n    int a() { return 1; }\n}\n";
+    private static final String CHANGED = "class A {\n    int a() { return 2; }\n}\n";
+    private static final String OTHER = "class A {\n    int a() { return 1; }\n\n    int b() { return 2; }\n}\n";
+    private static final String BROKEN = "class A {\n    int a() { return 1;\n";
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void init() throws Exception {
+        JDimeConfig.setLogLevel("WARNING");
+    }
+
+    @Test
+    public void leftEqualsBase() throws Exception {
+        assertTrivialMerge(BASE, BASE, CHANGED, CHANGED);
+    }
+
+    @Test
+    public void rightEqualsBase() throws Exception {
+        assertTrivialMerge(CHANGED, BASE, BASE, CHANGED);
+    }
+
+    @Test
+    public void leftEqualsRight() throws Exception {
+        assertTrivialMerge(CHANGED, BASE, CHANGED, CHANGED);
+    }
+
+    @Test
+    public void brokenInputIsNotParsed() throws Exception {
+        assertTrivialMerge(BROKEN, BROKEN, OTHER, OTHER);
+        assertTrivialMerge(BROKEN, OTHER, BROKEN, BROKEN);
+    }
+
+    /**
+     * Merges the given contents using the <code>StructuredStrategy</code> and asserts that the result is
+     * <code>expected</code> and that the merge was recorded as a trivial one.
+     *
+     * @param left
+     *         the content of the left file
+     * @param base
+     *         the content of the base file
+     * @param right
+     *         the content of the right file
+     * @param expected
+     *         the expected merge result
+     * @throws IOException
+     *         if the input files can not be written
+     */
+    private void assertTrivialMerge(String left, String base, String right, String expected) throws IOException {
+        List<FileArtifact> inputs = new ArtifactList<>();
+
+        inputs.add(new FileArtifact(MergeScenario.LEFT, write("left", left)));
+        inputs.add(new FileArtifact(MergeScenario.BASE, write("base", base)));
+        inputs.add(new FileArtifact(MergeScenario.RIGHT, write("right", right)));
+
+        MergeContext context = new MergeContext();
+
+        context.setMergeStrategy(MergeStrategy.parse(MergeStrategy.STRUCTURED).get());
+        context.setInputFiles(inputs);
+        context.setOutputFile(new FileArtifact(MergeScenario.MERGE, FILE));
+        context.collectStatistics(true);
+
+        Main.merge(context);
+
+        assertEquals(expected, context.getOutputFile().getContent());
+        assertTrue(context.getCrashes().isEmpty());
+
+        MergeScenarioStatistics statistics = context.getStatistics().getScenarioStatistics().stream()
+                .filter(s -> s.getMergeScenario().asList().stream().allMatch(a -> a instanceof FileArtifact))
+                .findFirst().orElseThrow(AssertionError::new);
+
+        assertEquals(MergeScenarioStatus.TRIVIAL, statistics.getStatus());
+        assertEquals(0, statistics.getConflicts());
+    }
+
+    /**
+     * Writes the given content to <code>A.java</code> in a new directory.
+     *
+     * @param directory
+     *         the name of the directory
+     * @param content
+     *         the content to write
+     * @return the written file
+     * @throws IOException
+     *         if the file can not be written
+     */
+    private File write(String directory, String content) throws IOException {
+        File dir = new File(tmpFolder.getRoot(), directory);
+        File file = new File(dir, "A.java");
+
+        Files.createDirectories(dir.toPath());
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+
+        return file;
+    }
+}
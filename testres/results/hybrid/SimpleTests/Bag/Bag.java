@@ -0,0 +1,16 @@
+
+class Bag {
+  int[] values;
+
+  Bag(int[] v) {
+    values = v;
+  }
+
+  int[] get() {
+    return values;
+  }
+
+  int size() {
+    return values.length;
+  }
+}
\ No newline at end of file
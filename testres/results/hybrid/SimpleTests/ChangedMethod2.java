@@ -0,0 +1,9 @@
+public class SameStatement {
+
+<<<<<<<
+=======
+  public void n() {
+    int a;
+  }
+>>>>>>>
+}
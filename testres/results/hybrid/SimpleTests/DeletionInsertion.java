@@ -0,0 +1,6 @@
+class DeletionInsertion {
+    void foo() {
+      int a1;
+      int b1;
+    }
+}
@@ -0,0 +1,3 @@
+public class ExprTest {
+  String test = "edit first part" + "edit second part";
+}
@@ -0,0 +1,100 @@
+import edu.rice.cs.util.Log;
+import java.awt.Container;
+import java.awt.Color;
+import java.awt.event.FocusEvent;
+import java.awt.Font;
+import java.awt.event.FocusListener;
+import java.awt.print.PageFormat;
+import java.awt.print.PrinterJob;
+import java.awt.print.Pageable;
+import java.awt.print.PrinterException;
+import javax.swing.ProgressMonitor;
+import java.io.File;
+import javax.swing.event.DocumentListener;
+import java.io.FileFilter;
+import javax.swing.event.UndoableEditListener;
+import java.io.FileNotFoundException;
+import javax.swing.text.AttributeSet;
+import java.io.FileReader;
+import javax.swing.text.BadLocationException;
+import java.io.FilenameFilter;
+import javax.swing.text.Element;
+import java.io.IOException;
+import javax.swing.text.Position;
+import java.io.OutputStream;
+import javax.swing.text.Segment;
+import java.util.ArrayList;
+import javax.swing.text.Style;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Vector;
+import java.util.WeakHashMap;
+import edu.rice.cs.util.ClassPathVector;
+import edu.rice.cs.drjava.DrJava;
+import edu.rice.cs.util.FileOps;
+import edu.rice.cs.drjava.DrJavaRoot;
+import edu.rice.cs.util.FileOpenSelector;
+import edu.rice.cs.drjava.config.FileOption;
+import edu.rice.cs.util.OperationCanceledException;
+import edu.rice.cs.drjava.config.OptionConstants;
+import edu.rice.cs.util.OrderedHashSet;
+import edu.rice.cs.drjava.config.OptionEvent;
+import edu.rice.cs.util.Pair;
+import edu.rice.cs.drjava.config.OptionListener;
+import edu.rice.cs.util.SRunnable;
+import edu.rice.cs.drjava.model.cache.DCacheAdapter;
+import edu.rice.cs.util.StringOps;
+import edu.rice.cs.drjava.model.cache.DDReconstructor;
+import edu.rice.cs.util.UnexpectedException;
+import edu.rice.cs.drjava.model.cache.DocumentCache;
+import edu.rice.cs.util.docnavigation.INavigationListener;
+import edu.rice.cs.drjava.model.compiler.CompilerModel;
+import edu.rice.cs.util.docnavigation.NodeData;
+import edu.rice.cs.drjava.model.debug.Breakpoint;
+import edu.rice.cs.util.docnavigation.NodeDataVisitor;
+import edu.rice.cs.drjava.model.debug.DebugBreakpointData;
+import edu.rice.cs.util.docnavigation.AWTContainerNavigatorFactory;
+import edu.rice.cs.drjava.model.debug.DebugException;
+import edu.rice.cs.util.docnavigation.IDocumentNavigator;
+import edu.rice.cs.drjava.model.debug.DebugWatchData;
+import edu.rice.cs.util.docnavigation.INavigatorItem;
+import edu.rice.cs.drjava.model.debug.Debugger;
+import edu.rice.cs.util.docnavigation.INavigatorItemFilter;
+import edu.rice.cs.drjava.model.debug.NoDebuggerAvailable;
+import edu.rice.cs.util.docnavigation.JTreeSortNavigator;
+import edu.rice.cs.drjava.model.definitions.ClassNameNotFoundException;
+import edu.rice.cs.util.swing.DocumentIterator;
+import edu.rice.cs.drjava.model.definitions.CompoundUndoManager;
+import edu.rice.cs.util.swing.Utilities;
+import edu.rice.cs.drjava.model.definitions.DefinitionsDocument;
+import edu.rice.cs.util.text.AbstractDocumentInterface;
+import edu.rice.cs.drjava.model.definitions.DefinitionsEditorKit;
+import edu.rice.cs.util.text.ConsoleDocument;
+import edu.rice.cs.drjava.model.definitions.DocumentUIListener;
+import edu.rice.cs.drjava.model.print.DrJavaBook;
+import edu.rice.cs.drjava.model.definitions.InvalidPackageException;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.HighlightStatus;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.IndentInfo;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelState;
+import edu.rice.cs.drjava.model.repl.DefaultInteractionsModel;
+import edu.rice.cs.drjava.model.junit.JUnitModel;
+import edu.rice.cs.drjava.model.repl.InteractionsDocument;
+import edu.rice.cs.drjava.model.repl.InteractionsDJDocument;
+import edu.rice.cs.drjava.model.repl.InteractionsScriptModel;
+import edu.rice.cs.drjava.project.DocFile;
+import edu.rice.cs.drjava.project.DocumentInfoGetter;
+import edu.rice.cs.drjava.project.MalformedProjectFileException;
+import edu.rice.cs.drjava.project.ProjectProfile;
+import edu.rice.cs.drjava.project.ProjectFileIR;
+import edu.rice.cs.drjava.project.ProjectFileParser;
+import edu.rice.cs.util.swing.AsyncCompletionArgs;
+import edu.rice.cs.util.swing.AsyncTask;
+import edu.rice.cs.util.swing.IAsyncProgress;
+
+class MyClass {
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+public class MovedMethod {
+  private void foo() {
+    System.out.println("Hallo");
+  }
+
+  public int bar() {
+    return 42;
+  }
+}
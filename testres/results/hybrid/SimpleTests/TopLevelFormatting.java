@@ -0,0 +1,10 @@
+public class TopLevelFormatting {
+  private static final String FIRST_STRING = "3.14159265";
+
+  private String SECOND_STRING = "Hallo";
+
+  public void method() {
+    System.out.println(FIRST_STRING);
+    System.out.println(SECOND_STRING);
+  }
+}
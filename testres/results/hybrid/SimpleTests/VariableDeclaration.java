@@ -0,0 +1,10 @@
+public class SameStatement {
+	public void n() {
+	  int a = 
+<<<<<<<
+	  11
+=======
+>>>>>>>
+	  ;
+	}
+}